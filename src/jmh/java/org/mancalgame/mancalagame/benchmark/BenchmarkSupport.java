@@ -0,0 +1,44 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.online.GameBroadcaster;
+import org.mancalgame.mancalagame.online.OnlineGameManager;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.SplittableRandom;
+
+/**
+ * Shared fixtures for the JMH benchmarks.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * A messaging template whose channel accepts and discards every message,
+     * so benchmarks measure the game code rather than a broker.
+     */
+    static SimpMessagingTemplate discardingMessagingTemplate() {
+        return new SimpMessagingTemplate((message, timeout) -> true);
+    }
+
+    /**
+     * A game manager that runs each game command on the calling thread and discards broadcasts.
+     */
+    static OnlineGameManager directGameManager() {
+        return new OnlineGameManager(new MancalaGameService(), new GameBroadcaster(discardingMessagingTemplate()), Runnable::run, 64);
+    }
+
+    /**
+     * Picks a uniformly random non-empty pit for the player to move.
+     */
+    static int randomLegalPit(MancalaGame game, SplittableRandom random) {
+        int start = game.getCurrentPlayer() == 0 ? MancalaGame.PLAYER1_PIT_START : MancalaGame.PLAYER2_PIT_START;
+        while (true) {
+            int pit = start + random.nextInt(6);
+            if (game.getStonesInPit(pit) > 0) return pit;
+        }
+    }
+}
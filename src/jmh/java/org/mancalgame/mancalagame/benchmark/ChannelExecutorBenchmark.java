@@ -0,0 +1,80 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import org.mancalgame.mancalagame.Config.WebSocketConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One message from each of {@code sessions} concurrent STOMP sessions through a client channel
+ * executor, as configured by {@link WebSocketConfig}:
+ * <ul>
+ *   <li>{@code platform}: Spring's default channel pool, two threads per core;</li>
+ *   <li>{@code virtual}: a virtual thread per message (needs Java 21; run {@code -p executor=platform} on 17).</li>
+ * </ul>
+ * Each message blocks for {@code blockMicros}, standing in for a write to a slow client or a wait on
+ * another service, so the score is how long it takes to get through every session's message when
+ * threads spend their time waiting rather than computing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChannelExecutorBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String executor;
+
+    @Param({"10000"})
+    public int sessions;
+
+    @Param({"1000"})
+    public int blockMicros;
+
+    private TaskExecutor channel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (executor.equals("virtual")) {
+            channel = WebSocketConfig.virtualThreadChannelExecutor("bench-channel-", sessions);
+        } else {
+            ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+            pool.setThreadNamePrefix("bench-channel-");
+            pool.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+            pool.initialize();
+            channel = pool;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (channel instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void oneMessagePerSession() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(sessions);
+        long blockNanos = TimeUnit.MICROSECONDS.toNanos(blockMicros);
+        for (int i = 0; i < sessions; i++) {
+            channel.execute(() -> {
+                LockSupport.parkNanos(blockNanos);
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+}
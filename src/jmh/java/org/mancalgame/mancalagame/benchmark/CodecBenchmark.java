@@ -0,0 +1,108 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameDeltaDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameStateDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.MoveRequest;
+import org.mancalgame.mancalagame.online.BinaryMessageConverter;
+import org.mancalgame.mancalagame.online.OnlineMancalaGame;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON versus the compact binary codec through the same Spring {@link MessageConverter} API the
+ * broker uses: encoding a full snapshot and a five-pit delta, and decoding an inbound move.
+ * The {@code payloadBytes} auxiliary counter reports the size of one payload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CodecBenchmark {
+
+    @Param({"json", "binary"})
+    public String codec;
+
+    private MessageConverter converter;
+    private MessageHeaders outboundHeaders;
+    private GameStateDTO snapshot;
+    private GameDeltaDTO delta;
+    private Message<byte[]> moveFrame;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Bytes {
+        public long payloadBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            payloadBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        boolean binary = codec.equals("binary");
+        MimeType contentType = binary ? BinaryMessageConverter.MIME_TYPE : MimeTypeUtils.APPLICATION_JSON;
+        converter = binary ? new BinaryMessageConverter() : new MappingJackson2MessageConverter(new ObjectMapper());
+        outboundHeaders = headers(contentType);
+
+        OnlineMancalaGame game = new OnlineMancalaGame(new MancalaGameService());
+        game.addPlayer("host");
+        game.addPlayer("guest");
+        game.makeMove(2, 0);
+        snapshot = new GameStateDTO(game);
+        delta = new GameDeltaDTO(2, 0, new int[]{2, 0, 3, 5, 4, 5, 5, 5, 6, 1}, null);
+
+        byte[] move = binary
+                ? new byte[]{(byte) (0x20 + 9)}
+                : "{\"pitIndex\":9}".getBytes(StandardCharsets.UTF_8);
+        moveFrame = MessageBuilder.createMessage(move, headers(contentType));
+    }
+
+    @Benchmark
+    public Message<?> encodeSnapshot(Bytes counter) {
+        Message<?> message = converter.toMessage(snapshot, outboundHeaders);
+        counter.payloadBytes = ((byte[]) message.getPayload()).length;
+        return message;
+    }
+
+    @Benchmark
+    public Message<?> encodeDelta(Bytes counter) {
+        Message<?> message = converter.toMessage(delta, outboundHeaders);
+        counter.payloadBytes = ((byte[]) message.getPayload()).length;
+        return message;
+    }
+
+    @Benchmark
+    public Object decodeMove(Bytes counter) {
+        counter.payloadBytes = moveFrame.getPayload().length;
+        return converter.fromMessage(moveFrame, MoveRequest.class);
+    }
+
+    private static MessageHeaders headers(MimeType contentType) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(contentType);
+        return accessor.getMessageHeaders();
+    }
+}
@@ -0,0 +1,99 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.online.GameBroadcaster;
+import org.mancalgame.mancalagame.online.GameEventLog;
+import org.mancalgame.mancalagame.online.OnlineGameManager;
+import org.mancalgame.mancalagame.online.OnlineMancalaGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup recovery time from an event log holding {@code moves} logged moves spread over
+ * {@code games} concurrent games. With {@code checkpointed}, a checkpoint was taken near the end
+ * of the log, so recovery reads one snapshot per game plus the few moves after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EventLogRecoveryBenchmark {
+
+    @Param({"1000000"})
+    public int moves;
+
+    @Param({"10000"})
+    public int games;
+
+    @Param({"false", "true"})
+    public boolean checkpointed;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void writeLog() throws IOException {
+        directory = Files.createTempDirectory("mancala-eventlog");
+        GameEventLog log = GameEventLog.open(directory);
+        OnlineGameManager manager = newManager(log);
+        manager.recoverGames();
+
+        OnlineMancalaGame[] live = new OnlineMancalaGame[games];
+        for (int i = 0; i < games; i++) {
+            live[i] = manager.createAndAddPlayer("h" + i);
+            manager.addPlayerToGame(live[i].getGameId(), "j" + i);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        int tail = checkpointed ? Math.min(1000, moves) : 0;
+        for (int move = 0; move < moves; move++) {
+            if (move == moves - tail) {
+                manager.checkpoint();
+            }
+            OnlineMancalaGame game = live[move % games];
+            manager.execute(game.getGameId(), g -> {
+                if (g.getMancalaGame().isGameOver()) {
+                    g.resetForRematch();
+                }
+                g.makeMove(BenchmarkSupport.randomLegalPit(g.getMancalaGame(), random), g.getMancalaGame().getCurrentPlayer());
+            });
+        }
+        log.shutdown();
+    }
+
+    @Benchmark
+    public OnlineGameManager recover() {
+        OnlineGameManager manager = newManager(GameEventLog.open(directory));
+        manager.replayEventLog();
+        return manager;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static OnlineGameManager newManager(GameEventLog log) {
+        return new OnlineGameManager(new MancalaGameService(), new GameBroadcaster(BenchmarkSupport.discardingMessagingTemplate()),
+                log, Runnable::run, 64);
+    }
+}
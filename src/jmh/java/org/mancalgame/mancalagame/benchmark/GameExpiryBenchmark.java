@@ -0,0 +1,70 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.online.GameBroadcaster;
+import org.mancalgame.mancalagame.online.GameClocks;
+import org.mancalgame.mancalagame.online.GameEventLog;
+import org.mancalgame.mancalagame.online.GameExpiry;
+import org.mancalgame.mancalagame.online.GameMetrics;
+import org.mancalgame.mancalagame.online.HibernatedGameStore;
+import org.mancalgame.mancalagame.online.OnlineGameManager;
+import org.mancalgame.mancalagame.online.OnlineMancalaGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the periodic expiry tick over a large population of live games (half waiting for an
+ * opponent, half in progress), none of which are due yet, and of a move re-arming its game's deadline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameExpiryBenchmark {
+
+    @Param({"100000"})
+    public int liveGames;
+
+    private OnlineGameManager manager;
+    private OnlineMancalaGame playing;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp() {
+        GameExpiry expiry = new GameExpiry(600000, 1800000, 300000, 60000, 1000, 512, new SimpleMeterRegistry());
+        manager = new OnlineGameManager(new MancalaGameService(), new GameBroadcaster(BenchmarkSupport.discardingMessagingTemplate()),
+                GameEventLog.disabled(), HibernatedGameStore.disabled(), expiry, GameClocks.untimed(), GameMetrics.disabled(), Runnable::run, 64);
+        for (int i = 0; i < liveGames; i++) {
+            OnlineMancalaGame game = manager.createAndAddPlayer("h" + i);
+            if ((i & 1) == 0) {
+                manager.addPlayerToGame(game.getGameId(), "j" + i);
+                playing = game;
+            }
+        }
+        manager.expireGames();
+    }
+
+    @Benchmark
+    public void expiryTick() {
+        manager.expireGames();
+    }
+
+    @Benchmark
+    public void moveWithExpiry() {
+        manager.execute(playing.getGameId(), game -> {
+            if (game.getMancalaGame().isGameOver()) {
+                game.resetForRematch();
+            }
+            game.makeMove(BenchmarkSupport.randomLegalPit(game.getMancalaGame(), random), game.getMancalaGame().getCurrentPlayer());
+        });
+    }
+}
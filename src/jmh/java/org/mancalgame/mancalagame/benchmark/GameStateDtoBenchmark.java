@@ -0,0 +1,95 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController;
+import org.mancalgame.mancalagame.online.GameBroadcaster;
+import org.mancalgame.mancalagame.online.OnlineMancalaGame;
+import org.mancalgame.mancalagame.online.SerializedFrame;
+import org.mancalgame.mancalagame.online.SerializedFrameConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and Jackson-serializing the state DTO broadcast after every online move,
+ * and the full broadcast path in snapshot-only versus delta mode. The broadcast benchmarks
+ * alternate between two boards one move apart, so every delta carries a realistic change set;
+ * a snapshot frame is about 225 bytes of JSON and a five-pit delta about 40.
+ * {@code cachedSnapshotFrame} is what every resync or join after the first costs at one state version.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameStateDtoBenchmark {
+
+    @Param({"full", "delta"})
+    public String broadcastMode;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private OnlineMancalaGame game;
+    private GameBroadcaster broadcaster;
+    private final int[][] boards = new int[2][];
+    private int flip;
+    private int lastFrameBytes;
+
+    @Setup
+    public void setUp() {
+        MancalaGameService service = new MancalaGameService();
+        game = new OnlineMancalaGame(service);
+        game.addPlayer("host");
+        game.addPlayer("joiner");
+        // Play a few moves so the board is not in its uniform starting position
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 8 && !game.getMancalaGame().isGameOver(); i++) {
+            int pit = BenchmarkSupport.randomLegalPit(game.getMancalaGame(), random);
+            game.makeMove(pit, game.getMancalaGame().getCurrentPlayer());
+        }
+        boards[0] = game.getMancalaGame().getBoard();
+        game.makeMove(BenchmarkSupport.randomLegalPit(game.getMancalaGame(), random), game.getMancalaGame().getCurrentPlayer());
+        boards[1] = game.getMancalaGame().getBoard();
+
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+            lastFrameBytes = ((byte[]) message.getPayload()).length;
+            return true;
+        });
+        template.setMessageConverter(new CompositeMessageConverter(List.of(new SerializedFrameConverter(), new MappingJackson2MessageConverter())));
+        broadcaster = new GameBroadcaster(template, broadcastMode.equals("delta"), Integer.MAX_VALUE);
+        broadcaster.broadcastState(game);
+    }
+
+    @Benchmark
+    public OnlineGameController.GameStateDTO construct() {
+        return new OnlineGameController.GameStateDTO(game);
+    }
+
+    @Benchmark
+    public byte[] constructAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(new OnlineGameController.GameStateDTO(game));
+    }
+
+    @Benchmark
+    public int broadcastAfterMove() {
+        game.getMancalaGame().setBoard(boards[flip ^= 1]);
+        broadcaster.broadcastState(game);
+        return lastFrameBytes;
+    }
+
+    @Benchmark
+    public SerializedFrame cachedSnapshotFrame() {
+        return broadcaster.snapshotFrame(game, "spectator");
+    }
+}
@@ -0,0 +1,43 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays random legal moves through {@link MancalaGameService#makeMove} until the game ends.
+ * Run with {@code -prof gc} to confirm the move path does not allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MancalaMoveBenchmark {
+
+    private final MancalaGameService service = new MancalaGameService();
+    private MancalaGame game;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        game = service.createNewGame();
+        random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public int playRandomGame() {
+        game.reset();
+        while (!game.isGameOver()) {
+            service.makeMove(game, BenchmarkSupport.randomLegalPit(game, random));
+        }
+        return game.getWinner();
+    }
+}
@@ -0,0 +1,68 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.online.GameBroadcaster;
+import org.mancalgame.mancalagame.online.GameClocks;
+import org.mancalgame.mancalagame.online.Matchmaker;
+import org.mancalgame.mancalagame.online.OnlineGameManager;
+import org.mancalgame.mancalagame.online.OnlineMancalaGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Quick play requests per second with several threads enqueueing at once into three time-control
+ * queues, each thread also running the pairing tick every {@value #PAIR_EVERY} requests so the
+ * backlog stays bounded. Game creation is stubbed out to measure the queues and pairing alone;
+ * {@link OnlineGameManagerBenchmark} covers the cost of the games themselves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MatchmakingBenchmark {
+
+    static final int PAIR_EVERY = 64;
+    private static final String[] TIME_CONTROLS = {"10+5", "3+2", "1+0"};
+
+    private Matchmaker matchmaker;
+    private final AtomicLong sessionIds = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        OnlineGameManager manager = new OnlineGameManager(new MancalaGameService(),
+                new GameBroadcaster(BenchmarkSupport.discardingMessagingTemplate()), Runnable::run, 64) {
+            private final OnlineMancalaGame paired = createGame();
+
+            @Override
+            public OnlineMancalaGame createMatchedGame(String player1SessionId, String player2SessionId, GameClocks.TimeControl timeControl) {
+                return paired;
+            }
+        };
+        matchmaker = new Matchmaker(manager, TIME_CONTROLS, new SimpleMeterRegistry());
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+        long count;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void quickPlay(Requests requests) {
+        long id = sessionIds.incrementAndGet();
+        matchmaker.enqueue("q" + id, TIME_CONTROLS[(int) (id % TIME_CONTROLS.length)]);
+        if (++requests.count % PAIR_EVERY == 0) {
+            matchmaker.pairWaitingPlayers();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.online.GameBroadcaster;
+import org.mancalgame.mancalagame.online.GameClocks;
+import org.mancalgame.mancalagame.online.GameEventLog;
+import org.mancalgame.mancalagame.online.GameExpiry;
+import org.mancalgame.mancalagame.online.GameMetrics;
+import org.mancalgame.mancalagame.online.HibernatedGameStore;
+import org.mancalgame.mancalagame.online.OnlineGameManager;
+import org.mancalgame.mancalagame.online.OnlineMancalaGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A move as the online controller plays it, from receipt through the mailbox to the broadcast, with
+ * {@link GameMetrics} recording into a Prometheus registry and with metrics disabled. The difference
+ * is the instrumentation's cost per move; {@link GameMetrics} budgets it at 5% of the disabled score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsOverheadBenchmark {
+
+    @Param({"disabled", "prometheus"})
+    public String metrics;
+
+    private final SplittableRandom random = new SplittableRandom(5);
+    private GameMetrics gameMetrics;
+    private OnlineGameManager manager;
+    private GameBroadcaster broadcaster;
+    private OnlineMancalaGame game;
+
+    @Setup
+    public void setUp() {
+        gameMetrics = metrics.equals("prometheus") ? new GameMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)) : GameMetrics.disabled();
+        broadcaster = new GameBroadcaster(BenchmarkSupport.discardingMessagingTemplate(), true, 16, gameMetrics);
+        manager = new OnlineGameManager(new MancalaGameService(), broadcaster, GameEventLog.disabled(), HibernatedGameStore.disabled(),
+                GameExpiry.disabled(), GameClocks.untimed(), gameMetrics, Runnable::run, 64);
+        startGame();
+    }
+
+    private void startGame() {
+        game = manager.createAndAddPlayer("host");
+        manager.addPlayerToGame(game.getGameId(), "guest");
+    }
+
+    @Benchmark
+    public boolean move() {
+        if (game.getMancalaGame().isGameOver()) {
+            manager.removePlayer("host");
+            startGame();
+        }
+        long received = System.nanoTime();
+        int pit = BenchmarkSupport.randomLegalPit(game.getMancalaGame(), random);
+        return manager.execute(game.getGameId(), g -> {
+            boolean applied = g.makeMove(pit, g.getMancalaGame().getCurrentPlayer());
+            if (applied) {
+                broadcaster.broadcastState(g);
+            }
+            gameMetrics.moveHandled(received, applied);
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves per second through {@link MancalaGameService} under the logging setups of logback-spring.xml,
+ * with several threads playing at once. {@code debug-sync} is what the dev profile did for every
+ * move before this pipeline existed: a synchronous appender formatting each one. {@code debug-async}
+ * logs every move through the bounded, never-blocking queue, {@code debug-sampled} adds the default
+ * one-in-100 sampling, and {@code info} is production, where the level check skips the event entirely.
+ * Output goes to a discarding stream so only the logging itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MoveLoggingBenchmark {
+
+    @Param({"info", "debug-sync", "debug-async", "debug-sampled"})
+    public String logging;
+
+    private MancalaGameService service;
+    private Appender<ILoggingEvent> appender;
+
+    @Setup
+    public void setUp() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %5p [%t] %logger{39} : %m %kvp%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(context);
+        output.setEncoder(encoder);
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.start();
+        appender = output;
+        if (!logging.equals("debug-sync")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(8192 / 5);
+            async.setNeverBlock(true);
+            async.addAppender(output);
+            async.start();
+            appender = async;
+        }
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(logging.equals("info") ? Level.INFO : Level.DEBUG);
+        root.addAppender(appender);
+        service = new MancalaGameService(logging.equals("debug-sampled") ? 100 : 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        appender.stop();
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).reset();
+    }
+
+    @State(Scope.Thread)
+    public static class Board {
+        final SplittableRandom random = new SplittableRandom(3);
+        MancalaGame game = new MancalaGame();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean move(Board board) {
+        if (board.game.isGameOver()) {
+            board.game = new MancalaGame();
+        }
+        return service.makeMove(board.game, BenchmarkSupport.randomLegalPit(board.game, board.random));
+    }
+}
@@ -0,0 +1,88 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import org.mancalgame.mancalagame.online.OnlineGameManager;
+import org.mancalgame.mancalagame.online.OnlineMancalaGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Host/join/leave lifecycle and moves through {@link OnlineGameManager} with several threads
+ * hitting the sharded game and session maps and the per-game mailboxes at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OnlineGameManagerBenchmark {
+
+    private OnlineGameManager manager;
+    private final AtomicLong sessionIds = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        manager = BenchmarkSupport.directGameManager();
+    }
+
+    @State(Scope.Thread)
+    public static class Sessions {
+        String host;
+        String joiner;
+
+        void next(AtomicLong ids) {
+            host = "s" + ids.incrementAndGet();
+            joiner = "s" + ids.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public OnlineMancalaGame hostJoinLeave(Sessions sessions) {
+        sessions.next(sessionIds);
+        OnlineMancalaGame game = manager.createGame();
+        manager.addPlayerToGame(game.getGameId(), sessions.host);
+        manager.addPlayerToGame(game.getGameId(), sessions.joiner);
+        manager.removePlayer(sessions.host);
+        return game;
+    }
+
+    @State(Scope.Thread)
+    public static class Match {
+        final SplittableRandom random = new SplittableRandom(7);
+        String host;
+        String joiner;
+        String gameId;
+
+        void start(OnlineGameManager manager, AtomicLong ids) {
+            host = "m" + ids.incrementAndGet();
+            joiner = "m" + ids.incrementAndGet();
+            gameId = manager.createAndAddPlayer(host).getGameId();
+            manager.addPlayerToGame(gameId, joiner);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean moveThroughMailbox(Match match) {
+        if (match.gameId == null) {
+            match.start(manager, sessionIds);
+        }
+        OnlineMancalaGame game = manager.getGame(match.gameId).orElseThrow();
+        if (game.getMancalaGame().isGameOver()) {
+            manager.removePlayer(match.host);
+            match.start(manager, sessionIds);
+            game = manager.getGame(match.gameId).orElseThrow();
+        }
+        int pit = BenchmarkSupport.randomLegalPit(game.getMancalaGame(), match.random);
+        String mover = game.getMancalaGame().getCurrentPlayer() == 0 ? match.host : match.joiner;
+        return manager.execute(match.gameId, g -> g.makeMove(pit, g.getPlayerRole(mover)));
+    }
+}
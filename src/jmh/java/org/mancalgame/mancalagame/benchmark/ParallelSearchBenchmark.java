@@ -0,0 +1,80 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.ai.EndgameDatabase;
+import org.mancalgame.mancalagame.ai.MancalaAI;
+import org.mancalgame.mancalagame.ai.SearchResult;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to finish a fixed-depth search with 1..N lazy-SMP threads. The speed-up for a core
+ * count is the 1-thread score divided by the N-thread score; run on a machine with at least
+ * as many cores as the largest {@code threads} value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelSearchBenchmark {
+
+    private static final long UNBOUNDED_BUDGET_MILLIS = 60_000;
+    // Enough distinct positions that no position is searched twice within an iteration
+    private static final int POSITIONS = 4096;
+    private static final int TABLE_BITS = 20;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"14"})
+    public int depth;
+
+    private final List<MancalaGame> positions = new ArrayList<>();
+    private MancalaAI ai;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void createPositions() {
+        MancalaGameService service = new MancalaGameService();
+        SplittableRandom random = new SplittableRandom(5);
+        while (positions.size() < POSITIONS) {
+            MancalaGame game = service.createNewGame();
+            int plies = 6 + random.nextInt(10);
+            for (int i = 0; i < plies && !game.isGameOver(); i++) {
+                service.makeMove(game, BenchmarkSupport.randomLegalPit(game, random));
+            }
+            if (!game.isGameOver()) positions.add(game);
+        }
+    }
+
+    // A fresh engine per iteration so every iteration starts from empty transposition tables;
+    // the single-threaded table is as large as the shared one to keep the comparison fair
+    @Setup(Level.Iteration)
+    public void createEngine() {
+        ai = new MancalaAI(EndgameDatabase.none(), UNBOUNDED_BUDGET_MILLIS, depth, threads, TABLE_BITS, threads, TABLE_BITS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void shutdownEngine() {
+        ai.shutdown();
+    }
+
+    @Benchmark
+    public SearchResult searchToFixedDepth() {
+        MancalaGame position = positions.get(next++ % POSITIONS);
+        return ai.chooseMove(position, UNBOUNDED_BUDGET_MILLIS, depth, threads);
+    }
+}
@@ -0,0 +1,76 @@
+package org.mancalgame.mancalagame.benchmark;
+
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.MancalaRules;
+import org.mancalgame.mancalagame.game.PackedBoard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays random games of the standard rules on a packed board through each move path:
+ * <ul>
+ *   <li>{@code engine}: {@link MancalaEngine#move} called directly, the baseline;</li>
+ *   <li>{@code rules}: {@link MancalaRules#STANDARD}, i.e. the specialized path behind the variant dispatch;</li>
+ *   <li>{@code generic}: the same rules forced onto the generic sowing loop.</li>
+ * </ul>
+ * {@code rules} should match {@code engine}; the gap to {@code generic} is what the specialized path saves.
+ * The {@code 6x6} and {@code 4x4-none} variants show the generic path on other boards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RulesVariantBenchmark {
+
+    @Param({"engine", "rules", "generic", "6x6", "4x4-none"})
+    public String path;
+
+    private final PackedBoard board = new PackedBoard();
+    private MancalaRules rules;
+    private boolean direct;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        direct = path.equals("engine");
+        rules = switch (path) {
+            case "engine", "rules" -> MancalaRules.STANDARD;
+            case "generic" -> MancalaRules.STANDARD.generic();
+            default -> MancalaRules.parse(path);
+        };
+        random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public int playRandomGame() {
+        rules.setUp(board);
+        int player = 0;
+        int flags;
+        do {
+            int pit = MancalaEngine.pitIndex(player, randomLegalLane(player));
+            flags = direct ? MancalaEngine.move(board, player, pit) : rules.move(board, player, pit);
+            if ((flags & MancalaEngine.EXTRA_TURN) == 0) {
+                player = 1 - player;
+            }
+        } while ((flags & MancalaEngine.GAME_OVER) == 0);
+        return MancalaEngine.winner(board);
+    }
+
+    // Lanes beyond a variant's pits are always empty, so the legal mask covers every variant
+    private int randomLegalLane(int player) {
+        int mask = MancalaEngine.legalMoveMask(board, player);
+        int skip = random.nextInt(Integer.bitCount(mask));
+        for (int i = 0; i < skip; i++) {
+            mask &= mask - 1;
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+}
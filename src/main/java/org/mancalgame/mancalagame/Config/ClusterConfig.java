@@ -0,0 +1,27 @@
+package org.mancalgame.mancalagame.Config;
+
+import org.mancalgame.mancalagame.cluster.EmbeddedStompBroker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Beans for running online games on several nodes; see {@code ClusterTopology} and {@code ClusterRouter}.
+ */
+@Configuration
+public class ClusterConfig {
+
+    /**
+     * A STOMP broker inside this process, on the relay port, so a cluster can run on one machine
+     * without installing a broker. Exactly one node of such a cluster starts it; production
+     * clusters use an external broker instead.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "mancala.cluster.embedded-broker.enabled", havingValue = "true")
+    public EmbeddedStompBroker embeddedStompBroker(@Value("${mancala.cluster.relay.port:61613}") int port) throws IOException {
+        return new EmbeddedStompBroker(port).start();
+    }
+}
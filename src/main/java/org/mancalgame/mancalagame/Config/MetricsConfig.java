@@ -0,0 +1,145 @@
+package org.mancalgame.mancalagame.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.ai.MancalaAI;
+import org.mancalgame.mancalagame.game.MancalaGame.GameStatus;
+import org.mancalgame.mancalagame.online.GameEventLog;
+import org.mancalgame.mancalagame.online.OnlineGameManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Meters read at scrape time: game and session gauges, the STOMP channel pools, the event log and engine throughput.
+ * Nothing here runs on the move path; the meters recorded there live in {@code GameMetrics}.
+ * Everything is exported on {@code /actuator/prometheus}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Game counts visit every game, so several gauges read in one scrape share one count
+    private static final long STATUS_COUNT_TTL_NANOS = 1_000_000_000L;
+
+    /**
+     * Online games by status and the sessions seated in them.
+     */
+    @Bean
+    public MeterBinder onlineGameMetrics(OnlineGameManager gameManager) {
+        return registry -> {
+            StatusCounts counts = new StatusCounts(gameManager);
+            for (GameStatus status : GameStatus.values()) {
+                Gauge.builder("mancala.games", counts, c -> c.get(status)).tag("status", status.name())
+                        .description("Online games by status, hibernated or not")
+                        .register(registry);
+            }
+            Gauge.builder("mancala.sessions.seated", gameManager, OnlineGameManager::getSeatedSessionCount)
+                    .description("WebSocket sessions seated in an online game")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Queue depth and rejections of the pools behind the STOMP inbound and outbound channels. A rejected
+     * task is a message dropped under overload, so it is counted before the pool's own handler runs.
+     * Channels on virtual threads have no pool, and so no such meters.
+     */
+    @Bean
+    public MeterBinder channelMetrics(@Qualifier("clientInboundChannelExecutor") TaskExecutor inbound,
+                                      @Qualifier("clientOutboundChannelExecutor") TaskExecutor outbound) {
+        return registry -> {
+            if (inbound instanceof ThreadPoolTaskExecutor pool) {
+                bindChannel("inbound", pool.getThreadPoolExecutor(), registry);
+            }
+            if (outbound instanceof ThreadPoolTaskExecutor pool) {
+                bindChannel("outbound", pool.getThreadPoolExecutor(), registry);
+            }
+        };
+    }
+
+    private static void bindChannel(String channel, ThreadPoolExecutor pool, MeterRegistry registry) {
+        Gauge.builder("mancala.channel.queued", pool, p -> p.getQueue().size()).tag("channel", channel)
+                .description("Messages waiting for a STOMP channel thread")
+                .register(registry);
+        Gauge.builder("mancala.channel.active", pool, ThreadPoolExecutor::getActiveCount).tag("channel", channel)
+                .description("STOMP channel threads handling a message")
+                .register(registry);
+        Counter rejections = Counter.builder("mancala.channel.rejected").tag("channel", channel)
+                .description("Messages rejected by a full STOMP channel pool")
+                .register(registry);
+        RejectedExecutionHandler handler = pool.getRejectedExecutionHandler();
+        pool.setRejectedExecutionHandler((task, executor) -> {
+            rejections.increment();
+            handler.rejectedExecution(task, executor);
+        });
+    }
+
+    /**
+     * The event log's backlog, and the records it dropped after a write failure; a non-zero
+     * {@code mancala.eventlog.failed} means live games are no longer being logged.
+     */
+    @Bean
+    public MeterBinder eventLogMetrics(GameEventLog eventLog) {
+        return registry -> {
+            Gauge.builder("mancala.eventlog.queued", eventLog, GameEventLog::getQueuedCount)
+                    .description("Event log records waiting for the writer")
+                    .register(registry);
+            FunctionCounter.builder("mancala.eventlog.dropped", eventLog, GameEventLog::getDroppedCount)
+                    .description("Event log records dropped after a write failure")
+                    .register(registry);
+            Gauge.builder("mancala.eventlog.failed", eventLog, log -> log.isFailed() ? 1 : 0)
+                    .description("1 if writing the event log failed and it stopped")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Moves played by the rules engine and by the computer opponent. Both are counters, so the
+     * rate per second comes from the scraper, e.g. {@code rate(mancala_engine_moves_total[1m])}.
+     */
+    @Bean
+    public MeterBinder engineMetrics(MancalaGameService gameService, MancalaAI mancalaAI) {
+        return registry -> {
+            FunctionCounter.builder("mancala.engine.moves", gameService, MancalaGameService::getMoveCount)
+                    .description("Moves applied by the rules engine")
+                    .register(registry);
+            FunctionCounter.builder("mancala.ai.moves", mancalaAI, MancalaAI::getSearchCount)
+                    .description("Moves chosen by the computer opponent")
+                    .register(registry);
+            FunctionCounter.builder("mancala.ai.nodes", mancalaAI, MancalaAI::getTotalNodes)
+                    .description("Positions searched by the computer opponent")
+                    .register(registry);
+            Gauge.builder("mancala.ai.depth", mancalaAI, MancalaAI::getAverageDepth)
+                    .description("Average depth reached by the computer opponent's searches")
+                    .register(registry);
+        };
+    }
+
+    private static final class StatusCounts {
+        private final OnlineGameManager gameManager;
+        private long[] counts;
+        private long countedAt;
+
+        StatusCounts(OnlineGameManager gameManager) {
+            this.gameManager = gameManager;
+        }
+
+        synchronized long get(GameStatus status) {
+            long now = System.nanoTime();
+            if (counts == null || now - countedAt > STATUS_COUNT_TTL_NANOS) {
+                counts = gameManager.countGamesByStatus();
+                countedAt = now;
+            }
+            return counts[status.ordinal()];
+        }
+    }
+}
@@ -1,21 +1,113 @@
 package org.mancalgame.mancalagame.Config;
 
+import org.mancalgame.mancalagame.cluster.ClusterRouter;
+import org.mancalgame.mancalagame.cluster.ClusterTopology;
+import org.mancalgame.mancalagame.online.BinaryMessageConverter;
+import org.mancalgame.mancalagame.online.SerializedFrameConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.TaskExecutorRegistration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 /**
  * Configuration for Spring's WebSocket Message Broker using STOMP.
  * Enables scheduling for background tasks like cleaning up stale games.
+ * <p>
+ * With {@code spring.threads.virtual.enabled} on Java 21, the inbound and outbound channels run each
+ * message on its own virtual thread instead of a small pool, as Spring Boot already does for Tomcat
+ * requests and scheduled tasks. Game commands still run on the game mailboxes' platform threads.
+ * <p>
+ * With {@code mancala.cluster.enabled}, {@code /topic} and {@code /queue} go to an external STOMP broker
+ * through Spring's broker relay instead of the in-memory broker, so subscribers on any node receive
+ * what any node publishes. The {@link ClusterRouter} sends each game's commands to the node that owns it.
  */
 @Configuration
 @EnableWebSocketMessageBroker // Enables WebSocket message handling, backed by a message broker
 @EnableScheduling           // Enables Spring's scheduled task execution (e.g., for cleanup)
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    private final BinaryMessageConverter binaryMessageConverter;
+    private final ClusterTopology topology;
+    private final ClusterRouter clusterRouter;
+    private final String relayHost;
+    private final int relayPort;
+    private final String relayLogin;
+    private final String relayPasscode;
+    private final int sendTimeLimitMillis;
+    private final int sendBufferSizeLimit;
+    private final int messageSizeLimit;
+    private final int outboundCorePoolSize;
+    private final int outboundMaxPoolSize;
+    private final int outboundQueueCapacity;
+    private final boolean virtualThreads;
+    private final int virtualMaxConcurrency;
+
+    public WebSocketConfig(BinaryMessageConverter binaryMessageConverter,
+                           ClusterTopology topology,
+                           ClusterRouter clusterRouter,
+                           Environment environment,
+                           @Value("${mancala.websocket.send-time-limit-ms:10000}") int sendTimeLimitMillis,
+                           @Value("${mancala.websocket.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+                           @Value("${mancala.websocket.message-size-limit:65536}") int messageSizeLimit,
+                           @Value("${mancala.websocket.outbound.core-pool-size:0}") int outboundCorePoolSize,
+                           @Value("${mancala.websocket.outbound.max-pool-size:0}") int outboundMaxPoolSize,
+                           @Value("${mancala.websocket.outbound.queue-capacity:0}") int outboundQueueCapacity,
+                           @Value("${mancala.websocket.virtual.max-concurrency:10000}") int virtualMaxConcurrency,
+                           @Value("${mancala.cluster.relay.host:localhost}") String relayHost,
+                           @Value("${mancala.cluster.relay.port:61613}") int relayPort,
+                           @Value("${mancala.cluster.relay.login:guest}") String relayLogin,
+                           @Value("${mancala.cluster.relay.passcode:guest}") String relayPasscode) {
+        this.binaryMessageConverter = binaryMessageConverter;
+        this.topology = topology;
+        this.clusterRouter = clusterRouter;
+        this.relayHost = relayHost;
+        this.relayPort = relayPort;
+        this.relayLogin = relayLogin;
+        this.relayPasscode = relayPasscode;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.messageSizeLimit = messageSizeLimit;
+        this.outboundCorePoolSize = outboundCorePoolSize;
+        this.outboundMaxPoolSize = outboundMaxPoolSize;
+        this.outboundQueueCapacity = outboundQueueCapacity;
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        this.virtualMaxConcurrency = virtualMaxConcurrency;
+        if (virtualThreads) {
+            logger.info("STOMP channels run on virtual threads, up to {} messages at once per channel", virtualMaxConcurrency);
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            logger.warn("spring.threads.virtual.enabled needs Java 21; STOMP channels use thread pools");
+        }
+    }
+
+    /**
+     * A channel executor that starts a virtual thread per message, up to the given number at once;
+     * beyond that, the sending thread waits for one to finish, so an overloaded channel pushes back
+     * on its senders instead of queuing without bound. No thread is kept between messages.
+     * Needs Java 21.
+     */
+    public static SimpleAsyncTaskExecutor virtualThreadChannelExecutor(String threadNamePrefix, int maxConcurrency) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrency);
+        return executor;
+    }
+
     /**
      * Registers STOMP endpoints that clients will use to connect to the WebSocket server.
      * @param registry The registry for STOMP endpoints.
@@ -25,6 +117,8 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // Registers the "/ws" endpoint, enabling SockJS fallback options.
         // SockJS is used for browsers that do not support native WebSockets.
         registry.addEndpoint("/ws").withSockJS();
+        // A session's frames are handled in the order it sent them, on whichever inbound thread
+        registry.setPreserveReceiveOrder(true);
     }
 
     /**
@@ -33,14 +127,87 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        // Enables a simple in-memory message broker.
         // Messages destined for "/topic" will be broadcast to all subscribed clients.
         // Messages destined for "/queue" will be sent to a specific user (point-to-point).
-        registry.enableSimpleBroker("/topic", "/queue");
+        if (topology.isEnabled()) {
+            // One broker shared by every node; the relay opens a connection to it per client session
+            registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode);
+            logger.info("Cluster node {}: relaying /topic and /queue to the broker at {}:{}", topology.node(), relayHost, relayPort);
+        } else {
+            // Enables a simple in-memory message broker.
+            registry.enableSimpleBroker("/topic", "/queue");
+        }
 
         // Sets the application destination prefix.
         // Messages from clients to the server (e.g., to @MessageMapping methods)
         // must be prefixed with "/app". For example, a client sends to "/app/game.host".
         registry.setApplicationDestinationPrefixes("/app");
+        // Sequenced deltas must reach each session in the order they were published, whichever
+        // outbound thread writes them; a reordered delta would force a resync
+        registry.setPreservePublishOrder(true);
+    }
+
+    /**
+     * Puts our converters in front of the defaults: pre-encoded game frames pass straight through,
+     * and the compact binary codec only claims messages whose content type (or whose session's
+     * CONNECT preference) asks for it, so JSON clients are unaffected.
+     * @param messageConverters The converters to add to.
+     * @return true to keep the default converters after ours.
+     */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new SerializedFrameConverter());
+        messageConverters.add(binaryMessageConverter);
+        return true;
+    }
+
+    /**
+     * Records each session's codec preference from its CONNECT frame, and keeps clients off the
+     * cluster's node queues.
+     * @param registration The inbound channel registration.
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(binaryMessageConverter, clusterRouter);
+        if (virtualThreads) {
+            registration.executor(virtualThreadChannelExecutor("mancala-inbound-", virtualMaxConcurrency));
+        }
+    }
+
+    /**
+     * Sizes the pool that writes messages to client sessions. Every spectator frame of a popular game is
+     * one task here, so it is kept separate from, and sized independently of, the inbound channel.
+     * Zero keeps Spring's default for that setting. On virtual threads the pool settings do not apply.
+     * @param registration The outbound channel registration.
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(virtualThreadChannelExecutor("mancala-outbound-", virtualMaxConcurrency));
+            return;
+        }
+        TaskExecutorRegistration executor = registration.taskExecutor();
+        if (outboundCorePoolSize > 0) executor.corePoolSize(outboundCorePoolSize);
+        if (outboundMaxPoolSize > 0) executor.maxPoolSize(outboundMaxPoolSize);
+        if (outboundQueueCapacity > 0) executor.queueCapacity(outboundQueueCapacity);
+    }
+
+    /**
+     * Bounds what one slow client can cost: a session whose pending sends exceed the buffer limit,
+     * or whose current send takes longer than the time limit, is closed instead of holding an outbound
+     * thread. Spectators reconnect and resync to the latest snapshot.
+     * @param registration The WebSocket transport registration.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMillis)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
     }
 }
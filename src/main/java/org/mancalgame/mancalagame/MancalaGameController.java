@@ -1,24 +1,48 @@
 package org.mancalgame.mancalagame;
 
 import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.ai.MancalaAI;
+import org.mancalgame.mancalagame.ai.SearchResult;
 import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MancalaRules;
+import org.mancalgame.mancalagame.offline.OfflineSessionStore;
+import org.mancalgame.mancalagame.offline.OfflineSessionStore.OfflineSession;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.bind.support.SessionStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * Spring MVC Controller for managing the offline (session-based) Mancala game.
- * Uses @SessionAttributes to store the MancalaGame instance in the HTTP session.
+ * The game is kept in the {@link OfflineSessionStore}, under a session id held in the
+ * {@value #SESSION_COOKIE} cookie, together with a flag telling whether Player 2 is played by the
+ * computer. No HTTP session is created: each request copies the game out of the store and puts it back,
+ * even when the request fails part way.
  */
 @Controller
-@SessionAttributes("mancalaGame") // Stores the "mancalaGame" attribute in the HTTP session
 public class MancalaGameController {
 
+    private static final Logger logger = LoggerFactory.getLogger(MancalaGameController.class);
+
+    public static final String SESSION_COOKIE = "MANCALA_OFFLINE";
+
+    // The computer always plays as Player 2
+    private static final int COMPUTER_PLAYER = 1;
+
     private final MancalaGameService gameService;
+    private final MancalaAI mancalaAI;
+    private final OfflineSessionStore sessions;
 
-    public MancalaGameController(MancalaGameService gameService) {
+    public MancalaGameController(MancalaGameService gameService, MancalaAI mancalaAI, OfflineSessionStore sessions) {
         this.gameService = gameService;
+        this.mancalaAI = mancalaAI;
+        this.sessions = sessions;
     }
 
     /**
@@ -31,68 +55,139 @@ public class MancalaGameController {
     }
 
     /**
-     * Creates or retrieves a MancalaGame instance for the session.
-     * This method is called before any @RequestMapping methods if "mancalaGame" is not in the session.
-     * @return A new MancalaGame instance.
+     * Displays the offline game board for two players sharing the browser.
+     * A game that was being played against the computer, or by other rules than asked for, is replaced by a fresh one.
+     * A browser without a stored game gets a new one, under the standard rules unless others are asked for.
+     * @param rules The variant to play, or null to keep the session game's rules.
+     * @param sessionId The offline session cookie, if the browser has one.
+     * @param response Receives a new session cookie when needed.
+     * @param model The Spring Model to pass data to the view.
+     * @return The name of the game Thymeleaf template.
      */
-    @ModelAttribute("mancalaGame")
-    public MancalaGame setupGame() {
-        System.out.println("DEBUG: Creating/Retrieving MancalaGame instance for session.");
-        return gameService.createNewGame();
+    @GetMapping("/play-offline")
+    public String playOffline(@RequestParam(name = "rules", required = false) String rules,
+                              @CookieValue(name = SESSION_COOKIE, required = false) String sessionId,
+                              HttpServletResponse response, Model model) {
+        long id = sessionId(sessionId, response);
+        OfflineSession session = sessions.get(id);
+        MancalaGame game;
+        if (session == null) {
+            game = setupGame(rules == null ? MancalaRules.STANDARD : parseRules(rules));
+        } else {
+            game = session.game();
+            MancalaRules requested = rules == null ? game.getRules() : parseRules(rules);
+            if (!requested.equals(game.getRules())) {
+                game = setupGame(requested);
+            } else if (session.vsComputer()) {
+                game.reset();
+            }
+        }
+        store(id, game, false, null);
+        model.addAttribute("game", game); // Pass the game object to the Thymeleaf template
+        model.addAttribute("vsComputer", Boolean.FALSE);
+        updateOfflineGameStatus(game, false, model); // Update status message based on game state
+        return "game"; // Returns the Thymeleaf template name
     }
 
     /**
-     * Displays the offline game board.
-     * @param game The MancalaGame instance from the session.
+     * Displays the offline game board against the computer (the computer is Player 2).
+     * A game that was being played by two humans is replaced by a fresh one, under the standard
+     * rules if the computer cannot play the session game's variant.
+     * @param sessionId The offline session cookie, if the browser has one.
+     * @param response Receives a new session cookie when needed.
      * @param model The Spring Model to pass data to the view.
      * @return The name of the game Thymeleaf template.
      */
-    @GetMapping("/play-offline")
-    public String playOffline(@ModelAttribute("mancalaGame") MancalaGame game, Model model) {
-        model.addAttribute("game", game); // Pass the game object to the Thymeleaf template
-        updateOfflineGameStatus(game, model); // Update status message based on game state
-        return "game"; // Returns the Thymeleaf template name
+    @GetMapping("/play-computer")
+    public String playComputer(@CookieValue(name = SESSION_COOKIE, required = false) String sessionId,
+                               HttpServletResponse response, Model model) {
+        long id = sessionId(sessionId, response);
+        OfflineSession session = sessions.get(id);
+        MancalaGame game;
+        if (session == null || !session.game().getRules().hasStandardMoves()) {
+            game = setupGame(MancalaRules.STANDARD);
+        } else {
+            game = session.game();
+            if (!session.vsComputer()) {
+                game.reset();
+            } else if (session.searchDepth() > 0) {
+                model.addAttribute("aiStats", String.format("Computer searched to depth %d (%,d nodes/s)",
+                        session.searchDepth(), session.searchNodesPerSecond()));
+            }
+        }
+        store(id, game, true, null);
+        model.addAttribute("game", game);
+        model.addAttribute("vsComputer", Boolean.TRUE);
+        updateOfflineGameStatus(game, true, model);
+        return "game";
     }
 
     /**
      * Handles a player's move in the offline game.
+     * When playing against the computer, the computer replies immediately (including any extra turns),
+     * and a summary of its last search is kept for the next page.
      * @param pitIndex The index of the pit selected by the player.
-     * @param game The MancalaGame instance from the session.
+     * @param sessionId The offline session cookie, if the browser has one.
+     * @param response Receives a new session cookie when needed.
      * @param model The Spring Model to pass data to the view.
-     * @return A redirect to /play-offline to refresh the board, or "game" if an error occurred.
+     * @return A redirect to the game page to refresh the board, or "game" if an error occurred.
      */
     @PostMapping("/move")
-    public String makeMove(@RequestParam int pitIndex, @ModelAttribute("mancalaGame") MancalaGame game, Model model) {
+    public String makeMove(@RequestParam int pitIndex, @CookieValue(name = SESSION_COOKIE, required = false) String sessionId,
+                           HttpServletResponse response, Model model) {
+        long id = sessionId(sessionId, response);
+        OfflineSession session = sessions.get(id);
+        if (session == null) {
+            // No game to move in (the session is new or was evicted): start one
+            return "redirect:/play-offline";
+        }
+        MancalaGame game = session.game();
+        boolean vsComputer = session.vsComputer();
+        SearchResult lastSearch = null;
         try {
             gameService.makeMove(game, pitIndex); // Execute the move using the game service
-            model.addAttribute("errorMessage", null); // Clear any previous errors on success
+            if (vsComputer) {
+                lastSearch = playComputerTurns(game);
+            }
         } catch (IllegalArgumentException e) {
             // Catch specific invalid move exceptions
             model.addAttribute("errorMessage", e.getMessage());
             // Stay on the same page to immediately show the error without redirecting
             model.addAttribute("game", game); // Re-add game to model for re-rendering current state
-            updateOfflineGameStatus(game, model); // Update status messages
+            model.addAttribute("vsComputer", vsComputer);
+            updateOfflineGameStatus(game, vsComputer, model); // Update status messages
             return "game";
         } catch (IllegalStateException e) {
-            // Catch unexpected game state issues (e.g., game instance is null, though unlikely with @SessionAttributes)
+            // Catch unexpected game state issues
             model.addAttribute("errorMessage", "Game error: " + e.getMessage());
             model.addAttribute("game", game);
-            updateOfflineGameStatus(game, model);
+            model.addAttribute("vsComputer", vsComputer);
+            updateOfflineGameStatus(game, vsComputer, model);
             return "game";
+        } finally {
+            // Whatever was played is kept, so the player's move stands even if the computer fails to reply
+            store(id, game, vsComputer, lastSearch);
         }
         // Redirect after successful POST to prevent double submission (POST-REDIRECT-GET pattern)
-        return "redirect:/play-offline";
+        return vsComputer ? "redirect:/play-computer" : "redirect:/play-offline";
     }
 
     /**
-     * Resets the current offline game, starting a new one.
-     * @param sessionStatus Allows invalidating the current session's MancalaGame.
-     * @return A redirect to /play-offline, which will trigger setupGame() to create a new game.
+     * Resets the current offline game, starting a new one in the same mode and with the same rules.
+     * @param sessionId The offline session cookie, if the browser has one.
+     * @param response Receives a new session cookie when needed.
+     * @return A redirect to the game page showing the new game.
      */
     @PostMapping("/newGame")
-    public String newGame(SessionStatus sessionStatus) {
-        sessionStatus.setComplete(); // Invalidates the "mancalaGame" object from the session
-        return "redirect:/play-offline"; // Redirects to start a fresh game
+    public String newGame(@CookieValue(name = SESSION_COOKIE, required = false) String sessionId, HttpServletResponse response) {
+        long id = sessionId(sessionId, response);
+        OfflineSession session = sessions.get(id);
+        if (session == null) {
+            return "redirect:/play-offline";
+        }
+        MancalaGame game = setupGame(session.game().getRules());
+        store(id, game, session.vsComputer(), null);
+        return session.vsComputer() ? "redirect:/play-computer" : "redirect:/play-offline";
     }
 
     /**
@@ -106,24 +201,89 @@ public class MancalaGameController {
 
     }
 
+    /**
+     * Lets the computer play while it is its turn (a move ending in its store earns another turn).
+     * @param game The current MancalaGame instance.
+     * @return The computer's last search, or null if it did not move.
+     */
+    private SearchResult playComputerTurns(MancalaGame game) {
+        SearchResult lastSearch = null;
+        while (!game.isGameOver() && game.getCurrentPlayer() == COMPUTER_PLAYER) {
+            lastSearch = mancalaAI.chooseMove(game);
+            gameService.makeMove(game, lastSearch.pitIndex());
+        }
+        return lastSearch;
+    }
+
+    /**
+     * Puts the game back in the store, with the summary of the computer's last search if it moved.
+     * @throws ResponseStatusException 503 if the session is new and the store has no room for it, as
+     * every session it could replace is a game in progress.
+     */
+    private void store(long id, MancalaGame game, boolean vsComputer, SearchResult lastSearch) {
+        boolean stored = lastSearch != null
+                ? sessions.put(id, game, vsComputer, lastSearch.depth(), lastSearch.nodesPerSecond())
+                : sessions.put(id, game, vsComputer);
+        if (!stored) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many offline games are in progress, please try again later.");
+        }
+    }
+
+    private MancalaGame setupGame(MancalaRules rules) {
+        logger.debug("Creating an offline game with rules {}", rules);
+        return gameService.createNewGame(rules);
+    }
+
+    /**
+     * Reads the offline session id from its cookie, or issues a new id (and cookie) if there is
+     * none or it is malformed. The id is only a key into the store; a stale one finds nothing.
+     */
+    private long sessionId(String cookie, HttpServletResponse response) {
+        if (cookie != null) {
+            try {
+                long id = Long.parseUnsignedLong(cookie, 16);
+                if (id != 0) {
+                    return id;
+                }
+            } catch (NumberFormatException e) {
+                // Issue a new one
+            }
+        }
+        long id = sessions.newId();
+        ResponseCookie sessionCookie = ResponseCookie.from(SESSION_COOKIE, Long.toHexString(id))
+                .path("/").httpOnly(true).sameSite("Lax").build();
+        response.addHeader(HttpHeaders.SET_COOKIE, sessionCookie.toString());
+        return id;
+    }
+
+    private static MancalaRules parseRules(String rules) {
+        try {
+            return MancalaRules.parse(rules);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     /**
      * Helper method to add appropriate status messages to the model for offline play.
      * @param game The current MancalaGame instance.
+     * @param vsComputer Whether Player 2 is the computer.
      * @param model The Spring Model.
      */
-    private void updateOfflineGameStatus(MancalaGame game, Model model) {
+    private void updateOfflineGameStatus(MancalaGame game, boolean vsComputer, Model model) {
+        String player2Name = vsComputer ? "The computer" : "Player 2";
         if (game.isGameOver()) {
             String winnerMessage;
             if (game.getWinner() == 0) {
-                winnerMessage = "Game Over! Player 1 wins!";
+                winnerMessage = vsComputer ? "Game Over! You win!" : "Game Over! Player 1 wins!";
             } else if (game.getWinner() == 1) {
-                winnerMessage = "Game Over! Player 2 wins!";
+                winnerMessage = "Game Over! " + player2Name + " wins!";
             } else {
                 winnerMessage = "Game Over! It's a draw!";
             }
             model.addAttribute("statusMessage", winnerMessage);
         } else {
-            model.addAttribute("statusMessage", "It's Player " + (game.getCurrentPlayer() + 1) + "'s turn.");
+            model.addAttribute("statusMessage", vsComputer ? "Your turn." : "It's Player " + (game.getCurrentPlayer() + 1) + "'s turn.");
         }
     }
 }
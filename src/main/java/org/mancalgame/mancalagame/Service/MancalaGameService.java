@@ -1,100 +1,102 @@
 package org.mancalgame.mancalagame.Service;
 
+import org.mancalgame.mancalagame.game.MancalaEngine;
 import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MancalaRules;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Applies moves to games through the rules each game was created with.
+ * <p>
+ * Each move can be logged as a structured event on the {@value #MOVE_LOGGER} logger, at DEBUG.
+ * The level is checked first, so with the logger off a move costs no logging at all; with it on,
+ * only one move in {@code move-sample-rate} is logged, and its fields are only formatted then.
+ */
 @Service
 public class MancalaGameService {
 
-    private static final Logger logger = LoggerFactory.getLogger(MancalaGameService.class);
+    public static final String MOVE_LOGGER = "org.mancalgame.mancalagame.moves";
+
+    private static final Logger moveLogger = LoggerFactory.getLogger(MOVE_LOGGER);
+
+    private final LongAdder moves = new LongAdder();
+    private final int moveSampleRate;
+
+    public MancalaGameService() {
+        this(1);
+    }
+
+    @Autowired
+    public MancalaGameService(@Value("${mancala.logging.move-sample-rate:100}") int moveSampleRate) {
+        this.moveSampleRate = Math.max(1, moveSampleRate);
+    }
 
     public MancalaGame createNewGame() {
         return new MancalaGame();
     }
 
+    public MancalaGame createNewGame(MancalaRules rules) {
+        return new MancalaGame(rules);
+    }
+
     public boolean makeMove(MancalaGame game, int pitIndex) {
         if (game.isGameOver()) return false;
 
         int currentPlayer = game.getCurrentPlayer();
-        if ((currentPlayer == 0 && (pitIndex < 0 || pitIndex > 5)) ||
-                (currentPlayer == 1 && (pitIndex < 7 || pitIndex > 12))) {
+        MancalaRules rules = game.getRules();
+        if (!rules.isPlayersPit(currentPlayer, pitIndex)) {
             throw new IllegalArgumentException("Invalid pit selection for Player " + (currentPlayer + 1));
         }
-        if (game.getStonesInPit(pitIndex) == 0) {
+        if (game.packedBoard().get(pitIndex) == 0) {
             throw new IllegalArgumentException("Cannot select an empty pit.");
         }
 
-        int[] board = game.getBoard();
-        int stonesToSow = board[pitIndex];
-        board[pitIndex] = 0;
-        int currentPit = pitIndex;
-        int opponentStore = (currentPlayer == 0) ? MancalaGame.PLAYER2_STORE : MancalaGame.PLAYER1_STORE;
-
-        while (stonesToSow > 0) {
-            currentPit = (currentPit + 1) % 14;
-            if (currentPit == opponentStore) continue;
-            board[currentPit]++;
-            stonesToSow--;
-        }
-
-        int playerStore = (currentPlayer == 0) ? MancalaGame.PLAYER1_STORE : MancalaGame.PLAYER2_STORE;
-        boolean lastPitOnPlayersSide = (currentPlayer == 0 && currentPit >= 0 && currentPit <= 5) ||
-                (currentPlayer == 1 && currentPit >= 7 && currentPit <= 12);
-
-        if (lastPitOnPlayersSide && board[currentPit] == 1) {
-            int oppositePit = 12 - currentPit;
-            if (board[oppositePit] > 0) {
-                board[playerStore] += board[oppositePit] + 1;
-                board[oppositePit] = 0;
-                board[currentPit] = 0;
-            }
-        }
+        // Sow, capture and collect directly on the game's packed board; no copies are made
+        int flags = rules.move(game.packedBoard(), currentPlayer, pitIndex);
+        moves.increment();
 
-        game.setBoard(board);
-
-        if (isPlayerPitsEmpty(game, 0) || isPlayerPitsEmpty(game, 1)) {
-            collectRemainingStones(game);
+        if ((flags & MancalaEngine.GAME_OVER) != 0) {
             determineWinner(game);
             game.setGameOver(true);
-            return true;
-        }
-
-        if (currentPit != playerStore) {
+        } else if ((flags & MancalaEngine.EXTRA_TURN) == 0) {
             game.setCurrentPlayer(1 - currentPlayer);
         }
 
-        logger.info("Move successful for Player {}. Next turn: Player {}. Board: {}", (currentPlayer + 1), (game.getCurrentPlayer() + 1), Arrays.toString(game.getBoard()));
+        if (moveLogger.isDebugEnabled() && sampled()) {
+            logMove(game, currentPlayer, pitIndex);
+        }
         return true;
     }
 
-    private boolean isPlayerPitsEmpty(MancalaGame game, int player) {
-        int start = (player == 0) ? 0 : 7;
-        for (int i = start; i < start + 6; i++) {
-            if (game.getStonesInPit(i) > 0) return false;
-        }
-        return true;
+    private boolean sampled() {
+        return moveSampleRate == 1 || ThreadLocalRandom.current().nextInt(moveSampleRate) == 0;
     }
 
-    private void collectRemainingStones(MancalaGame game) {
-        int[] finalBoard = game.getBoard();
-        for (int i = 0; i <= 5; i++) {
-            finalBoard[6] += finalBoard[i];
-            finalBoard[i] = 0;
-        }
-        for (int i = 7; i <= 12; i++) {
-            finalBoard[13] += finalBoard[i];
-            finalBoard[i] = 0;
-        }
-        game.setBoard(finalBoard);
+    // The board is passed as is; an appender formats it only if the event gets that far
+    private static void logMove(MancalaGame game, int player, int pitIndex) {
+        moveLogger.atDebug().setMessage("Move played")
+                .addKeyValue("player", player + 1)
+                .addKeyValue("pit", pitIndex)
+                .addKeyValue("next", game.isGameOver() ? 0 : game.getCurrentPlayer() + 1)
+                .addKeyValue("board", game.packedBoard())
+                .log();
+    }
+
+    /**
+     * @return The number of moves played through this service, online and offline.
+     */
+    public long getMoveCount() {
+        return moves.sum();
     }
 
     private void determineWinner(MancalaGame game) {
-        if (game.getStonesInPit(6) > game.getStonesInPit(13)) game.setWinner(0);
-        else if (game.getStonesInPit(13) > game.getStonesInPit(6)) game.setWinner(1);
-        else game.setWinner(-1);
+        game.setWinner(MancalaEngine.winner(game.packedBoard()));
     }
 }
\ No newline at end of file
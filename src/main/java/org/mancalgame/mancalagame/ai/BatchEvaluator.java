@@ -0,0 +1,268 @@
+package org.mancalgame.mancalagame.ai;
+
+import jakarta.annotation.PreDestroy;
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.PackedBoard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates long streams of positions, e.g. every position of a day of games, with a fixed-depth
+ * {@link MancalaSearch} per position on the {@link MancalaEngine} rules.
+ * <p>
+ * Positions are read into {@link Batch}es, packed boards in parallel arrays, and each batch is evaluated
+ * in place by one thread of a fixed pool. At most {@code max-in-flight} batches of a stream are read
+ * ahead of the one being written, and a batch is reused once written, so a stream of any length holds
+ * a bounded number of positions in memory and results come out in input order.
+ */
+@Service
+public class BatchEvaluator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchEvaluator.class);
+
+    /**
+     * Fills an empty batch from the input.
+     */
+    @FunctionalInterface
+    public interface BatchReader {
+        /**
+         * @return false if the input ended before any position was added.
+         */
+        boolean fill(Batch batch) throws IOException;
+    }
+
+    /**
+     * Writes the results of an evaluated batch, in order.
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        void write(Batch batch) throws IOException;
+    }
+
+    /**
+     * Positions and, once evaluated, their results, in parallel arrays indexed by position.
+     * A position that could not be read carries an error instead of a result.
+     */
+    public static final class Batch {
+        private final long[] low;
+        private final long[] high;
+        private final byte[] player;
+        private final String[] error;
+        private final int[] bestPit;
+        private final int[] score;
+        private final byte[] flags;
+        // Packs boards as they are added, on the reading thread
+        private final PackedBoard packer = new PackedBoard();
+        private int size;
+
+        Batch(int capacity) {
+            this.low = new long[capacity];
+            this.high = new long[capacity];
+            this.player = new byte[capacity];
+            this.error = new String[capacity];
+            this.bestPit = new int[capacity];
+            this.score = new int[capacity];
+            this.flags = new byte[capacity];
+        }
+
+        public boolean isFull() {
+            return size == low.length;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Adds a position: the 14-pit board (same layout as {@link MancalaGame}) and the side to move.
+         * An invalid position is added with an error so results stay aligned with the input.
+         */
+        public void add(int[] board, int currentPlayer) {
+            int i = size++;
+            error[i] = validate(board, currentPlayer);
+            if (error[i] == null) {
+                packer.copyFrom(board);
+                low[i] = packer.low();
+                high[i] = packer.high();
+                player[i] = (byte) currentPlayer;
+            }
+        }
+
+        private static String validate(int[] board, int currentPlayer) {
+            if (board == null || board.length != PackedBoard.PITS) {
+                return "Board must have " + PackedBoard.PITS + " pits";
+            }
+            String stoneCountError = PackedBoard.stoneCountError(board);
+            if (stoneCountError != null) {
+                return stoneCountError;
+            }
+            return currentPlayer == 0 || currentPlayer == 1 ? null : "Current player must be 0 or 1";
+        }
+
+        /**
+         * @return Why the position could not be evaluated, or null if it was.
+         */
+        public String error(int i) {
+            return error[i];
+        }
+
+        /**
+         * @return The best pit to play, or -1 if the game is over.
+         */
+        public int bestPit(int i) {
+            return bestPit[i];
+        }
+
+        /**
+         * @return The expected final store difference, side to move minus opponent.
+         */
+        public int score(int i) {
+            return score[i];
+        }
+
+        /**
+         * @return What the best move does, as {@link MancalaEngine} flags; {@link MancalaEngine#GAME_OVER}
+         *         alone if the game was already over.
+         */
+        public int flags(int i) {
+            return flags[i];
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    private final int depth;
+    private final long budgetNanos;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final ExecutorService pool;
+    private final ThreadLocal<MancalaSearch> searchers;
+    // Two scratch boards per pool thread: the position and the position after its best move
+    private final ThreadLocal<PackedBoard[]> scratchBoards = ThreadLocal.withInitial(() -> new PackedBoard[]{new PackedBoard(), new PackedBoard()});
+
+    @Autowired
+    public BatchEvaluator(EndgameDatabase endgameDatabase,
+                          @Value("${mancala.evaluate.depth:8}") int depth,
+                          @Value("${mancala.evaluate.budget-ms:50}") long budgetMillis,
+                          @Value("${mancala.evaluate.threads:0}") int threads,
+                          @Value("${mancala.evaluate.tt-size-bits:16}") int tableSizeBits,
+                          @Value("${mancala.evaluate.batch-size:256}") int batchSize,
+                          @Value("${mancala.evaluate.max-in-flight:0}") int maxInFlight) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.depth = depth;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : 2 * poolSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "mancala-evaluate-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.searchers = ThreadLocal.withInitial(() -> new MancalaSearch(tableSizeBits, endgameDatabase));
+        logger.info("Batch evaluator ready: {} threads, depth {}, {} positions per batch, {} batches in flight per stream",
+                poolSize, depth, batchSize, this.maxInFlight);
+    }
+
+    /**
+     * Reads, evaluates and writes batches until the reader runs dry. Returns once every result
+     * has been written; if reading or writing fails, the batches still queued are abandoned.
+     * @return The number of positions written.
+     */
+    public long evaluateAll(BatchReader reader, BatchWriter writer) throws IOException {
+        ArrayDeque<Future<Batch>> inFlight = new ArrayDeque<>(maxInFlight);
+        ArrayDeque<Batch> spare = new ArrayDeque<>();
+        long written = 0;
+        try {
+            while (true) {
+                Batch batch = spare.isEmpty() ? new Batch(batchSize) : spare.poll();
+                batch.clear();
+                if (!reader.fill(batch)) {
+                    break;
+                }
+                inFlight.add(pool.submit(() -> evaluate(batch)));
+                if (inFlight.size() >= maxInFlight) {
+                    written += writeOldest(inFlight, spare, writer);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                written += writeOldest(inFlight, spare, writer);
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(false));
+        }
+        return written;
+    }
+
+    private static int writeOldest(ArrayDeque<Future<Batch>> inFlight, ArrayDeque<Batch> spare, BatchWriter writer) throws IOException {
+        Batch batch = await(inFlight.poll());
+        writer.write(batch);
+        spare.add(batch);
+        return batch.size();
+    }
+
+    // On a pool thread; reuses the thread's search and scratch boards for every position
+    private Batch evaluate(Batch batch) {
+        MancalaSearch search = searchers.get();
+        PackedBoard[] scratch = scratchBoards.get();
+        PackedBoard board = scratch[0];
+        PackedBoard child = scratch[1];
+        for (int i = 0; i < batch.size; i++) {
+            if (batch.error[i] != null) continue;
+            board.setPacked(batch.low[i], batch.high[i]);
+            int player = batch.player[i];
+            int ownPits = MancalaEngine.stonesInPits(board, player);
+            int oppPits = MancalaEngine.stonesInPits(board, 1 - player);
+            if (ownPits == 0 || oppPits == 0) {
+                // Already over: each side collects what is left on its own side
+                batch.bestPit[i] = -1;
+                batch.score[i] = storeDifference(board, player) + ownPits - oppPits;
+                batch.flags[i] = MancalaEngine.GAME_OVER;
+                continue;
+            }
+            SearchResult result = search.search(board, player, depth, budgetNanos);
+            child.copyFrom(board);
+            batch.bestPit[i] = result.pitIndex();
+            batch.score[i] = result.score();
+            batch.flags[i] = (byte) MancalaEngine.move(child, player, result.pitIndex());
+        }
+        return batch;
+    }
+
+    private static Batch await(Future<Batch> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch evaluation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch evaluation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static int storeDifference(PackedBoard board, int player) {
+        int store1 = board.get(MancalaGame.PLAYER1_STORE);
+        int store2 = board.get(MancalaGame.PLAYER2_STORE);
+        return player == 0 ? store1 - store2 : store2 - store1;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,152 @@
+package org.mancalgame.mancalagame.ai;
+
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.PackedBoard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-only view of a precomputed endgame database (see {@link EndgameDatabaseGenerator}).
+ * The file is memory-mapped once, lazily: mapping is attempted when the application is ready or
+ * on the first lookup, whichever comes first, and pages are faulted in by the OS on demand.
+ * The mapping is shared by all threads; absolute reads on a mapped buffer need no locking.
+ * <p>
+ * When no file is configured or it cannot be read, every lookup reports a miss and callers
+ * fall back to searching.
+ */
+@Component
+public class EndgameDatabase {
+
+    private static final Logger logger = LoggerFactory.getLogger(EndgameDatabase.class);
+
+    /** Returned by {@link #lookup} when the position is not covered. */
+    public static final int MISS = Integer.MIN_VALUE;
+
+    private final Path path;
+    private volatile Mapping mapping;
+    private volatile boolean loadAttempted;
+    // Not a monitor: the first lookups may come from virtual threads, which must not pin while the file is mapped
+    private final ReentrantLock loading = new ReentrantLock();
+
+    private record Mapping(EndgameIndex index, MappedByteBuffer values) {}
+
+    public EndgameDatabase(@Value("${mancala.endgame.path:}") String path) {
+        this.path = path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    /**
+     * A database that never answers; useful when the AI is constructed outside Spring.
+     */
+    public static EndgameDatabase none() {
+        return new EndgameDatabase("");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ensureLoaded();
+    }
+
+    /**
+     * @return Whether a database file is mapped and answering lookups.
+     */
+    public boolean isAvailable() {
+        return ensureLoaded() != null;
+    }
+
+    /**
+     * @return The largest number of stones in play covered by the database, or -1 if unavailable.
+     */
+    public int maxStones() {
+        Mapping m = ensureLoaded();
+        return m == null ? -1 : m.index().maxStones();
+    }
+
+    /**
+     * Looks up the exact value of a position in O(1).
+     * @param board The position; only the twelve regular pits are considered.
+     * @param player The side to move.
+     * @return The best achievable difference between the stones the side to move and its opponent
+     *         will still bank from the pits, or {@link #MISS} if the position is not covered.
+     */
+    public int lookup(PackedBoard board, int player) {
+        Mapping m = mapping;
+        if (m == null) {
+            if (loadAttempted || (m = ensureLoaded()) == null) {
+                return MISS;
+            }
+        }
+        EndgameIndex index = m.index();
+        int stones = MancalaEngine.stonesInPits(board, 0) + MancalaEngine.stonesInPits(board, 1);
+        if (stones > index.maxStones()) {
+            return MISS;
+        }
+        long slot = index.rank(board) * 2 + player;
+        return m.values().get((int) slot);
+    }
+
+    private Mapping ensureLoaded() {
+        Mapping m = mapping;
+        if (m != null || loadAttempted) {
+            return m;
+        }
+        loading.lock();
+        try {
+            if (!loadAttempted) {
+                mapping = load();
+                loadAttempted = true;
+            }
+            return mapping;
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    private Mapping load() {
+        if (path == null) {
+            logger.info("No endgame database configured (mancala.endgame.path); the AI will search all positions.");
+            return null;
+        }
+        if (!Files.isReadable(path)) {
+            logger.warn("Endgame database {} not found; generate it with EndgameDatabaseGenerator.", path);
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, EndgameDatabaseGenerator.HEADER_BYTES);
+            header.order(ByteOrder.BIG_ENDIAN);
+            int magic = header.getInt();
+            int version = header.getInt();
+            int maxStones = header.getInt();
+            header.getInt(); // reserved
+            long positions = header.getLong();
+            if (magic != EndgameDatabaseGenerator.MAGIC || version != EndgameDatabaseGenerator.VERSION) {
+                logger.error("Endgame database {} has an unknown format (magic={}, version={}).", path, Integer.toHexString(magic), version);
+                return null;
+            }
+            EndgameIndex index = new EndgameIndex(maxStones);
+            long bytes = positions * 2;
+            if (index.size() != positions || channel.size() < EndgameDatabaseGenerator.HEADER_BYTES + bytes) {
+                logger.error("Endgame database {} is truncated or inconsistent.", path);
+                return null;
+            }
+            MappedByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, EndgameDatabaseGenerator.HEADER_BYTES, bytes);
+            logger.info("Endgame database {} mapped: {} positions up to {} stones.", path, positions, maxStones);
+            return new Mapping(index, values);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Failed to map endgame database {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+}
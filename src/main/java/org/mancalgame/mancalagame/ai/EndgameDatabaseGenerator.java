@@ -0,0 +1,169 @@
+package org.mancalgame.mancalagame.ai;
+
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Offline generator for the endgame database read by {@link EndgameDatabase}.
+ * <p>
+ * Every position with at most N stones in the twelve regular pits is solved exactly for both
+ * sides to move. The value of a position is the best achievable difference between the stones
+ * the side to move and its opponent will still add to their stores.
+ * <p>
+ * Positions are solved by a retrograde pass, level by level, instead of searching lines of play.
+ * Stones only ever leave play, so a level (the positions with n stones in play) depends only on
+ * itself and on the levels below, which are already solved. A move that keeps all n stones in play sows them strictly
+ * towards the mover's store, so it lowers the level's potential: the sum over all stones of their
+ * distance to their side's store. Within a level, positions are therefore enumerated in increasing
+ * potential, and every successor of a position has been solved before the position itself. Moves
+ * follow the rules in {@link MancalaEngine}.
+ * <p>
+ * Usage: {@code java -cp <classpath> org.mancalgame.mancalagame.ai.EndgameDatabaseGenerator <output-file> <max-stones>}
+ */
+public final class EndgameDatabaseGenerator {
+
+    static final int MAGIC = 0x4D454742; // "MEGB"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    private static final byte UNSOLVED = Byte.MIN_VALUE;
+
+    // A pit's distance to its side's store, by lane
+    private static final int[] DISTANCE = {6, 5, 4, 3, 2, 1};
+
+    private final EndgameIndex index;
+    private final byte[] values; // [rank * 2 + sideToMove]
+    private final PackedBoard board = new PackedBoard();
+    private final PackedBoard child = new PackedBoard();
+
+    EndgameDatabaseGenerator(int maxStones) {
+        this.index = new EndgameIndex(maxStones);
+        long entries = index.size() * 2;
+        if (entries > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("An endgame database for " + maxStones + " stones is too large");
+        }
+        this.values = new byte[(int) entries];
+        Arrays.fill(values, UNSOLVED);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: EndgameDatabaseGenerator <output-file> <max-stones>");
+            System.exit(2);
+        }
+        Path output = Path.of(args[0]);
+        int maxStones = Integer.parseInt(args[1]);
+        long start = System.nanoTime();
+        EndgameDatabaseGenerator generator = new EndgameDatabaseGenerator(maxStones);
+        generator.solveAll();
+        generator.write(output);
+        System.out.printf("Solved %,d positions (<= %d stones) in %,d ms -> %s%n",
+                generator.index.size() * 2, maxStones, (System.nanoTime() - start) / 1_000_000, output);
+    }
+
+    void solveAll() {
+        for (int stones = 0; stones <= index.maxStones(); stones++) {
+            for (int potential = 0; potential <= DISTANCE[0] * stones; potential++) {
+                enumerate(0, stones, potential, 0L, 0L);
+            }
+        }
+    }
+
+    byte value(long rank, int side) {
+        return values[(int) (rank * 2 + side)];
+    }
+
+    EndgameIndex index() {
+        return index;
+    }
+
+    // Visits every pit vector with the given stones and potential left for the pits from `pit` on
+    // (pits 0-5 are Player 1's lanes, 6-11 Player 2's), and solves it for both sides
+    private void enumerate(int pit, int stones, int potential, long low, long high) {
+        if (pit == EndgameIndex.PITS) {
+            if (stones == 0 && potential == 0) {
+                board.setPacked(low, high);
+                long rank = index.rank(board);
+                values[(int) (rank * 2)] = (byte) solve(0);
+                values[(int) (rank * 2 + 1)] = (byte) solve(1);
+            }
+            return;
+        }
+        int lane = pit % 6;
+        int distance = DISTANCE[lane];
+        // Each stone left for the later pits is worth between 1 and the largest distance among them;
+        // on Player 2's side that is the next pit's, on Player 1's the far side's first pit's
+        boolean last = pit == EndgameIndex.PITS - 1;
+        int laterMax = last ? 0 : pit < 6 ? DISTANCE[0] : DISTANCE[lane + 1];
+        int laterMin = last ? 0 : 1;
+        for (int v = 0; v <= stones && v * distance <= potential; v++) {
+            int restStones = stones - v;
+            int restPotential = potential - v * distance;
+            if (restPotential > restStones * laterMax || restPotential < restStones * laterMin) {
+                continue;
+            }
+            long lanes = (long) v << (lane * PackedBoard.LANE_BITS);
+            enumerate(pit + 1, restStones, restPotential, pit < 6 ? low | lanes : low, pit < 6 ? high : high | lanes);
+        }
+    }
+
+    // Solves `board` (stores empty) for `side` to move from its already solved successors
+    private int solve(int side) {
+        int ownPits = MancalaEngine.stonesInPits(board, side);
+        int oppPits = MancalaEngine.stonesInPits(board, 1 - side);
+        if (ownPits == 0 || oppPits == 0) {
+            // Already terminal: each side collects what is left on its own side
+            return ownPits - oppPits;
+        }
+        int best = Integer.MIN_VALUE;
+        int legal = MancalaEngine.legalMoveMask(board, side);
+        for (int lane = 0; lane < 6; lane++) {
+            if ((legal & (1 << lane)) == 0) continue;
+            child.copyFrom(board);
+            int flags = MancalaEngine.move(child, side, MancalaEngine.pitIndex(side, lane));
+            int ownStore = child.get(side == 0 ? 6 : 13);
+            int oppStore = child.get(side == 0 ? 13 : 6);
+            int score = ownStore - oppStore;
+            if ((flags & MancalaEngine.GAME_OVER) == 0) {
+                child.set(6, 0);
+                child.set(13, 0);
+                boolean extraTurn = (flags & MancalaEngine.EXTRA_TURN) != 0;
+                byte next = values[(int) (index.rank(child) * 2 + (extraTurn ? side : 1 - side))];
+                if (next == UNSOLVED) {
+                    throw new IllegalStateException("Successor of " + board + " solved out of order: " + child);
+                }
+                score += extraTurn ? next : -next;
+            }
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+
+    void write(Path output) throws IOException {
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(index.maxStones()).putInt(0).putLong(index.size());
+            header.flip();
+            while (header.hasRemaining()) channel.write(header);
+            ByteBuffer body = ByteBuffer.wrap(values);
+            while (body.hasRemaining()) channel.write(body);
+            channel.force(true);
+        }
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,108 @@
+package org.mancalgame.mancalagame.ai;
+
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+/**
+ * Perfect hash of the twelve regular pits for all positions with at most {@code maxStones}
+ * stones in play. A pit vector is ranked as a weak composition of {@code maxStones} into
+ * thirteen parts (the twelve pits plus one slack part holding the stones not in play), so the
+ * index is dense over {@code 0 .. C(maxStones + 12, 12) - 1} and every position maps to a
+ * unique slot. Ranking is O(12) table lookups and never allocates.
+ */
+final class EndgameIndex {
+
+    static final int PITS = 12;
+
+    private final int maxStones;
+    private final long size;
+    // skip[i][m][v]: number of compositions that precede those with part i == v, given that
+    // m stones remain for parts i..12
+    private final long[][][] skip;
+
+    EndgameIndex(int maxStones) {
+        if (maxStones < 0 || maxStones > 40) {
+            throw new IllegalArgumentException("maxStones must be between 0 and 40");
+        }
+        this.maxStones = maxStones;
+        this.skip = new long[PITS][maxStones + 1][maxStones + 2];
+        for (int i = 0; i < PITS; i++) {
+            int partsAfter = PITS - i; // parts i+1..12, including the slack part
+            for (int m = 0; m <= maxStones; m++) {
+                long sum = 0;
+                for (int v = 0; v <= m + 1 && v <= maxStones + 1; v++) {
+                    skip[i][m][v] = sum;
+                    if (v <= m) {
+                        sum += compositions(m - v, partsAfter);
+                    }
+                }
+            }
+        }
+        this.size = compositions(maxStones, PITS + 1);
+    }
+
+    int maxStones() {
+        return maxStones;
+    }
+
+    /**
+     * @return The number of distinct pit vectors covered by this index.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Ranks the regular pits of a board. The caller must ensure that the board holds at most
+     * {@link #maxStones()} stones in its pits.
+     */
+    long rank(PackedBoard board) {
+        long low = board.low();
+        long high = board.high();
+        long rank = 0;
+        int remaining = maxStones;
+        for (int i = 0; i < PITS; i++) {
+            long side = i < 6 ? low : high;
+            int v = (int) ((side >>> ((i % 6) * PackedBoard.LANE_BITS)) & 0xFF);
+            rank += skip[i][remaining][v];
+            remaining -= v;
+        }
+        return rank;
+    }
+
+    /**
+     * Inverse of {@link #rank}: writes the pit vector with the given rank into {@code board}
+     * and clears both stores.
+     */
+    void unrank(long rank, PackedBoard board) {
+        long low = 0;
+        long high = 0;
+        int remaining = maxStones;
+        for (int i = 0; i < PITS; i++) {
+            long[] row = skip[i][remaining];
+            int v = 0;
+            while (v < remaining && row[v + 1] <= rank) {
+                v++;
+            }
+            rank -= row[v];
+            remaining -= v;
+            int shift = (i % 6) * PackedBoard.LANE_BITS;
+            if (i < 6) {
+                low |= (long) v << shift;
+            } else {
+                high |= (long) v << shift;
+            }
+        }
+        board.setPacked(low, high);
+    }
+
+    // Number of ways to split `stones` into `parts` ordered non-negative parts: C(stones + parts - 1, parts - 1)
+    private static long compositions(int stones, int parts) {
+        long result = 1;
+        int n = stones + parts - 1;
+        int k = Math.min(parts - 1, stones);
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,210 @@
+package org.mancalgame.mancalagame.ai;
+
+import jakarta.annotation.PreDestroy;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.PackedBoard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Computer opponent built on the {@link org.mancalgame.mancalagame.game.MancalaEngine} rules.
+ * Searches run on a small fixed pool of search threads, each owning a reusable
+ * {@link MancalaSearch} and transposition table, so memory stays bounded no matter
+ * how many bot games are being served. Every search respects a per-move time budget.
+ * <p>
+ * A search may ask for several threads (lazy SMP): the extra threads search the same root
+ * through one shared lock-free transposition table. The pool hands out threads by fair share,
+ * so a request never receives more than {@code poolSize / activeSearches} threads and a deep
+ * search cannot starve the other games queued behind it.
+ * <p>
+ * Positions covered by the {@link EndgameDatabase} are scored exactly by lookup instead of search.
+ */
+@Service
+public class MancalaAI {
+
+    private static final Logger logger = LoggerFactory.getLogger(MancalaAI.class);
+
+    private final long timeBudgetMillis;
+    private final int maxDepth;
+    private final int defaultSearchThreads;
+    private final int poolSize;
+    private final ExecutorService searchPool;
+    private final ThreadLocal<MancalaSearch> searchers;
+    private final TranspositionTable sharedTable;
+    private final AtomicInteger activeSearches = new AtomicInteger();
+
+    // Aggregate statistics for capacity planning
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder totalNodes = new LongAdder();
+    private final LongAdder totalSearchNanos = new LongAdder();
+    private final LongAdder totalDepth = new LongAdder();
+
+    public MancalaAI(EndgameDatabase endgameDatabase,
+                     @Value("${mancala.ai.time-budget-ms:200}") long timeBudgetMillis,
+                     @Value("${mancala.ai.max-depth:40}") int maxDepth,
+                     @Value("${mancala.ai.threads:0}") int threads,
+                     @Value("${mancala.ai.tt-size-bits:16}") int tableSizeBits,
+                     @Value("${mancala.ai.search-threads:1}") int defaultSearchThreads,
+                     @Value("${mancala.ai.shared-tt-size-bits:20}") int sharedTableSizeBits) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.maxDepth = maxDepth;
+        this.defaultSearchThreads = defaultSearchThreads;
+        this.poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.searchPool = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "mancala-ai-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.searchers = ThreadLocal.withInitial(() -> new MancalaSearch(tableSizeBits, endgameDatabase));
+        this.sharedTable = new TranspositionTable(sharedTableSizeBits, true);
+        logger.info("Mancala AI ready: {} search threads, {} ms per move, {} TT entries per thread, {} shared",
+                poolSize, timeBudgetMillis, 1 << tableSizeBits, 1 << sharedTableSizeBits);
+    }
+
+    /**
+     * Chooses a move for the player to move using the configured time budget and depth limit.
+     * @param game The game to analyse; it is not modified.
+     * @return The chosen move together with search statistics.
+     * @throws IllegalStateException if the game is already over.
+     */
+    public SearchResult chooseMove(MancalaGame game) {
+        return chooseMove(game, timeBudgetMillis, maxDepth, defaultSearchThreads);
+    }
+
+    /**
+     * Chooses a move with an explicit time budget and depth limit using the default thread count.
+     * @param game The game to analyse; it is not modified.
+     * @param budgetMillis The wall-clock budget for the search.
+     * @param depthLimit The maximum search depth in plies.
+     * @return The chosen move together with search statistics.
+     */
+    public SearchResult chooseMove(MancalaGame game, long budgetMillis, int depthLimit) {
+        return chooseMove(game, budgetMillis, depthLimit, defaultSearchThreads);
+    }
+
+    /**
+     * Chooses a move with an explicit time budget, depth limit and thread count.
+     * @param game The game to analyse; it is not modified.
+     * @param budgetMillis The wall-clock budget for the search.
+     * @param depthLimit The maximum search depth in plies.
+     * @param threads The number of threads requested; the pool may grant fewer under load.
+     * @return The chosen move together with search statistics.
+     * @throws IllegalStateException if the game is already over or the search was interrupted.
+     * @throws IllegalArgumentException if the game's rules are not the standard six-pit moves.
+     */
+    public SearchResult chooseMove(MancalaGame game, long budgetMillis, int depthLimit, int threads) {
+        if (game.isGameOver()) {
+            throw new IllegalStateException("Game is already over.");
+        }
+        if (!game.getRules().hasStandardMoves()) {
+            throw new IllegalArgumentException("The computer only plays six pits with the standard capture, not " + game.getRules());
+        }
+        PackedBoard root = new PackedBoard();
+        root.copyFrom(game.packedBoard());
+        int player = game.getCurrentPlayer();
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+
+        int active = activeSearches.incrementAndGet();
+        SearchResult result;
+        try {
+            int granted = Math.max(1, Math.min(threads, poolSize / active));
+            result = granted == 1
+                    ? await(searchPool.submit(() -> searchers.get().search(root, player, depthLimit, budgetNanos)))
+                    : parallelSearch(root, player, depthLimit, budgetNanos, granted);
+        } finally {
+            activeSearches.decrementAndGet();
+        }
+
+        record(result);
+        logger.debug("AI chose pit {} for Player {}: score={}, depth={}, nodes={}, nps={}, threads={}",
+                result.pitIndex(), player + 1, result.score(), result.depth(), result.nodes(), result.nodesPerSecond(), result.threads());
+        return result;
+    }
+
+    // Lazy SMP: all threads search the same root through the shared table; the main thread
+    // (index 0) raises the stop flag when it finishes and the deepest completed result wins.
+    private SearchResult parallelSearch(PackedBoard root, int player, int depthLimit, long budgetNanos, int threads) {
+        long start = System.nanoTime();
+        AtomicBoolean stop = new AtomicBoolean();
+        sharedTable.newSearch();
+        List<Future<SearchResult>> futures = new ArrayList<>(threads);
+        futures.add(searchPool.submit(() -> {
+            try {
+                return searchers.get().search(root, player, depthLimit, budgetNanos, sharedTable, null, 0);
+            } finally {
+                stop.set(true);
+            }
+        }));
+        for (int helper = 1; helper < threads; helper++) {
+            int helperIndex = helper;
+            futures.add(searchPool.submit(() -> searchers.get().search(root, player, depthLimit, budgetNanos, sharedTable, stop, helperIndex)));
+        }
+
+        SearchResult best = null;
+        long nodes = 0;
+        int participating = 0;
+        for (Future<SearchResult> future : futures) {
+            SearchResult candidate = await(future);
+            if (candidate == null) continue;
+            participating++;
+            nodes += candidate.nodes();
+            if (best == null || candidate.depth() > best.depth()) {
+                best = candidate;
+            }
+        }
+        return new SearchResult(best.pitIndex(), best.score(), best.depth(), nodes, System.nanoTime() - start, participating);
+    }
+
+    private static SearchResult await(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("AI search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("AI search failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void record(SearchResult result) {
+        searches.increment();
+        totalNodes.add(result.nodes());
+        totalSearchNanos.add(result.elapsedNanos());
+        totalDepth.add(result.depth());
+    }
+
+    // --- Aggregate statistics ---
+
+    public long getSearchCount() { return searches.sum(); }
+    public long getTotalNodes() { return totalNodes.sum(); }
+
+    public long getNodesPerSecond() {
+        long nanos = totalSearchNanos.sum();
+        return nanos == 0 ? 0 : totalNodes.sum() * 1_000_000_000L / nanos;
+    }
+
+    public double getAverageDepth() {
+        long count = searches.sum();
+        return count == 0 ? 0 : (double) totalDepth.sum() / count;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        searchPool.shutdownNow();
+    }
+}
@@ -0,0 +1,242 @@
+package org.mancalgame.mancalagame.ai;
+
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single-threaded iterative-deepening alpha-beta (negamax) search over {@link MancalaEngine}.
+ * An instance owns its board stack, move buffers and transposition table, so it is reused
+ * across searches by one thread and never allocates while searching.
+ * <p>
+ * Extra turns are handled by searching the child with the same side to move and without
+ * negating the window. Scores are store differences from the point of view of the side to move.
+ * <p>
+ * For parallel (lazy SMP) searches several instances search the same root on different threads,
+ * sharing one lock-free {@link TranspositionTable} and a stop flag; helpers start one ply deeper
+ * on odd indices so the threads spread over different parts of the tree.
+ */
+final class MancalaSearch {
+
+    static final int MAX_PLY = 96;
+    private static final int INFINITY = 10_000;
+    private static final int TIME_CHECK_MASK = 1023;
+
+    private final TranspositionTable ownTable;
+    private final EndgameDatabase endgame;
+    private final PackedBoard[] stack = new PackedBoard[MAX_PLY + 1];
+    private final int[][] moves = new int[MAX_PLY + 1][6];
+    private final int[] orderKeys = new int[6];
+
+    private TranspositionTable table;
+    private AtomicBoolean stop;
+    private long nodes;
+    private long deadline;
+    private boolean aborted;
+
+    MancalaSearch(int tableSizeBits, EndgameDatabase endgame) {
+        this.ownTable = new TranspositionTable(tableSizeBits, false);
+        this.endgame = endgame;
+        for (int i = 0; i < stack.length; i++) {
+            stack[i] = new PackedBoard();
+        }
+    }
+
+    /**
+     * Searches the position until the time budget runs out or {@code maxDepth} is completed.
+     * @param root The position to search; it is not modified.
+     * @param player The side to move.
+     * @param maxDepth The maximum nominal depth (plies, including extra turns).
+     * @param budgetNanos The wall-clock budget for this search.
+     * @return The best move of the deepest completed iteration.
+     */
+    SearchResult search(PackedBoard root, int player, int maxDepth, long budgetNanos) {
+        ownTable.newSearch();
+        return search(root, player, maxDepth, budgetNanos, ownTable, null, 0);
+    }
+
+    /**
+     * Searches as one thread of a parallel search.
+     * @param table The table shared by all threads of the search.
+     * @param stop Set by the main thread when it finishes; every thread stops at its next time check.
+     * @param helperIndex 0 for the main thread, 1.. for helpers.
+     * @return The best move of this thread's deepest completed iteration, or null if it was
+     *         stopped before it could start.
+     */
+    SearchResult search(PackedBoard root, int player, int maxDepth, long budgetNanos,
+                        TranspositionTable table, AtomicBoolean stop, int helperIndex) {
+        if (stop != null && stop.get()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        this.deadline = start + budgetNanos;
+        this.table = table;
+        this.stop = stop;
+        this.nodes = 0;
+        this.aborted = false;
+        stack[0].copyFrom(root);
+
+        int depthLimit = Math.min(maxDepth, MAX_PLY - 1);
+        // Fallback if not even depth 1 completes: the first move in static order
+        int bestLane = orderMoves(stack[0], player, TranspositionTable.NO_MOVE, moves[0]) > 0 ? moves[0][0] : -1;
+        if (bestLane < 0) {
+            throw new IllegalStateException("No legal moves for Player " + (player + 1));
+        }
+        int bestScore = 0;
+        int completedDepth = 0;
+
+        for (int depth = 1 + (helperIndex & 1); depth <= depthLimit; depth++) {
+            long rootResult = searchRoot(player, depth, bestLane);
+            if (aborted) break;
+            bestLane = (int) (rootResult >>> 32);
+            bestScore = (int) rootResult;
+            completedDepth = depth;
+            if (System.nanoTime() - deadline >= 0) break;
+        }
+        this.table = null;
+        this.stop = null;
+        return new SearchResult(MancalaEngine.pitIndex(player, bestLane), bestScore, completedDepth, nodes, System.nanoTime() - start, 1);
+    }
+
+    // Returns (bestLane << 32) | (score & 0xFFFFFFFF)
+    private long searchRoot(int player, int depth, int previousBest) {
+        PackedBoard board = stack[0];
+        PackedBoard child = stack[1];
+        int count = orderMoves(board, player, previousBest, moves[0]);
+        int alpha = -INFINITY;
+        int bestLane = moves[0][0];
+        for (int i = 0; i < count; i++) {
+            int lane = moves[0][i];
+            child.copyFrom(board);
+            int score = scoreChild(child, 1, player, lane, depth, alpha, INFINITY);
+            if (aborted) return 0;
+            if (score > alpha) {
+                alpha = score;
+                bestLane = lane;
+            }
+        }
+        table.store(Zobrist.hash(board, player), depth, alpha, TranspositionTable.EXACT, bestLane);
+        return ((long) bestLane << 32) | (alpha & 0xFFFFFFFFL);
+    }
+
+    private int negamax(int ply, int player, int depth, int alpha, int beta) {
+        if ((++nodes & TIME_CHECK_MASK) == 0
+                && (System.nanoTime() - deadline >= 0 || (stop != null && stop.get()))) {
+            aborted = true;
+        }
+        if (aborted) return 0;
+
+        PackedBoard board = stack[ply];
+        // Positions with few stones left are solved exactly by the endgame database
+        int solved = endgame.lookup(board, player);
+        if (solved != EndgameDatabase.MISS) {
+            return storeDifference(board, player) + solved;
+        }
+        if (depth == 0) {
+            return storeDifference(board, player);
+        }
+
+        long key = Zobrist.hash(board, player);
+        long entry = table.probe(key);
+        int ttLane = TranspositionTable.NO_MOVE;
+        if (entry != 0L) {
+            ttLane = TranspositionTable.bestLane(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int ttScore = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && ttScore >= beta)
+                        || (bound == TranspositionTable.UPPER && ttScore <= alpha)) {
+                    return ttScore;
+                }
+            }
+        }
+
+        int originalAlpha = alpha;
+        int[] ordered = moves[ply];
+        int count = orderMoves(board, player, ttLane, ordered);
+        PackedBoard child = stack[ply + 1];
+        int best = -INFINITY;
+        int bestLane = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < count; i++) {
+            int lane = ordered[i];
+            child.copyFrom(board);
+            int score = scoreChild(child, ply + 1, player, lane, depth, alpha, beta);
+            if (aborted) return 0;
+            if (score > best) {
+                best = score;
+                bestLane = lane;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) break;
+                }
+            }
+        }
+
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER
+                : TranspositionTable.EXACT;
+        table.store(key, depth, best, bound, bestLane);
+        return best;
+    }
+
+    // Plays `lane` on `child` (already a copy of the parent) and scores it for `player`
+    private int scoreChild(PackedBoard child, int childPly, int player, int lane, int depth, int alpha, int beta) {
+        int flags = MancalaEngine.move(child, player, MancalaEngine.pitIndex(player, lane));
+        if ((flags & MancalaEngine.GAME_OVER) != 0) {
+            nodes++;
+            return storeDifference(child, player);
+        }
+        if ((flags & MancalaEngine.EXTRA_TURN) != 0) {
+            return negamax(childPly, player, depth - 1, alpha, beta);
+        }
+        return -negamax(childPly, 1 - player, depth - 1, -beta, -alpha);
+    }
+
+    /**
+     * Fills {@code out} with the legal lanes (0-5) in search order: the hash move, then moves
+     * ending in the mover's store (extra turns, nearest the store first), then captures by size,
+     * then the remaining moves nearest the store first.
+     * @return The number of legal moves.
+     */
+    int orderMoves(PackedBoard board, int player, int hashLane, int[] out) {
+        long own = board.side(player);
+        long opp = board.side(1 - player);
+        int count = 0;
+        for (int lane = 0; lane < 6; lane++) {
+            int stones = (int) ((own >>> (lane * PackedBoard.LANE_BITS)) & 0xFF);
+            if (stones == 0) continue;
+            int key;
+            if (lane == hashLane) {
+                key = 1_000;
+            } else if (stones % 13 == 6 - lane) {
+                key = 500 + lane;
+            } else {
+                int landing = lane + stones;
+                int captured = 0;
+                if (landing < 6 && ((own >>> (landing * PackedBoard.LANE_BITS)) & 0xFF) == 0) {
+                    captured = (int) ((opp >>> ((5 - landing) * PackedBoard.LANE_BITS)) & 0xFF);
+                }
+                key = captured > 0 ? 100 + captured : lane;
+            }
+            // Insertion sort by descending key; at most six moves
+            int i = count++;
+            while (i > 0 && orderKeys[i - 1] < key) {
+                orderKeys[i] = orderKeys[i - 1];
+                out[i] = out[i - 1];
+                i--;
+            }
+            orderKeys[i] = key;
+            out[i] = lane;
+        }
+        return count;
+    }
+
+    private static int storeDifference(PackedBoard board, int player) {
+        int store1 = board.get(MancalaGame.PLAYER1_STORE);
+        int store2 = board.get(MancalaGame.PLAYER2_STORE);
+        return player == 0 ? store1 - store2 : store2 - store1;
+    }
+}
@@ -0,0 +1,13 @@
+package org.mancalgame.mancalagame.ai;
+
+/**
+ * The evaluation of a position for the side to move.
+ * @param bestPit The best pit to play (0-5 or 7-12), or -1 if the game is over.
+ * @param score The expected final store difference (side to move minus opponent).
+ * @param exact Whether the score is proven (endgame database or finished game) rather than a search estimate.
+ * @param source Where the answer came from: "endgame-database", "search" or "game-over".
+ * @param depth The search depth reached, or 0 when no search was needed.
+ * @param nodes The number of positions searched, or 0 when no search was needed.
+ */
+public record PositionEvaluation(int bestPit, int score, boolean exact, String source, int depth, long nodes) {
+}
@@ -0,0 +1,77 @@
+package org.mancalgame.mancalagame.ai;
+
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.PackedBoard;
+import org.springframework.stereotype.Service;
+
+/**
+ * Evaluates arbitrary positions: exactly and in O(1) through the {@link EndgameDatabase} when the
+ * position has few enough stones in play, otherwise with a time-bounded {@link MancalaAI} search.
+ */
+@Service
+public class PositionEvaluator {
+
+    private final EndgameDatabase endgameDatabase;
+    private final MancalaAI mancalaAI;
+
+    public PositionEvaluator(EndgameDatabase endgameDatabase, MancalaAI mancalaAI) {
+        this.endgameDatabase = endgameDatabase;
+        this.mancalaAI = mancalaAI;
+    }
+
+    /**
+     * @param position The position to evaluate; it is not modified.
+     * @return The best move and score for the player to move.
+     */
+    public PositionEvaluation evaluate(MancalaGame position) {
+        PackedBoard board = position.packedBoard();
+        int player = position.getCurrentPlayer();
+        int storeDifference = storeDifference(board, player);
+        if (position.isGameOver()) {
+            return new PositionEvaluation(-1, storeDifference, true, "game-over", 0, 0);
+        }
+        int ownPits = MancalaEngine.stonesInPits(board, player);
+        int oppPits = MancalaEngine.stonesInPits(board, 1 - player);
+        if (ownPits == 0 || oppPits == 0) {
+            return new PositionEvaluation(-1, storeDifference + ownPits - oppPits, true, "game-over", 0, 0);
+        }
+
+        if (endgameDatabase.lookup(board, player) != EndgameDatabase.MISS) {
+            return bestMoveFromDatabase(board, player);
+        }
+        SearchResult result = mancalaAI.chooseMove(position);
+        return new PositionEvaluation(result.pitIndex(), result.score(), false, "search", result.depth(), result.nodes());
+    }
+
+    // Scores each legal move by one lookup of the resulting position
+    private PositionEvaluation bestMoveFromDatabase(PackedBoard board, int player) {
+        PackedBoard child = new PackedBoard();
+        int legal = MancalaEngine.legalMoveMask(board, player);
+        int bestPit = -1;
+        int bestScore = Integer.MIN_VALUE;
+        for (int lane = 0; lane < 6; lane++) {
+            if ((legal & (1 << lane)) == 0) continue;
+            child.copyFrom(board);
+            int pit = MancalaEngine.pitIndex(player, lane);
+            int flags = MancalaEngine.move(child, player, pit);
+            int score = storeDifference(child, player);
+            if ((flags & MancalaEngine.GAME_OVER) == 0) {
+                score += (flags & MancalaEngine.EXTRA_TURN) != 0
+                        ? endgameDatabase.lookup(child, player)
+                        : -endgameDatabase.lookup(child, 1 - player);
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestPit = pit;
+            }
+        }
+        return new PositionEvaluation(bestPit, bestScore, true, "endgame-database", 0, 0);
+    }
+
+    private static int storeDifference(PackedBoard board, int player) {
+        int store1 = board.get(MancalaGame.PLAYER1_STORE);
+        int store2 = board.get(MancalaGame.PLAYER2_STORE);
+        return player == 0 ? store1 - store2 : store2 - store1;
+    }
+}
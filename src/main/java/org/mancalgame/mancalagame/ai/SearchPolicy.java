@@ -0,0 +1,32 @@
+package org.mancalgame.mancalagame.ai;
+
+import org.mancalgame.mancalagame.game.MovePolicy;
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays the move a fixed-depth alpha-beta search prefers. With no time budget the choice depends only
+ * on the position and the transposition table, so self-play at a given depth is repeatable per thread.
+ * Owns its {@link MancalaSearch}, so like every {@link MovePolicy} it is used by one thread.
+ */
+public final class SearchPolicy implements MovePolicy {
+
+    private static final long NO_BUDGET = TimeUnit.DAYS.toNanos(1);
+
+    private final MancalaSearch search;
+    private final int depth;
+
+    public SearchPolicy(int depth, int tableSizeBits) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Search depth must be at least 1");
+        }
+        this.search = new MancalaSearch(tableSizeBits, EndgameDatabase.none());
+        this.depth = depth;
+    }
+
+    @Override
+    public int choosePit(PackedBoard board, int player) {
+        return search.search(board, player, depth, NO_BUDGET).pitIndex();
+    }
+}
@@ -0,0 +1,17 @@
+package org.mancalgame.mancalagame.ai;
+
+/**
+ * Outcome of one AI search.
+ * @param pitIndex The chosen pit on the board (0-5 or 7-12).
+ * @param score The evaluation of the chosen move from the mover's point of view (store difference).
+ * @param depth The deepest fully completed iteration.
+ * @param nodes The number of positions visited.
+ * @param elapsedNanos Wall-clock time spent searching.
+ * @param threads The number of threads that searched the position.
+ */
+public record SearchResult(int pitIndex, int score, int depth, long nodes, long elapsedNanos, int threads) {
+
+    public long nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+}
@@ -0,0 +1,90 @@
+package org.mancalgame.mancalagame.ai;
+
+/**
+ * Fixed-size transposition table backed by two parallel {@code long[]} arrays, so it never
+ * allocates after construction. Each slot packs the score, draft, bound type, best move and
+ * search generation into a single long.
+ * <p>
+ * Replacement policy: a slot is overwritten when it is empty, holds the same position, was
+ * written by an older search (generation aging), or holds a shallower or equal draft.
+ * <p>
+ * The table can be shared by several search threads without locks: each slot stores
+ * {@code key ^ entry} next to the entry, so a slot torn by two concurrent writers fails
+ * verification on probe and is simply treated as a miss.
+ */
+final class TranspositionTable {
+
+    static final int EXACT = 1;
+    static final int LOWER = 2;
+    static final int UPPER = 3;
+    static final int NO_MOVE = 15;
+
+    // Shared tables age by wall-clock epochs of about one second, because many unrelated
+    // searches start concurrently and a per-search counter would age out live entries.
+    private static final int EPOCH_SHIFT = 30;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private final boolean shared;
+    private int generation;
+
+    /**
+     * @param sizeBits The table holds {@code 2^sizeBits} entries (16 bytes each).
+     * @param shared Whether several threads and searches use this table at the same time.
+     */
+    TranspositionTable(int sizeBits, boolean shared) {
+        int size = 1 << sizeBits;
+        this.keys = new long[size];
+        this.entries = new long[size];
+        this.mask = size - 1;
+        this.shared = shared;
+    }
+
+    /**
+     * Starts a new search; entries from earlier searches become preferred replacement victims.
+     */
+    void newSearch() {
+        generation = shared
+                ? (int) (System.nanoTime() >>> EPOCH_SHIFT) & 0xFF
+                : (generation + 1) & 0xFF;
+    }
+
+    /**
+     * @return The packed entry for the key, or 0 if the position is not stored.
+     */
+    long probe(long key) {
+        int index = (int) key & mask;
+        long entry = entries[index];
+        return (keys[index] ^ entry) == key ? entry : 0L;
+    }
+
+    void store(long key, int depth, int score, int bound, int bestLane) {
+        int index = (int) key & mask;
+        long existing = entries[index];
+        if (existing != 0L && (keys[index] ^ existing) != key
+                && generation(existing) == generation && depth(existing) > depth) {
+            return;
+        }
+        long entry = pack(depth, score, bound, bestLane, generation);
+        entries[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    // --- Entry layout, from the low bit: score:16, depth:8, bound:2, bestLane:4, unused:2, generation:8 ---
+    // A stored entry is never 0 because the bound is always 1-3.
+
+    static long pack(int depth, int score, int bound, int bestLane, int generation) {
+        return (score & 0xFFFFL)
+                | ((long) (depth & 0xFF) << 16)
+                | ((long) bound << 24)
+                | ((long) bestLane << 26)
+                | ((long) generation << 32);
+    }
+
+    static int score(long entry) { return (short) (entry & 0xFFFF); }
+    static int depth(long entry) { return (int) ((entry >>> 16) & 0xFF); }
+    static int bound(long entry) { return (int) ((entry >>> 24) & 0x3); }
+    static int bestLane(long entry) { return (int) ((entry >>> 26) & 0xF); }
+    static int generation(long entry) { return (int) ((entry >>> 32) & 0xFF); }
+}
@@ -0,0 +1,42 @@
+package org.mancalgame.mancalagame.ai;
+
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing of a 14-pit board plus the side to move.
+ * Every (pit, stone count) pair has its own random key; a position's hash is the
+ * XOR of the keys of all of its pits, XORed with {@link #SIDE_KEY} when Player 2 is to move.
+ */
+final class Zobrist {
+
+    private static final long[][] PIT_KEYS = new long[PackedBoard.PITS][PackedBoard.MAX_STONES_PER_PIT + 1];
+    private static final long SIDE_KEY;
+
+    static {
+        // Fixed seed so hashes are stable between runs (useful when comparing search traces)
+        SplittableRandom random = new SplittableRandom(0x6D616E63616C61L);
+        for (long[] keys : PIT_KEYS) {
+            for (int stones = 0; stones < keys.length; stones++) {
+                keys[stones] = random.nextLong();
+            }
+        }
+        SIDE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    static long hash(PackedBoard board, int player) {
+        long low = board.low();
+        long high = board.high();
+        long h = player == 0 ? 0L : SIDE_KEY;
+        for (int lane = 0; lane < PackedBoard.LANES_PER_SIDE; lane++) {
+            int shift = lane * PackedBoard.LANE_BITS;
+            h ^= PIT_KEYS[lane][(int) ((low >>> shift) & 0xFF)];
+            h ^= PIT_KEYS[lane + PackedBoard.LANES_PER_SIDE][(int) ((high >>> shift) & 0xFF)];
+        }
+        return h;
+    }
+}
@@ -0,0 +1,268 @@
+package org.mancalgame.mancalagame.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.mancalgame.mancalagame.online.BinaryMessageConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.ReactorNettyTcpStompClient;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sends game commands to the node that owns the game, through the same STOMP broker that the relay
+ * uses for client subscriptions. Each node subscribes to its own queue, {@code /queue/mancala.node.{name}},
+ * over one TCP connection of its own, so the commands a node forwards to another arrive in the order
+ * they were sent.
+ * <p>
+ * A forwarded command carries the game, the client's session id, its codec and the command's argument.
+ * The owner runs it like a local one and answers the session on its user destinations, which the
+ * broker delivers to whichever node holds the session. Broadcasts need no forwarding: every node
+ * relays {@code /topic} subscriptions to the broker.
+ * <p>
+ * The router also keeps clients away from the node queues: SUBSCRIBE and SEND frames for them are dropped.
+ */
+@Component
+public class ClusterRouter implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterRouter.class);
+
+    public static final String NODE_DESTINATION_PREFIX = "/queue/mancala.node.";
+    private static final String COMMAND_HEADER = "mancala-command";
+    private static final String GAME_HEADER = "mancala-game";
+    private static final String SESSION_HEADER = "mancala-session";
+    private static final String ARGUMENT_HEADER = "mancala-argument";
+    private static final String BINARY_HEADER = "mancala-binary";
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    /**
+     * The commands that run on the game's owner.
+     */
+    public enum Command { JOIN, RESUME, MOVE, REMATCH, RESYNC, DISCONNECT }
+
+    /**
+     * A command received from another node, for a game owned here.
+     * @param argument The move's pit index or the resume token, otherwise null.
+     */
+    public record ForwardedCommand(Command command, String gameId, String sessionId, String argument) {}
+
+    private final ClusterTopology topology;
+    private final BinaryMessageConverter binaryConverter;
+    private final String relayHost;
+    private final int relayPort;
+    private final String login;
+    private final String passcode;
+    // Sessions connected here and seated in a game owned elsewhere, so their disconnect can be forwarded
+    private final Map<String, String> remoteSessions = new ConcurrentHashMap<>();
+    private volatile Consumer<ForwardedCommand> handler = command -> { };
+    private volatile StompSession link;
+    private volatile boolean stopped;
+    private ReactorNettyTcpStompClient client;
+    private ScheduledExecutorService reconnector;
+
+    public ClusterRouter(ClusterTopology topology,
+                         BinaryMessageConverter binaryConverter,
+                         @Value("${mancala.cluster.relay.host:localhost}") String relayHost,
+                         @Value("${mancala.cluster.relay.port:61613}") int relayPort,
+                         @Value("${mancala.cluster.relay.login:guest}") String login,
+                         @Value("${mancala.cluster.relay.passcode:guest}") String passcode) {
+        this.topology = topology;
+        this.binaryConverter = binaryConverter;
+        this.relayHost = relayHost;
+        this.relayPort = relayPort;
+        this.login = login;
+        this.passcode = passcode;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!topology.isEnabled()) {
+            return;
+        }
+        client = new ReactorNettyTcpStompClient(relayHost, relayPort);
+        client.setDefaultHeartbeat(new long[] {0, 0});
+        reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mancala-cluster-1");
+            thread.setDaemon(true);
+            return thread;
+        });
+        connect();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        if (reconnector != null) {
+            reconnector.shutdownNow();
+        }
+        StompSession session = link;
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+        if (client != null) {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * Sets what runs the commands forwarded to this node. They arrive on the broker connection's
+     * thread, in order, so the handler should only queue work.
+     */
+    public void onCommand(Consumer<ForwardedCommand> handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Sends a command to the game's owner, unless that is this node.
+     * @return false if the game is owned here and the caller should run the command itself.
+     * @throws IllegalStateException if the broker cannot be reached.
+     */
+    public boolean forward(Command command, String gameId, String sessionId, String argument) {
+        String owner = topology.ownerOf(gameId);
+        if (owner == null) {
+            return false;
+        }
+        send(owner, command, gameId, sessionId, argument);
+        if (command == Command.JOIN || command == Command.RESUME) {
+            remoteSessions.put(sessionId, gameId);
+        }
+        return true;
+    }
+
+    /**
+     * Tells the owner of the session's game, if another node owns it, that the session's connection dropped.
+     */
+    public void forwardDisconnect(String sessionId) {
+        String gameId = remoteSessions.remove(sessionId);
+        if (gameId == null) {
+            return;
+        }
+        try {
+            send(topology.ownerOf(gameId), Command.DISCONNECT, gameId, sessionId, null);
+        } catch (IllegalStateException e) {
+            // The seat's grace time or the game's expiry settles it on the owner
+            logger.warn("Could not forward the disconnect of session {} in game {}: {}", sessionId, gameId, e.getMessage());
+        }
+    }
+
+    private void send(String owner, Command command, String gameId, String sessionId, String argument) {
+        StompSession session = link;
+        if (session == null || !session.isConnected()) {
+            throw new IllegalStateException("The server hosting this game cannot be reached, please try again.");
+        }
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(NODE_DESTINATION_PREFIX + owner);
+        headers.set(COMMAND_HEADER, command.name());
+        headers.set(GAME_HEADER, gameId);
+        headers.set(SESSION_HEADER, sessionId);
+        if (argument != null) {
+            headers.set(ARGUMENT_HEADER, argument);
+        }
+        if (binaryConverter.isBinarySession(sessionId)) {
+            headers.set(BINARY_HEADER, "true");
+        }
+        session.send(headers, new byte[0]);
+    }
+
+    private void connect() {
+        if (stopped) {
+            return;
+        }
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.setLogin(login);
+        connectHeaders.setPasscode(passcode);
+        // A failed connect is also reported to the handler's handleTransportError, which retries
+        client.connectAsync(connectHeaders, new LinkHandler());
+    }
+
+    private void reconnectLater() {
+        if (!stopped) {
+            reconnector.schedule(this::connect, RECONNECT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final class LinkHandler extends StompSessionHandlerAdapter {
+
+        @Override
+        public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+            session.subscribe(NODE_DESTINATION_PREFIX + topology.node(), new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return byte[].class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    received(headers);
+                }
+            });
+            link = session;
+            logger.info("Cluster node {} linked to the broker at {}:{}", topology.node(), relayHost, relayPort);
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            if (link == session) {
+                link = null;
+            }
+            if (!stopped) {
+                logger.warn("Cluster link to the broker at {}:{} lost or refused: {}; reconnecting", relayHost, relayPort, exception.getMessage());
+                reconnectLater();
+            }
+        }
+
+        @Override
+        public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+            logger.error("Error handling a forwarded command {}", headers, exception);
+        }
+    }
+
+    private void received(StompHeaders headers) {
+        Command command;
+        try {
+            command = Command.valueOf(headers.getFirst(COMMAND_HEADER));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            logger.warn("Ignoring a malformed forwarded command: {}", headers);
+            return;
+        }
+        String sessionId = headers.getFirst(SESSION_HEADER);
+        if (command == Command.DISCONNECT) {
+            binaryConverter.rememberSession(sessionId, false);
+        } else if ("true".equals(headers.getFirst(BINARY_HEADER))) {
+            binaryConverter.rememberSession(sessionId, true);
+        }
+        handler.accept(new ForwardedCommand(command, headers.getFirst(GAME_HEADER), sessionId, headers.getFirst(ARGUMENT_HEADER)));
+    }
+
+    /**
+     * Drops client frames that would read or write a node's command queue.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        StompCommand command = accessor.getCommand();
+        if ((command == StompCommand.SUBSCRIBE || command == StompCommand.SEND)
+                && accessor.getDestination() != null && accessor.getDestination().startsWith(NODE_DESTINATION_PREFIX)) {
+            logger.warn("Dropped {} to {} from session {}", command, accessor.getDestination(), accessor.getSessionId());
+            return null;
+        }
+        return message;
+    }
+}
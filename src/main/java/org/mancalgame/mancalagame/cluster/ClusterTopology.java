@@ -0,0 +1,103 @@
+package org.mancalgame.mancalagame.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Which node owns which online game. Games are partitioned by id: the top 16 bits of a game's
+ * UUID hold the index of the node that created it in {@code mancala.cluster.nodes}, so any node
+ * finds a game's owner from its id alone, with no lookup and no coordination.
+ * <p>
+ * A game stays on the node that created it for its whole life, so nodes can be appended to the
+ * list without moving any game; a node that is removed takes its games with it. The list must be
+ * the same, in the same order, on every node.
+ * <p>
+ * When clustering is disabled there is one node, every game is local, and ids are plain random UUIDs.
+ */
+@Component
+public class ClusterTopology {
+
+    private static final ClusterTopology STANDALONE = new ClusterTopology(false, List.of(), null);
+    private static final int NODE_BITS = 16;
+    private static final long NODE_MASK = (1L << (Long.SIZE - NODE_BITS)) - 1;
+
+    private final boolean enabled;
+    private final List<String> nodes;
+    private final int nodeIndex;
+
+    @Autowired
+    public ClusterTopology(@Value("${mancala.cluster.enabled:false}") boolean enabled,
+                           @Value("${mancala.cluster.nodes:}") String nodes,
+                           @Value("${mancala.cluster.node:}") String node) {
+        this(enabled, Arrays.stream(nodes.split(",")).map(String::trim).filter(name -> !name.isEmpty()).toList(), node);
+    }
+
+    public ClusterTopology(boolean enabled, List<String> nodes, String node) {
+        this.enabled = enabled;
+        this.nodes = List.copyOf(nodes);
+        this.nodeIndex = enabled ? this.nodes.indexOf(node) : 0;
+        if (enabled && nodeIndex < 0) {
+            throw new IllegalArgumentException("mancala.cluster.node '" + node + "' is not in mancala.cluster.nodes " + nodes);
+        }
+        if (this.nodes.size() > 1 << NODE_BITS) {
+            throw new IllegalArgumentException("At most " + (1 << NODE_BITS) + " cluster nodes are supported");
+        }
+    }
+
+    /**
+     * @return A single node that owns every game.
+     */
+    public static ClusterTopology standalone() {
+        return STANDALONE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return This node's name, or null when clustering is disabled.
+     */
+    public String node() {
+        return enabled ? nodes.get(nodeIndex) : null;
+    }
+
+    /**
+     * A new game id owned by this node.
+     */
+    public String newGameId() {
+        UUID random = UUID.randomUUID();
+        if (!enabled) {
+            return random.toString();
+        }
+        long mostSignificantBits = (random.getMostSignificantBits() & NODE_MASK) | ((long) nodeIndex << (Long.SIZE - NODE_BITS));
+        return new UUID(mostSignificantBits, random.getLeastSignificantBits()).toString();
+    }
+
+    /**
+     * @return The name of the node that owns the game, or null if it is this node. Ids that do not
+     *         name a known node, such as malformed ones, are treated as local, where they are not found.
+     */
+    public String ownerOf(String gameId) {
+        if (!enabled || gameId == null || gameId.length() < 4) {
+            return null;
+        }
+        int index;
+        try {
+            // The top 16 bits are the first four hex digits of the UUID's string form
+            index = Integer.parseInt(gameId, 0, 4, 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return index == nodeIndex || index < 0 || index >= nodes.size() ? null : nodes.get(index);
+    }
+
+    public boolean isLocal(String gameId) {
+        return ownerOf(gameId) == null;
+    }
+}
@@ -0,0 +1,343 @@
+package org.mancalgame.mancalagame.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A minimal STOMP 1.2 broker over TCP, for running a cluster in one process or on one machine without an
+ * external broker: in tests, and in development with {@code mancala.cluster.embedded-broker.enabled}.
+ * It speaks enough of the protocol for Spring's broker relay and STOMP clients: CONNECT, SUBSCRIBE,
+ * UNSUBSCRIBE, SEND, DISCONNECT and receipts. There is no persistence, no acknowledgement and no
+ * heart-beating.
+ * <p>
+ * Destinations under {@code /queue/} deliver each message to one subscriber, in turn; all others
+ * deliver it to every subscriber. Each connection has its own thread, and a subscriber that reads
+ * slowly holds up its publishers, so this is a stand-in for a real broker, not a replacement.
+ */
+public class EmbeddedStompBroker implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedStompBroker.class);
+    private static final String QUEUE_PREFIX = "/queue/";
+    // SEND headers that are about the SEND itself rather than the message
+    private static final Set<String> SEND_ONLY_HEADERS = Set.of("destination", "receipt", "transaction", "content-length");
+
+    private final ServerSocket serverSocket;
+    private final Map<String, Destination> destinations = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong messageIds = new AtomicLong();
+    private final AtomicInteger threadNumber = new AtomicInteger();
+    private volatile boolean closed;
+
+    private record Subscription(Connection connection, String id) {}
+
+    private static final class Destination {
+        final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+        final AtomicInteger next = new AtomicInteger();
+    }
+
+    /**
+     * Binds the broker to the loopback address.
+     * @param port The port to listen on, or 0 for any free one; see {@link #port()}.
+     */
+    public EmbeddedStompBroker(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+    }
+
+    public EmbeddedStompBroker start() {
+        Thread acceptor = new Thread(this::acceptConnections, "mancala-broker-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("Embedded STOMP broker listening on port {}", port());
+        return this;
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            try {
+                Connection connection = new Connection(serverSocket.accept());
+                connections.add(connection);
+                Thread thread = new Thread(connection::run, "mancala-broker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.warn("Embedded STOMP broker failed to accept a connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.debug("Error closing the embedded STOMP broker's socket", e);
+        }
+        connections.forEach(Connection::close);
+    }
+
+    private void publish(String destination, Map<String, String> headers, byte[] body) {
+        Destination target = destinations.get(destination);
+        if (target == null) {
+            return;
+        }
+        List<Subscription> subscriptions = target.subscriptions;
+        if (destination.startsWith(QUEUE_PREFIX)) {
+            int size = subscriptions.size();
+            if (size > 0) {
+                deliver(subscriptions.get(Math.floorMod(target.next.getAndIncrement(), size)), destination, headers, body);
+            }
+        } else {
+            for (Subscription subscription : subscriptions) {
+                deliver(subscription, destination, headers, body);
+            }
+        }
+    }
+
+    private void deliver(Subscription subscription, String destination, Map<String, String> headers, byte[] body) {
+        Map<String, String> message = new LinkedHashMap<>();
+        message.put("subscription", subscription.id());
+        message.put("message-id", Long.toString(messageIds.incrementAndGet()));
+        message.put("destination", destination);
+        headers.forEach((name, value) -> {
+            if (!SEND_ONLY_HEADERS.contains(name)) {
+                message.putIfAbsent(name, value);
+            }
+        });
+        subscription.connection().send("MESSAGE", message, body);
+    }
+
+    private final class Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        // subscription id -> destination
+        private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void run() {
+            try {
+                String command;
+                while ((command = readCommand()) != null) {
+                    boolean escaped = !command.equals("CONNECT") && !command.equals("STOMP");
+                    Map<String, String> headers = readHeaders(escaped);
+                    byte[] body = readBody(headers.get("content-length"));
+                    if (!handle(command, headers, body)) {
+                        break;
+                    }
+                }
+            } catch (SocketException | EOFException e) {
+                // Closed by the peer or by close()
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Embedded STOMP broker dropped a connection: {}", e.toString());
+                send("ERROR", Map.of("message", String.valueOf(e.getMessage())), new byte[0]);
+            } finally {
+                close();
+            }
+        }
+
+        // Returns false to close the connection
+        private boolean handle(String command, Map<String, String> headers, byte[] body) {
+            switch (command) {
+                case "CONNECT", "STOMP" -> send("CONNECTED", Map.of("version", "1.2", "heart-beat", "0,0", "server", "mancala-embedded"), new byte[0]);
+                case "SUBSCRIBE" -> {
+                    String id = required(headers, "id");
+                    String destination = required(headers, "destination");
+                    subscriptions.put(id, destination);
+                    destinations.computeIfAbsent(destination, name -> new Destination()).subscriptions.add(new Subscription(this, id));
+                }
+                case "UNSUBSCRIBE" -> unsubscribe(required(headers, "id"));
+                case "SEND" -> publish(required(headers, "destination"), headers, body);
+                case "DISCONNECT" -> {
+                    receipt(headers);
+                    return false;
+                }
+                case "ACK", "NACK", "BEGIN", "COMMIT", "ABORT" -> { }
+                default -> {
+                    send("ERROR", Map.of("message", "Unsupported command " + command), new byte[0]);
+                    return false;
+                }
+            }
+            receipt(headers);
+            return true;
+        }
+
+        private void receipt(Map<String, String> headers) {
+            String receipt = headers.get("receipt");
+            if (receipt != null) {
+                send("RECEIPT", Map.of("receipt-id", receipt), new byte[0]);
+            }
+        }
+
+        private void unsubscribe(String id) {
+            String destination = subscriptions.remove(id);
+            Destination target = destination != null ? destinations.get(destination) : null;
+            if (target != null) {
+                target.subscriptions.remove(new Subscription(this, id));
+            }
+        }
+
+        void send(String command, Map<String, String> headers, byte[] body) {
+            StringBuilder frame = new StringBuilder(command).append('\n');
+            headers.forEach((name, value) -> frame.append(escape(name)).append(':').append(escape(value)).append('\n'));
+            frame.append("content-length:").append(body.length).append("\n\n");
+            synchronized (this) {
+                try {
+                    out.write(frame.toString().getBytes(StandardCharsets.UTF_8));
+                    out.write(body);
+                    out.write(0);
+                    out.flush();
+                } catch (IOException e) {
+                    // The reader notices the broken socket and closes the connection
+                }
+            }
+        }
+
+        void close() {
+            if (!connections.remove(this)) {
+                return;
+            }
+            subscriptions.keySet().forEach(this::unsubscribe);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+
+        // Skips the end-of-lines that separate frames and serve as heart-beats
+        private String readCommand() throws IOException {
+            String line;
+            do {
+                line = readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isEmpty());
+            return line;
+        }
+
+        private Map<String, String> readHeaders(boolean escaped) throws IOException {
+            Map<String, String> headers = new LinkedHashMap<>();
+            String line;
+            while ((line = readLine()) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    throw new IOException("Malformed header: " + line);
+                }
+                String name = line.substring(0, colon);
+                String value = line.substring(colon + 1);
+                // Repeated headers: the first one wins
+                headers.putIfAbsent(escaped ? unescape(name) : name, escaped ? unescape(value) : value);
+            }
+            if (line == null) {
+                throw new EOFException();
+            }
+            return headers;
+        }
+
+        private byte[] readBody(String contentLength) throws IOException {
+            if (contentLength != null) {
+                byte[] body = in.readNBytes(Integer.parseInt(contentLength.trim()));
+                if (in.read() != 0) {
+                    throw new IOException("Frame body is not followed by NUL");
+                }
+                return body;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != 0) {
+                if (b < 0) {
+                    throw new EOFException();
+                }
+                body.write(b);
+            }
+            return body.toByteArray();
+        }
+
+        // Returns null at the end of the stream, without the line's \n or \r\n
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    return null;
+                }
+                line.write(b);
+            }
+            byte[] bytes = line.toByteArray();
+            int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String required(Map<String, String> headers, String name) {
+        String value = headers.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing header: " + name);
+        }
+        return value;
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf(':') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("\r", "\\r").replace("\n", "\\n").replace(":", "\\c");
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                unescaped.append(switch (next) {
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    case 'c' -> ':';
+                    default -> next;
+                });
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
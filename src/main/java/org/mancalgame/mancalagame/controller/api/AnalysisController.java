@@ -0,0 +1,55 @@
+package org.mancalgame.mancalagame.controller.api;
+
+import org.mancalgame.mancalagame.ai.PositionEvaluation;
+import org.mancalgame.mancalagame.ai.PositionEvaluator;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * JSON API for position analysis.
+ */
+@RestController
+@RequestMapping("/api/position")
+public class AnalysisController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisController.class);
+
+    private final PositionEvaluator positionEvaluator;
+
+    public AnalysisController(PositionEvaluator positionEvaluator) {
+        this.positionEvaluator = positionEvaluator;
+    }
+
+    /**
+     * A position to analyse: the 14-pit board (same layout as {@link MancalaGame}) and the side to move.
+     */
+    public record PositionRequest(int[] board, int currentPlayer) {}
+
+    public record ErrorDTO(String message) {}
+
+    /**
+     * Evaluates a position, exactly from the endgame database when it is covered.
+     * @param request The board and side to move.
+     * @return The best move and score for the side to move.
+     */
+    @PostMapping("/evaluate")
+    public PositionEvaluation evaluate(@RequestBody PositionRequest request) {
+        MancalaGame position = new MancalaGame();
+        position.setBoard(request.board());
+        position.setCurrentPlayer(request.currentPlayer());
+        return positionEvaluator.evaluate(position);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorDTO> handleInvalidPosition(IllegalArgumentException e) {
+        logger.debug("Rejected position: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(new ErrorDTO(e.getMessage()));
+    }
+}
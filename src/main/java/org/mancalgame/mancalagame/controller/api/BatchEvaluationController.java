@@ -0,0 +1,122 @@
+package org.mancalgame.mancalagame.controller.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.servlet.http.HttpServletResponse;
+import org.mancalgame.mancalagame.ai.BatchEvaluator;
+import org.mancalgame.mancalagame.ai.BatchEvaluator.Batch;
+import org.mancalgame.mancalagame.controller.api.AnalysisController.ErrorDTO;
+import org.mancalgame.mancalagame.controller.api.AnalysisController.PositionRequest;
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * JSON API for evaluating many positions in one request.
+ * <p>
+ * The body is a stream of {@link PositionRequest}s, one JSON object per line or a JSON array, and the
+ * response is one JSON object per line (NDJSON) per position, in the same order. Both sides are
+ * streamed batch by batch, so a request of a million positions is never held in memory at once.
+ */
+@RestController
+@RequestMapping("/api/evaluate")
+public class BatchEvaluationController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchEvaluationController.class);
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private final BatchEvaluator batchEvaluator;
+    private final ObjectReader positionReader;
+    private final ObjectMapper objectMapper;
+
+    public BatchEvaluationController(BatchEvaluator batchEvaluator, ObjectMapper objectMapper) {
+        this.batchEvaluator = batchEvaluator;
+        this.positionReader = objectMapper.readerFor(PositionRequest.class);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Evaluates every position in the body. Each result line is {@code {"bestPit":..,"score":..,
+     * "extraTurn":..,"capture":..,"gameOver":..}}, the flags describing the best move, or
+     * {@code {"error":".."}} for a position that is not a valid board.
+     */
+    @PostMapping
+    public void evaluate(InputStream body, HttpServletResponse response) throws IOException {
+        long start = System.nanoTime();
+        try (MappingIterator<PositionRequest> positions = positionReader.readValues(body)) {
+            ResultWriter writer = new ResultWriter(response);
+            long count = batchEvaluator.evaluateAll(batch -> {
+                while (!batch.isFull() && positions.hasNextValue()) {
+                    PositionRequest position = positions.nextValue();
+                    batch.add(position.board(), position.currentPlayer());
+                }
+                return batch.size() > 0;
+            }, writer);
+            writer.finish();
+            logger.debug("Evaluated {} positions in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // Commits the response on the first batch, so a body that is malformed from the start still gets a 400
+    private final class ResultWriter implements BatchEvaluator.BatchWriter {
+        private final HttpServletResponse response;
+        private JsonGenerator generator;
+
+        ResultWriter(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void write(Batch batch) throws IOException {
+            JsonGenerator out = generator();
+            for (int i = 0; i < batch.size(); i++) {
+                out.writeStartObject();
+                String error = batch.error(i);
+                if (error != null) {
+                    out.writeStringField("error", error);
+                } else {
+                    int flags = batch.flags(i);
+                    out.writeNumberField("bestPit", batch.bestPit(i));
+                    out.writeNumberField("score", batch.score(i));
+                    out.writeBooleanField("extraTurn", (flags & MancalaEngine.EXTRA_TURN) != 0);
+                    out.writeBooleanField("capture", (flags & MancalaEngine.CAPTURE) != 0);
+                    out.writeBooleanField("gameOver", (flags & MancalaEngine.GAME_OVER) != 0);
+                }
+                out.writeEndObject();
+                out.writeRaw('\n');
+            }
+            out.flush();
+        }
+
+        void finish() throws IOException {
+            generator().close();
+        }
+
+        private JsonGenerator generator() throws IOException {
+            if (generator == null) {
+                response.setContentType(NDJSON);
+                generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+                generator.setRootValueSeparator(null);
+            }
+            return generator;
+        }
+    }
+
+    @ExceptionHandler(JsonProcessingException.class)
+    public ResponseEntity<ErrorDTO> handleMalformedBody(JsonProcessingException e) {
+        logger.debug("Rejected batch: {}", e.getOriginalMessage());
+        return ResponseEntity.badRequest().body(new ErrorDTO("Malformed position: " + e.getOriginalMessage()));
+    }
+}
@@ -0,0 +1,63 @@
+package org.mancalgame.mancalagame.controller.api;
+
+import org.mancalgame.mancalagame.game.MancalaGame.GameStatus;
+import org.mancalgame.mancalagame.online.GameBroadcaster;
+import org.mancalgame.mancalagame.online.OnlineGameManager;
+import org.mancalgame.mancalagame.online.OnlineMancalaGame;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * JSON API listing live online games, so spectators can find something to watch.
+ * In cluster mode it lists only the games owned by the node that answers; a directory of the whole
+ * cluster has to merge the answers of every node.
+ */
+@RestController
+@RequestMapping("/api/games")
+public class GameDirectoryController {
+
+    private static final int MAX_LIMIT = 200;
+
+    private final OnlineGameManager gameManager;
+    private final GameBroadcaster broadcaster;
+
+    public GameDirectoryController(OnlineGameManager gameManager, GameBroadcaster broadcaster) {
+        this.gameManager = gameManager;
+        this.broadcaster = broadcaster;
+    }
+
+    /**
+     * A live game and how many spectators are watching it.
+     */
+    public record GameSummaryDTO(String gameId, String gameStatus, long seq, int spectators) {}
+
+    /**
+     * @param limit The maximum number of games to return (at most 200).
+     * @return Up to {@code limit} games in progress, most-watched first among those returned.
+     */
+    @GetMapping
+    public List<GameSummaryDTO> liveGames(@RequestParam(defaultValue = "50") int limit) {
+        int capped = Math.max(0, Math.min(limit, MAX_LIMIT));
+        return gameManager.findGames(game -> game.getStatus() == GameStatus.IN_PROGRESS, capped).stream()
+                .map(this::summarize)
+                .sorted(Comparator.comparingInt(GameSummaryDTO::spectators).reversed())
+                .toList();
+    }
+
+    @GetMapping("/{gameId}")
+    public ResponseEntity<GameSummaryDTO> game(@PathVariable String gameId) {
+        return ResponseEntity.of(gameManager.getGame(gameId).map(this::summarize));
+    }
+
+    private GameSummaryDTO summarize(OnlineMancalaGame game) {
+        return new GameSummaryDTO(game.getGameId(), game.getStatus().toString(), game.getStateVersion(),
+                broadcaster.spectatorCount(game.getGameId()));
+    }
+}
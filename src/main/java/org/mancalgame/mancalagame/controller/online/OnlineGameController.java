@@ -1,11 +1,20 @@
 package org.mancalgame.mancalagame.controller.online;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.cluster.ClusterRouter;
+import org.mancalgame.mancalagame.cluster.ClusterRouter.Command;
+import org.mancalgame.mancalagame.cluster.ClusterRouter.ForwardedCommand;
 import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MancalaRules;
+import org.mancalgame.mancalagame.online.GameBroadcaster;
+import org.mancalgame.mancalagame.online.GameMetrics;
+import org.mancalgame.mancalagame.online.Matchmaker;
 import org.mancalgame.mancalagame.online.OnlineGameManager;
 import org.mancalgame.mancalagame.online.OnlineMancalaGame;
+import org.mancalgame.mancalagame.online.SerializedFrame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
@@ -14,42 +23,63 @@ import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+/**
+ * STOMP endpoints for online games. In a cluster, a command for a game owned by another node is
+ * handed to the {@link ClusterRouter} instead; the owner runs it here through {@link #runForwarded}
+ * and answers the session on the same user destinations, so a mapping that replies returns a
+ * future of null for a forwarded command.
+ */
 @Controller
 public class OnlineGameController {
 
     private static final Logger logger = LoggerFactory.getLogger(OnlineGameController.class);
+    private static final String DETAILS_DESTINATION = "/queue/game.details";
+    private static final String STATE_DESTINATION = "/queue/game.state";
+    private static final String ERRORS_DESTINATION = "/queue/errors";
 
     private final OnlineGameManager gameManager;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final GameBroadcaster broadcaster;
     private final MancalaGameService mancalaGameService;
+    private final Matchmaker matchmaker;
+    private final GameMetrics metrics;
+    private final ClusterRouter router;
 
-    public OnlineGameController(OnlineGameManager gameManager, SimpMessagingTemplate messagingTemplate, MancalaGameService mancalaGameService) {
+    public OnlineGameController(OnlineGameManager gameManager, GameBroadcaster broadcaster, MancalaGameService mancalaGameService,
+                                Matchmaker matchmaker, GameMetrics metrics, ClusterRouter router) {
         this.gameManager = gameManager;
-        this.messagingTemplate = messagingTemplate;
+        this.broadcaster = broadcaster;
         this.mancalaGameService = mancalaGameService;
+        this.matchmaker = matchmaker;
+        this.metrics = metrics;
+        this.router = router;
+        router.onCommand(this::runForwarded);
     }
 
     // --- UPDATED: GameStateDTO now includes rematch flags and a new constructor ---
     public static class GameStateDTO {
         private String gameId;
+        private long seq;
         @JsonFormat(shape = JsonFormat.Shape.ARRAY)
-        private List<Integer> board;
+        private int[] board;
         private int currentPlayer;
         private int winner;
         private boolean gameOver;
         private String gameStatus;
+        private String rules; // As MancalaRules.parse reads them, e.g. "6x4"
         private boolean player1WantsRematch; // New
         private boolean player2WantsRematch; // New
+        // [Player 1 ms, Player 2 ms, running since (epoch ms, 0 if stopped)]; absent for untimed games
+        @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private long[] clock;
 
         public GameStateDTO() {}
 
@@ -57,20 +87,25 @@ public class OnlineGameController {
         public GameStateDTO(OnlineMancalaGame game) {
             MancalaGame coreGame = game.getMancalaGame();
             this.gameId = game.getGameId();
-            this.board = Arrays.stream(coreGame.getBoard()).boxed().collect(Collectors.toList());
+            this.seq = game.getStateVersion();
+            this.board = coreGame.getBoard();
             this.currentPlayer = coreGame.getCurrentPlayer();
             this.gameOver = coreGame.isGameOver();
             this.winner = coreGame.getWinner();
             this.gameStatus = game.getStatus().toString();
+            this.rules = game.getRules().toString();
             this.player1WantsRematch = game.isPlayer1WantsRematch();
             this.player2WantsRematch = game.isPlayer2WantsRematch();
+            this.clock = game.getClock();
         }
 
         // Getters and Setters
         public String getGameId() { return gameId; }
         public void setGameId(String gameId) { this.gameId = gameId; }
-        public List<Integer> getBoard() { return board; }
-        public void setBoard(List<Integer> board) { this.board = board; }
+        public long getSeq() { return seq; }
+        public void setSeq(long seq) { this.seq = seq; }
+        public int[] getBoard() { return board; }
+        public void setBoard(int[] board) { this.board = board; }
         public int getCurrentPlayer() { return currentPlayer; }
         public void setCurrentPlayer(int currentPlayer) { this.currentPlayer = currentPlayer; }
         public int getWinner() { return winner; }
@@ -79,80 +114,189 @@ public class OnlineGameController {
         public void setGameOver(boolean gameOver) { this.gameOver = gameOver; }
         public String getGameStatus() { return gameStatus; }
         public void setGameStatus(String gameStatus) { this.gameStatus = gameStatus; }
+        public String getRules() { return rules; }
+        public void setRules(String rules) { this.rules = rules; }
         public boolean isPlayer1WantsRematch() { return player1WantsRematch; }
         public void setPlayer1WantsRematch(boolean player1WantsRematch) { this.player1WantsRematch = player1WantsRematch; }
         public boolean isPlayer2WantsRematch() { return player2WantsRematch; }
         public void setPlayer2WantsRematch(boolean player2WantsRematch) { this.player2WantsRematch = player2WantsRematch; }
+        public long[] getClock() { return clock; }
+        public void setClock(long[] clock) { this.clock = clock; }
     }
 
+    /**
+     * A {@link GameStateDTO} for the player it is sent to, with their role and the token that
+     * resumes their seat from a new connection on {@code /app/game.resume}.
+     */
     public static class InitialGameDetailsDTO extends GameStateDTO {
         private int assignedPlayerRole;
+        private String resumeToken;
+
+        public InitialGameDetailsDTO() {}
 
         public InitialGameDetailsDTO(OnlineMancalaGame game, int assignedPlayerRole) {
             super(game);
             this.assignedPlayerRole = assignedPlayerRole;
+            this.resumeToken = game.getResumeToken(assignedPlayerRole);
         }
 
         public int getAssignedPlayerRole() { return assignedPlayerRole; }
         public void setAssignedPlayerRole(int assignedPlayerRole) { this.assignedPlayerRole = assignedPlayerRole; }
+        public String getResumeToken() { return resumeToken; }
+        public void setResumeToken(String resumeToken) { this.resumeToken = resumeToken; }
     }
 
+    /**
+     * Incremental update broadcast after a move when nothing but the board and the side to move
+     * changed. Field names are kept to one letter because this is the highest-volume message:
+     * {@code s} is the state sequence number, {@code p} the player to move and {@code c} the
+     * changed pits as flattened {@code [pitIndex, stones, ...]} pairs. In a timed game {@code k}
+     * carries the clocks as in {@link GameStateDTO}. A client that sees a gap in {@code s} asks
+     * for a full {@link GameStateDTO} on {@code /app/game.{gameId}.resync}.
+     */
+    public record GameDeltaDTO(@JsonProperty("s") long seq,
+                               @JsonProperty("p") int currentPlayer,
+                               @JsonProperty("c") int[] changes,
+                               @JsonProperty("k") @JsonInclude(JsonInclude.Include.NON_NULL) long[] clock) {}
+
     public record ErrorDTO(String message) {}
 
+    // The host may name a variant, e.g. {"rules":"6x6"}; the standard rules otherwise.
+    // Like a join, the reply is built on the game's mailbox, in the session's codec.
     @MessageMapping("/game.host")
     @SendToUser(destinations = "/queue/game.details", broadcast = false)
-    public InitialGameDetailsDTO hostGame(SimpMessageHeaderAccessor headerAccessor) {
+    public CompletableFuture<SerializedFrame> hostGame(@Payload(required = false) HostGameRequest request, SimpMessageHeaderAccessor headerAccessor) {
         String sessionId = headerAccessor.getSessionId();
-        OnlineMancalaGame game = gameManager.createGame();
-        gameManager.addPlayerToGame(game.getGameId(), sessionId);
-        return new InitialGameDetailsDTO(game, 0);
+        MancalaRules rules = request != null && request.getRules() != null ? MancalaRules.parse(request.getRules()) : MancalaRules.STANDARD;
+        OnlineMancalaGame game = gameManager.createAndAddPlayer(sessionId, rules);
+        return gameManager.submit(game.getGameId(), g -> broadcaster.detailsFrame(g, 0, sessionId));
     }
 
+    // The reply is sent when the game's mailbox has seated the player; the inbound thread returns at once
     @MessageMapping("/game.join")
     @SendToUser(destinations = "/queue/game.details", broadcast = false)
-    public InitialGameDetailsDTO joinGame(@Payload JoinGameRequest joinRequest, SimpMessageHeaderAccessor headerAccessor) {
+    public CompletableFuture<SerializedFrame> joinGame(@Payload JoinGameRequest joinRequest, SimpMessageHeaderAccessor headerAccessor) {
         String sessionId = headerAccessor.getSessionId();
-        String gameId = joinRequest.getGameId();
-        OnlineMancalaGame game = gameManager.addPlayerToGame(gameId, sessionId)
-                .orElseThrow(() -> new IllegalArgumentException("Game not found, is full, or has already started."));
+        if (router.forward(Command.JOIN, joinRequest.getGameId(), sessionId, null)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return gameManager.joinGame(joinRequest.getGameId(), sessionId);
+    }
 
-        messagingTemplate.convertAndSend("/topic/game/" + gameId, new GameStateDTO(game));
-        return new InitialGameDetailsDTO(game, 1);
+    // Takes a seat back after a reconnect; the reply is the player's game details, so the client resynchronises from it.
+    // The game id is optional, but without it a cluster node can only resume its own games.
+    @MessageMapping("/game.resume")
+    @SendToUser(destinations = "/queue/game.details", broadcast = false)
+    public CompletableFuture<SerializedFrame> resumeGame(@Payload ResumeGameRequest resumeRequest, SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        if (resumeRequest.getGameId() != null && router.forward(Command.RESUME, resumeRequest.getGameId(), sessionId, resumeRequest.getToken())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return gameManager.resumeGame(resumeRequest.getToken(), sessionId);
+    }
+
+    // Queues the player for quick play; the game details arrive on /queue/game.details once they are paired
+    @MessageMapping("/game.quickplay")
+    public void quickPlay(@Payload(required = false) QuickPlayRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        matchmaker.enqueue(headerAccessor.getSessionId(), request != null ? request.getTimeControl() : null);
+    }
+
+    @MessageMapping("/game.quickplay.cancel")
+    public void cancelQuickPlay(SimpMessageHeaderAccessor headerAccessor) {
+        matchmaker.cancel(headerAccessor.getSessionId());
     }
 
     // --- NEW: Message mapping for rematch requests ---
     @MessageMapping("/game.{gameId}.rematch")
     public void requestRematch(@DestinationVariable String gameId, SimpMessageHeaderAccessor headerAccessor) {
         String sessionId = headerAccessor.getSessionId();
-        gameManager.getGame(gameId).ifPresent(game -> {
-            synchronized(game) {
-                int role = gameManager.getPlayerRoleInGame(gameId, sessionId);
-                game.setPlayerWantsRematch(role);
+        if (!router.forward(Command.REMATCH, gameId, sessionId, null)) {
+            rematch(gameId, sessionId);
+        }
+    }
 
-                if (game.bothPlayersWantRematch()) {
-                    game.resetForRematch();
-                }
+    private void rematch(String gameId, String sessionId) {
+        gameManager.execute(gameId, game -> {
+            game.setPlayerWantsRematch(game.getPlayerRole(sessionId));
 
-                // Broadcast the updated state to both players
-                messagingTemplate.convertAndSend("/topic/game/" + gameId, new GameStateDTO(game));
+            if (game.bothPlayersWantRematch()) {
+                game.resetForRematch();
             }
+
+            // Broadcast the updated state to both players
+            broadcaster.broadcastState(game);
         });
     }
 
+    // Latency is measured from here to the broadcast, so it includes the wait on the game's mailbox
     @MessageMapping("/game.{gameId}.move")
     public void makeMove(@DestinationVariable String gameId, @Payload MoveRequest moveRequest, SimpMessageHeaderAccessor headerAccessor) {
+        long received = System.nanoTime();
         String sessionId = headerAccessor.getSessionId();
-        gameManager.getGame(gameId).ifPresent(game -> {
-            synchronized (game) {
+        int pitIndex = moveRequest.getPitIndex();
+        if (!router.forward(Command.MOVE, gameId, sessionId, Integer.toString(pitIndex))) {
+            move(gameId, pitIndex, sessionId, received);
+        }
+    }
+
+    private void move(String gameId, int pitIndex, String sessionId, long received) {
+        gameManager.execute(gameId, game -> {
+            boolean applied = false;
+            try {
+                if (game.makeMove(pitIndex, game.getPlayerRole(sessionId))) {
+                    broadcaster.broadcastState(game);
+                    applied = true;
+                }
+            } catch (IllegalArgumentException e) {
+                broadcaster.sendToSession(sessionId, ERRORS_DESTINATION, new ErrorDTO(e.getMessage()));
+            }
+            metrics.moveHandled(received, applied);
+        });
+    }
+
+    // Full snapshot for a subscriber that missed a delta or joined mid-game, served from the game's frame cache
+    @MessageMapping("/game.{gameId}.resync")
+    @SendToUser(destinations = "/queue/game.state", broadcast = false)
+    public CompletableFuture<SerializedFrame> resync(@DestinationVariable String gameId, SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        if (router.forward(Command.RESYNC, gameId, sessionId, null)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return gameManager.submit(gameId, game -> broadcaster.snapshotFrame(game, sessionId));
+    }
+
+    /**
+     * Runs a command that another cluster node forwarded for a game owned here, replying to the
+     * session as the mapping it came from would.
+     */
+    public void runForwarded(ForwardedCommand command) {
+        String gameId = command.gameId();
+        String sessionId = command.sessionId();
+        switch (command.command()) {
+            case JOIN -> reply(sessionId, DETAILS_DESTINATION, gameManager.joinGame(gameId, sessionId));
+            case RESUME -> reply(sessionId, DETAILS_DESTINATION, gameManager.resumeGame(command.argument(), sessionId));
+            case MOVE -> {
                 try {
-                    int role = gameManager.getPlayerRoleInGame(gameId, sessionId);
-                    if (game.makeMove(moveRequest.getPitIndex(), role)) {
-                        messagingTemplate.convertAndSend("/topic/game/" + gameId, new GameStateDTO(game));
-                    }
-                } catch (IllegalArgumentException e) {
-                    messagingTemplate.convertAndSendToUser(sessionId, "/queue/errors", new ErrorDTO(e.getMessage()));
+                    move(gameId, Integer.parseInt(command.argument()), sessionId, System.nanoTime());
+                } catch (NumberFormatException e) {
+                    broadcaster.sendToSession(sessionId, ERRORS_DESTINATION, new ErrorDTO("Invalid pit index."));
                 }
             }
+            case REMATCH -> rematch(gameId, sessionId);
+            case RESYNC -> reply(sessionId, STATE_DESTINATION, gameManager.submit(gameId, game -> broadcaster.snapshotFrame(game, sessionId)));
+            case DISCONNECT -> gameManager.disconnectPlayer(sessionId);
+        }
+    }
+
+    private void reply(String sessionId, String destination, CompletableFuture<SerializedFrame> result) {
+        result.whenComplete((frame, failure) -> {
+            if (failure == null) {
+                broadcaster.sendToSession(sessionId, destination, frame);
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            logger.error("Error handling forwarded command: {}", cause.getMessage());
+            broadcaster.sendToSession(sessionId, ERRORS_DESTINATION, new ErrorDTO(cause.getMessage()));
         });
     }
 
@@ -172,7 +316,15 @@ public class OnlineGameController {
     @EventListener
     public void handleDisconnect(SessionDisconnectEvent event) {
         logger.info("WebSocket disconnected for session: {}", event.getSessionId());
-        gameManager.removePlayer(event.getSessionId());
+        matchmaker.cancel(event.getSessionId());
+        router.forwardDisconnect(event.getSessionId());
+        gameManager.disconnectPlayer(event.getSessionId());
+    }
+
+    public static class HostGameRequest {
+        private String rules; // e.g. "6x6" or "4x3-none"; null for the standard rules
+        public String getRules() { return rules; }
+        public void setRules(String rules) { this.rules = rules; }
     }
 
     public static class JoinGameRequest {
@@ -181,6 +333,21 @@ public class OnlineGameController {
         public void setGameId(String gameId) { this.gameId = gameId; }
     }
 
+    public static class ResumeGameRequest {
+        private String token;
+        private String gameId;
+        public String getToken() { return token; }
+        public void setToken(String token) { this.token = token; }
+        public String getGameId() { return gameId; }
+        public void setGameId(String gameId) { this.gameId = gameId; }
+    }
+
+    public static class QuickPlayRequest {
+        private String timeControl; // minutes+seconds, e.g. "3+2"; null for the server's first offer
+        public String getTimeControl() { return timeControl; }
+        public void setTimeControl(String timeControl) { this.timeControl = timeControl; }
+    }
+
     public static class MoveRequest {
         private int pitIndex;
         public int getPitIndex() { return pitIndex; }
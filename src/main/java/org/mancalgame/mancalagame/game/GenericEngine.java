@@ -0,0 +1,73 @@
+package org.mancalgame.mancalagame.game;
+
+import static org.mancalgame.mancalagame.game.PackedBoard.LANE_BITS;
+import static org.mancalgame.mancalagame.game.PackedBoard.PIT_LANES_MASK;
+import static org.mancalgame.mancalagame.game.PackedBoard.STORE_LANE;
+
+/**
+ * Move rules for any {@link MancalaRules} variant, on the same packed board as {@link MancalaEngine}.
+ * Sowing visits the pits in play one at a time instead of adding whole runs of lanes at once,
+ * which works for every pit count and capture rule at the cost of a loop per move.
+ */
+final class GenericEngine {
+
+    private GenericEngine() {
+    }
+
+    /**
+     * Same contract as {@link MancalaEngine#move}, for a board with the given number of pits per side.
+     */
+    static int move(PackedBoard board, int player, int pitIndex, int pits, MancalaRules.Capture capture) {
+        long own = board.side(player);
+        long opp = board.side(1 - player);
+        int lane = player == 0 ? pitIndex : pitIndex - PackedBoard.LANES_PER_SIDE;
+
+        int stones = PackedBoard.lane(own, lane);
+        own = PackedBoard.withLane(own, lane, 0);
+
+        // Positions in sowing order from the mover's point of view: own pits 0..pits-1, own store,
+        // then the opponent's pits. The first stone goes to the position after the origin.
+        int lap = 2 * pits + 1;
+        int laps = stones / lap;
+        int rest = stones - laps * lap;
+        for (int position = 0; position < lap; position++) {
+            int distance = (position - lane - 1 + lap) % lap;
+            long sown = laps + (distance < rest ? 1 : 0);
+            if (position < pits) {
+                own += sown << (position * LANE_BITS);
+            } else if (position == pits) {
+                own += sown << (STORE_LANE * LANE_BITS);
+            } else {
+                opp += sown << ((position - pits - 1) * LANE_BITS);
+            }
+        }
+
+        int flags = 0;
+        int last = (lane + stones) % lap;
+        if (last == pits) {
+            flags |= MancalaEngine.EXTRA_TURN;
+        } else if (last < pits && capture != MancalaRules.Capture.NONE && PackedBoard.lane(own, last) == 1) {
+            int oppositeLane = pits - 1 - last;
+            int captured = PackedBoard.lane(opp, oppositeLane);
+            if (captured > 0 || capture == MancalaRules.Capture.EMPTY) {
+                own = PackedBoard.withLane(own, last, 0) + ((long) (captured + 1) << (STORE_LANE * LANE_BITS));
+                opp = PackedBoard.withLane(opp, oppositeLane, 0);
+                flags |= MancalaEngine.CAPTURE;
+            }
+        }
+
+        // Lanes beyond the pits in play are always empty, so the standard masks still apply
+        if ((own & PIT_LANES_MASK) == 0 || (opp & PIT_LANES_MASK) == 0) {
+            own = MancalaEngine.collect(own);
+            opp = MancalaEngine.collect(opp);
+            flags |= MancalaEngine.GAME_OVER;
+        }
+
+        if (player == 0) {
+            board.setPacked(own, opp);
+        } else {
+            board.setPacked(opp, own);
+        }
+        return flags;
+    }
+}
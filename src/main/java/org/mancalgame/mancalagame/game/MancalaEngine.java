@@ -0,0 +1,149 @@
+package org.mancalgame.mancalagame.game;
+
+import static org.mancalgame.mancalagame.game.PackedBoard.LANE_BITS;
+import static org.mancalgame.mancalagame.game.PackedBoard.PIT_LANES_MASK;
+import static org.mancalgame.mancalagame.game.PackedBoard.PIT_ONES;
+import static org.mancalgame.mancalagame.game.PackedBoard.SIDE_ONES;
+import static org.mancalgame.mancalagame.game.PackedBoard.STORE_LANE;
+
+/**
+ * In-place move engine for the standard 6-pit, 14-lane board.
+ * All operations work directly on a {@link PackedBoard} and never allocate,
+ * so the same code can drive the web game, bots and bulk simulations.
+ * Validation of the selected pit is the caller's responsibility.
+ * Games pick it through {@link MancalaRules}, which also covers the variants this engine does not.
+ */
+public final class MancalaEngine {
+
+    /** The last stone landed in the mover's store; the mover plays again. */
+    public static final int EXTRA_TURN = 1;
+    /** The last stone landed in an empty pit on the mover's side and captured the opposite pit. */
+    public static final int CAPTURE = 2;
+    /** One side ran out of stones; remaining stones were collected into the stores. */
+    public static final int GAME_OVER = 4;
+
+    // Number of pits visited by one full lap of sowing (every pit except the opponent's store)
+    private static final int LAP = 13;
+
+    private MancalaEngine() {
+    }
+
+    /**
+     * Sows the stones from the given pit for the given player and applies capture and
+     * end-of-game collection, exactly as {@code MancalaGameService} always has.
+     * @param board The board to mutate.
+     * @param player The mover (0 for Player 1, 1 for Player 2).
+     * @param pitIndex A non-empty pit on the mover's side (0-5 or 7-12).
+     * @return A combination of {@link #EXTRA_TURN}, {@link #CAPTURE} and {@link #GAME_OVER}.
+     */
+    public static int move(PackedBoard board, int player, int pitIndex) {
+        long own = board.side(player);
+        long opp = board.side(1 - player);
+        int lane = player == 0 ? pitIndex : pitIndex - PackedBoard.LANES_PER_SIDE;
+
+        int stones = PackedBoard.lane(own, lane);
+        int laps = stones / LAP;
+        int rest = stones - laps * LAP;
+
+        // Sowing order from the mover's point of view: own lanes after the pit up to the store,
+        // then the opponent's six pits, then own pits from lane 0 back round to the origin.
+        int ownAfter = Math.min(rest, STORE_LANE - lane);
+        int oppPits = Math.min(rest - ownAfter, 6);
+        int ownWrapped = rest - ownAfter - oppPits;
+
+        own = PackedBoard.withLane(own, lane, 0)
+                + laps * SIDE_ONES
+                + laneOnes(lane + 1, ownAfter)
+                + laneOnes(0, ownWrapped);
+        opp += laps * PIT_ONES + laneOnes(0, oppPits);
+
+        int flags = 0;
+        int lastOwnLane;
+        if (ownWrapped > 0) {
+            lastOwnLane = ownWrapped - 1;
+        } else if (oppPits > 0) {
+            lastOwnLane = -1;
+        } else if (ownAfter > 0) {
+            lastOwnLane = lane + ownAfter;
+        } else {
+            // A whole number of laps: the final stone drops back into the origin pit
+            lastOwnLane = lane;
+        }
+
+        if (lastOwnLane == STORE_LANE) {
+            flags |= EXTRA_TURN;
+        } else if (lastOwnLane >= 0 && PackedBoard.lane(own, lastOwnLane) == 1) {
+            int oppositeLane = 5 - lastOwnLane;
+            int captured = PackedBoard.lane(opp, oppositeLane);
+            if (captured > 0) {
+                own = PackedBoard.withLane(own, lastOwnLane, 0) + ((long) (captured + 1) << (STORE_LANE * LANE_BITS));
+                opp = PackedBoard.withLane(opp, oppositeLane, 0);
+                flags |= CAPTURE;
+            }
+        }
+
+        if ((own & PIT_LANES_MASK) == 0 || (opp & PIT_LANES_MASK) == 0) {
+            own = collect(own);
+            opp = collect(opp);
+            flags |= GAME_OVER;
+        }
+
+        if (player == 0) {
+            board.setPacked(own, opp);
+        } else {
+            board.setPacked(opp, own);
+        }
+        return flags;
+    }
+
+    /**
+     * @return A bit mask where bit {@code i} is set if the player's {@code i}-th pit (0-5) holds stones.
+     */
+    public static int legalMoveMask(PackedBoard board, int player) {
+        long side = board.side(player);
+        int mask = 0;
+        for (int lane = 0; lane < STORE_LANE; lane++) {
+            if (((side >>> (lane * LANE_BITS)) & PackedBoard.LANE_MASK) != 0) {
+                mask |= 1 << lane;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return The number of stones still in the six regular pits of the player's side.
+     */
+    public static int stonesInPits(PackedBoard board, int player) {
+        return PackedBoard.pitSum(board.side(player));
+    }
+
+    /**
+     * @return The winner implied by the stores: 0, 1, or -1 for a draw.
+     */
+    public static int winner(PackedBoard board) {
+        int store1 = board.get(MancalaGame.PLAYER1_STORE);
+        int store2 = board.get(MancalaGame.PLAYER2_STORE);
+        if (store1 > store2) return 0;
+        if (store2 > store1) return 1;
+        return -1;
+    }
+
+    /**
+     * Converts a lane (0-5) on a player's side into a board pit index.
+     */
+    public static int pitIndex(int player, int lane) {
+        return player == 0 ? lane : lane + PackedBoard.LANES_PER_SIDE;
+    }
+
+    // Moves every stone from the regular pits of a side into its store
+    static long collect(long side) {
+        long stones = PackedBoard.pitSum(side);
+        return (side & ~PIT_LANES_MASK) + (stones << (STORE_LANE * LANE_BITS));
+    }
+
+    // A 1 in each of `count` consecutive lanes starting at `first`
+    private static long laneOnes(int first, int count) {
+        if (count <= 0) return 0L;
+        return (SIDE_ONES >>> ((PackedBoard.LANES_PER_SIDE - count) * LANE_BITS)) << (first * LANE_BITS);
+    }
+}
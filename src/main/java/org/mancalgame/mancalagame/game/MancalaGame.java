@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * Represents the core state and rules of a single Mancala game instance.
@@ -13,14 +14,16 @@ import java.util.Arrays;
 public class MancalaGame implements Serializable {
 
     private static final Logger logger = LoggerFactory.getLogger(MancalaGame.class);
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 3L;
 
-    // The game board, 14 pits in total:
+    // The game board, 14 pits in total, packed into two longs (see PackedBoard):
     // Pits 0-5: Player 1's regular pits
     // Pit 6: Player 1's store (Mancala)
     // Pits 7-12: Player 2's regular pits
     // Pit 13: Player 2's store (Mancala)
-    private int[] board;
+    // A variant with fewer pits per side leaves the unused pits empty (see MancalaRules)
+    private final PackedBoard board = new PackedBoard();
+    private final MancalaRules rules;
     private int currentPlayer; // 0 for Player 1, 1 for Player 2
     private boolean gameOver;
     private int winner; // -1 for draw or game ongoing, 0 for Player 1, 1 for Player 2
@@ -32,75 +35,84 @@ public class MancalaGame implements Serializable {
     public static final int PLAYER2_PIT_START = 7;
     public static final int PLAYER2_PIT_END = 12;
     public static final int PLAYER2_STORE = 13;
+    public static final int INITIAL_STONES_PER_PIT = 4;
 
     /**
      * Constructs a new MancalaGame with the standard initial board setup.
      */
     public MancalaGame() {
-        this.board = new int[14];
-        // Initialize all regular pits with 4 stones
-        for (int i = PLAYER1_PIT_START; i <= PLAYER1_PIT_END; i++) {
-            this.board[i] = 4;
-        }
-        for (int i = PLAYER2_PIT_START; i <= PLAYER2_PIT_END; i++) {
-            this.board[i] = 4;
-        }
-        // Initialize stores with 0 stones
-        this.board[PLAYER1_STORE] = 0;
-        this.board[PLAYER2_STORE] = 0;
+        this(MancalaRules.STANDARD);
+    }
+
+    /**
+     * Constructs a new MancalaGame played by the given rules.
+     * @param rules The variant, fixed for the life of the game.
+     */
+    public MancalaGame(MancalaRules rules) {
+        this.rules = Objects.requireNonNull(rules, "rules");
+        // Every pit in play starts with the same number of stones, both stores empty
+        rules.setUp(this.board);
 
         this.currentPlayer = 0; // Player 1 (index 0) typically starts
         this.gameOver = false;
         this.winner = -1; // No winner initially, or indicates a draw if game ends this way
-        logger.info("New MancalaGame initialized: board={}", Arrays.toString(board));
     }
-    // Add this new method inside your MancalaGame.java class
 
     public void reset() {
-        this.board = new int[14];
-        for (int i = PLAYER1_PIT_START; i <= PLAYER1_PIT_END; i++) {
-            this.board[i] = 4;
-        }
-        for (int i = PLAYER2_PIT_START; i <= PLAYER2_PIT_END; i++) {
-            this.board[i] = 4;
-        }
-        this.board[PLAYER1_STORE] = 0;
-        this.board[PLAYER2_STORE] = 0;
+        rules.setUp(this.board);
 
         this.currentPlayer = 0;
         this.gameOver = false;
         this.winner = -1;
-        logger.info("MancalaGame has been reset to its initial state.");
+        logger.debug("MancalaGame has been reset to its initial state.");
     }
 
     // --- Getters and Setters ---
 
+    public MancalaRules getRules() {
+        return rules;
+    }
+
     /**
      * Returns a defensive copy of the current game board.
      * @return An array representing the current state of all pits and stores.
      */
     public int[] getBoard() {
-        return Arrays.copyOf(board, board.length);
+        return board.toArray();
+    }
+
+    /**
+     * Exposes the live packed board to the move engine. Mutations are visible immediately,
+     * so callers outside the rules code should use {@link #getBoard()} instead.
+     * @return The internal board of this game.
+     */
+    public PackedBoard packedBoard() {
+        return board;
     }
 
     /**
      * Sets the game board to a new state. Performs validation to ensure a valid board.
-     * @param board The new board array (must be length 14, no negative stones).
-     * @throws IllegalArgumentException if the board is null, incorrect length, or contains negative stones.
+     * @param board The new board array (must be length 14, no negative stones, at most 255 per pit,
+     *              and no stones in pits the rules leave out).
+     * @throws IllegalArgumentException if the board is null, incorrect length, or contains an out-of-range pit.
      */
     public void setBoard(int[] board) {
         if (board == null || board.length != 14) {
             logger.error("Invalid board: must be non-null and length 14");
             throw new IllegalArgumentException("Board must be non-null and length 14");
         }
-        for (int stones : board) {
-            if (stones < 0) {
-                logger.error("Invalid board: negative stones detected");
-                throw new IllegalArgumentException("Board cannot contain negative stones");
+        String stoneCountError = PackedBoard.stoneCountError(board);
+        if (stoneCountError != null) {
+            logger.error("Invalid board: {}", stoneCountError);
+            throw new IllegalArgumentException(stoneCountError);
+        }
+        for (int pit = 0; pit < board.length; pit++) {
+            if (board[pit] > 0 && pit != PLAYER1_STORE && pit != PLAYER2_STORE && !rules.isPlayersPit(pit < PLAYER2_PIT_START ? 0 : 1, pit)) {
+                logger.error("Invalid board: pit {} is not used by rules {}", pit, rules);
+                throw new IllegalArgumentException("Pit " + pit + " is not used by rules " + rules);
             }
         }
-        this.board = Arrays.copyOf(board, board.length); // Make a defensive copy when setting
-        logger.debug("Board updated: {}", Arrays.toString(this.board));
+        this.board.copyFrom(board); // The packed copy is independent of the caller's array
     }
 
     public int getCurrentPlayer() {
@@ -118,7 +130,6 @@ public class MancalaGame implements Serializable {
             throw new IllegalArgumentException("Current player must be 0 or 1");
         }
         this.currentPlayer = currentPlayer;
-        logger.debug("Current player set to: {}", currentPlayer);
     }
 
     public boolean isGameOver() {
@@ -127,7 +138,6 @@ public class MancalaGame implements Serializable {
 
     public void setGameOver(boolean gameOver) {
         this.gameOver = gameOver;
-        logger.debug("Game over set to: {}", gameOver);
     }
 
     public int getWinner() {
@@ -145,7 +155,6 @@ public class MancalaGame implements Serializable {
             throw new IllegalArgumentException("Winner must be -1, 0, or 1");
         }
         this.winner = winner;
-        logger.debug("Winner set to: {}", winner);
     }
 
     /**
@@ -155,8 +164,8 @@ public class MancalaGame implements Serializable {
      * @throws IllegalArgumentException if the pit index is out of bounds.
      */
     public int getStonesInPit(int pitIndex) {
-        if (pitIndex >= 0 && pitIndex < board.length) {
-            return board[pitIndex];
+        if (pitIndex >= 0 && pitIndex < PackedBoard.PITS) {
+            return board.get(pitIndex);
         }
         logger.error("Invalid pit index: {}", pitIndex);
         throw new IllegalArgumentException("Invalid pit index: " + pitIndex);
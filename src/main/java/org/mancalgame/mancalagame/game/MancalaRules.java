@@ -0,0 +1,164 @@
+package org.mancalgame.mancalagame.game;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The rules a game is played by, chosen when the game is created: pits per side, stones per pit
+ * and the capture rule.
+ * <p>
+ * Every variant keeps the 14-pit layout of {@link PackedBoard}: a side with fewer than six pits uses
+ * its first lanes and leaves the others empty, and the stores stay at pits 6 and 13, so boards, codecs
+ * and clients need no changes. Six pits with the {@link Capture#OPPOSITE} capture move exactly as
+ * {@link MancalaEngine} does, whatever the stones per pit, so those rules call the engine directly;
+ * any other variant sows lane by lane in {@link GenericEngine}. Which path a game takes is fixed when
+ * its rules are built, so the standard game pays one well-predicted branch per move.
+ */
+public final class MancalaRules implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * What happens when the last stone lands in an empty pit on the mover's side.
+     */
+    public enum Capture {
+        /** The stone and the opposite pit go to the mover's store, if the opposite pit holds stones. */
+        OPPOSITE,
+        /** As {@link #OPPOSITE}, but the stone is banked even when the opposite pit is empty. */
+        EMPTY,
+        /** Nothing; the stone stays where it landed. */
+        NONE
+    }
+
+    public static final int MAX_PITS_PER_SIDE = PackedBoard.STORE_LANE;
+
+    private static final Pattern NAME = Pattern.compile("(\\d{1,2})x(\\d{1,3})(?:-(opposite|empty|none))?");
+
+    /** Six pits a side, four stones per pit, captures from a non-empty opposite pit. */
+    public static final MancalaRules STANDARD = new MancalaRules(MAX_PITS_PER_SIDE, MancalaGame.INITIAL_STONES_PER_PIT, Capture.OPPOSITE, true);
+
+    private final int pitsPerSide;
+    private final int stonesPerPit;
+    private final Capture capture;
+    // Moves go straight to MancalaEngine
+    private final boolean specialized;
+
+    private MancalaRules(int pitsPerSide, int stonesPerPit, Capture capture, boolean specialized) {
+        this.pitsPerSide = pitsPerSide;
+        this.stonesPerPit = stonesPerPit;
+        this.capture = capture;
+        this.specialized = specialized;
+    }
+
+    /**
+     * @param pitsPerSide 1 to {@value #MAX_PITS_PER_SIDE}.
+     * @param stonesPerPit At least 1; all stones together must fit a pit (255).
+     * @throws IllegalArgumentException if the board cannot hold the variant.
+     */
+    public static MancalaRules of(int pitsPerSide, int stonesPerPit, Capture capture) {
+        if (pitsPerSide < 1 || pitsPerSide > MAX_PITS_PER_SIDE) {
+            throw new IllegalArgumentException("Pits per side must be 1 to " + MAX_PITS_PER_SIDE);
+        }
+        if (stonesPerPit < 1 || 2 * pitsPerSide * stonesPerPit > PackedBoard.MAX_STONES_PER_PIT) {
+            throw new IllegalArgumentException("A " + pitsPerSide + "-pit board holds 1 to "
+                    + PackedBoard.MAX_STONES_PER_PIT / (2 * pitsPerSide) + " stones per pit");
+        }
+        Objects.requireNonNull(capture, "capture");
+        MancalaRules rules = new MancalaRules(pitsPerSide, stonesPerPit, capture,
+                pitsPerSide == MAX_PITS_PER_SIDE && capture == Capture.OPPOSITE);
+        return rules.equals(STANDARD) ? STANDARD : rules;
+    }
+
+    /**
+     * Parses rules written as {@code <pits>x<stones>[-<capture>]}, e.g. {@code 6x4}, {@code 6x6} or
+     * {@code 4x3-none}, where the capture is {@code opposite} (the default), {@code empty} or {@code none}.
+     * @throws IllegalArgumentException if the name is malformed or the variant is not supported.
+     */
+    public static MancalaRules parse(String name) {
+        Matcher matcher = NAME.matcher(name.trim().toLowerCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Rules must look like 6x4, 6x6 or 4x3-none: " + name);
+        }
+        Capture capture = matcher.group(3) == null ? Capture.OPPOSITE : Capture.valueOf(matcher.group(3).toUpperCase(Locale.ROOT));
+        return of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), capture);
+    }
+
+    /**
+     * The same rules without the specialized path, so both paths can be compared on one variant.
+     */
+    public MancalaRules generic() {
+        return new MancalaRules(pitsPerSide, stonesPerPit, capture, false);
+    }
+
+    /**
+     * Sows the stones from the given pit and applies capture and end-of-game collection.
+     * Validation of the pit is the caller's responsibility, as for {@link MancalaEngine#move}.
+     * @return A combination of {@link MancalaEngine#EXTRA_TURN}, {@link MancalaEngine#CAPTURE} and {@link MancalaEngine#GAME_OVER}.
+     */
+    public int move(PackedBoard board, int player, int pitIndex) {
+        if (specialized) {
+            return MancalaEngine.move(board, player, pitIndex);
+        }
+        return GenericEngine.move(board, player, pitIndex, pitsPerSide, capture);
+    }
+
+    /**
+     * @return Whether the pit is one of the player's regular pits under these rules.
+     */
+    public boolean isPlayersPit(int player, int pitIndex) {
+        int lane = pitIndex - (player == 0 ? 0 : PackedBoard.LANES_PER_SIDE);
+        return lane >= 0 && lane < pitsPerSide;
+    }
+
+    /**
+     * Fills the pits in play with the starting stones and empties everything else.
+     */
+    public void setUp(PackedBoard board) {
+        long side = (PackedBoard.PIT_ONES >>> ((MAX_PITS_PER_SIDE - pitsPerSide) * PackedBoard.LANE_BITS)) * stonesPerPit;
+        board.setPacked(side, side);
+    }
+
+    /**
+     * @return Whether moves follow the standard six-pit rules, which the computer player and the
+     *         endgame database are built for; the stones per pit do not matter.
+     */
+    public boolean hasStandardMoves() {
+        return pitsPerSide == MAX_PITS_PER_SIDE && capture == Capture.OPPOSITE;
+    }
+
+    public int getPitsPerSide() {
+        return pitsPerSide;
+    }
+
+    public int getStonesPerPit() {
+        return stonesPerPit;
+    }
+
+    public Capture getCapture() {
+        return capture;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MancalaRules other)) return false;
+        return pitsPerSide == other.pitsPerSide && stonesPerPit == other.stonesPerPit && capture == other.capture;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pitsPerSide, stonesPerPit, capture);
+    }
+
+    /**
+     * @return The name {@link #parse} reads, e.g. {@code 6x4} or {@code 4x3-none}.
+     */
+    @Override
+    public String toString() {
+        String size = pitsPerSide + "x" + stonesPerPit;
+        return capture == Capture.OPPOSITE ? size : size + "-" + capture.name().toLowerCase(Locale.ROOT);
+    }
+}
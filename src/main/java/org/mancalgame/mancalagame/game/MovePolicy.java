@@ -0,0 +1,16 @@
+package org.mancalgame.mancalagame.game;
+
+/**
+ * Chooses moves for a player without a human behind it, e.g. in bulk self-play.
+ * An instance may keep scratch state between calls, so each thread uses its own.
+ */
+@FunctionalInterface
+public interface MovePolicy {
+
+    /**
+     * @param board The position; must not be modified.
+     * @param player The side to move, which has at least one legal move.
+     * @return A non-empty pit on the mover's side (0-5 or 7-12).
+     */
+    int choosePit(PackedBoard board, int player);
+}
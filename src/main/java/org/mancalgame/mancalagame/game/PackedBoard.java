@@ -0,0 +1,195 @@
+package org.mancalgame.mancalagame.game;
+
+import java.io.Serializable;
+
+/**
+ * Mutable, allocation-free representation of a 14-pit Mancala board.
+ * Every pit is an 8-bit lane inside one of two primitive longs:
+ * lanes 0-6 of {@code low} hold pits 0-5 and store 6 (Player 1's side),
+ * lanes 0-6 of {@code high} hold pits 7-12 and store 13 (Player 2's side).
+ * A lane can hold up to 255 stones, which covers every board the rules can produce.
+ */
+public final class PackedBoard implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int PITS = 14;
+    public static final int LANES_PER_SIDE = 7;
+    public static final int LANE_BITS = 8;
+    public static final int MAX_STONES_PER_PIT = 0xFF;
+
+    static final long LANE_MASK = 0xFFL;
+    // A 1 in each of the seven lanes of a side (six pits plus the store)
+    static final long SIDE_ONES = 0x01010101010101L;
+    // A 1 in each of the six regular pit lanes of a side, excluding the store
+    static final long PIT_ONES = 0x010101010101L;
+    // All bits of the six regular pit lanes of a side
+    static final long PIT_LANES_MASK = 0xFFFFFFFFFFFFL;
+    static final int STORE_LANE = 6;
+
+    private long low;
+    private long high;
+
+    /**
+     * Creates an empty board (all pits and stores hold zero stones).
+     */
+    public PackedBoard() {
+    }
+
+    /**
+     * Fills every regular pit with the given number of stones and empties both stores.
+     * @param stonesPerPit The number of stones placed in each of the twelve regular pits.
+     */
+    public void reset(int stonesPerPit) {
+        long side = PIT_ONES * stonesPerPit;
+        this.low = side;
+        this.high = side;
+    }
+
+    /**
+     * Returns the number of stones in a pit. No bounds check is performed; callers
+     * on the public API are expected to validate the index first.
+     * @param pitIndex The index of the pit (0-13).
+     * @return The number of stones in that pit.
+     */
+    public int get(int pitIndex) {
+        if (pitIndex < LANES_PER_SIDE) {
+            return lane(low, pitIndex);
+        }
+        return lane(high, pitIndex - LANES_PER_SIDE);
+    }
+
+    /**
+     * Sets the number of stones in a pit.
+     * @param pitIndex The index of the pit (0-13).
+     * @param stones The number of stones (0-255).
+     */
+    public void set(int pitIndex, int stones) {
+        if (pitIndex < LANES_PER_SIDE) {
+            low = withLane(low, pitIndex, stones);
+        } else {
+            high = withLane(high, pitIndex - LANES_PER_SIDE, stones);
+        }
+    }
+
+    /**
+     * Copies the state of another board into this one.
+     * @param other The board to copy from.
+     */
+    public void copyFrom(PackedBoard other) {
+        this.low = other.low;
+        this.high = other.high;
+    }
+
+    /**
+     * Writes the pit values into a caller-supplied array, avoiding any allocation.
+     * @param target An array of at least 14 elements.
+     */
+    public void copyInto(int[] target) {
+        for (int lane = 0; lane < LANES_PER_SIDE; lane++) {
+            target[lane] = lane(low, lane);
+            target[lane + LANES_PER_SIDE] = lane(high, lane);
+        }
+    }
+
+    /**
+     * Checks that a board's stones fit its lanes. Sowing and the end-of-game collection can gather
+     * every stone on one side, and a side's pits are summed within one 8-bit lane, so the whole
+     * board must fit in a lane, not just each pit.
+     * @param board The pit values, 14 of them.
+     * @return Why the board cannot be packed, or null if it can.
+     */
+    public static String stoneCountError(int[] board) {
+        int total = 0;
+        for (int stones : board) {
+            if (stones < 0) {
+                return "Board cannot contain negative stones";
+            }
+            if (stones > MAX_STONES_PER_PIT) {
+                return "Board cannot hold more than " + MAX_STONES_PER_PIT + " stones in a pit";
+            }
+            total += stones;
+        }
+        return total > MAX_STONES_PER_PIT ? "Board cannot hold more than " + MAX_STONES_PER_PIT + " stones in total" : null;
+    }
+
+    /**
+     * Loads pit values from a 14-element array. Values are not validated here.
+     * @param source The array to read from.
+     */
+    public void copyFrom(int[] source) {
+        long l = 0;
+        long h = 0;
+        for (int lane = 0; lane < LANES_PER_SIDE; lane++) {
+            l |= ((long) source[lane]) << (lane * LANE_BITS);
+            h |= ((long) source[lane + LANES_PER_SIDE]) << (lane * LANE_BITS);
+        }
+        this.low = l;
+        this.high = h;
+    }
+
+    /**
+     * @return A fresh array containing the 14 pit values.
+     */
+    public int[] toArray() {
+        int[] result = new int[PITS];
+        copyInto(result);
+        return result;
+    }
+
+    // --- Raw access used by the move engine and search code ---
+
+    public long low() { return low; }
+    public long high() { return high; }
+
+    public void setPacked(long low, long high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * Returns the packed side belonging to a player (0 = Player 1, 1 = Player 2).
+     */
+    public long side(int player) {
+        return player == 0 ? low : high;
+    }
+
+    static int lane(long side, int lane) {
+        return (int) ((side >>> (lane * LANE_BITS)) & LANE_MASK);
+    }
+
+    static long withLane(long side, int lane, int stones) {
+        int shift = lane * LANE_BITS;
+        return (side & ~(LANE_MASK << shift)) | (((long) stones) << shift);
+    }
+
+    /**
+     * Sums the six regular pit lanes of a packed side. Valid because no side ever
+     * holds more than 255 stones, so the horizontal sum fits in the top byte.
+     */
+    static int pitSum(long side) {
+        return (int) (((side & PIT_LANES_MASK) * 0x0101010101010101L) >>> 56);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PackedBoard other)) return false;
+        return low == other.low && high == other.high;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(low * 31 + high);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < PITS; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(get(i));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,296 @@
+package org.mancalgame.mancalagame.offline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MancalaRules;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Off-heap store for offline games, keyed by a random 64-bit session id kept in a cookie, so an
+ * offline player costs neither an HTTP session nor any heap objects between requests.
+ * <p>
+ * Each session is five longs in one direct buffer: the id, the two {@link org.mancalgame.mancalagame.game.PackedBoard}
+ * longs, a state long (rules, side to move, result, opponent and last access) and the summary of the
+ * computer's last search. The buffer is split into buckets of {@value #WAYS} entries; a session lives
+ * in the bucket its id hashes to, under a hash seeded per process, so that ids chosen by a client
+ * cannot be aimed at one bucket. The store is bounded by {@code max} sessions ({@value #ENTRY_BYTES} bytes each).
+ * <p>
+ * A new session in a full bucket replaces the least recently used session that is finished or has
+ * been idle for the configured time; a game still being played is never replaced. If the bucket
+ * holds nothing replaceable, the new session is not stored and {@link #put} says so.
+ * <p>
+ * Buckets are guarded by striped locks; a game is copied out under the lock and played on its own copy.
+ */
+@Component
+public class OfflineSessionStore {
+
+    static final int WAYS = 8;
+    private static final int LONGS_PER_ENTRY = 5;
+    static final int ENTRY_BYTES = LONGS_PER_ENTRY * Long.BYTES;
+    private static final int LOCK_STRIPES = 64;
+    // Last-access stamps age by epochs of about one second, enough to order the entries of a bucket
+    private static final int EPOCH_SHIFT = 30;
+
+    // --- Entry layout, in longs: id, board low, board high, state, search ---
+    // An empty entry has id 0, which newId() never hands out.
+    private static final int ID = 0;
+    private static final int LOW = 1;
+    private static final int HIGH = 2;
+    private static final int STATE = 3;
+    private static final int SEARCH = 4;
+    private static final long NODES_MASK = (1L << 48) - 1;
+    private static final long GAME_OVER = 1L << 14;
+
+    /**
+     * A session's game, copied out of the store; changes are kept by {@link #put}.
+     * @param searchDepth The depth of the computer's last search, 0 if it has not searched since the last read.
+     */
+    public record OfflineSession(MancalaGame game, boolean vsComputer, int searchDepth, long searchNodesPerSecond) {}
+
+    private final LongBuffer entries;
+    private final int bucketMask;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final SecureRandom random = new SecureRandom();
+    private final long hashSeed = random.nextLong();
+    private final long idleEpochs;
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger size = new AtomicInteger();
+
+    final Counter evictions;
+    final Counter rejections;
+
+    /**
+     * A store for tests and tools, without metrics.
+     */
+    public OfflineSessionStore(int maxSessions, long idleMillis) {
+        this(maxSessions, idleMillis, new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param idleMillis How long a session must go untouched before a new session may replace it, unless its game is over.
+     */
+    @Autowired
+    public OfflineSessionStore(@Value("${mancala.offline.sessions.max:262144}") int maxSessions,
+                               @Value("${mancala.offline.sessions.idle-ms:600000}") long idleMillis,
+                               MeterRegistry registry) {
+        this.idleEpochs = TimeUnit.MILLISECONDS.toNanos(idleMillis) >> EPOCH_SHIFT;
+        int buckets = Integer.highestOneBit(Math.max(1, (maxSessions + WAYS - 1) / WAYS - 1) << 1);
+        this.entries = ByteBuffer.allocateDirect(buckets * WAYS * ENTRY_BYTES).asLongBuffer();
+        this.bucketMask = buckets - 1;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.evictions = Counter.builder("mancala.offline.sessions.evictions")
+                .description("Offline sessions replaced to make room for new ones").register(registry);
+        this.rejections = Counter.builder("mancala.offline.sessions.rejected")
+                .description("New offline sessions not stored because their bucket held only games in progress").register(registry);
+        Gauge.builder("mancala.offline.sessions", this, OfflineSessionStore::size)
+                .description("Offline sessions currently stored").register(registry);
+        Gauge.builder("mancala.offline.sessions.bytes", this, OfflineSessionStore::offHeapBytes)
+                .description("Off-heap memory reserved for offline sessions").baseUnit("bytes").register(registry);
+    }
+
+    /**
+     * @return A fresh, non-zero session id; nothing is stored until the first {@link #put}.
+     */
+    public long newId() {
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    /**
+     * Copies a session's game out of the store. The summary of the computer's last search is
+     * handed out once, like a flash attribute, and cleared.
+     * @return The session, or null if it was never stored or has been evicted.
+     */
+    public OfflineSession get(long id) {
+        int bucket = bucket(id);
+        long low;
+        long high;
+        long state;
+        long search;
+        synchronized (lock(bucket)) {
+            int entry = find(bucket, id);
+            if (entry < 0) {
+                return null;
+            }
+            low = entries.get(entry + LOW);
+            high = entries.get(entry + HIGH);
+            state = entries.get(entry + STATE);
+            search = entries.get(entry + SEARCH);
+            entries.put(entry + STATE, withEpoch(state));
+            entries.put(entry + SEARCH, 0L);
+        }
+        return new OfflineSession(decode(low, high, state), vsComputer(state), (int) (search >>> 48), search & NODES_MASK);
+    }
+
+    public boolean put(long id, MancalaGame game, boolean vsComputer) {
+        return put(id, game, vsComputer, 0, 0L);
+    }
+
+    /**
+     * Stores a session's game, replacing its previous state or, if the session is new and its bucket
+     * is full, the least recently used session of the bucket that is finished or idle.
+     * @param searchDepth The depth of the computer's last search, handed out by the next {@link #get}; 0 for none.
+     * @return false if the session is new and its bucket holds only games in progress, so nothing was stored.
+     */
+    public boolean put(long id, MancalaGame game, boolean vsComputer, int searchDepth, long searchNodesPerSecond) {
+        if (id == 0) {
+            throw new IllegalArgumentException("Session id 0 is reserved");
+        }
+        long state = withEpoch(encodeState(game, vsComputer));
+        long search = searchDepth > 0 ? ((long) Math.min(searchDepth, 0xFFFF) << 48) | Math.min(searchNodesPerSecond, NODES_MASK) : 0L;
+        long low = game.packedBoard().low();
+        long high = game.packedBoard().high();
+        int bucket = bucket(id);
+        synchronized (lock(bucket)) {
+            int entry = find(bucket, id);
+            if (entry < 0) {
+                entry = victim(bucket, state >>> 32);
+                if (entry < 0) {
+                    rejections.increment();
+                    return false;
+                }
+                long previous = entries.get(entry + ID);
+                if (previous == 0) {
+                    size.incrementAndGet();
+                } else {
+                    evictions.increment();
+                }
+                entries.put(entry + ID, id);
+            }
+            entries.put(entry + LOW, low);
+            entries.put(entry + HIGH, high);
+            entries.put(entry + STATE, state);
+            entries.put(entry + SEARCH, search);
+        }
+        return true;
+    }
+
+    /**
+     * Forgets a session, freeing its entry.
+     */
+    public void remove(long id) {
+        int bucket = bucket(id);
+        synchronized (lock(bucket)) {
+            int entry = find(bucket, id);
+            if (entry >= 0) {
+                entries.put(entry + ID, 0L);
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return The number of sessions currently stored.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public int capacity() {
+        return (bucketMask + 1) * WAYS;
+    }
+
+    public long offHeapBytes() {
+        return (long) capacity() * ENTRY_BYTES;
+    }
+
+    // Mixes the id with the process's seed (MurmurHash3's finalizer), so that ids from any source spread
+    // over the buckets and which ids share a bucket differs from one process to the next
+    int bucket(long id) {
+        long h = id ^ hashSeed;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int) (h ^ (h >>> 33)) & bucketMask;
+    }
+
+    private Object lock(int bucket) {
+        return locks[bucket & (LOCK_STRIPES - 1)];
+    }
+
+    // Returns the index of the entry's first long, or -1 if the id is not in its bucket
+    private int find(int bucket, long id) {
+        if (id == 0) {
+            return -1;
+        }
+        int base = bucket * WAYS * LONGS_PER_ENTRY;
+        for (int way = 0; way < WAYS; way++) {
+            int entry = base + way * LONGS_PER_ENTRY;
+            if (entries.get(entry + ID) == id) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    // An empty entry if there is one, otherwise the least recently used of those finished or idle, or -1
+    private int victim(int bucket, long nowEpoch) {
+        int base = bucket * WAYS * LONGS_PER_ENTRY;
+        int oldest = -1;
+        long oldestEpoch = Long.MAX_VALUE;
+        for (int way = 0; way < WAYS; way++) {
+            int entry = base + way * LONGS_PER_ENTRY;
+            if (entries.get(entry + ID) == 0) {
+                return entry;
+            }
+            long state = entries.get(entry + STATE);
+            long epoch = state >>> 32;
+            boolean replaceable = (state & GAME_OVER) != 0 || nowEpoch - epoch >= idleEpochs;
+            if (replaceable && epoch < oldestEpoch) {
+                oldest = entry;
+                oldestEpoch = epoch;
+            }
+        }
+        return oldest;
+    }
+
+    private long withEpoch(long state) {
+        long epoch = ((System.nanoTime() - startNanos) >>> EPOCH_SHIFT) & 0xFFFFFFFFL;
+        return (state & 0xFFFFFFFFL) | (epoch << 32);
+    }
+
+    // --- State layout, from the low bit: pitsPerSide:3, stonesPerPit:8, capture:2, currentPlayer:1,
+    // gameOver:1, winner+1:2, vsComputer:1, unused:14, last-access epoch:32 ---
+    // Search layout: depth:16, nodesPerSecond:48.
+
+    static long encodeState(MancalaGame game, boolean vsComputer) {
+        MancalaRules rules = game.getRules();
+        return rules.getPitsPerSide()
+                | ((long) rules.getStonesPerPit() << 3)
+                | ((long) rules.getCapture().ordinal() << 11)
+                | ((long) game.getCurrentPlayer() << 13)
+                | (game.isGameOver() ? GAME_OVER : 0L)
+                | ((long) (game.getWinner() + 1) << 15)
+                | (vsComputer ? 1L << 17 : 0L);
+    }
+
+    static MancalaGame decode(long low, long high, long state) {
+        MancalaRules rules = MancalaRules.of((int) (state & 0x7), (int) ((state >>> 3) & 0xFF),
+                MancalaRules.Capture.values()[(int) ((state >>> 11) & 0x3)]);
+        MancalaGame game = new MancalaGame(rules);
+        game.packedBoard().setPacked(low, high);
+        game.setCurrentPlayer((int) ((state >>> 13) & 0x1));
+        game.setGameOver((state & GAME_OVER) != 0);
+        game.setWinner((int) ((state >>> 15) & 0x3) - 1);
+        return game;
+    }
+
+    private static boolean vsComputer(long state) {
+        return (state & (1L << 17)) != 0;
+    }
+}
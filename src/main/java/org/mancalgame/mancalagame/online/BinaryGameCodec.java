@@ -0,0 +1,158 @@
+package org.mancalgame.mancalagame.online;
+
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.ErrorDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameDeltaDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameStateDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.InitialGameDetailsDTO;
+import org.mancalgame.mancalagame.game.MancalaGame;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact wire format for game messages, negotiated per connection as
+ * {@value #MIME_TYPE}. STOMP frames travel as WebSocket/SockJS text and stomp.js ends a
+ * frame at the first NUL, so every byte is printable ASCII: integers are little-endian
+ * base-47 varints where a digit is {@code 0x20 + d}, plus 47 when more digits follow.
+ * Values below 47 (every pit count in a standard game, every pit index) take one byte.
+ * <pre>
+ * 'S' seq player winner+1 status flags pitCount pit... [clock] gameId   full snapshot
+ * 'I' role tokenLength token seq player ... [clock] gameId            join/host/resume reply
+ * 'D' seq player (pitIndex stones)...                                    delta
+ * 'T' seq player clock (pitIndex stones)...                              delta in a timed game
+ * 'E' message (UTF-8)                                                    error
+ * </pre>
+ * {@code flags} holds bit 0 game over, bit 1 Player 1 wants a rematch, bit 2 Player 2 wants one,
+ * bit 3 the game is timed. {@code clock} is present only in timed games: Player 1's and Player 2's
+ * milliseconds and the epoch millisecond the running clock started (0 if stopped). {@code token} is
+ * the player's base64url resume token, {@code tokenLength} characters long (0 if they have none).
+ * Inbound, a move is the single varint pit index and a join request is the raw game id.
+ */
+public final class BinaryGameCodec {
+
+    public static final String MIME_TYPE = "application/x-mancala";
+
+    static final int DIGIT_BASE = 47;
+    static final int FIRST_CHAR = 0x20;
+    static final int FLAG_TIMED = 8;
+
+    private BinaryGameCodec() {
+    }
+
+    public static byte[] encodeState(GameStateDTO state) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(24 + state.getBoard().length + 36);
+        if (state instanceof InitialGameDetailsDTO details) {
+            out.write('I');
+            out.writeBytes(encodeRole(details.getAssignedPlayerRole(), details.getResumeToken()));
+        } else {
+            out.write('S');
+        }
+        writeVarint(out, state.getSeq());
+        writeVarint(out, state.getCurrentPlayer());
+        writeVarint(out, state.getWinner() + 1);
+        writeVarint(out, MancalaGame.GameStatus.valueOf(state.getGameStatus()).ordinal());
+        long[] clock = state.getClock();
+        writeVarint(out, (state.isGameOver() ? 1 : 0)
+                | (state.isPlayer1WantsRematch() ? 2 : 0)
+                | (state.isPlayer2WantsRematch() ? 4 : 0)
+                | (clock != null ? FLAG_TIMED : 0));
+        int[] board = state.getBoard();
+        writeVarint(out, board.length);
+        for (int stones : board) {
+            writeVarint(out, stones);
+        }
+        writeClock(out, clock);
+        out.writeBytes(state.getGameId().getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeDelta(GameDeltaDTO delta) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + delta.changes().length + (delta.clock() != null ? 16 : 0));
+        out.write(delta.clock() != null ? 'T' : 'D');
+        writeVarint(out, delta.seq());
+        writeVarint(out, delta.currentPlayer());
+        writeClock(out, delta.clock());
+        for (int value : delta.changes()) {
+            writeVarint(out, value);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return The role and resume token prefix that turns a snapshot ({@code 'S'} frame body) into an {@code 'I'} frame.
+     */
+    public static byte[] encodeRole(int assignedPlayerRole, String resumeToken) {
+        byte[] token = resumeToken == null ? new byte[0] : resumeToken.getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + token.length);
+        writeVarint(out, assignedPlayerRole);
+        writeVarint(out, token.length);
+        out.writeBytes(token);
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeError(ErrorDTO error) {
+        byte[] message = String.valueOf(error.message()).getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[message.length + 1];
+        frame[0] = 'E';
+        System.arraycopy(message, 0, frame, 1, message.length);
+        return frame;
+    }
+
+    /**
+     * @return The pit index encoded in a move frame.
+     * @throws IllegalArgumentException if the frame is empty or malformed.
+     */
+    public static int decodeMove(byte[] frame) {
+        int[] position = {0};
+        long pit = readVarint(frame, position);
+        if (position[0] != frame.length || pit > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Malformed move frame.");
+        }
+        return (int) pit;
+    }
+
+    public static String decodeJoin(byte[] frame) {
+        return new String(frame, StandardCharsets.US_ASCII).trim();
+    }
+
+    private static void writeClock(ByteArrayOutputStream out, long[] clock) {
+        if (clock != null) {
+            for (long value : clock) {
+                writeVarint(out, value);
+            }
+        }
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value cannot be encoded: " + value);
+        }
+        while (value >= DIGIT_BASE) {
+            out.write(FIRST_CHAR + DIGIT_BASE + (int) (value % DIGIT_BASE));
+            value /= DIGIT_BASE;
+        }
+        out.write(FIRST_CHAR + (int) value);
+    }
+
+    static long readVarint(byte[] frame, int[] position) {
+        long value = 0;
+        long scale = 1;
+        while (true) {
+            if (position[0] >= frame.length) {
+                throw new IllegalArgumentException("Truncated frame.");
+            }
+            int digit = (frame[position[0]++] & 0xFF) - FIRST_CHAR;
+            if (digit < 0 || digit >= 2 * DIGIT_BASE) {
+                throw new IllegalArgumentException("Invalid character in frame.");
+            }
+            if (digit < DIGIT_BASE) {
+                return value + digit * scale;
+            }
+            if (scale > Long.MAX_VALUE / DIGIT_BASE) {
+                throw new IllegalArgumentException("Varint too long.");
+            }
+            value += (digit - DIGIT_BASE) * scale;
+            scale *= DIGIT_BASE;
+        }
+    }
+}
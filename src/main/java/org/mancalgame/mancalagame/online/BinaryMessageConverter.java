@@ -0,0 +1,123 @@
+package org.mancalgame.mancalagame.online;
+
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.ErrorDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameDeltaDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameStateDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.JoinGameRequest;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.MoveRequest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * STOMP message converter for the {@link BinaryGameCodec} format. It sits in front of the
+ * default Jackson converter and only takes a message when the codec was chosen:
+ * <ul>
+ *     <li>inbound, when the SEND frame has {@code content-type: application/x-mancala};</li>
+ *     <li>outbound, when the headers already say so (binary topic broadcasts) or when the reply
+ *     goes to a session that sent {@value #ACCEPT_HEADER}{@code : application/x-mancala} on CONNECT.</li>
+ * </ul>
+ * Everything else falls through to JSON, so older clients keep working unchanged.
+ * The converter is also the inbound channel interceptor that records each session's choice.
+ */
+@Component
+public class BinaryMessageConverter extends AbstractMessageConverter implements ChannelInterceptor {
+
+    public static final MimeType MIME_TYPE = MimeType.valueOf(BinaryGameCodec.MIME_TYPE);
+    public static final String ACCEPT_HEADER = "accept-content-type";
+
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+
+    public BinaryMessageConverter() {
+        super(MIME_TYPE);
+        setStrictContentTypeMatch(true);
+    }
+
+    /**
+     * @return true if the session asked for the binary codec when it connected.
+     */
+    public boolean isBinarySession(String sessionId) {
+        return sessionId != null && binarySessions.contains(sessionId);
+    }
+
+    /**
+     * Records the codec of a session connected to another cluster node, for the replies this node
+     * sends it; forgotten again with {@code binary} false when it disconnects.
+     */
+    public void rememberSession(String sessionId, boolean binary) {
+        if (sessionId == null) {
+            return;
+        }
+        if (binary) {
+            binarySessions.add(sessionId);
+        } else {
+            binarySessions.remove(sessionId);
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.CONNECT || command == StompCommand.STOMP) {
+            String accept = accessor.getFirstNativeHeader(ACCEPT_HEADER);
+            if (accept != null && MIME_TYPE.isCompatibleWith(MimeType.valueOf(accept))) {
+                binarySessions.add(accessor.getSessionId());
+            }
+        } else if (command == StompCommand.DISCONNECT) {
+            binarySessions.remove(accessor.getSessionId());
+        }
+        return message;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return GameStateDTO.class.isAssignableFrom(clazz)
+                || clazz == GameDeltaDTO.class
+                || clazz == ErrorDTO.class
+                || clazz == MoveRequest.class
+                || clazz == JoinGameRequest.class;
+    }
+
+    @Override
+    protected boolean canConvertTo(Object payload, MessageHeaders headers) {
+        if (!supports(payload.getClass())) {
+            return false;
+        }
+        return supportsMimeType(headers) || isBinarySession(SimpMessageHeaderAccessor.getSessionId(headers));
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        byte[] frame = (byte[]) message.getPayload();
+        if (targetClass == MoveRequest.class) {
+            MoveRequest request = new MoveRequest();
+            request.setPitIndex(BinaryGameCodec.decodeMove(frame));
+            return request;
+        }
+        if (targetClass == JoinGameRequest.class) {
+            JoinGameRequest request = new JoinGameRequest();
+            request.setGameId(BinaryGameCodec.decodeJoin(frame));
+            return request;
+        }
+        return null;
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        if (payload instanceof GameStateDTO state) return BinaryGameCodec.encodeState(state);
+        if (payload instanceof GameDeltaDTO delta) return BinaryGameCodec.encodeDelta(delta);
+        if (payload instanceof ErrorDTO error) return BinaryGameCodec.encodeError(error);
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package org.mancalgame.mancalagame.online;
+
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+/**
+ * Remembers what subscribers of one game were last sent, so the next broadcast can be
+ * reduced to the pits that changed. Confined to the game's mailbox; not thread-safe.
+ */
+final class DeltaTracker {
+
+    private static final int NO_KEYFRAME = -1;
+
+    private final PackedBoard lastSent = new PackedBoard();
+    private int lastMeta = NO_KEYFRAME;
+    private int deltasSinceKeyframe;
+
+    /**
+     * Decides whether the next broadcast must be a full snapshot: before the first keyframe,
+     * whenever anything other than the board and side to move changed, and every
+     * {@code keyframeInterval} deltas so late or lossy subscribers converge.
+     */
+    boolean needsKeyframe(OnlineMancalaGame game, int keyframeInterval) {
+        return lastMeta != meta(game) || deltasSinceKeyframe >= keyframeInterval;
+    }
+
+    void keyframeSent(OnlineMancalaGame game) {
+        lastSent.copyFrom(game.getMancalaGame().packedBoard());
+        lastMeta = meta(game);
+        deltasSinceKeyframe = 0;
+    }
+
+    /**
+     * Records the current board as sent and returns what changed since the previous broadcast.
+     * @return Flattened {@code [pitIndex, stones, pitIndex, stones, ...]} pairs in pit order.
+     */
+    int[] delta(PackedBoard board) {
+        long lowDiff = lastSent.low() ^ board.low();
+        long highDiff = lastSent.high() ^ board.high();
+        int[] changes = new int[2 * (changedLanes(lowDiff) + changedLanes(highDiff))];
+        int n = appendChanges(changes, 0, lowDiff, board, 0);
+        appendChanges(changes, n, highDiff, board, PackedBoard.LANES_PER_SIDE);
+        lastSent.copyFrom(board);
+        deltasSinceKeyframe++;
+        return changes;
+    }
+
+    // Number of 8-bit lanes with at least one differing bit
+    private static int changedLanes(long diff) {
+        long lanes = diff | (diff >>> 4);
+        lanes |= lanes >>> 2;
+        lanes |= lanes >>> 1;
+        return Long.bitCount(lanes & 0x0101010101010101L);
+    }
+
+    private static int appendChanges(int[] changes, int n, long diff, PackedBoard board, int firstPit) {
+        while (diff != 0) {
+            int lane = Long.numberOfTrailingZeros(diff) / PackedBoard.LANE_BITS;
+            int pit = firstPit + lane;
+            changes[n++] = pit;
+            changes[n++] = board.get(pit);
+            diff &= ~(0xFFL << (lane * PackedBoard.LANE_BITS));
+        }
+        return n;
+    }
+
+    // Everything a delta cannot express, folded into one comparable value
+    private static int meta(OnlineMancalaGame game) {
+        MancalaGame core = game.getMancalaGame();
+        return game.getStatus().ordinal()
+                | (core.isGameOver() ? 1 << 4 : 0)
+                | (game.isPlayer1WantsRematch() ? 1 << 5 : 0)
+                | (game.isPlayer2WantsRematch() ? 1 << 6 : 0)
+                | (core.getWinner() + 1) << 7;
+    }
+}
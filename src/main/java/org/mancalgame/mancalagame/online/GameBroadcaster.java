@@ -0,0 +1,302 @@
+package org.mancalgame.mancalagame.online;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mancalgame.mancalagame.cluster.ClusterTopology;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.ErrorDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameDeltaDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameStateDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends game updates to STOMP clients. Callers build the payload while they own the game
+ * and send it afterwards, so a slow broker never holds up work on other games.
+ * <p>
+ * With deltas enabled, a move that only changes the board and the side to move is published
+ * as a {@link GameDeltaDTO} carrying just the changed pits; everything else, and every
+ * {@code keyframe-interval}-th update, is a full {@link GameStateDTO}. Both carry the game's
+ * state sequence number so clients can detect gaps and resync.
+ * <p>
+ * Each update goes to {@code /topic/game/{id}} as JSON and, when anyone subscribes to it,
+ * to {@code /topic/game/{id}/bin} in the {@link BinaryGameCodec} format.
+ * <p>
+ * Payloads are encoded here, once per codec, and handed to the broker as {@link SerializedFrame}s.
+ * The snapshot of the current state version is cached on the game, so join replies and any
+ * number of resync requests reuse the same bytes until the game changes again.
+ * <p>
+ * Spectators subscribe to {@code /topic/game/{id}/spectate} (or {@code .../spectate/bin}) instead of
+ * the player topic. They never see deltas: changed games are only flagged, and a periodic flush sends
+ * each flagged game's latest snapshot once. However fast a game is played, a watcher receives at most
+ * one frame per flush interval, always the newest, and never a backlog.
+ * <p>
+ * Each published frame's size and each broadcast's audience are recorded in {@link GameMetrics}.
+ * <p>
+ * In a cluster, subscribers on other nodes are not in this node's {@link TopicSubscriptionRegistry},
+ * so every variant is published whether or not anyone here listens; the audience metric still only
+ * counts local subscribers.
+ */
+@Component
+public class GameBroadcaster {
+
+    static final int DEFAULT_KEYFRAME_INTERVAL = 16;
+
+    private static final byte[] ROLE_FIELD = ",\"assignedPlayerRole\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOKEN_FIELD = ",\"resumeToken\":".getBytes(StandardCharsets.US_ASCII);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TopicSubscriptionRegistry subscriptions;
+    private final BinaryMessageConverter binaryConverter;
+    private final ObjectMapper objectMapper;
+    private final boolean deltasEnabled;
+    private final int keyframeInterval;
+    private final GameMetrics metrics;
+    // Subscribers may be connected to other nodes, where the registry cannot see them
+    private final boolean remoteSubscribers;
+    // Games whose state changed since the last spectator flush and that had spectators at the time
+    private final Map<String, OnlineMancalaGame> spectatedChanges = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GameBroadcaster(SimpMessagingTemplate messagingTemplate,
+                           TopicSubscriptionRegistry subscriptions,
+                           BinaryMessageConverter binaryConverter,
+                           ObjectMapper objectMapper,
+                           @Value("${mancala.online.delta.enabled:true}") boolean deltasEnabled,
+                           @Value("${mancala.online.delta.keyframe-interval:16}") int keyframeInterval,
+                           GameMetrics metrics,
+                           ClusterTopology topology) {
+        this.messagingTemplate = messagingTemplate;
+        this.subscriptions = subscriptions;
+        this.binaryConverter = binaryConverter;
+        this.objectMapper = objectMapper;
+        this.deltasEnabled = deltasEnabled;
+        this.keyframeInterval = keyframeInterval;
+        this.metrics = metrics;
+        this.remoteSubscribers = topology.isEnabled();
+    }
+
+    public GameBroadcaster(SimpMessagingTemplate messagingTemplate, boolean deltasEnabled, int keyframeInterval, GameMetrics metrics) {
+        this(messagingTemplate, new TopicSubscriptionRegistry(), new BinaryMessageConverter(), new ObjectMapper(), deltasEnabled, keyframeInterval, metrics,
+                ClusterTopology.standalone());
+    }
+
+    public GameBroadcaster(SimpMessagingTemplate messagingTemplate, boolean deltasEnabled, int keyframeInterval) {
+        this(messagingTemplate, deltasEnabled, keyframeInterval, GameMetrics.disabled());
+    }
+
+    public GameBroadcaster(SimpMessagingTemplate messagingTemplate) {
+        this(messagingTemplate, true, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Publishes the next state of a game to everyone subscribed to its topic, as a delta when possible.
+     * Must be called from the game's mailbox after every change so sequence numbers stay gapless.
+     */
+    public void broadcastState(OnlineMancalaGame game) {
+        long version = game.advanceStateVersion();
+        GameFrameCache frames = game.frameCache();
+        frames.moveTo(version);
+        DeltaTracker tracker = game.deltaTracker();
+        boolean keyframe = !deltasEnabled || tracker.needsKeyframe(game, keyframeInterval);
+        GameDeltaDTO delta = null;
+        if (keyframe) {
+            frames.snapshot = new GameStateDTO(game);
+            tracker.keyframeSent(game);
+        } else {
+            int[] changes = tracker.delta(game.getMancalaGame().packedBoard());
+            delta = new GameDeltaDTO(version, game.getMancalaGame().getCurrentPlayer(), changes, game.getClock());
+        }
+
+        String topic = topic(game.getGameId());
+        publish(topic, keyframe ? jsonSnapshot(game) : json(delta));
+
+        // Clients using the binary codec subscribe to a parallel topic; only encode for it when someone listens
+        String binaryTopic = binaryVariant(topic);
+        int binarySubscribers = subscriptions.count(binaryTopic);
+        if (binarySubscribers > 0 || remoteSubscribers) {
+            publish(binaryTopic, keyframe ? binarySnapshot(game) : binary(BinaryGameCodec.encodeDelta(delta)));
+        }
+
+        int spectators = spectatorCount(game.getGameId());
+        if (spectators > 0 || remoteSubscribers) {
+            spectatedChanges.put(game.getGameId(), game);
+        }
+        metrics.broadcastAudience(subscriptions.count(topic) + binarySubscribers + spectators);
+    }
+
+    private void publish(String destination, SerializedFrame frame) {
+        metrics.framePublished(frame);
+        messagingTemplate.convertAndSend(destination, frame);
+    }
+
+    /**
+     * Sends the latest snapshot of every game that changed since the previous flush to its spectators.
+     * Only enqueues work on the games' mailboxes, so a popular game cannot hold up the scheduler.
+     */
+    @Scheduled(fixedDelayString = "${mancala.online.spectate.flush-interval-ms:100}")
+    public void flushSpectators() {
+        Iterator<OnlineMancalaGame> changed = spectatedChanges.values().iterator();
+        while (changed.hasNext()) {
+            OnlineMancalaGame game = changed.next();
+            changed.remove();
+            game.mailbox().execute(() -> publishToSpectators(game));
+        }
+    }
+
+    // Runs on the game's mailbox, after any change that flagged it
+    private void publishToSpectators(OnlineMancalaGame game) {
+        game.frameCache().moveTo(game.getStateVersion());
+        String spectateTopic = spectateTopic(game.getGameId());
+        if (subscriptions.count(spectateTopic) > 0 || remoteSubscribers) {
+            publish(spectateTopic, jsonSnapshot(game));
+        }
+        String binarySpectateTopic = binaryVariant(spectateTopic);
+        if (subscriptions.count(binarySpectateTopic) > 0 || remoteSubscribers) {
+            publish(binarySpectateTopic, binarySnapshot(game));
+        }
+    }
+
+    /**
+     * @return The number of spectator subscriptions to a game, over both codecs.
+     */
+    public int spectatorCount(String gameId) {
+        String spectateTopic = spectateTopic(gameId);
+        return subscriptions.count(spectateTopic) + subscriptions.count(binaryVariant(spectateTopic));
+    }
+
+    /**
+     * The full state of the game at its current version, encoded for the given session's codec.
+     * Must be called from the game's mailbox.
+     */
+    public SerializedFrame snapshotFrame(OnlineMancalaGame game, String sessionId) {
+        game.frameCache().moveTo(game.getStateVersion());
+        return binaryConverter.isBinarySession(sessionId) ? binarySnapshot(game) : jsonSnapshot(game);
+    }
+
+    /**
+     * The initial game details for a newly seated player, spliced from the cached snapshot
+     * rather than serializing an {@code InitialGameDetailsDTO}. Must be called from the game's mailbox.
+     */
+    public SerializedFrame detailsFrame(OnlineMancalaGame game, int assignedPlayerRole, String sessionId) {
+        SerializedFrame snapshot = snapshotFrame(game, sessionId);
+        byte[] state = snapshot.bytes();
+        byte[] details;
+        if (BinaryMessageConverter.MIME_TYPE.equals(snapshot.contentType())) {
+            // 'I' role token, then the snapshot fields after its 'S' type byte
+            byte[] role = BinaryGameCodec.encodeRole(assignedPlayerRole, game.getResumeToken(assignedPlayerRole));
+            details = new byte[state.length + role.length];
+            details[0] = 'I';
+            System.arraycopy(role, 0, details, 1, role.length);
+            System.arraycopy(state, 1, details, 1 + role.length, state.length - 1);
+        } else {
+            // The subclass fields are written last, so they go just before the closing brace.
+            // Tokens are base64url, so they need no escaping.
+            byte[] role = Integer.toString(assignedPlayerRole).getBytes(StandardCharsets.US_ASCII);
+            String resumeToken = game.getResumeToken(assignedPlayerRole);
+            byte[] token = (resumeToken == null ? "null" : '"' + resumeToken + '"').getBytes(StandardCharsets.US_ASCII);
+            details = new byte[state.length + ROLE_FIELD.length + role.length + TOKEN_FIELD.length + token.length];
+            int n = state.length - 1;
+            System.arraycopy(state, 0, details, 0, n);
+            System.arraycopy(ROLE_FIELD, 0, details, n, ROLE_FIELD.length);
+            n += ROLE_FIELD.length;
+            System.arraycopy(role, 0, details, n, role.length);
+            n += role.length;
+            System.arraycopy(TOKEN_FIELD, 0, details, n, TOKEN_FIELD.length);
+            n += TOKEN_FIELD.length;
+            System.arraycopy(token, 0, details, n, token.length);
+            details[details.length - 1] = '}';
+        }
+        return new SerializedFrame(details, snapshot.contentType());
+    }
+
+    /**
+     * Sends a payload to a single WebSocket session, e.g. {@code /queue/errors}.
+     * The session id is carried in the headers so the user destination resolver can
+     * route it without an authenticated principal.
+     * <p>
+     * In a cluster the session may be connected to another node, where the broker relay would drop a
+     * message carrying its id, so the payload is encoded here and sent without it, straight to the
+     * broker destination that the resolver gives the session's {@code /user} subscription.
+     */
+    public void sendToSession(String sessionId, String destination, Object payload) {
+        if (remoteSubscribers) {
+            SerializedFrame frame;
+            if (payload instanceof SerializedFrame serialized) {
+                frame = serialized;
+            } else if (payload instanceof ErrorDTO error && binaryConverter.isBinarySession(sessionId)) {
+                frame = binary(BinaryGameCodec.encodeError(error));
+            } else {
+                frame = json(payload);
+            }
+            messagingTemplate.convertAndSend(destination + "-user" + sessionId, frame);
+            return;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, destination, payload, headers.getMessageHeaders());
+    }
+
+    public static String topic(String gameId) {
+        return "/topic/game/" + gameId;
+    }
+
+    public static String binaryTopic(String gameId) {
+        return binaryVariant(topic(gameId));
+    }
+
+    public static String spectateTopic(String gameId) {
+        return topic(gameId) + "/spectate";
+    }
+
+    private static String binaryVariant(String destination) {
+        return destination + "/bin";
+    }
+
+    private SerializedFrame jsonSnapshot(OnlineMancalaGame game) {
+        GameFrameCache frames = game.frameCache();
+        if (frames.jsonSnapshot == null) {
+            frames.jsonSnapshot = json(snapshot(game));
+        }
+        return frames.jsonSnapshot;
+    }
+
+    private SerializedFrame binarySnapshot(OnlineMancalaGame game) {
+        GameFrameCache frames = game.frameCache();
+        if (frames.binarySnapshot == null) {
+            frames.binarySnapshot = binary(BinaryGameCodec.encodeState(snapshot(game)));
+        }
+        return frames.binarySnapshot;
+    }
+
+    private static GameStateDTO snapshot(OnlineMancalaGame game) {
+        GameFrameCache frames = game.frameCache();
+        if (frames.snapshot == null) {
+            frames.snapshot = new GameStateDTO(game);
+        }
+        return frames.snapshot;
+    }
+
+    private SerializedFrame json(Object payload) {
+        try {
+            return new SerializedFrame(objectMapper.writeValueAsBytes(payload), MimeTypeUtils.APPLICATION_JSON);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + payload.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static SerializedFrame binary(byte[] bytes) {
+        return new SerializedFrame(bytes, BinaryMessageConverter.MIME_TYPE);
+    }
+}
@@ -0,0 +1,106 @@
+package org.mancalgame.mancalagame.online;
+
+/**
+ * The two players' clocks in a timed game. Each player starts with the same time and gains a
+ * fixed increment after every move they complete; only the clock of the player to move runs.
+ * <p>
+ * Remaining times are banked when a turn ends, so between moves the state is just two numbers
+ * and the time the running clock started. Confined to the game's mailbox; not thread-safe.
+ */
+final class GameClock {
+
+    static final int STOPPED = -1;
+
+    private final long initialMillis;
+    private final long incrementMillis;
+    private final long[] remaining = new long[2];
+    private int running = STOPPED;
+    private long runningSince;
+
+    GameClock(long initialMillis, long incrementMillis) {
+        this.initialMillis = initialMillis;
+        this.incrementMillis = incrementMillis;
+        reset();
+    }
+
+    /**
+     * Gives both players their full time again and stops the clock.
+     */
+    void reset() {
+        remaining[0] = initialMillis;
+        remaining[1] = initialMillis;
+        running = STOPPED;
+    }
+
+    /**
+     * Starts the given player's clock, stopping the other one.
+     */
+    void start(int player, long now) {
+        stop(now);
+        running = player;
+        runningSince = now;
+    }
+
+    /**
+     * Charges the mover for the turn just played, adds the increment and starts the clock of the
+     * player to move next, which is the mover again after an extra turn.
+     */
+    void moved(int mover, int next, long now) {
+        stop(now);
+        remaining[mover] += incrementMillis;
+        start(next, now);
+    }
+
+    /**
+     * Banks the running player's elapsed time and stops the clock.
+     */
+    void stop(long now) {
+        if (running != STOPPED) {
+            remaining[running] = Math.max(0, remaining[running] - (now - runningSince));
+            running = STOPPED;
+        }
+    }
+
+    /**
+     * @return When the running player runs out of time, or {@link Long#MAX_VALUE} if no clock runs.
+     */
+    long deadline() {
+        return running == STOPPED ? Long.MAX_VALUE : runningSince + remaining[running];
+    }
+
+    // Restores state from the event log
+    void restore(long player1Millis, long player2Millis, int running, long runningSince) {
+        remaining[0] = player1Millis;
+        remaining[1] = player2Millis;
+        this.running = running;
+        this.runningSince = runningSince;
+    }
+
+    void setRemaining(int player, long millis) {
+        remaining[player] = millis;
+    }
+
+    /**
+     * Restarts the running clock from the given time without charging the time before it.
+     */
+    void resumeAt(long now) {
+        if (running != STOPPED) {
+            runningSince = now;
+        }
+    }
+
+    long initialMillis() { return initialMillis; }
+    long incrementMillis() { return incrementMillis; }
+
+    /**
+     * @return The player's time as of the start of the current turn.
+     */
+    long remaining(int player) { return remaining[player]; }
+
+    /**
+     * @return The player whose clock is running, or {@link #STOPPED}.
+     */
+    int running() { return running; }
+
+    long runningSince() { return runningSince; }
+}
@@ -0,0 +1,142 @@
+package org.mancalgame.mancalagame.online;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Time control for online games and the shared {@link TimingWheel} that notices when a player
+ * runs out of time. One wheel serves every clock, so a tick costs only the games whose deadline
+ * falls on it, however many timed games are in progress.
+ * <p>
+ * Each game has at most one armed wheel entry. As with {@link GameExpiry}, {@link OnlineGameManager}
+ * re-checks the game on its mailbox when the entry fires and arms it again if the running clock's
+ * deadline has moved; a new entry is only needed when a move brings the deadline forward.
+ * Games get the configured {@link TimeControl} unless they are created with another one, e.g. by
+ * the {@link Matchmaker}. An initial time of 0 means games are untimed.
+ */
+@Component
+public class GameClocks {
+
+    // A wheel entry: the game and the deadline it was armed for
+    record Flag(String gameId, long at) {}
+
+    /**
+     * Time per player and increment per move, written as minutes+seconds, e.g. {@code 10+5}.
+     * An initial time of 0 is untimed.
+     */
+    public record TimeControl(long initialMillis, long incrementMillis) {
+
+        public TimeControl {
+            if (initialMillis < 0 || incrementMillis < 0) {
+                throw new IllegalArgumentException("Clock times must not be negative");
+            }
+        }
+
+        /**
+         * @throws IllegalArgumentException if the text is not minutes+seconds.
+         */
+        public static TimeControl parse(String text) {
+            String[] parts = text.trim().split("\\+");
+            try {
+                if (parts.length == 2) {
+                    return new TimeControl(Long.parseLong(parts[0].trim()) * 60_000, Long.parseLong(parts[1].trim()) * 1000);
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Time control must be minutes+seconds, e.g. 10+5: " + text);
+        }
+
+        public boolean isTimed() {
+            return initialMillis > 0;
+        }
+    }
+
+    private static final GameClocks UNTIMED = new GameClocks(0, 0, 100, 2, new SimpleMeterRegistry());
+
+    private final TimeControl defaultTimeControl;
+    private final TimingWheel<Flag> wheel;
+    private final Counter timeouts;
+
+    @Autowired
+    public GameClocks(@Value("${mancala.online.clock.initial-ms:0}") long initialMillis,
+                      @Value("${mancala.online.clock.increment-ms:0}") long incrementMillis,
+                      @Value("${mancala.online.clock.tick-ms:100}") long tickMillis,
+                      @Value("${mancala.online.clock.wheel-size:1024}") int wheelSize,
+                      MeterRegistry registry) {
+        this.defaultTimeControl = new TimeControl(initialMillis, incrementMillis);
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        this.timeouts = Counter.builder("mancala.games.timeouts")
+                .description("Online games lost by a player running out of time")
+                .register(registry);
+    }
+
+    /**
+     * Time control that leaves every game untimed.
+     */
+    public static GameClocks untimed() {
+        return UNTIMED;
+    }
+
+    public boolean isEnabled() {
+        return defaultTimeControl.isTimed();
+    }
+
+    /**
+     * @return The time control of games created without one.
+     */
+    public TimeControl defaultTimeControl() {
+        return defaultTimeControl;
+    }
+
+    /**
+     * @return A fresh clock for a new game, or null if games are untimed.
+     */
+    GameClock newClock() {
+        return newClock(defaultTimeControl);
+    }
+
+    GameClock newClock(TimeControl timeControl) {
+        return timeControl.isTimed() ? new GameClock(timeControl.initialMillis(), timeControl.incrementMillis()) : null;
+    }
+
+    /**
+     * Adds a wheel entry for a running clock's deadline. O(1) from any thread.
+     */
+    void track(String gameId, long deadline) {
+        if (deadline != Long.MAX_VALUE) {
+            wheel.schedule(new Flag(gameId, deadline), deadline);
+        }
+    }
+
+    /**
+     * Hands every entry whose deadline has passed to the callback.
+     */
+    void advance(long now, Consumer<Flag> due) {
+        wheel.advance(now, due);
+    }
+
+    void timedOut() {
+        timeouts.increment();
+    }
+
+    /**
+     * @return How many games have been lost on time.
+     */
+    public double timeoutCount() {
+        return timeouts.count();
+    }
+
+    /**
+     * @return The number of games with a pending clock deadline.
+     */
+    public int trackedCount() {
+        return wheel.size();
+    }
+}
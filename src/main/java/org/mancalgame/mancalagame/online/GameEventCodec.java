@@ -0,0 +1,299 @@
+package org.mancalgame.mancalagame.online;
+
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MancalaGame.GameStatus;
+import org.mancalgame.mancalagame.game.MancalaRules;
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Binary bodies of {@link GameEventLog} records. Every game event starts with its type byte and
+ * the game id as two longs, followed by a small fixed payload:
+ * <pre>
+ *   CREATED            creationTime:long, hostSessionId:string, (rules), hostToken:string
+ *   JOINED             role:byte, sessionId:string, token:string
+ *   MOVED              pitIndex:byte, moverClock:int
+ *   REMATCH_REQUESTED  role:byte
+ *   REMATCH_STARTED    -
+ *   CANCELLED/EXPIRED  -
+ *   TIMED_OUT          role:byte
+ *   SNAPSHOT           creationTime:long, stateVersion:long, status:byte, flags:byte,
+ *                      currentPlayer:byte, winner:byte, board:14 bytes, player1:string, player2:string
+ *                      {token1:string, token2:string} (rules)
+ *                      [initial:int, increment:int, clock1:int, clock2:int, running:byte, runningSince:long]
+ * </pre>
+ * Checkpoint markers carry only the type and a checkpoint id. Strings are a short length
+ * (-1 for null) followed by UTF-8 bytes. All numbers are big-endian.
+ * <p>
+ * Clock times are milliseconds. A move records the mover's time after it, or -1 in an untimed game;
+ * only snapshots of timed games carry the bracketed clock section. Moves logged before clocks
+ * existed have no clock field and are replayed without one.
+ * <p>
+ * The rules in parentheses are pitsPerSide:byte, stonesPerPit:byte, capture:byte (the
+ * {@link MancalaRules.Capture} ordinal). A creation record logged before rules ends after the host
+ * session id, and a snapshot carries them only when its rules flag is set; either means the standard rules.
+ * <p>
+ * Resume tokens are optional for the same reason: records logged before them end after the session
+ * id or the rules, and snapshots carry the braced section only when their tokens flag is set.
+ */
+final class GameEventCodec {
+
+    static final byte CREATED = 1;
+    static final byte JOINED = 2;
+    static final byte MOVED = 3;
+    static final byte REMATCH_REQUESTED = 4;
+    static final byte REMATCH_STARTED = 5;
+    static final byte CANCELLED = 6;
+    static final byte EXPIRED = 7;
+    static final byte SNAPSHOT = 8;
+    static final byte CHECKPOINT_BEGIN = 9;
+    static final byte CHECKPOINT_END = 10;
+    static final byte TIMED_OUT = 11;
+
+    private static final int GAME_HEADER_BYTES = 1 + 16;
+    private static final int FLAG_GAME_OVER = 1;
+    private static final int FLAG_PLAYER1_REMATCH = 2;
+    private static final int FLAG_PLAYER2_REMATCH = 4;
+    private static final int FLAG_RULES = 8;
+    private static final int RULES_BYTES = 3;
+    private static final int FLAG_TOKENS = 16;
+    private static final int CLOCK_BYTES = 4 * 4 + 1 + 8;
+
+    private GameEventCodec() {
+    }
+
+    static byte[] created(String gameId, long creationTime, String hostSessionId, String hostToken, MancalaRules rules) {
+        byte[] host = utf8(hostSessionId);
+        byte[] token = utf8(hostToken);
+        ByteBuffer out = header(CREATED, gameId, 8 + stringBytes(host) + stringBytes(token) + RULES_BYTES);
+        out.putLong(creationTime);
+        putString(out, host);
+        putRules(out, rules);
+        putString(out, token);
+        return out.array();
+    }
+
+    static byte[] joined(String gameId, int role, String sessionId, String token) {
+        byte[] session = utf8(sessionId);
+        byte[] resume = utf8(token);
+        ByteBuffer out = header(JOINED, gameId, 1 + stringBytes(session) + stringBytes(resume));
+        out.put((byte) role);
+        putString(out, session);
+        putString(out, resume);
+        return out.array();
+    }
+
+    static byte[] moved(String gameId, int pitIndex, long moverClockMillis) {
+        return header(MOVED, gameId, 1 + 4).put((byte) pitIndex).putInt(millis(moverClockMillis)).array();
+    }
+
+    static byte[] timedOut(String gameId, int role) {
+        return header(TIMED_OUT, gameId, 1).put((byte) role).array();
+    }
+
+    static byte[] rematchRequested(String gameId, int role) {
+        return header(REMATCH_REQUESTED, gameId, 1).put((byte) role).array();
+    }
+
+    /**
+     * A game event without payload: {@link #REMATCH_STARTED}, {@link #CANCELLED} or {@link #EXPIRED}.
+     */
+    static byte[] event(byte type, String gameId) {
+        return header(type, gameId, 0).array();
+    }
+
+    /**
+     * The complete state of a game. Must be taken on the game's mailbox.
+     */
+    static byte[] snapshot(OnlineMancalaGame game) {
+        byte[] player1 = utf8(game.getPlayer1SessionId());
+        byte[] player2 = utf8(game.getPlayer2SessionId());
+        byte[] token1 = utf8(game.getResumeToken(0));
+        byte[] token2 = utf8(game.getResumeToken(1));
+        MancalaGame state = game.getMancalaGame();
+        GameClock clock = game.clock();
+        ByteBuffer out = header(SNAPSHOT, game.getGameId(), 8 + 8 + 4 + PackedBoard.PITS + stringBytes(player1) + stringBytes(player2)
+                + stringBytes(token1) + stringBytes(token2) + RULES_BYTES + (clock != null ? CLOCK_BYTES : 0));
+        out.putLong(game.getCreationTime());
+        out.putLong(game.getStateVersion());
+        out.put((byte) game.getStatus().ordinal());
+        out.put((byte) ((state.isGameOver() ? FLAG_GAME_OVER : 0)
+                | (game.isPlayer1WantsRematch() ? FLAG_PLAYER1_REMATCH : 0)
+                | (game.isPlayer2WantsRematch() ? FLAG_PLAYER2_REMATCH : 0)
+                | FLAG_TOKENS | FLAG_RULES));
+        out.put((byte) state.getCurrentPlayer());
+        out.put((byte) state.getWinner());
+        PackedBoard board = state.packedBoard();
+        for (int pit = 0; pit < PackedBoard.PITS; pit++) {
+            out.put((byte) board.get(pit));
+        }
+        putString(out, player1);
+        putString(out, player2);
+        putString(out, token1);
+        putString(out, token2);
+        putRules(out, game.getRules());
+        if (clock != null) {
+            out.putInt(millis(clock.initialMillis()));
+            out.putInt(millis(clock.incrementMillis()));
+            out.putInt(millis(clock.remaining(0)));
+            out.putInt(millis(clock.remaining(1)));
+            out.put((byte) clock.running());
+            out.putLong(clock.runningSince());
+        }
+        return out.array();
+    }
+
+    /**
+     * @return The size of the largest {@link #snapshot}, that of a seated, timed game whose two
+     *         session ids are the given number of UTF-8 bytes long.
+     */
+    static int maxSnapshotBytes(int sessionIdBytes) {
+        return GAME_HEADER_BYTES + 8 + 8 + 4 + PackedBoard.PITS + 2 * (2 + sessionIdBytes)
+                + 2 * (2 + OnlineMancalaGame.TOKEN_CHARS) + RULES_BYTES + CLOCK_BYTES;
+    }
+
+    /**
+     * Restores a game from a {@link #SNAPSHOT} body positioned just after its creation time.
+     */
+    static void restoreSnapshot(ByteBuffer in, OnlineMancalaGame game) {
+        long stateVersion = in.getLong();
+        GameStatus status = GameStatus.values()[in.get()];
+        int flags = in.get();
+        int currentPlayer = in.get();
+        int winner = in.get();
+        int[] board = new int[PackedBoard.PITS];
+        for (int pit = 0; pit < board.length; pit++) {
+            board[pit] = in.get() & 0xFF;
+        }
+        String player1 = getString(in);
+        String player2 = getString(in);
+        boolean tokens = (flags & FLAG_TOKENS) != 0;
+        String token1 = tokens ? getString(in) : null;
+        String token2 = tokens ? getString(in) : null;
+        MancalaRules rules = (flags & FLAG_RULES) != 0 ? getRules(in) : MancalaRules.STANDARD;
+        GameClock clock = null;
+        if (in.hasRemaining()) {
+            long initialMillis = in.getInt();
+            long incrementMillis = in.getInt();
+            clock = new GameClock(initialMillis, incrementMillis);
+            long player1Millis = in.getInt();
+            long player2Millis = in.getInt();
+            int running = in.get();
+            clock.restore(player1Millis, player2Millis, running, in.getLong());
+        }
+
+        game.restore(rules, status, player1, player2, token1, token2,
+                (flags & FLAG_PLAYER1_REMATCH) != 0, (flags & FLAG_PLAYER2_REMATCH) != 0, stateVersion);
+        MancalaGame state = game.getMancalaGame();
+        state.setBoard(board);
+        state.setCurrentPlayer(currentPlayer);
+        state.setGameOver((flags & FLAG_GAME_OVER) != 0);
+        state.setWinner(winner);
+        game.useClock(clock);
+    }
+
+    /**
+     * @return The host session id recorded in a {@link #SNAPSHOT} body.
+     */
+    static String snapshotPlayer1(byte[] snapshot) {
+        return getString(snapshotSessions(snapshot));
+    }
+
+    /**
+     * @return The joiner session id recorded in a {@link #SNAPSHOT} body.
+     */
+    static String snapshotPlayer2(byte[] snapshot) {
+        ByteBuffer in = snapshotSessions(snapshot);
+        getString(in);
+        return getString(in);
+    }
+
+    /**
+     * @return The resume token of the given role recorded in a {@link #SNAPSHOT} body, or null.
+     */
+    static String snapshotToken(byte[] snapshot, int role) {
+        ByteBuffer in = snapshotSessions(snapshot);
+        int flags = snapshot[GAME_HEADER_BYTES + 8 + 8 + 1];
+        if ((flags & FLAG_TOKENS) == 0) {
+            return null;
+        }
+        getString(in);
+        getString(in);
+        String token1 = getString(in);
+        return role == 0 ? token1 : getString(in);
+    }
+
+    private static ByteBuffer snapshotSessions(byte[] snapshot) {
+        return ByteBuffer.wrap(snapshot).position(GAME_HEADER_BYTES + 8 + 8 + 4 + PackedBoard.PITS);
+    }
+
+    /**
+     * Reads the rules of a {@link #CREATED} body, after its host session id, or the standard rules
+     * if the record was logged before they were.
+     */
+    static MancalaRules createdRules(ByteBuffer in) {
+        return in.remaining() >= RULES_BYTES ? getRules(in) : MancalaRules.STANDARD;
+    }
+
+    static byte[] checkpoint(byte type, long checkpointId) {
+        return ByteBuffer.allocate(1 + 8).put(type).putLong(checkpointId).array();
+    }
+
+    /**
+     * Reads the game id that follows the type byte.
+     */
+    static String getGameId(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong()).toString();
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        in.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer header(byte type, String gameId, int payloadBytes) {
+        UUID id = UUID.fromString(gameId);
+        return ByteBuffer.allocate(GAME_HEADER_BYTES + payloadBytes)
+                .put(type)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+    }
+
+    private static void putRules(ByteBuffer out, MancalaRules rules) {
+        out.put((byte) rules.getPitsPerSide()).put((byte) rules.getStonesPerPit()).put((byte) rules.getCapture().ordinal());
+    }
+
+    private static MancalaRules getRules(ByteBuffer in) {
+        int pitsPerSide = in.get();
+        int stonesPerPit = in.get() & 0xFF;
+        return MancalaRules.of(pitsPerSide, stonesPerPit, MancalaRules.Capture.values()[in.get()]);
+    }
+
+    private static int millis(long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringBytes(byte[] value) {
+        return 2 + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer out, byte[] value) {
+        if (value == null) {
+            out.putShort((short) -1);
+        } else {
+            out.putShort((short) value.length).put(value);
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package org.mancalgame.mancalagame.online;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of online game events, so live games survive a restart.
+ * <p>
+ * Games append from their mailboxes: a call encodes the event (see {@link GameEventCodec}) and
+ * queues it on a lock-free queue, and never waits for the disk. A single writer thread copies
+ * queued records into the current memory-mapped {@link LogSegment}, rolls to a new segment when
+ * it is full, and forces written data to disk at most once per {@code flush-interval-ms}, so one
+ * fsync covers every move of that interval.
+ * <p>
+ * The log is bounded by checkpoints (see {@link OnlineGameManager#checkpoint}): a begin marker,
+ * then a snapshot of every live game taken on its mailbox, then an end marker. Once a checkpoint
+ * has ended, recovery starts at its begin marker, and older segments are deleted.
+ * <p>
+ * At most {@code max-queued} records wait for the writer; past that, appending games wait for it to
+ * catch up, so a disk that cannot keep up slows games down rather than filling the heap. If writing
+ * fails (a segment cannot be created or forced), the log stops: it reports the failure once, drops
+ * every later record and says so through {@link #isFailed()} and {@link #getDroppedCount()}, since
+ * a log with a hole in it could not be replayed faithfully anyway.
+ * <p>
+ * Disabled by default; {@link #disabled()} gives an instance that ignores every call.
+ */
+@Component
+public class GameEventLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(GameEventLog.class);
+    private static final GameEventLog DISABLED = new GameEventLog(false, (Path) null, 0, 0);
+    static final int DEFAULT_MAX_QUEUED = 65536;
+    // How long an appender waiting for room sleeps between checks
+    private static final long BACKPRESSURE_PARK_NANOS = 100_000;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long flushIntervalNanos;
+    private final int maxQueued;
+    private final int maxRecordBytes;
+
+    private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong checkpointIds = new AtomicLong();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile Throwable failure;
+    private volatile boolean running;
+    private volatile boolean writerParked;
+    private Thread writer;
+
+    // Owned by the writer thread once started
+    private LogSegment segment;
+    private long nextSegmentIndex;
+    private final Map<Long, Long> checkpointSegments = new HashMap<>();
+
+    @Autowired
+    public GameEventLog(@Value("${mancala.eventlog.enabled:false}") boolean enabled,
+                        @Value("${mancala.eventlog.dir:data/eventlog}") String directory,
+                        @Value("${mancala.eventlog.segment-size-mb:64}") int segmentSizeMb,
+                        @Value("${mancala.eventlog.flush-interval-ms:50}") long flushIntervalMillis,
+                        @Value("${mancala.eventlog.max-queued:65536}") int maxQueued) {
+        this(enabled, enabled ? Path.of(directory) : null, segmentSizeMb * 1024 * 1024, flushIntervalMillis, maxQueued);
+    }
+
+    GameEventLog(boolean enabled, Path directory, int segmentSize, long flushIntervalMillis) {
+        this(enabled, directory, segmentSize, flushIntervalMillis, DEFAULT_MAX_QUEUED);
+    }
+
+    GameEventLog(boolean enabled, Path directory, int segmentSize, long flushIntervalMillis, int maxQueued) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.maxQueued = Math.max(1, maxQueued);
+        this.maxRecordBytes = segmentSize - LogSegment.FRAME_BYTES;
+    }
+
+    /**
+     * A log that keeps nothing; used when games are managed outside Spring.
+     */
+    public static GameEventLog disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * A log in the given directory with the default segment size and flush interval.
+     */
+    public static GameEventLog open(Path directory) {
+        return new GameEventLog(true, directory, 64 * 1024 * 1024, 50);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The number of records accepted since this instance was created.
+     */
+    public long getAppendedCount() {
+        return appended.sum();
+    }
+
+    /**
+     * @return The number of records dropped because writing had failed.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return The number of records waiting for the writer.
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * @return Whether writing failed and the log stopped accepting records.
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Replays the log from the start of the last completed checkpoint, or from the oldest segment
+     * if there is none. Must be called before {@link #start}.
+     * @param visitor Receives each record body in log order.
+     * @return The number of records replayed.
+     */
+    long replay(Consumer<ByteBuffer> visitor) {
+        List<LogSegment> segments = existingSegments();
+        if (segments.isEmpty()) {
+            return 0;
+        }
+
+        // First pass: find where the newest completed checkpoint began
+        Map<Long, long[]> begins = new HashMap<>();
+        long[] start = {segments.get(0).index(), 0};
+        long[] newestEnded = {-1};
+        for (LogSegment s : segments) {
+            s.read(0, (position, body) -> {
+                byte type = body.get(0);
+                if (type == GameEventCodec.CHECKPOINT_BEGIN) {
+                    begins.put(body.getLong(1), new long[] {s.index(), position});
+                } else if (type == GameEventCodec.CHECKPOINT_END) {
+                    long id = body.getLong(1);
+                    long[] begin = begins.get(id);
+                    if (begin != null && id > newestEnded[0]) {
+                        newestEnded[0] = id;
+                        start[0] = begin[0];
+                        start[1] = begin[1];
+                    }
+                }
+            });
+        }
+        checkpointIds.set(Math.max(newestEnded[0], begins.keySet().stream().mapToLong(Long::longValue).max().orElse(0)));
+
+        long[] count = {0};
+        for (LogSegment s : segments) {
+            if (s.index() < start[0]) {
+                continue;
+            }
+            s.read(s.index() == start[0] ? (int) start[1] : 0, (position, body) -> {
+                visitor.accept(body);
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * Opens a fresh segment after any existing ones and starts the writer thread.
+     */
+    synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create event log directory " + directory, e);
+        }
+        List<Path> existing = segmentFiles();
+        nextSegmentIndex = existing.isEmpty() ? 1 : LogSegment.indexOf(existing.get(existing.size() - 1)) + 1;
+        segment = LogSegment.create(directory, nextSegmentIndex++, segmentSize);
+        running = true;
+        writer = new Thread(this::runWriter, "mancala-eventlog");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Event log writing to {} ({} MB segments)", segment.path(), segmentSize / (1024 * 1024));
+    }
+
+    /**
+     * Queues a record; records of one thread are written in the order appended. Only blocks while
+     * {@code max-queued} records are already waiting for the writer. After a write failure the record
+     * is dropped instead.
+     * @throws IllegalArgumentException if the record could never fit a segment.
+     */
+    void append(byte[] body) {
+        if (!enabled) {
+            return;
+        }
+        if (body.length > maxRecordBytes) {
+            throw new IllegalArgumentException("Event log record of " + body.length + " bytes exceeds the segment size");
+        }
+        if (failure != null) {
+            dropped.increment();
+            return;
+        }
+        while (queued.get() >= maxQueued && running && failure == null) {
+            if (writerParked) {
+                LockSupport.unpark(writer);
+            }
+            LockSupport.parkNanos(this, BACKPRESSURE_PARK_NANOS);
+        }
+        queued.incrementAndGet();
+        queue.offer(body);
+        appended.increment();
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Appends a checkpoint begin marker.
+     * @return The id to pass to {@link #endCheckpoint} once every live game has been snapshotted.
+     */
+    long beginCheckpoint() {
+        long id = checkpointIds.incrementAndGet();
+        append(GameEventCodec.checkpoint(GameEventCodec.CHECKPOINT_BEGIN, id));
+        return id;
+    }
+
+    void endCheckpoint(long id) {
+        append(GameEventCodec.checkpoint(GameEventCodec.CHECKPOINT_END, id));
+    }
+
+    private void runWriter() {
+        long lastForce = System.nanoTime();
+        while (true) {
+            boolean stopping = !running;
+            boolean wrote = false;
+            byte[] body;
+            while ((body = queue.poll()) != null) {
+                queued.decrementAndGet();
+                if (failure == null) {
+                    write(body);
+                } else {
+                    dropped.increment();
+                }
+                wrote = true;
+            }
+            long now = System.nanoTime();
+            if (failure == null && segment.isDirty() && (stopping || now - lastForce >= flushIntervalNanos)) {
+                try {
+                    segment.force();
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+                lastForce = now;
+            }
+            if (stopping) {
+                return;
+            }
+            if (!wrote) {
+                writerParked = true;
+                if (queue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, segment.isDirty() ? Math.max(0, flushIntervalNanos - (now - lastForce)) : flushIntervalNanos);
+                }
+                writerParked = false;
+            }
+        }
+    }
+
+    // An I/O failure stops the log; any other failure only loses the one record
+    private void write(byte[] body) {
+        try {
+            writeRecord(body);
+        } catch (UncheckedIOException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            dropped.increment();
+            logger.error("Event log dropped a record of type {} ({} bytes)", body.length > 0 ? body[0] : -1, body.length, e);
+        }
+    }
+
+    private void fail(Throwable cause) {
+        failure = cause;
+        logger.error("Event log writing to {} failed; no more game events will be logged until restart", directory, cause);
+    }
+
+    private void writeRecord(byte[] body) {
+        if (!segment.append(body)) {
+            segment.force();
+            segment = LogSegment.create(directory, nextSegmentIndex++, segmentSize);
+            if (!segment.append(body)) {
+                throw new IllegalStateException("Event log record of " + body.length + " bytes exceeds the segment size");
+            }
+        }
+        if (body[0] == GameEventCodec.CHECKPOINT_BEGIN) {
+            checkpointSegments.put(ByteBuffer.wrap(body).getLong(1), segment.index());
+        } else if (body[0] == GameEventCodec.CHECKPOINT_END) {
+            Long firstNeeded = checkpointSegments.remove(ByteBuffer.wrap(body).getLong(1));
+            if (firstNeeded != null) {
+                segment.force();
+                deleteSegmentsBefore(firstNeeded);
+            }
+        }
+    }
+
+    private void deleteSegmentsBefore(long index) {
+        checkpointSegments.values().removeIf(begin -> begin < index);
+        List<Path> files;
+        try {
+            files = segmentFiles();
+        } catch (UncheckedIOException e) {
+            // Old segments only cost disk space; the next checkpoint tries again
+            logger.warn("Could not list event log segments to delete: {}", e.getMessage());
+            return;
+        }
+        for (Path old : files) {
+            if (LogSegment.indexOf(old) >= index) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(old);
+                logger.debug("Deleted event log segment {}", old);
+            } catch (IOException e) {
+                logger.warn("Could not delete event log segment {}: {}", old, e.getMessage());
+            }
+        }
+    }
+
+    private List<LogSegment> existingSegments() {
+        return segmentFiles().stream().map(LogSegment::open).toList();
+    }
+
+    // Zero-padded indices make name order the log order
+    private List<Path> segmentFiles() {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(LogSegment::isSegmentFile).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list event log directory " + directory, e);
+        }
+    }
+
+    /**
+     * Stops the writer after it has written and forced everything queued so far.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.mancalgame.mancalagame.online;
+
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.game.MancalaRules;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Rebuilds live games from {@link GameEventLog} records, on a single thread before any game is published.
+ * <p>
+ * Replay starts at a checkpoint's begin marker, so a game may show events from before its snapshot
+ * in that checkpoint, or none at all if it was created earlier. Events for unknown games are therefore
+ * ignored, and a snapshot always replaces whatever was rebuilt so far.
+ * <p>
+ * Each replayed change advances the game's state version, keeping it ahead of every version
+ * broadcast before the restart so reconnecting clients never see it go backwards.
+ * <p>
+ * Clocks are restored from the times logged with each move; the time a running clock started is
+ * not known until the caller resumes it.
+ */
+final class GameEventReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(GameEventReplayer.class);
+
+    private final MancalaGameService gameService;
+    private final Executor executor;
+    private final GameClocks clocks;
+    private final Map<String, OnlineMancalaGame> games = new HashMap<>();
+
+    GameEventReplayer(MancalaGameService gameService, Executor executor, GameClocks clocks) {
+        this.gameService = gameService;
+        this.executor = executor;
+        this.clocks = clocks;
+    }
+
+    void apply(ByteBuffer body) {
+        byte type = body.get();
+        if (type == GameEventCodec.CHECKPOINT_BEGIN || type == GameEventCodec.CHECKPOINT_END) {
+            return;
+        }
+        String gameId = GameEventCodec.getGameId(body);
+        if (type == GameEventCodec.CREATED) {
+            if (!games.containsKey(gameId)) {
+                long creationTime = body.getLong();
+                String hostSessionId = GameEventCodec.getString(body);
+                OnlineMancalaGame game = new OnlineMancalaGame(gameService, executor, gameId, creationTime, GameEventCodec.createdRules(body));
+                game.useClock(clocks.newClock());
+                if (hostSessionId != null) {
+                    game.addPlayer(hostSessionId, body.hasRemaining() ? GameEventCodec.getString(body) : null);
+                }
+                games.put(gameId, game);
+            }
+            return;
+        }
+        if (type == GameEventCodec.SNAPSHOT) {
+            // The snapshot brings its own rules
+            OnlineMancalaGame game = new OnlineMancalaGame(gameService, executor, gameId, body.getLong(), MancalaRules.STANDARD);
+            GameEventCodec.restoreSnapshot(body, game);
+            games.put(gameId, game);
+            return;
+        }
+
+        OnlineMancalaGame game = games.get(gameId);
+        if (game == null) {
+            return;
+        }
+        switch (type) {
+            case GameEventCodec.JOINED -> {
+                body.get(); // role; seats are filled in order
+                String sessionId = GameEventCodec.getString(body);
+                game.addPlayer(sessionId, body.hasRemaining() ? GameEventCodec.getString(body) : null);
+            }
+            case GameEventCodec.MOVED -> {
+                try {
+                    int mover = game.getMancalaGame().getCurrentPlayer();
+                    if (game.makeMove(body.get(), mover) && body.remaining() >= 4 && game.clock() != null) {
+                        game.clock().setRemaining(mover, body.getInt());
+                    }
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Skipping logged move that no longer applies to game {}: {}", gameId, e.getMessage());
+                }
+            }
+            case GameEventCodec.REMATCH_REQUESTED -> game.setPlayerWantsRematch(body.get());
+            case GameEventCodec.REMATCH_STARTED -> game.resetForRematch();
+            case GameEventCodec.TIMED_OUT -> game.loseOnTime(body.get());
+            case GameEventCodec.CANCELLED, GameEventCodec.EXPIRED -> {
+                games.remove(gameId);
+                return;
+            }
+            default -> throw new IllegalStateException("Unknown event log record type " + type);
+        }
+        game.advanceStateVersion();
+    }
+
+    /**
+     * @return The games still live at the end of the log.
+     */
+    Collection<OnlineMancalaGame> games() {
+        return games.values();
+    }
+}
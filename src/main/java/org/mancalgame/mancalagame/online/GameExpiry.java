@@ -0,0 +1,131 @@
+package org.mancalgame.mancalagame.online;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mancalgame.mancalagame.game.MancalaGame.GameStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Expiry policies for online games, one idle timeout per {@link GameStatus}, and the
+ * {@link TimingWheel} that finds the games whose timeout has passed.
+ * <p>
+ * A game's deadline is its last activity plus the timeout for its current status. Each game has
+ * one armed wheel entry; {@link OnlineGameManager} re-checks the game when it fires and arms it
+ * again if the deadline has moved, so a move only has to update the game's activity time. An
+ * entry is re-armed early only when a status change brings the deadline forward, and the entry
+ * it supersedes is recognised as stale when it fires. A timeout of 0 disables expiry for that status.
+ * <p>
+ * The same entry covers the disconnect grace period: a player whose connection drops keeps their
+ * seat for the grace time, and the game is cancelled only if they have not resumed by then. A grace
+ * time of 0 cancels the game as soon as a player disconnects.
+ */
+@Component
+public class GameExpiry {
+
+    // A wheel entry: the game and the deadline it was armed for
+    record Deadline(String gameId, long at) {}
+
+    private static final GameExpiry DISABLED = new GameExpiry(0, 0, 0, 0, 1000, 2, new SimpleMeterRegistry());
+
+    private final Map<GameStatus, Long> timeouts = new EnumMap<>(GameStatus.class);
+    private final Map<GameStatus, Counter> expirations = new EnumMap<>(GameStatus.class);
+    private final TimingWheel<Deadline> wheel;
+    private final long graceMillis;
+    private final boolean enabled;
+
+    /**
+     * Creates policies without a disconnect grace period.
+     */
+    public GameExpiry(long waitingMillis, long inProgressMillis, long finishedMillis, long cancelledMillis,
+                      long tickMillis, int wheelSize, MeterRegistry registry) {
+        this(waitingMillis, inProgressMillis, finishedMillis, cancelledMillis, 0, tickMillis, wheelSize, registry);
+    }
+
+    @Autowired
+    public GameExpiry(@Value("${mancala.online.expiry.waiting-ms:600000}") long waitingMillis,
+                      @Value("${mancala.online.expiry.in-progress-ms:1800000}") long inProgressMillis,
+                      @Value("${mancala.online.expiry.finished-ms:300000}") long finishedMillis,
+                      @Value("${mancala.online.expiry.cancelled-ms:60000}") long cancelledMillis,
+                      @Value("${mancala.online.expiry.disconnect-grace-ms:30000}") long graceMillis,
+                      @Value("${mancala.online.expiry.tick-ms:1000}") long tickMillis,
+                      @Value("${mancala.online.expiry.wheel-size:512}") int wheelSize,
+                      MeterRegistry registry) {
+        timeouts.put(GameStatus.WAITING_FOR_PLAYER, waitingMillis);
+        timeouts.put(GameStatus.IN_PROGRESS, inProgressMillis);
+        timeouts.put(GameStatus.FINISHED, finishedMillis);
+        timeouts.put(GameStatus.CANCELLED, cancelledMillis);
+        for (GameStatus status : GameStatus.values()) {
+            expirations.put(status, Counter.builder("mancala.games.expired")
+                    .tag("policy", status.name().toLowerCase())
+                    .description("Online games removed after idling past their status's timeout")
+                    .register(registry));
+        }
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        this.graceMillis = graceMillis;
+        this.enabled = graceMillis > 0 || timeouts.values().stream().anyMatch(timeout -> timeout > 0);
+    }
+
+    /**
+     * Policies that never expire anything.
+     */
+    public static GameExpiry disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return When a game in this status, last active at the given time, expires,
+     *         or {@link Long#MAX_VALUE} if it never does.
+     */
+    long deadline(GameStatus status, long lastActivity) {
+        long timeout = timeouts.getOrDefault(status, 0L);
+        return timeout > 0 ? lastActivity + timeout : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return How long a disconnected player's seat is held, or 0 if the game is cancelled at once.
+     */
+    long graceMillis() {
+        return graceMillis;
+    }
+
+    /**
+     * Adds a wheel entry for the game's deadline. O(1); games that never expire are not tracked.
+     */
+    void track(String gameId, long deadline) {
+        if (enabled && deadline != Long.MAX_VALUE) {
+            wheel.schedule(new Deadline(gameId, deadline), deadline);
+        }
+    }
+
+    /**
+     * Hands every entry whose deadline has passed to the callback.
+     */
+    void advance(long now, Consumer<Deadline> due) {
+        wheel.advance(now, due);
+    }
+
+    void expired(GameStatus status) {
+        expirations.get(status).increment();
+    }
+
+    /**
+     * @return How many games of this status have expired.
+     */
+    public double expiredCount(GameStatus status) {
+        return expirations.get(status).count();
+    }
+
+    /**
+     * @return The number of games with a pending deadline.
+     */
+    public int trackedCount() {
+        return wheel.size();
+    }
+}
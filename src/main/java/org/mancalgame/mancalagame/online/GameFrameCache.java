@@ -0,0 +1,29 @@
+package org.mancalgame.mancalagame.online;
+
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameStateDTO;
+
+/**
+ * The encoded frames for one state version of a game. Everything is dropped as soon as the
+ * game's version moves on, so a frame can never outlive the state it describes.
+ * Confined to the game's mailbox; not thread-safe.
+ */
+final class GameFrameCache {
+
+    private long version = -1;
+    // The DTO of the current state, if one has been built for this version
+    GameStateDTO snapshot;
+    SerializedFrame jsonSnapshot;
+    SerializedFrame binarySnapshot;
+
+    /**
+     * Makes the cache describe the given version, discarding frames of any older one.
+     */
+    void moveTo(long stateVersion) {
+        if (stateVersion != version) {
+            version = stateVersion;
+            snapshot = null;
+            jsonSnapshot = null;
+            binarySnapshot = null;
+        }
+    }
+}
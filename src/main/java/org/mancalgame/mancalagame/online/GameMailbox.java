@@ -0,0 +1,75 @@
+package org.mancalgame.mancalagame.online;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Actor-style mailbox for one game: commands run one at a time, in submission order,
+ * on a shared executor. Only one drain task per mailbox is ever queued on the executor,
+ * and a drain yields after {@link #BATCH_SIZE} commands so a busy game cannot monopolise
+ * a worker thread while other games wait.
+ * <p>
+ * With a caller-runs executor ({@code Runnable::run}) commands still never overlap: a thread
+ * that finds the mailbox already draining just enqueues and returns.
+ */
+final class GameMailbox implements Executor {
+
+    private static final Logger logger = LoggerFactory.getLogger(GameMailbox.class);
+    private static final int BATCH_SIZE = 32;
+
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Executor executor;
+
+    GameMailbox(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        commands.add(command);
+        if (pending.getAndIncrement() == 0) {
+            schedule();
+        }
+    }
+
+    /**
+     * @return The number of commands waiting or running.
+     */
+    int backlog() {
+        return pending.get();
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Only happens while the application shuts down; drop what is queued
+            logger.warn("Game executor rejected mailbox drain; dropping {} queued commands.", pending.get());
+            commands.clear();
+            pending.set(0);
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Runnable command = commands.poll();
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                logger.error("Game command failed: {}", e.getMessage(), e);
+            }
+            if (pending.decrementAndGet() == 0) {
+                return;
+            }
+        }
+        // More commands are waiting: requeue behind other games instead of hogging this thread
+        schedule();
+    }
+}
@@ -0,0 +1,86 @@
+package org.mancalgame.mancalagame.online;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters recorded on the online move path. Every meter is registered once, up front, so recording
+ * a move is a few {@link System#nanoTime} reads and lock-free adds; nothing here looks up a meter
+ * by name or builds tags per call. Gauges that are only read at scrape time, such as the number of
+ * games per status, are bound separately in {@code MetricsConfig}.
+ * <p>
+ * {@code MetricsOverheadBenchmark} measures a played move with these meters against
+ * {@link #disabled()}; the budget is 5% of the move's cost.
+ */
+@Component
+public class GameMetrics {
+
+    private static final GameMetrics DISABLED = new GameMetrics(new CompositeMeterRegistry());
+
+    private final Timer movesApplied;
+    private final Timer movesRejected;
+    private final Timer mailboxWait;
+    private final DistributionSummary jsonBytes;
+    private final DistributionSummary binaryBytes;
+    private final DistributionSummary audience;
+
+    public GameMetrics(MeterRegistry registry) {
+        this.movesApplied = moveLatency("applied", registry);
+        this.movesRejected = moveLatency("rejected", registry);
+        this.mailboxWait = Timer.builder("mancala.games.mailbox.wait")
+                .description("Time a command waits on its game's mailbox before it runs")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.jsonBytes = frameBytes("json", registry);
+        this.binaryBytes = frameBytes("binary", registry);
+        this.audience = DistributionSummary.builder("mancala.broadcast.audience")
+                .description("Sessions subscribed to a game when its state is broadcast")
+                .baseUnit("sessions")
+                .register(registry);
+    }
+
+    private static Timer moveLatency(String outcome, MeterRegistry registry) {
+        return Timer.builder("mancala.moves.latency").tag("outcome", outcome)
+                .description("Time from receiving a move to broadcasting its result")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static DistributionSummary frameBytes(String codec, MeterRegistry registry) {
+        return DistributionSummary.builder("mancala.broadcast.bytes").tag("codec", codec)
+                .description("Size of each frame published to a game topic")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Metrics that record nothing, for tests and benchmarks.
+     */
+    public static GameMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Records a move from its arrival on the inbound channel until its result was broadcast or rejected.
+     */
+    public void moveHandled(long receivedNanos, boolean applied) {
+        (applied ? movesApplied : movesRejected).record(System.nanoTime() - receivedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void commandStarted(long queuedNanos) {
+        mailboxWait.record(System.nanoTime() - queuedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void framePublished(SerializedFrame frame) {
+        (BinaryMessageConverter.MIME_TYPE.equals(frame.contentType()) ? binaryBytes : jsonBytes).record(frame.bytes().length);
+    }
+
+    void broadcastAudience(int sessions) {
+        audience.record(sessions);
+    }
+}
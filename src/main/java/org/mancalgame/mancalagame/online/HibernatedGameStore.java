@@ -0,0 +1,157 @@
+package org.mancalgame.mancalagame.online;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Off-heap slots for online games that have been idle for {@code idle-ms}. A hibernated game is
+ * its {@link GameEventCodec#snapshot} in a fixed-size slot of a direct buffer; on the heap it
+ * leaves only the small index entry kept by {@link OnlineGameManager}.
+ * <p>
+ * A slot holds a length byte and the largest snapshot the codec writes, that of a seated, timed
+ * game, for session ids of up to {@link #MAX_SESSION_ID_BYTES}. Spring's WebSocket session ids are
+ * 36-character UUIDs and SockJS ones are shorter.
+ * <p>
+ * Slots are carved from 2 MB chunks allocated on demand up to {@code max-mb}. When the store is
+ * full, or a snapshot does not fit a slot, the game simply stays on the heap and the refusal is
+ * counted.
+ * <p>
+ * Slot contents are published through the manager's map locks, so reads need no locking here;
+ * only allocation and release are synchronized.
+ */
+@Component
+public class HibernatedGameStore {
+
+    static final int SLOT_BYTES = 256;
+    static final int MAX_SESSION_ID_BYTES = (SLOT_BYTES - 1 - GameEventCodec.maxSnapshotBytes(0)) / 2;
+    private static final int SLOTS_PER_CHUNK = 8192;
+    private static final int CHUNK_BYTES = SLOT_BYTES * SLOTS_PER_CHUNK;
+    private static final HibernatedGameStore DISABLED = new HibernatedGameStore(0, 0, new SimpleMeterRegistry());
+
+    private final long idleMillis;
+    private final ByteBuffer[] chunks;
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+    private int allocatedChunks;
+    private int usedSlots;
+
+    // Lookups of a game by id: hits find it on the heap, misses rehydrate it from a slot
+    final Counter hits;
+    final Counter misses;
+    final Counter evictions;
+    final Counter oversized;
+    final Counter full;
+    final Timer rehydration;
+
+    @Autowired
+    public HibernatedGameStore(@Value("${mancala.online.hibernate.idle-ms:300000}") long idleMillis,
+                               @Value("${mancala.online.hibernate.max-mb:64}") int maxMegabytes,
+                               MeterRegistry registry) {
+        this.idleMillis = idleMillis;
+        this.chunks = new ByteBuffer[idleMillis > 0 ? Math.max(1, maxMegabytes * 1024 * 1024 / CHUNK_BYTES) : 0];
+        this.hits = Counter.builder("mancala.games.lookups").tag("result", "hit")
+                .description("Game lookups served from the heap").register(registry);
+        this.misses = Counter.builder("mancala.games.lookups").tag("result", "miss")
+                .description("Game lookups that rehydrated a hibernated game").register(registry);
+        this.evictions = Counter.builder("mancala.games.evictions")
+                .description("Idle games moved off the heap").register(registry);
+        this.oversized = Counter.builder("mancala.games.hibernation.rejected").tag("reason", "oversized")
+                .description("Idle games kept on the heap because their snapshot does not fit a slot").register(registry);
+        this.full = Counter.builder("mancala.games.hibernation.rejected").tag("reason", "full")
+                .description("Idle games kept on the heap because every slot is taken").register(registry);
+        this.rehydration = Timer.builder("mancala.games.rehydration")
+                .description("Time to restore a hibernated game").register(registry);
+        Gauge.builder("mancala.games.hibernated", this, HibernatedGameStore::size)
+                .description("Games currently hibernated").register(registry);
+        Gauge.builder("mancala.games.hibernated.bytes", this, HibernatedGameStore::offHeapBytes)
+                .description("Off-heap memory reserved for hibernated games").baseUnit("bytes").register(registry);
+    }
+
+    /**
+     * A store that never hibernates anything.
+     */
+    public static HibernatedGameStore disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return idleMillis > 0;
+    }
+
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    /**
+     * Copies a snapshot into a free slot.
+     * @return The slot, or -1 if the snapshot is too large or the store is full.
+     */
+    int store(byte[] snapshot) {
+        if (!isEnabled()) {
+            return -1;
+        }
+        if (snapshot.length > SLOT_BYTES - 1) {
+            oversized.increment();
+            return -1;
+        }
+        int slot = allocate();
+        if (slot < 0) {
+            full.increment();
+        } else {
+            ByteBuffer chunk = chunks[slot / SLOTS_PER_CHUNK];
+            int offset = (slot % SLOTS_PER_CHUNK) * SLOT_BYTES;
+            chunk.put(offset, (byte) snapshot.length);
+            chunk.put(offset + 1, snapshot);
+        }
+        return slot;
+    }
+
+    byte[] load(int slot) {
+        ByteBuffer chunk = chunks[slot / SLOTS_PER_CHUNK];
+        int offset = (slot % SLOTS_PER_CHUNK) * SLOT_BYTES;
+        byte[] snapshot = new byte[chunk.get(offset) & 0xFF];
+        chunk.get(offset + 1, snapshot);
+        return snapshot;
+    }
+
+    synchronized void free(int slot) {
+        freeSlots[freeCount++] = slot;
+        usedSlots--;
+    }
+
+    private synchronized int allocate() {
+        if (freeCount == 0) {
+            if (allocatedChunks == chunks.length) {
+                return -1;
+            }
+            chunks[allocatedChunks] = ByteBuffer.allocateDirect(CHUNK_BYTES);
+            int base = allocatedChunks++ * SLOTS_PER_CHUNK;
+            freeSlots = new int[allocatedChunks * SLOTS_PER_CHUNK];
+            // Hand out low slots first
+            for (int i = 0; i < SLOTS_PER_CHUNK; i++) {
+                freeSlots[freeCount++] = base + SLOTS_PER_CHUNK - 1 - i;
+            }
+        }
+        usedSlots++;
+        return freeSlots[--freeCount];
+    }
+
+    /**
+     * @return The number of games currently hibernated.
+     */
+    public synchronized int size() {
+        return usedSlots;
+    }
+
+    public synchronized long offHeapBytes() {
+        return (long) allocatedChunks * CHUNK_BYTES;
+    }
+}
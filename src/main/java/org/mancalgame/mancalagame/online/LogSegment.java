@@ -0,0 +1,142 @@
+package org.mancalgame.mancalagame.online;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One fixed-size, memory-mapped file of the {@link GameEventLog}. Records are framed as
+ * {@code [length:int][crc32c:int][body]}; a zero length marks the end of the written data, which
+ * is free because a newly mapped file reads as zeros. A record whose checksum does not match,
+ * such as one torn by a power failure, also ends the segment.
+ * <p>
+ * A segment is written by the log's writer thread only. Bytes put into the mapping are in the
+ * page cache at once and survive a process crash; {@link #force} makes them durable on disk.
+ */
+final class LogSegment {
+
+    static final int FRAME_BYTES = 8;
+
+    interface RecordVisitor {
+        /**
+         * @param position The offset of the record's frame within the segment.
+         * @param body The record body; valid only for the duration of the call.
+         */
+        void visit(int position, ByteBuffer body);
+    }
+
+    private final long index;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+    private int flushedPosition;
+
+    private LogSegment(long index, Path path, MappedByteBuffer buffer) {
+        this.index = index;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates and maps a new, empty segment file.
+     */
+    static LogSegment create(Path directory, long index, int size) {
+        Path path = directory.resolve(fileName(index));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new LogSegment(index, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create event log segment " + path, e);
+        }
+    }
+
+    /**
+     * Maps an existing segment file for reading.
+     */
+    static LogSegment open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new LogSegment(indexOf(path), path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open event log segment " + path, e);
+        }
+    }
+
+    static String fileName(long index) {
+        return String.format("events-%020d.log", index);
+    }
+
+    static boolean isSegmentFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith("events-") && name.endsWith(".log");
+    }
+
+    static long indexOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring("events-".length(), name.length() - ".log".length()));
+    }
+
+    /**
+     * Appends a record after the last one.
+     * @return false if the segment has no room left for it.
+     */
+    boolean append(byte[] body) {
+        int position = buffer.position();
+        if (FRAME_BYTES + body.length > buffer.capacity() - position) {
+            return false;
+        }
+        crc.reset();
+        crc.update(body);
+        // The length goes last: until it is written the slot still reads as the end of the segment
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.put(position + FRAME_BYTES, body);
+        buffer.putInt(position, body.length);
+        buffer.position(position + FRAME_BYTES + body.length);
+        return true;
+    }
+
+    /**
+     * Visits every intact record from the given offset on.
+     * @return The offset just past the last intact record.
+     */
+    int read(int from, RecordVisitor visitor) {
+        ByteBuffer view = buffer.duplicate();
+        int position = from;
+        while (position <= view.capacity() - FRAME_BYTES) {
+            int length = view.getInt(position);
+            if (length <= 0 || length > view.capacity() - position - FRAME_BYTES) {
+                break;
+            }
+            ByteBuffer body = view.slice(position + FRAME_BYTES, length);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != view.getInt(position + 4)) {
+                break;
+            }
+            visitor.visit(position, body.rewind());
+            position += FRAME_BYTES + length;
+        }
+        return position;
+    }
+
+    boolean isDirty() {
+        return buffer.position() > flushedPosition;
+    }
+
+    /**
+     * Writes the records appended since the last call through to the disk.
+     */
+    void force() {
+        int position = buffer.position();
+        if (position > flushedPosition) {
+            buffer.force(flushedPosition, position - flushedPosition);
+            flushedPosition = position;
+        }
+    }
+
+    long index() { return index; }
+    Path path() { return path; }
+}
@@ -0,0 +1,203 @@
+package org.mancalgame.mancalagame.online;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.mancalgame.mancalagame.online.GameClocks.TimeControl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pairs players who ask for a quick game instead of swapping a game id. Each time control on offer
+ * has its own lock-free queue, so enqueueing and cancelling never block on each other or on pairing.
+ * A periodic tick drains every queue in arrival order, pairs players two at a time and creates
+ * their games through the {@link OnlineGameManager}; an unpaired player keeps their place.
+ * <p>
+ * A player waits in at most one queue. Cancelling does not search the queue: it marks the ticket,
+ * and the tick drops it when it gets there. Tickets change state by compare-and-set, so a player
+ * who leaves while being paired is either matched or cancelled, never both.
+ * <p>
+ * Ticks are serialized by a lock rather than a monitor, because pairing creates games and sends
+ * their details, and a virtual thread must not stay pinned to its carrier while doing so.
+ * <p>
+ * The queues are node-local: in cluster mode a node only pairs players connected to it, and the
+ * game is created on that node. Two players waiting on different nodes wait until someone else
+ * asks on their own node.
+ */
+@Component
+public class Matchmaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(Matchmaker.class);
+
+    private static final int WAITING = 0;
+    private static final int PAIRING = 1;
+    private static final int MATCHED = 2;
+    private static final int CANCELLED = 3;
+
+    private static final class Ticket {
+        final String sessionId;
+        final Pool pool;
+        final long enqueuedAt = System.nanoTime();
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Ticket(String sessionId, Pool pool) {
+            this.sessionId = sessionId;
+            this.pool = pool;
+        }
+    }
+
+    // The players waiting for one time control
+    private static final class Pool {
+        final TimeControl timeControl;
+        final ConcurrentLinkedDeque<Ticket> queue = new ConcurrentLinkedDeque<>();
+        final AtomicInteger waiting = new AtomicInteger();
+        final Timer timeToMatch;
+
+        Pool(String name, TimeControl timeControl, MeterRegistry registry) {
+            this.timeControl = timeControl;
+            this.timeToMatch = Timer.builder("mancala.matchmaking.time-to-match").tag("timeControl", name)
+                    .description("Time from asking for a quick game to being paired")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            Gauge.builder("mancala.matchmaking.waiting", waiting, AtomicInteger::get).tag("timeControl", name)
+                    .description("Players waiting for a quick game").register(registry);
+        }
+    }
+
+    private final OnlineGameManager gameManager;
+    // In configured order; the first is used when a request names none
+    private final Map<TimeControl, Pool> pools = new LinkedHashMap<>();
+    private final Pool defaultPool;
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final ReentrantLock pairing = new ReentrantLock();
+
+    public Matchmaker(OnlineGameManager gameManager,
+                      @Value("${mancala.matchmaking.time-controls:10+5}") String[] timeControls,
+                      MeterRegistry registry) {
+        this.gameManager = gameManager;
+        for (String name : timeControls) {
+            TimeControl timeControl = TimeControl.parse(name);
+            pools.putIfAbsent(timeControl, new Pool(name.trim(), timeControl, registry));
+        }
+        if (pools.isEmpty()) {
+            throw new IllegalArgumentException("At least one quick play time control is required");
+        }
+        this.defaultPool = pools.values().iterator().next();
+    }
+
+    /**
+     * Puts a player in the queue for the given time control, or the first one offered if null.
+     * @throws IllegalArgumentException if that time control is not offered or the player is already queued.
+     */
+    public void enqueue(String sessionId, String timeControl) {
+        Pool pool = timeControl == null || timeControl.isBlank() ? defaultPool : pools.get(TimeControl.parse(timeControl));
+        if (pool == null) {
+            throw new IllegalArgumentException("No quick play for time control " + timeControl);
+        }
+        Ticket ticket = new Ticket(sessionId, pool);
+        if (tickets.putIfAbsent(sessionId, ticket) != null) {
+            throw new IllegalArgumentException("Already waiting for a quick game.");
+        }
+        pool.waiting.incrementAndGet();
+        pool.queue.offer(ticket);
+    }
+
+    /**
+     * Takes a player out of the queue, e.g. when they disconnect.
+     * @return false if the player was not waiting or has just been paired.
+     */
+    public boolean cancel(String sessionId) {
+        Ticket ticket = tickets.remove(sessionId);
+        if (ticket == null) {
+            return false;
+        }
+        // A ticket being paired is settled within a few instructions
+        while (!ticket.state.compareAndSet(WAITING, CANCELLED)) {
+            if (ticket.state.get() != PAIRING) {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+        ticket.pool.waiting.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Pairs everyone waiting in each queue, oldest first, and creates their games.
+     * @return The number of games created.
+     */
+    @Scheduled(fixedDelayString = "${mancala.matchmaking.tick-ms:100}")
+    public int pairWaitingPlayers() {
+        pairing.lock();
+        try {
+            int games = 0;
+            for (Pool pool : pools.values()) {
+                games += pair(pool);
+            }
+            return games;
+        } finally {
+            pairing.unlock();
+        }
+    }
+
+    private int pair(Pool pool) {
+        int games = 0;
+        Ticket first = null;
+        Ticket ticket;
+        while ((ticket = pool.queue.poll()) != null) {
+            if (ticket.state.get() != WAITING) {
+                continue;
+            }
+            if (first == null) {
+                first = ticket;
+                continue;
+            }
+            if (!first.state.compareAndSet(WAITING, PAIRING)) {
+                // Cancelled while held here
+                first = ticket;
+                continue;
+            }
+            if (!ticket.state.compareAndSet(WAITING, MATCHED)) {
+                first.state.set(WAITING);
+                continue;
+            }
+            first.state.set(MATCHED);
+            match(pool, first, ticket);
+            first = null;
+            games++;
+        }
+        if (first != null) {
+            pool.queue.offerFirst(first);
+        }
+        return games;
+    }
+
+    private void match(Pool pool, Ticket first, Ticket second) {
+        tickets.remove(first.sessionId, first);
+        tickets.remove(second.sessionId, second);
+        pool.waiting.addAndGet(-2);
+        long now = System.nanoTime();
+        pool.timeToMatch.record(now - first.enqueuedAt, TimeUnit.NANOSECONDS);
+        pool.timeToMatch.record(now - second.enqueuedAt, TimeUnit.NANOSECONDS);
+        OnlineMancalaGame game = gameManager.createMatchedGame(first.sessionId, second.sessionId, pool.timeControl);
+        logger.info("Quick play paired sessions {} and {} in game {}", first.sessionId, second.sessionId, game.getGameId());
+    }
+
+    /**
+     * @return The number of players waiting for a quick game, over all time controls.
+     */
+    public int waitingCount() {
+        return pools.values().stream().mapToInt(pool -> pool.waiting.get()).sum();
+    }
+}
@@ -1,112 +1,756 @@
 package org.mancalgame.mancalagame.online;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.mancalgame.mancalagame.Service.MancalaGameService;
-import org.mancalgame.mancalagame.controller.online.OnlineGameController;
+import org.mancalgame.mancalagame.cluster.ClusterTopology;
 import org.mancalgame.mancalagame.game.MancalaGame.GameStatus;
+import org.mancalgame.mancalagame.game.MancalaRules;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-import java.util.Objects;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
+/**
+ * Owns every live online game. Games and session routes live in sharded maps so that
+ * tens of thousands of games spread their contention across cores, and each game processes
+ * its commands in order on its own {@link GameMailbox} over a small shared worker pool.
+ * Inbound STOMP threads only enqueue work and return; nothing here holds a lock while
+ * talking to the broker.
+ * <p>
+ * With the {@link GameEventLog} enabled, games are rebuilt from it at startup and every change
+ * is appended to it; {@link #checkpoint} periodically snapshots all games so the log stays short.
+ * <p>
+ * Games idle for longer than the {@link HibernatedGameStore}'s idle time are moved off the heap,
+ * leaving only an index entry here, and rehydrated by the next lookup or command. Each game is in
+ * exactly one of the two maps; moves between them happen under the live map's lock for its id.
+ * <p>
+ * Idle games expire according to the {@link GameExpiry} policy for their status. Each game has
+ * one entry in its timing wheel, so a tick only visits the games falling due instead of the map.
+ * <p>
+ * Timed games are watched the same way by the {@link GameClocks} wheel. Every command first ends
+ * the game if the player to move has run out of time, so a timeout and a late move are decided in
+ * mailbox order and can never both succeed.
+ * <p>
+ * How long commands wait on their mailbox is recorded in {@link GameMetrics}; games have no lock,
+ * so that queueing is where concurrent commands for one game contend.
+ * <p>
+ * A player whose connection drops keeps their seat for the {@link GameExpiry} grace time, and can
+ * take it over from a new connection with the resume token handed out when they were seated. Tokens
+ * are indexed like sessions, so a resume finds its game in O(1) whether it is live or hibernated.
+ * <p>
+ * In a cluster this manager only holds the games this node owns: it creates them with ids that the
+ * {@link ClusterTopology} maps back to this node, and commands for other nodes' games are forwarded
+ * to them before they get here.
+ */
 @Service
 public class OnlineGameManager {
 
     private static final Logger logger = LoggerFactory.getLogger(OnlineGameManager.class);
-    private static final long STALE_GAME_TIMEOUT = 600000; // 10 minutes
+    private static final String DETAILS_DESTINATION = "/queue/game.details";
 
-    private final Map<String, OnlineMancalaGame> activeGames = new ConcurrentHashMap<>();
-    private final Map<String, String> sessionToGameMap = new ConcurrentHashMap<>();
+    private final ShardedMap<String, OnlineMancalaGame> activeGames;
+    private final ShardedMap<String, String> sessionToGameMap;
+    private final ShardedMap<String, String> tokenToGameMap;
+    private final ShardedMap<String, HibernatedGame> hibernatedGames;
+
+    // Heap footprint of an idle game: its id (shared with the key), a slot and what expiry needs
+    private record HibernatedGame(String gameId, int slot, long lastActivity, long armedDeadline, long armedFlag, GameStatus status) {}
 
     private final MancalaGameService mancalaGameService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final GameBroadcaster broadcaster;
+    private final GameEventLog eventLog;
+    private final HibernatedGameStore hibernation;
+    private final GameExpiry expiry;
+    private final GameClocks clocks;
+    private final GameMetrics metrics;
+    private final ClusterTopology topology;
+    private final Executor gameExecutor;
+    private final ExecutorService ownedPool;
+
+    @Autowired
+    public OnlineGameManager(MancalaGameService mancalaGameService,
+                             GameBroadcaster broadcaster,
+                             GameEventLog eventLog,
+                             HibernatedGameStore hibernation,
+                             GameExpiry expiry,
+                             GameClocks clocks,
+                             GameMetrics metrics,
+                             ClusterTopology topology,
+                             @Value("${mancala.online.game-threads:0}") int gameThreads,
+                             @Value("${mancala.online.shards:64}") int shards) {
+        this(mancalaGameService, broadcaster, eventLog, hibernation, expiry, clocks, metrics, topology, newGamePool(gameThreads), shards, true);
+        logger.info("Online game manager ready: {} shards, {} game threads",
+                activeGames.shardCount(), gameThreads > 0 ? gameThreads : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a manager that runs game commands on the given executor, e.g. {@code Runnable::run}
+     * to execute them on the calling thread in tests and benchmarks.
+     */
+    public OnlineGameManager(MancalaGameService mancalaGameService, GameBroadcaster broadcaster, Executor gameExecutor, int shards) {
+        this(mancalaGameService, broadcaster, GameEventLog.disabled(), HibernatedGameStore.disabled(), GameExpiry.disabled(), GameClocks.untimed(), GameMetrics.disabled(), ClusterTopology.standalone(), gameExecutor, shards, false);
+    }
+
+    /**
+     * Creates a manager like {@link #OnlineGameManager(MancalaGameService, GameBroadcaster, Executor, int)}
+     * that records games in the given event log. Call {@link #recoverGames} before use.
+     */
+    public OnlineGameManager(MancalaGameService mancalaGameService, GameBroadcaster broadcaster, GameEventLog eventLog, Executor gameExecutor, int shards) {
+        this(mancalaGameService, broadcaster, eventLog, HibernatedGameStore.disabled(), GameExpiry.disabled(), GameClocks.untimed(), GameMetrics.disabled(),
+                ClusterTopology.standalone(), gameExecutor, shards, false);
+    }
+
+    /**
+     * Creates a manager that records games in the given event log, hibernates idle games to the given
+     * store, expires them by the given policies, times them with the given clocks and records its
+     * mailbox waits in the given metrics.
+     */
+    public OnlineGameManager(MancalaGameService mancalaGameService, GameBroadcaster broadcaster, GameEventLog eventLog,
+                             HibernatedGameStore hibernation, GameExpiry expiry, GameClocks clocks, GameMetrics metrics,
+                             Executor gameExecutor, int shards) {
+        this(mancalaGameService, broadcaster, eventLog, hibernation, expiry, clocks, metrics, ClusterTopology.standalone(), gameExecutor, shards, false);
+    }
 
-    public OnlineGameManager(MancalaGameService mancalaGameService, SimpMessagingTemplate messagingTemplate) {
+    private OnlineGameManager(MancalaGameService mancalaGameService, GameBroadcaster broadcaster, GameEventLog eventLog,
+                              HibernatedGameStore hibernation, GameExpiry expiry, GameClocks clocks, GameMetrics metrics,
+                              ClusterTopology topology, Executor gameExecutor, int shards, boolean ownsExecutor) {
         this.mancalaGameService = mancalaGameService;
-        this.messagingTemplate = messagingTemplate;
+        this.broadcaster = broadcaster;
+        this.eventLog = eventLog;
+        this.hibernation = hibernation;
+        this.expiry = expiry;
+        this.clocks = clocks;
+        this.metrics = metrics;
+        this.topology = topology;
+        this.gameExecutor = gameExecutor;
+        this.ownedPool = ownsExecutor ? (ExecutorService) gameExecutor : null;
+        this.activeGames = new ShardedMap<>(shards);
+        this.sessionToGameMap = new ShardedMap<>(shards);
+        this.tokenToGameMap = new ShardedMap<>(shards);
+        this.hibernatedGames = new ShardedMap<>(shards);
+    }
+
+    private static ExecutorService newGamePool(int threads) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, "mancala-game-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private OnlineMancalaGame newOwnedGame(MancalaRules rules) {
+        return new OnlineMancalaGame(mancalaGameService, gameExecutor, topology.newGameId(), System.currentTimeMillis(), rules);
     }
 
     public OnlineMancalaGame createGame() {
-        OnlineMancalaGame newGame = new OnlineMancalaGame(mancalaGameService);
+        OnlineMancalaGame newGame = newOwnedGame(MancalaRules.STANDARD);
+        newGame.useClock(clocks.newClock());
+        newGame.journalTo(eventLog);
+        arm(newGame, newGame.lastActivity());
         activeGames.put(newGame.getGameId(), newGame);
+        logCreated(newGame, null);
         logger.info("Online game created with ID: {}", newGame.getGameId());
         return newGame;
     }
 
-    // A helper method that combines creating a game and adding the host
+    /**
+     * Creates a game with the host already seated. The game is only published once the host
+     * is in place, so no other command can observe it half-built and no mailbox hop is needed.
+     */
     public OnlineMancalaGame createAndAddPlayer(String sessionId) {
-        OnlineMancalaGame newGame = createGame();
-        addPlayerToGame(newGame.getGameId(), sessionId);
+        return createAndAddPlayer(sessionId, MancalaRules.STANDARD);
+    }
+
+    /**
+     * Creates a game under the given rules, with the host already seated; its rematches keep the rules.
+     */
+    public OnlineMancalaGame createAndAddPlayer(String sessionId, MancalaRules rules) {
+        return createAndAddPlayer(sessionId, rules, clocks.newClock());
+    }
+
+    private OnlineMancalaGame createAndAddPlayer(String sessionId, MancalaRules rules, GameClock clock) {
+        OnlineMancalaGame newGame = newOwnedGame(rules);
+        newGame.useClock(clock);
+        newGame.addPlayer(sessionId);
+        newGame.journalTo(eventLog);
+        arm(newGame, newGame.lastActivity());
+        sessionToGameMap.put(sessionId, newGame.getGameId());
+        tokenToGameMap.put(newGame.getResumeToken(0), newGame.getGameId());
+        activeGames.put(newGame.getGameId(), newGame);
+        logCreated(newGame, sessionId);
+        logger.info("Online game created with ID: {} for host session {}", newGame.getGameId(), sessionId);
         return newGame;
     }
 
+    /**
+     * Creates a game for two players paired by the {@link Matchmaker} and sends each of them their
+     * initial game details, exactly as if the first had hosted it and the second joined.
+     */
+    public OnlineMancalaGame createMatchedGame(String player1SessionId, String player2SessionId, GameClocks.TimeControl timeControl) {
+        OnlineMancalaGame newGame = createAndAddPlayer(player1SessionId, MancalaRules.STANDARD, clocks.newClock(timeControl));
+        execute(newGame.getGameId(), game -> {
+            if (seat(game, player2SessionId) == -1) {
+                return;
+            }
+            broadcaster.broadcastState(game);
+            broadcaster.sendToSession(player1SessionId, DETAILS_DESTINATION, broadcaster.detailsFrame(game, 0, player1SessionId));
+            broadcaster.sendToSession(player2SessionId, DETAILS_DESTINATION, broadcaster.detailsFrame(game, 1, player2SessionId));
+        });
+        return newGame;
+    }
+
+    // Appended after the game is published: a checkpoint that began earlier either sees the game
+    // and snapshots it, or began before this record and replays it. Nobody can address the game
+    // before its id is handed out, so its own events always follow this record.
+    private void logCreated(OnlineMancalaGame game, String hostSessionId) {
+        eventLog.append(GameEventCodec.created(game.getGameId(), game.getCreationTime(), hostSessionId, game.getResumeToken(0), game.getRules()));
+    }
+
+    /**
+     * @return The game, rehydrated first if it was hibernated.
+     */
     public Optional<OnlineMancalaGame> getGame(String gameId) {
-        return Optional.ofNullable(activeGames.get(gameId));
+        return Optional.ofNullable(liveGame(gameId));
     }
 
-    public Optional<OnlineMancalaGame> addPlayerToGame(String gameId, String sessionId) {
-        return getGame(gameId).map(game -> {
-            synchronized (game) {
-                int playerRole = game.addPlayer(sessionId);
-                if (playerRole != -1) {
-                    sessionToGameMap.put(sessionId, gameId);
-                    logger.info("Player {} (session {}) joined game {}", playerRole + 1, sessionId, gameId);
-                    return game;
+    private OnlineMancalaGame liveGame(String gameId) {
+        OnlineMancalaGame game = activeGames.get(gameId);
+        if (game != null) {
+            hibernation.hits.increment();
+            return game;
+        }
+        if (!hibernation.isEnabled() || hibernatedGames.get(gameId) == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        game = activeGames.compute(gameId, (id, existing) -> {
+            HibernatedGame entry = existing == null ? hibernatedGames.remove(id) : null;
+            return entry == null ? existing : rehydrate(entry);
+        });
+        hibernation.misses.increment();
+        hibernation.rehydration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return game;
+    }
+
+    // Runs under the live map's lock for the game's id
+    private OnlineMancalaGame rehydrate(HibernatedGame entry) {
+        ByteBuffer snapshot = ByteBuffer.wrap(hibernation.load(entry.slot()));
+        hibernation.free(entry.slot());
+        snapshot.get(); // record type
+        GameEventCodec.getGameId(snapshot);
+        OnlineMancalaGame game = new OnlineMancalaGame(mancalaGameService, gameExecutor, entry.gameId(), snapshot.getLong(), MancalaRules.STANDARD);
+        GameEventCodec.restoreSnapshot(snapshot, game);
+        game.journalTo(eventLog);
+        game.touch(entry.lastActivity());
+        game.armDeadline(entry.armedDeadline());
+        game.armFlag(entry.armedFlag());
+        logger.debug("Rehydrated hibernated game {}", entry.gameId());
+        return game;
+    }
+
+    /**
+     * Queues a command on a game's mailbox. Commands for one game never overlap and run
+     * in submission order; commands for different games run in parallel.
+     * @return false if no such game exists.
+     */
+    public boolean execute(String gameId, Consumer<OnlineMancalaGame> command) {
+        return dispatch(gameId, command, () -> { });
+    }
+
+    private boolean dispatch(String gameId, Consumer<OnlineMancalaGame> command, Runnable notFound) {
+        OnlineMancalaGame game = liveGame(gameId);
+        if (game == null) {
+            return false;
+        }
+        long queuedAt = System.nanoTime();
+        game.mailbox().execute(() -> {
+            metrics.commandStarted(queuedAt);
+            if (game.isHibernated()) {
+                // Hibernated after this command was queued: run it on the rehydrated game instead
+                if (!dispatch(gameId, command, notFound)) {
+                    notFound.run();
                 }
-                logger.warn("Failed to add player {} to game {}: game is full or player already joined.", sessionId, gameId);
-                return null;
+                return;
+            }
+            long now = System.currentTimeMillis();
+            game.touch(now);
+            if (game.flagIfOutOfTime()) {
+                clocks.timedOut();
+                broadcaster.broadcastState(game);
+            }
+            command.accept(game);
+            arm(game, now);
+            armClock(game);
+        });
+        return true;
+    }
+
+    // Before the game is published or on its mailbox. Later deadlines are picked up when the
+    // armed entry fires; only one brought forward by a status change or disconnect needs a new entry now.
+    private void arm(OnlineMancalaGame game, long lastActivity) {
+        long deadline = Math.min(expiry.deadline(game.getStatus(), lastActivity), game.graceDeadline());
+        if (deadline < game.armedDeadline()) {
+            game.armDeadline(deadline);
+            expiry.track(game.getGameId(), deadline);
+        }
+    }
+
+    // On the game's mailbox, or before it is published. Like arm, only a deadline brought forward needs an entry now.
+    private void armClock(OnlineMancalaGame game) {
+        GameClock clock = game.clock();
+        if (clock == null) {
+            return;
+        }
+        long deadline = clock.deadline();
+        if (deadline < game.armedFlag()) {
+            game.armFlag(deadline);
+            clocks.track(game.getGameId(), deadline);
+        }
+    }
+
+    /**
+     * Queues a command on a game's mailbox and exposes its result.
+     * @return A future completed with the command's result, or failed with the exception it threw
+     *         ({@link IllegalArgumentException} if the game does not exist).
+     */
+    public <T> CompletableFuture<T> submit(String gameId, Function<OnlineMancalaGame, T> command) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable notFound = () -> result.completeExceptionally(new IllegalArgumentException("Game not found: " + gameId));
+        boolean queued = dispatch(gameId, game -> {
+            try {
+                result.complete(command.apply(game));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, notFound);
+        if (!queued) {
+            notFound.run();
+        }
+        return result;
+    }
+
+    /**
+     * Seats a joining player and broadcasts the new state to the game topic.
+     * @return A future with the joiner's initial game details, encoded for the joiner's codec, or failed
+     *         with an {@link IllegalArgumentException} if the game is missing or full.
+     */
+    public CompletableFuture<SerializedFrame> joinGame(String gameId, String sessionId) {
+        return submit(gameId, game -> {
+            int playerRole = seat(game, sessionId);
+            if (playerRole == -1) {
+                throw new IllegalArgumentException("Game not found, is full, or has already started.");
             }
+            broadcaster.broadcastState(game);
+            return broadcaster.detailsFrame(game, playerRole, sessionId);
         });
     }
 
+    /**
+     * Blocking variant of {@link #joinGame} for callers that are not on an inbound channel thread.
+     */
+    public Optional<OnlineMancalaGame> addPlayerToGame(String gameId, String sessionId) {
+        try {
+            return submit(gameId, game -> seat(game, sessionId) != -1 ? game : null).thenApply(Optional::ofNullable).join();
+        } catch (CompletionException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Runs on the game's mailbox
+    private int seat(OnlineMancalaGame game, String sessionId) {
+        int playerRole = game.addPlayer(sessionId);
+        if (playerRole != -1) {
+            sessionToGameMap.put(sessionId, game.getGameId());
+            tokenToGameMap.put(game.getResumeToken(playerRole), game.getGameId());
+            logger.info("Player {} (session {}) joined game {}", playerRole + 1, sessionId, game.getGameId());
+        } else {
+            logger.warn("Failed to add player {} to game {}: game is full or player already joined.", sessionId, game.getGameId());
+        }
+        return playerRole;
+    }
+
     public void removePlayer(String sessionId) {
         String gameId = sessionToGameMap.remove(sessionId);
         if (gameId != null) {
-            getGame(gameId).ifPresent(game -> {
-                synchronized (game) {
-                    boolean playerWasInGame = game.removePlayer(sessionId);
-                    if (playerWasInGame && game.getStatus() == GameStatus.CANCELLED) {
-
-                        // THIS IS THE CORRECTED LINE
-                        // We now create the DTO using the new constructor in the controller
-                        OnlineGameController.GameStateDTO cancelledState = new OnlineGameController.GameStateDTO(game);
-                        messagingTemplate.convertAndSend("/topic/game/" + gameId, cancelledState);
-
-                        String remainingSessionId = game.getPlayer1SessionId() != null ? game.getPlayer1SessionId() : game.getPlayer2SessionId();
-                        if (remainingSessionId != null) {
-                            sessionToGameMap.remove(remainingSessionId);
-                        }
-
-                        activeGames.remove(gameId);
-                        logger.info("Game {} removed due to cancellation.", gameId);
-                    }
+            execute(gameId, game -> cancel(game, sessionId));
+        }
+    }
+
+    // Runs on the game's mailbox
+    private void cancel(OnlineMancalaGame game, String sessionId) {
+        String token1 = game.getResumeToken(0);
+        String token2 = game.getResumeToken(1);
+        boolean playerWasInGame = game.removePlayer(sessionId);
+        if (playerWasInGame && game.getStatus() == GameStatus.CANCELLED) {
+            String gameId = game.getGameId();
+            sessionToGameMap.remove(sessionId, gameId);
+            String remainingSessionId = game.getPlayer1SessionId() != null ? game.getPlayer1SessionId() : game.getPlayer2SessionId();
+            if (remainingSessionId != null) {
+                sessionToGameMap.remove(remainingSessionId);
+            }
+            if (token1 != null) tokenToGameMap.remove(token1, gameId);
+            if (token2 != null) tokenToGameMap.remove(token2, gameId);
+            activeGames.remove(gameId, game);
+            broadcaster.broadcastState(game);
+            logger.info("Game {} removed due to cancellation.", gameId);
+        }
+    }
+
+    /**
+     * Handles a dropped connection. The player's seat is held for the grace time, during which
+     * {@link #resumeGame} can take it over; without a grace time the game is cancelled at once,
+     * as by {@link #removePlayer}.
+     */
+    public void disconnectPlayer(String sessionId) {
+        if (expiry.graceMillis() <= 0) {
+            removePlayer(sessionId);
+            return;
+        }
+        String gameId = sessionToGameMap.remove(sessionId);
+        if (gameId != null) {
+            execute(gameId, game -> {
+                int playerRole = game.getPlayerRole(sessionId);
+                if (playerRole != -1) {
+                    // Armed by dispatch once this command returns
+                    game.disconnected(playerRole, System.currentTimeMillis() + expiry.graceMillis());
                 }
             });
         }
     }
 
+    /**
+     * Hands the seat holding the resume token to a new session, e.g. after a reconnect, and ends
+     * its grace period. The seat's old session is dropped without cancelling the game.
+     * @return A future with the player's game details, encoded for the new session's codec, as the
+     *         one snapshot they need to resynchronise; failed with an {@link IllegalArgumentException}
+     *         if no game holds the token.
+     */
+    public CompletableFuture<SerializedFrame> resumeGame(String token, String sessionId) {
+        String gameId = token == null ? null : tokenToGameMap.get(token);
+        if (gameId == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("No game to resume for this token."));
+        }
+        return submit(gameId, game -> {
+            int playerRole = game.roleOfToken(token);
+            if (playerRole == -1 || game.getStatus() == GameStatus.CANCELLED) {
+                throw new IllegalArgumentException("No game to resume for this token.");
+            }
+            String oldSessionId = playerRole == 0 ? game.getPlayer1SessionId() : game.getPlayer2SessionId();
+            if (oldSessionId != null && !oldSessionId.equals(sessionId)) {
+                sessionToGameMap.remove(oldSessionId, gameId);
+            }
+            game.resume(playerRole, sessionId);
+            sessionToGameMap.put(sessionId, gameId);
+            return broadcaster.detailsFrame(game, playerRole, sessionId);
+        });
+    }
+
     public int getPlayerRoleInGame(String gameId, String sessionId) {
-        return getGame(gameId).map(game -> {
-            if (Objects.equals(game.getPlayer1SessionId(), sessionId)) return 0;
-            if (Objects.equals(game.getPlayer2SessionId(), sessionId)) return 1;
-            return -1;
-        }).orElse(-1);
-    }
-
-    @Scheduled(fixedRate = STALE_GAME_TIMEOUT)
-    public void cleanupStaleGames() {
-        activeGames.entrySet().removeIf(entry -> {
-            OnlineMancalaGame game = entry.getValue();
-            if (game.getStatus() == GameStatus.WAITING_FOR_PLAYER && (System.currentTimeMillis() - game.getCreationTime()) > STALE_GAME_TIMEOUT) {
-                logger.info("Removing stale game: {}", entry.getKey());
-                return true;
+        return getGame(gameId).map(game -> game.getPlayerRole(sessionId)).orElse(-1);
+    }
+
+    /**
+     * Collects up to {@code limit} games on the heap matching the filter, in no particular order.
+     * Hibernated games are not considered.
+     */
+    public List<OnlineMancalaGame> findGames(Predicate<OnlineMancalaGame> filter, int limit) {
+        List<OnlineMancalaGame> found = new ArrayList<>();
+        activeGames.forEachValue(game -> {
+            if (found.size() < limit && filter.test(game)) {
+                found.add(game);
             }
-            return false;
         });
+        return found;
+    }
+
+    /**
+     * @return The number of games currently registered, hibernated or not.
+     */
+    public long getActiveGameCount() {
+        return activeGames.size() + hibernatedGames.size();
+    }
+
+    /**
+     * Counts the registered games by status, hibernated or not, for gauges read at scrape time.
+     * Visits every game, so it is not for the request path.
+     * @return Counts indexed by {@link GameStatus#ordinal()}.
+     */
+    public long[] countGamesByStatus() {
+        long[] counts = new long[GameStatus.values().length];
+        activeGames.forEachValue(game -> counts[game.getStatus().ordinal()]++);
+        hibernatedGames.forEachValue(entry -> counts[entry.status().ordinal()]++);
+        return counts;
+    }
+
+    /**
+     * @return The number of sessions seated in a game.
+     */
+    public long getSeatedSessionCount() {
+        return sessionToGameMap.size();
+    }
+
+    /**
+     * Moves games idle for longer than the configured time off the heap. Each move happens on the
+     * game's mailbox and only if nothing else is queued there, so no command ever sees it half-done.
+     */
+    @Scheduled(fixedDelayString = "${mancala.online.hibernate.sweep-interval-ms:30000}")
+    public void hibernateIdleGames() {
+        if (!hibernation.isEnabled()) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - hibernation.getIdleMillis();
+        activeGames.forEachValue(game -> {
+            if (game.lastActivity() < cutoff) {
+                game.mailbox().execute(() -> hibernate(game, cutoff));
+            }
+        });
+    }
+
+    // Runs on the game's mailbox
+    private void hibernate(OnlineMancalaGame game, long cutoff) {
+        // A seat held for a disconnected player is settled on the heap
+        if (game.isHibernated() || game.lastActivity() >= cutoff || game.mailbox().backlog() > 1
+                || game.graceDeadline() != Long.MAX_VALUE) {
+            return;
+        }
+        byte[] snapshot = GameEventCodec.snapshot(game);
+        int slot = hibernation.store(snapshot);
+        if (slot < 0) {
+            logger.debug("Game {} stays on the heap: no hibernation slot for its {}-byte snapshot", game.getGameId(), snapshot.length);
+            return;
+        }
+        HibernatedGame entry = new HibernatedGame(game.getGameId(), slot, game.lastActivity(), game.armedDeadline(), game.armedFlag(), game.getStatus());
+        boolean[] swapped = {false};
+        activeGames.compute(game.getGameId(), (id, existing) -> {
+            if (existing != game) {
+                return existing;
+            }
+            hibernatedGames.put(id, entry);
+            swapped[0] = true;
+            return null;
+        });
+        if (!swapped[0]) {
+            hibernation.free(slot);
+            return;
+        }
+        game.markHibernated();
+        // A checkpoint that already passed the hibernated games still replays this snapshot
+        eventLog.append(snapshot);
+        hibernation.evictions.increment();
+    }
+
+    /**
+     * Removes the games whose expiry deadline has passed. Only the wheel entries falling due are
+     * visited; a game that was active since its entry was armed is simply armed again.
+     */
+    @Scheduled(fixedRateString = "${mancala.online.expiry.tick-ms:1000}")
+    public void expireGames() {
+        expireGames(System.currentTimeMillis());
+    }
+
+    void expireGames(long now) {
+        expiry.advance(now, due -> onDeadline(due, now));
+    }
+
+    private void onDeadline(GameExpiry.Deadline due, long now) {
+        OnlineMancalaGame game = activeGames.get(due.gameId());
+        if (game == null) {
+            game = activeGames.compute(due.gameId(), (id, existing) -> {
+                HibernatedGame entry = existing == null ? hibernatedGames.get(id) : null;
+                if (entry != null && entry.armedDeadline() == due.at()) {
+                    expireHibernated(entry, now);
+                }
+                return existing;
+            });
+        }
+        if (game != null) {
+            OnlineMancalaGame live = game;
+            live.mailbox().execute(() -> expireIfDue(live, due, now));
+        }
+    }
+
+    // Runs on the game's mailbox
+    private void expireIfDue(OnlineMancalaGame game, GameExpiry.Deadline due, long now) {
+        if (game.isHibernated()) {
+            // Moved off the heap after the entry fired; its index entry carries the deadline on
+            onDeadline(due, now);
+            return;
+        }
+        // Gone, or the entry was superseded by an earlier deadline
+        if (activeGames.get(game.getGameId()) != game || game.armedDeadline() != due.at()) {
+            return;
+        }
+        String abandonedSessionId = game.abandonedSession(now);
+        if (abandonedSessionId != null) {
+            logger.info("Game {} cancelled: session {} did not resume within the grace time", game.getGameId(), abandonedSessionId);
+            cancel(game, abandonedSessionId);
+            return;
+        }
+        GameStatus status = game.getStatus();
+        long deadline = expiry.deadline(status, game.lastActivity());
+        if (deadline > now) {
+            deadline = Math.min(deadline, game.graceDeadline());
+            game.armDeadline(deadline);
+            expiry.track(game.getGameId(), deadline);
+            return;
+        }
+        activeGames.remove(game.getGameId(), game);
+        if (game.getPlayer1SessionId() != null) sessionToGameMap.remove(game.getPlayer1SessionId(), game.getGameId());
+        if (game.getPlayer2SessionId() != null) sessionToGameMap.remove(game.getPlayer2SessionId(), game.getGameId());
+        if (game.getResumeToken(0) != null) tokenToGameMap.remove(game.getResumeToken(0), game.getGameId());
+        if (game.getResumeToken(1) != null) tokenToGameMap.remove(game.getResumeToken(1), game.getGameId());
+        // Logged on the mailbox so it cannot overtake a checkpoint snapshot of the game
+        eventLog.append(GameEventCodec.event(GameEventCodec.EXPIRED, game.getGameId()));
+        expiry.expired(status);
+        logger.info("Game {} expired after idling while {}", game.getGameId(), status);
+    }
+
+    // Runs under the live map's lock for the game's id
+    private void expireHibernated(HibernatedGame entry, long now) {
+        String gameId = entry.gameId();
+        long deadline = expiry.deadline(entry.status(), entry.lastActivity());
+        if (deadline > now) {
+            hibernatedGames.put(gameId, new HibernatedGame(gameId, entry.slot(), entry.lastActivity(), deadline, entry.armedFlag(), entry.status()));
+            expiry.track(gameId, deadline);
+            return;
+        }
+        hibernatedGames.remove(gameId, entry);
+        byte[] snapshot = hibernation.load(entry.slot());
+        String player1SessionId = GameEventCodec.snapshotPlayer1(snapshot);
+        if (player1SessionId != null) sessionToGameMap.remove(player1SessionId, gameId);
+        String player2SessionId = GameEventCodec.snapshotPlayer2(snapshot);
+        if (player2SessionId != null) sessionToGameMap.remove(player2SessionId, gameId);
+        for (int role = 0; role < 2; role++) {
+            String token = GameEventCodec.snapshotToken(snapshot, role);
+            if (token != null) tokenToGameMap.remove(token, gameId);
+        }
+        hibernation.free(entry.slot());
+        eventLog.append(GameEventCodec.event(GameEventCodec.EXPIRED, gameId));
+        expiry.expired(entry.status());
+        logger.info("Hibernated game {} expired after idling while {}", gameId, entry.status());
+    }
+
+    /**
+     * Ends the timed games whose player to move has run out of time. Only the clock wheel entries
+     * falling due are visited; each is settled by an empty command on its game's mailbox, which
+     * flags the game if it is still out of time and arms the entry again if its deadline moved.
+     */
+    @Scheduled(fixedRateString = "${mancala.online.clock.tick-ms:100}")
+    public void checkClocks() {
+        checkClocks(System.currentTimeMillis());
+    }
+
+    void checkClocks(long now) {
+        clocks.advance(now, due -> execute(due.gameId(), game -> {
+            if (game.armedFlag() == due.at()) {
+                game.armFlag(Long.MAX_VALUE);
+            }
+        }));
+    }
+
+    /**
+     * Rebuilds the games recorded in the event log, then starts appending to it and takes a
+     * checkpoint so the replayed segments can be dropped. Does nothing if the log is disabled.
+     */
+    @PostConstruct
+    public void recoverGames() {
+        if (!eventLog.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long records = replayEventLog();
+        logger.info("Recovered {} online games from {} event log records in {} ms",
+                activeGames.size(), records, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        eventLog.start();
+        checkpoint();
+    }
+
+    /**
+     * Registers the games recorded in the event log without starting to append to it.
+     * @return The number of log records replayed.
+     */
+    public long replayEventLog() {
+        GameEventReplayer replayer = new GameEventReplayer(mancalaGameService, gameExecutor, clocks);
+        long records = eventLog.replay(replayer::apply);
+        long now = System.currentTimeMillis();
+        for (OnlineMancalaGame game : replayer.games()) {
+            game.journalTo(eventLog);
+            if (game.clock() != null) {
+                // Time the server was down is not charged to the player to move
+                game.clock().resumeAt(now);
+            }
+            arm(game, game.lastActivity());
+            armClock(game);
+            activeGames.put(game.getGameId(), game);
+            if (game.getPlayer1SessionId() != null) sessionToGameMap.put(game.getPlayer1SessionId(), game.getGameId());
+            if (game.getPlayer2SessionId() != null) sessionToGameMap.put(game.getPlayer2SessionId(), game.getGameId());
+            if (game.getResumeToken(0) != null) tokenToGameMap.put(game.getResumeToken(0), game.getGameId());
+            if (game.getResumeToken(1) != null) tokenToGameMap.put(game.getResumeToken(1), game.getGameId());
+        }
+        return records;
+    }
+
+    /**
+     * Snapshots every live game into the event log. Each snapshot is taken on the game's mailbox,
+     * in order with its other events; the checkpoint ends when the last one has been appended.
+     */
+    @Scheduled(fixedDelayString = "${mancala.eventlog.checkpoint-interval-ms:60000}", initialDelayString = "${mancala.eventlog.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        if (!eventLog.isEnabled()) {
+            return;
+        }
+        long checkpointId = eventLog.beginCheckpoint();
+        // Hibernated games first: one rehydrated meanwhile is found among the live games below, and
+        // one hibernated after this pass logs its own snapshot when it leaves the heap
+        hibernatedGames.forEachValue(entry -> activeGames.compute(entry.gameId(), (id, existing) -> {
+            HibernatedGame current = existing == null ? hibernatedGames.get(id) : null;
+            if (current != null) {
+                eventLog.append(hibernation.load(current.slot()));
+            }
+            return existing;
+        }));
+        // One extra count for this thread, so the checkpoint cannot end while games are still being queued
+        AtomicInteger remaining = new AtomicInteger(1);
+        activeGames.forEachValue(game -> {
+            remaining.incrementAndGet();
+            game.mailbox().execute(() -> {
+                if (activeGames.get(game.getGameId()) == game) {
+                    eventLog.append(GameEventCodec.snapshot(game));
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    eventLog.endCheckpoint(checkpointId);
+                }
+            });
+        });
+        if (remaining.decrementAndGet() == 0) {
+            eventLog.endCheckpoint(checkpointId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ownedPool != null) {
+            ownedPool.shutdownNow();
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,28 +2,79 @@ package org.mancalgame.mancalagame.online;
 
 import org.mancalgame.mancalagame.Service.MancalaGameService;
 import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MancalaRules;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 /**
  * Represents an individual online Mancala game instance, extending the core game logic
  * with network-specific attributes like player session IDs and overall game status.
+ * <p>
+ * Instances are not locked: every mutating call must run on the game's {@link GameMailbox}
+ * (see {@link OnlineGameManager#execute}), which guarantees one command at a time.
+ * Session ids and status are volatile so other threads may read them for routing and sweeps.
+ * <p>
+ * Once registered with a {@link GameEventLog}, every accepted change is appended to it.
+ * <p>
+ * A timed game carries a {@link GameClock}. Commands read the time from {@link #touch}, which the
+ * manager stamps on the game before running each one, so a move and a timeout decided on the same
+ * mailbox always agree on what time it is.
+ * <p>
+ * Each seat has a secret resume token, issued to its player when seated. A player whose connection
+ * drops keeps the seat until a grace deadline; presenting the token from a new connection takes the
+ * seat over again with the new session id.
+ * <p>
+ * The {@link MancalaRules} are chosen when the game is created and kept for its rematches; the event
+ * log records them with the game's creation and in every snapshot.
  */
 public class OnlineMancalaGame {
 
     private static final Logger logger = LoggerFactory.getLogger(OnlineMancalaGame.class);
+    private static final SecureRandom tokens = new SecureRandom();
+    private static final int TOKEN_BYTES = 16;
+    // Length of a token in unpadded Base64
+    static final int TOKEN_CHARS = (TOKEN_BYTES * 8 + 5) / 6;
 
     private final String gameId;
+    // Fixed at creation; only a snapshot restored before the game is published replaces them
+    private MancalaRules rules;
     private MancalaGame mancalaGame; // Made non-final to allow for reset
     private final MancalaGameService gameService;
 
-    private String player1SessionId;
-    private String player2SessionId;
-    private MancalaGame.GameStatus status;
+    private final GameMailbox mailbox;
+    private final DeltaTracker deltaTracker = new DeltaTracker();
+    private final GameFrameCache frameCache = new GameFrameCache();
+    // Sequence number of the last state broadcast to subscribers; written on the mailbox only
+    private volatile long stateVersion;
+
+    private volatile String player1SessionId;
+    private volatile String player2SessionId;
+    // Resume tokens of the seated players; mailbox-confined once the game is published
+    private String player1Token;
+    private String player2Token;
+    // When a disconnected player's seat is given up, Long.MAX_VALUE while connected; mailbox-confined
+    private long player1GraceDeadline = Long.MAX_VALUE;
+    private long player2GraceDeadline = Long.MAX_VALUE;
+    private volatile MancalaGame.GameStatus status;
     private final long creationTime;
+    // Set before the game is published; replayed games are built without one
+    private GameEventLog journal = GameEventLog.disabled();
+    // When the game last ran a command; read by the hibernation sweep
+    private volatile long lastActivity;
+    // Deadline of the game's live expiry wheel entry; mailbox-confined
+    private long armedDeadline = Long.MAX_VALUE;
+    // Both players' clocks, or null if the game is untimed; mailbox-confined
+    private GameClock clock;
+    // Deadline of the game's live clock wheel entry; mailbox-confined
+    private long armedFlag = Long.MAX_VALUE;
+    // Set on the mailbox when the game moves off the heap; later commands go to its successor
+    private boolean hibernated;
 
     // --- NEW: Fields to track rematch status ---
     private boolean player1WantsRematch = false;
@@ -31,16 +82,31 @@ public class OnlineMancalaGame {
 
 
     public OnlineMancalaGame(MancalaGameService gameService) {
-        this.gameId = UUID.randomUUID().toString();
-        this.mancalaGame = new MancalaGame();
+        this(gameService, Runnable::run);
+    }
+
+    OnlineMancalaGame(MancalaGameService gameService, Executor executor) {
+        this(gameService, executor, UUID.randomUUID().toString(), System.currentTimeMillis(), MancalaRules.STANDARD);
+        logger.info("OnlineMancalaGame {} created with status: {}", gameId, status);
+    }
+
+    // Also rebuilds a game from the event log
+    OnlineMancalaGame(MancalaGameService gameService, Executor executor, String gameId, long creationTime, MancalaRules rules) {
+        this.gameId = gameId;
+        this.rules = rules;
+        this.mancalaGame = gameService.createNewGame(rules);
         this.gameService = gameService;
+        this.mailbox = new GameMailbox(executor);
         this.status = MancalaGame.GameStatus.WAITING_FOR_PLAYER;
-        this.creationTime = System.currentTimeMillis();
-        logger.info("OnlineMancalaGame {} created with status: {}", gameId, status);
+        this.creationTime = creationTime;
+        this.lastActivity = System.currentTimeMillis();
     }
 
     // --- NEW: Handle a player's rematch request ---
-    public synchronized void setPlayerWantsRematch(int playerRole) {
+    public void setPlayerWantsRematch(int playerRole) {
+        if (playerRole == 0 || playerRole == 1) {
+            journal.append(GameEventCodec.rematchRequested(gameId, playerRole));
+        }
         if (playerRole == 0) {
             this.player1WantsRematch = true;
             logger.info("Player 1 has requested a rematch in game [{}].", gameId);
@@ -56,16 +122,29 @@ public class OnlineMancalaGame {
     }
 
     // --- NEW: Reset the game for a new match ---
-    public synchronized void resetForRematch() {
-        this.mancalaGame = new MancalaGame(); // Re-initialize the core game
+    public void resetForRematch() {
+        this.mancalaGame = gameService.createNewGame(rules); // Re-initialize the core game, under the same rules
         this.status = MancalaGame.GameStatus.IN_PROGRESS;
         this.player1WantsRematch = false;
         this.player2WantsRematch = false;
+        if (clock != null) {
+            clock.reset();
+            clock.start(mancalaGame.getCurrentPlayer(), lastActivity);
+        }
+        journal.append(GameEventCodec.event(GameEventCodec.REMATCH_STARTED, gameId));
         logger.info("Game [{}] has been reset for a rematch.", gameId);
     }
 
 
-    public synchronized int addPlayer(String sessionId) {
+    public int addPlayer(String sessionId) {
+        return addPlayer(sessionId, null);
+    }
+
+    /**
+     * Seats a player with the given resume token, or a new one if null (replay of logs without tokens).
+     * @return The player's role, or -1 if the session is already seated or the game is full.
+     */
+    int addPlayer(String sessionId, String token) {
         if (Objects.equals(this.player1SessionId, sessionId) || Objects.equals(this.player2SessionId, sessionId)) {
             logger.warn("Session {} already present in game {}.", sessionId, gameId);
             return -1;
@@ -73,11 +152,18 @@ public class OnlineMancalaGame {
 
         if (this.player1SessionId == null) {
             this.player1SessionId = sessionId;
+            this.player1Token = token != null ? token : newToken();
+            journal.append(GameEventCodec.joined(gameId, 0, sessionId, player1Token));
             logger.info("Player 1 (Host) joined game {} with session ID: {}.", gameId, sessionId);
             return 0;
         } else if (this.player2SessionId == null) {
             this.player2SessionId = sessionId;
+            this.player2Token = token != null ? token : newToken();
             this.status = MancalaGame.GameStatus.IN_PROGRESS;
+            if (clock != null) {
+                clock.start(mancalaGame.getCurrentPlayer(), lastActivity);
+            }
+            journal.append(GameEventCodec.joined(gameId, 1, sessionId, player2Token));
             logger.info("Player 2 (Joiner) joined game {}. Status changed to IN_PROGRESS.", gameId);
             return 1;
         }
@@ -85,22 +171,87 @@ public class OnlineMancalaGame {
         return -1;
     }
 
-    public synchronized boolean removePlayer(String sessionId) {
+    private static String newToken() {
+        byte[] token = new byte[TOKEN_BYTES];
+        tokens.nextBytes(token);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * Keeps a disconnected player's seat until the deadline, unless they resume first.
+     */
+    void disconnected(int playerRole, long graceDeadline) {
+        if (playerRole == 0) {
+            player1GraceDeadline = graceDeadline;
+        } else if (playerRole == 1) {
+            player2GraceDeadline = graceDeadline;
+        }
+        logger.info("Player {} disconnected from game {}; seat held until {}.", playerRole + 1, gameId, graceDeadline);
+    }
+
+    /**
+     * @return The earliest deadline at which a disconnected player's seat is given up, or
+     *         {@link Long#MAX_VALUE} if both players are connected.
+     */
+    long graceDeadline() {
+        return Math.min(player1GraceDeadline, player2GraceDeadline);
+    }
+
+    /**
+     * @return The session of the first player whose grace deadline has passed, or null if none has.
+     */
+    String abandonedSession(long now) {
+        if (player1GraceDeadline <= now) return player1SessionId;
+        if (player2GraceDeadline <= now) return player2SessionId;
+        return null;
+    }
+
+    /**
+     * @return The role whose resume token this is, or -1.
+     */
+    int roleOfToken(String token) {
+        if (token == null) return -1;
+        if (token.equals(player1Token)) return 0;
+        if (token.equals(player2Token)) return 1;
+        return -1;
+    }
+
+    /**
+     * Hands a seat to a player's new session and ends any grace period.
+     */
+    void resume(int playerRole, String sessionId) {
+        if (playerRole == 0) {
+            player1SessionId = sessionId;
+            player1GraceDeadline = Long.MAX_VALUE;
+        } else {
+            player2SessionId = sessionId;
+            player2GraceDeadline = Long.MAX_VALUE;
+        }
+        logger.info("Player {} resumed game {} with session {}.", playerRole + 1, gameId, sessionId);
+    }
+
+    public boolean removePlayer(String sessionId) {
         if (Objects.equals(this.player1SessionId, sessionId)) {
             this.player1SessionId = null;
+            this.player1GraceDeadline = Long.MAX_VALUE;
             this.status = MancalaGame.GameStatus.CANCELLED;
+            stopClock();
+            journal.append(GameEventCodec.event(GameEventCodec.CANCELLED, gameId));
             logger.info("Player 1 (session {}) left game {}. Game cancelled.", sessionId, gameId);
             return true;
         } else if (Objects.equals(this.player2SessionId, sessionId)) {
             this.player2SessionId = null;
+            this.player2GraceDeadline = Long.MAX_VALUE;
             this.status = MancalaGame.GameStatus.CANCELLED;
+            stopClock();
+            journal.append(GameEventCodec.event(GameEventCodec.CANCELLED, gameId));
             logger.info("Player 2 (session {}) left game {}. Game cancelled.", sessionId, gameId);
             return true;
         }
         return false;
     }
 
-    public synchronized boolean makeMove(int pitIndex, int currentPlayerRole) {
+    public boolean makeMove(int pitIndex, int currentPlayerRole) {
         if (mancalaGame.isGameOver() || this.status != MancalaGame.GameStatus.IN_PROGRESS) {
             return false;
         }
@@ -110,6 +261,16 @@ public class OnlineMancalaGame {
         }
 
         boolean success = gameService.makeMove(this.mancalaGame, pitIndex);
+        if (success && clock != null) {
+            if (mancalaGame.isGameOver()) {
+                clock.stop(lastActivity);
+            } else {
+                clock.moved(currentPlayerRole, mancalaGame.getCurrentPlayer(), lastActivity);
+            }
+        }
+        if (success) {
+            journal.append(GameEventCodec.moved(gameId, pitIndex, clock != null ? clock.remaining(currentPlayerRole) : -1));
+        }
 
         if (success && mancalaGame.isGameOver()) {
             this.status = MancalaGame.GameStatus.FINISHED;
@@ -118,13 +279,143 @@ public class OnlineMancalaGame {
         return success;
     }
 
+    /**
+     * Ends the game if the player to move has run out of time.
+     * @return true if the game was just lost on time.
+     */
+    public boolean flagIfOutOfTime() {
+        if (clock == null || status != MancalaGame.GameStatus.IN_PROGRESS || clock.deadline() > lastActivity) {
+            return false;
+        }
+        loseOnTime(clock.running());
+        return true;
+    }
+
+    // Also replays a logged timeout
+    void loseOnTime(int playerRole) {
+        if (clock != null) {
+            clock.stop(lastActivity);
+            clock.setRemaining(playerRole, 0);
+        }
+        mancalaGame.setGameOver(true);
+        mancalaGame.setWinner(1 - playerRole);
+        this.status = MancalaGame.GameStatus.FINISHED;
+        journal.append(GameEventCodec.timedOut(gameId, playerRole));
+        logger.info("Player {} ran out of time in game {}.", playerRole + 1, gameId);
+    }
+
+    private void stopClock() {
+        if (clock != null) {
+            clock.stop(lastActivity);
+        }
+    }
+
+    /**
+     * @return 0 or 1 if the session is seated in this game, otherwise -1. A session whose connection
+     *         dropped no longer holds its seat, which waits for a resume under a new session.
+     */
+    public int getPlayerRole(String sessionId) {
+        if (Objects.equals(player1SessionId, sessionId) && player1GraceDeadline == Long.MAX_VALUE) return 0;
+        if (Objects.equals(player2SessionId, sessionId) && player2GraceDeadline == Long.MAX_VALUE) return 1;
+        return -1;
+    }
+
+    /**
+     * Starts appending this game's changes to the log. Called before the game is published.
+     */
+    void journalTo(GameEventLog journal) {
+        this.journal = journal;
+    }
+
+    // Applies a snapshot from the event log; the board is restored by the caller, on the game this starts under the snapshot's rules
+    void restore(MancalaRules rules, MancalaGame.GameStatus status, String player1SessionId, String player2SessionId,
+                 String player1Token, String player2Token,
+                 boolean player1WantsRematch, boolean player2WantsRematch, long stateVersion) {
+        if (!rules.equals(this.rules)) {
+            this.rules = rules;
+            this.mancalaGame = gameService.createNewGame(rules);
+        }
+        this.status = status;
+        this.player1SessionId = player1SessionId;
+        this.player2SessionId = player2SessionId;
+        // Snapshots from before resume tokens: seated players get tokens nobody holds
+        this.player1Token = player1Token != null || player1SessionId == null ? player1Token : newToken();
+        this.player2Token = player2Token != null || player2SessionId == null ? player2Token : newToken();
+        this.player1WantsRematch = player1WantsRematch;
+        this.player2WantsRematch = player2WantsRematch;
+        this.stateVersion = stateVersion;
+    }
+
+    void touch(long now) {
+        lastActivity = now;
+    }
+
+    long lastActivity() { return lastActivity; }
+
+    void armDeadline(long deadline) {
+        armedDeadline = deadline;
+    }
+
+    long armedDeadline() { return armedDeadline; }
+
+    /**
+     * Sets the game's clocks, or makes it untimed with null. Called before the game is published.
+     */
+    void useClock(GameClock clock) {
+        this.clock = clock;
+    }
+
+    GameClock clock() { return clock; }
+
+    void armFlag(long deadline) {
+        armedFlag = deadline;
+    }
+
+    long armedFlag() { return armedFlag; }
+
+    void markHibernated() {
+        hibernated = true;
+    }
+
+    boolean isHibernated() { return hibernated; }
+
+    GameMailbox mailbox() { return mailbox; }
+    DeltaTracker deltaTracker() { return deltaTracker; }
+    GameFrameCache frameCache() { return frameCache; }
+
+    long advanceStateVersion() {
+        return ++stateVersion;
+    }
+
     // --- Getters ---
     public String getGameId() { return gameId; }
     public MancalaGame getMancalaGame() { return mancalaGame; }
+    public MancalaRules getRules() { return rules; }
     public String getPlayer1SessionId() { return player1SessionId; }
     public String getPlayer2SessionId() { return player2SessionId; }
     public MancalaGame.GameStatus getStatus() { return status; }
     public long getCreationTime() { return creationTime; }
+    public long getStateVersion() { return stateVersion; }
     public boolean isPlayer1WantsRematch() { return player1WantsRematch; }
     public boolean isPlayer2WantsRematch() { return player2WantsRematch; }
+
+    /**
+     * @return The resume token of the player in this role, or null if nobody was seated there. It proves
+     *         the seat is theirs, so it is only ever sent to that player. Must be called from the game's mailbox.
+     */
+    public String getResumeToken(int playerRole) {
+        return playerRole == 0 ? player1Token : playerRole == 1 ? player2Token : null;
+    }
+
+    /**
+     * @return Player 1's and Player 2's time as of the start of the current turn and when the
+     *         running clock started (epoch ms, 0 if none runs), or null if the game is untimed.
+     *         Must be called from the game's mailbox.
+     */
+    public long[] getClock() {
+        if (clock == null) {
+            return null;
+        }
+        return new long[]{clock.remaining(0), clock.remaining(1), clock.running() == GameClock.STOPPED ? 0 : clock.runningSince()};
+    }
 }
\ No newline at end of file
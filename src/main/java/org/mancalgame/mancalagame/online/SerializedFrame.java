@@ -0,0 +1,11 @@
+package org.mancalgame.mancalagame.online;
+
+import org.springframework.util.MimeType;
+
+/**
+ * A message payload that has already been encoded, together with its content type.
+ * Sent as-is by {@link SerializedFrameConverter}, so one encoding can be reused for every
+ * subscriber, join reply and resync of the same game state.
+ */
+public record SerializedFrame(byte[] bytes, MimeType contentType) {
+}
@@ -0,0 +1,36 @@
+package org.mancalgame.mancalagame.online;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+/**
+ * Passes {@link SerializedFrame} payloads through without re-encoding, stamping the frame's own
+ * content type on the message. Registered first so it wins over the JSON and binary converters.
+ */
+public class SerializedFrameConverter implements MessageConverter {
+
+    @Override
+    public Object fromMessage(Message<?> message, Class<?> targetClass) {
+        return null;
+    }
+
+    @Override
+    public Message<?> toMessage(Object payload, MessageHeaders headers) {
+        if (!(payload instanceof SerializedFrame frame)) {
+            return null;
+        }
+        MessageHeaderAccessor accessor = headers != null ? MessageHeaderAccessor.getAccessor(headers, MessageHeaderAccessor.class) : null;
+        if (accessor != null && accessor.isMutable()) {
+            accessor.setHeader(MessageHeaders.CONTENT_TYPE, frame.contentType());
+            return MessageBuilder.createMessage(frame.bytes(), accessor.getMessageHeaders());
+        }
+        MessageBuilder<byte[]> builder = MessageBuilder.withPayload(frame.bytes());
+        if (headers != null) {
+            builder.copyHeaders(headers);
+        }
+        return builder.setHeader(MessageHeaders.CONTENT_TYPE, frame.contentType()).build();
+    }
+}
@@ -0,0 +1,68 @@
+package org.mancalgame.mancalagame.online;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A concurrent map split into independent {@link ConcurrentHashMap} shards, so that resizes,
+ * bulk sweeps and size accounting for one shard never contend with the others.
+ * The shard is chosen from the high bits of a Fibonacci-mixed hash, leaving the low bits
+ * (which each shard uses for its own bins) evenly distributed.
+ */
+final class ShardedMap<K, V> {
+
+    private final ConcurrentHashMap<K, V>[] shards;
+    private final int shift;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ShardedMap(int requestedShards) {
+        int count = Integer.highestOneBit(Math.max(1, requestedShards - 1) << 1);
+        this.shards = (ConcurrentHashMap<K, V>[]) new ConcurrentHashMap[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+        this.shift = 32 - Integer.numberOfTrailingZeros(count);
+    }
+
+    private ConcurrentHashMap<K, V> shard(Object key) {
+        if (shards.length == 1) return shards[0];
+        return shards[(key.hashCode() * 0x9E3779B9) >>> shift];
+    }
+
+    V get(K key) { return shard(key).get(key); }
+    V put(K key, V value) { return shard(key).put(key, value); }
+    V remove(K key) { return shard(key).remove(key); }
+    boolean remove(K key, V value) { return shard(key).remove(key, value); }
+    V computeIfAbsent(K key, Function<? super K, ? extends V> mapping) { return shard(key).computeIfAbsent(key, mapping); }
+    V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) { return shard(key).compute(key, remapping); }
+
+    int shardCount() {
+        return shards.length;
+    }
+
+    long size() {
+        long size = 0;
+        for (ConcurrentHashMap<K, V> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    void forEachValue(Consumer<? super V> action) {
+        for (ConcurrentHashMap<K, V> shard : shards) {
+            shard.values().forEach(action);
+        }
+    }
+
+    /**
+     * Removes every entry whose value matches, one shard at a time.
+     */
+    void removeValuesIf(Predicate<? super V> filter) {
+        for (ConcurrentHashMap<K, V> shard : shards) {
+            shard.values().removeIf(filter);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.mancalgame.mancalagame.online;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: a ring of buckets, one per tick, each holding the entries due on ticks that
+ * map to it. Scheduling is O(1) from any thread; {@link #advance} visits only the buckets of the
+ * ticks that have passed, so the cost of a tick depends on what falls due, not on how many entries
+ * are waiting. Entries due more than one revolution ahead stay in their bucket until their tick.
+ * <p>
+ * There is no cancellation. Owners re-check an entry when it fires and schedule it again if its
+ * deadline has moved, which keeps re-arming on the hot path down to a field write.
+ */
+final class TimingWheel<T> {
+
+    private static final class Entry<T> {
+        final T item;
+        final long tick;
+        Entry<T> next;
+
+        Entry(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final Entry<T>[] buckets;
+    private final int mask;
+    private final Queue<Entry<T>> pending = new ConcurrentLinkedQueue<>();
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimingWheel(long tickMillis, int requestedBuckets, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        int bucketCount = Integer.highestOneBit(Math.max(2, requestedBuckets - 1) << 1);
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.buckets = (Entry<T>[]) new Entry[bucketCount];
+        this.mask = bucketCount - 1;
+    }
+
+    /**
+     * Schedules an item to fire on the first {@link #advance} at or after the deadline.
+     * Safe to call from any thread, including from the expiry callback.
+     */
+    void schedule(T item, long deadlineMillis) {
+        pending.add(new Entry<>(item, Math.max(0, Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis))));
+    }
+
+    /**
+     * Moves the wheel to the given time and hands every item that fell due to the callback.
+     */
+    synchronized void advance(long nowMillis, Consumer<T> expired) {
+        Entry<T> entry;
+        while ((entry = pending.poll()) != null) {
+            // Anything already due goes in the next bucket visited
+            int bucket = (int) (Math.max(entry.tick, currentTick + 1) & mask);
+            entry.next = buckets[bucket];
+            buckets[bucket] = entry;
+            size++;
+        }
+
+        long nowTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        // After a long pause one revolution visits every bucket once
+        long lastTick = Math.min(nowTick, currentTick + buckets.length);
+        for (long tick = currentTick + 1; tick <= lastTick; tick++) {
+            int bucket = (int) (tick & mask);
+            Entry<T> previous = null;
+            entry = buckets[bucket];
+            while (entry != null) {
+                Entry<T> next = entry.next;
+                if (entry.tick <= nowTick) {
+                    if (previous == null) buckets[bucket] = next; else previous.next = next;
+                    size--;
+                    expired.accept(entry.item);
+                } else {
+                    previous = entry;
+                }
+                entry = next;
+            }
+        }
+        currentTick = Math.max(currentTick, nowTick);
+    }
+
+    /**
+     * @return The number of entries in the wheel, excluding ones scheduled since the last advance.
+     */
+    synchronized int size() {
+        return size;
+    }
+}
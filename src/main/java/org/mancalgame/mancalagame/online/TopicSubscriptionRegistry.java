@@ -0,0 +1,74 @@
+package org.mancalgame.mancalagame.online;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live subscriber counts per {@code /topic/...} destination, kept from the STOMP session events.
+ * Lets publishers skip encoding a variant of a message that nobody is subscribed to.
+ */
+@Component
+public class TopicSubscriptionRegistry {
+
+    private static final String TOPIC_PREFIX = "/topic/";
+
+    // sessionId -> (subscriptionId -> destination)
+    private final Map<String, Map<String, String>> sessionSubscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> subscriberCounts = new ConcurrentHashMap<>();
+
+    /**
+     * @return The number of active subscriptions to the destination.
+     */
+    public int count(String destination) {
+        return subscriberCounts.getOrDefault(destination, 0);
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        Message<?> message = event.getMessage();
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders());
+        if (destination == null || sessionId == null || subscriptionId == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return;
+        }
+        String previous = sessionSubscriptions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, destination);
+        if (previous != null) {
+            decrement(previous);
+        }
+        subscriberCounts.merge(destination, 1, Integer::sum);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(event.getMessage().getHeaders());
+        Map<String, String> subscriptions = sessionId != null ? sessionSubscriptions.get(sessionId) : null;
+        if (subscriptions != null && subscriptionId != null) {
+            String destination = subscriptions.remove(subscriptionId);
+            if (destination != null) {
+                decrement(destination);
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessionSubscriptions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::decrement);
+        }
+    }
+
+    private void decrement(String destination) {
+        subscriberCounts.computeIfPresent(destination, (key, count) -> count == 1 ? null : count - 1);
+    }
+}
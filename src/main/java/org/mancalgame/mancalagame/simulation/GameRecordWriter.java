@@ -0,0 +1,80 @@
+package org.mancalgame.mancalagame.simulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends self-play games to a binary file. Each simulation thread encodes its games into its own
+ * buffer with {@link #encode} and hands the buffer over when it is full, so threads only meet here,
+ * once per buffer, and games from different threads are interleaved buffer by buffer.
+ * <p>
+ * Format, big-endian: an 8-byte header ({@link #MAGIC}, {@link #VERSION}), then one record per game:
+ * <pre>
+ *   moves    u16   number of moves
+ *   winner   i8    0 or 1, -1 for a draw
+ *   store1   u8    Player 1's final store
+ *   store2   u8    Player 2's final store
+ *   pits     u8[moves]  the pit played by each move (0-5 or 7-12), in order
+ * </pre>
+ * The side to move is not stored: it is Player 1 first and changes after every move that does not
+ * end in the mover's store, which a reader replays with {@code MancalaEngine}.
+ */
+public final class GameRecordWriter implements Closeable {
+
+    static final int MAGIC = 0x4D53454C; // "MSEL"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_HEADER_BYTES = 5;
+    static final int MAX_MOVES = 0xFFFF;
+
+    private final FileChannel channel;
+
+    public GameRecordWriter(Path output) throws IOException {
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(header);
+    }
+
+    /**
+     * Encodes one game into a thread's buffer.
+     * @return false, leaving the buffer unchanged, if the record does not fit.
+     */
+    static boolean encode(ByteBuffer buffer, byte[] pits, int moves, int winner, int store1, int store2) {
+        if (buffer.remaining() < RECORD_HEADER_BYTES + moves) {
+            return false;
+        }
+        buffer.putShort((short) moves).put((byte) winner).put((byte) store1).put((byte) store2).put(pits, 0, moves);
+        return true;
+    }
+
+    /**
+     * Writes out and clears a thread's buffer.
+     */
+    synchronized void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
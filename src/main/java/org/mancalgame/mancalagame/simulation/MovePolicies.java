@@ -0,0 +1,96 @@
+package org.mancalgame.mancalagame.simulation;
+
+import org.mancalgame.mancalagame.ai.SearchPolicy;
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MovePolicy;
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+
+/**
+ * The built-in {@link MovePolicy}s for self-play, and their names on the command line:
+ * {@code random}, {@code greedy} and {@code ai:<depth>}. None allocates per move except the
+ * search behind {@code ai}, which returns one small result per search.
+ */
+public final class MovePolicies {
+
+    static final int AI_TABLE_SIZE_BITS = 16;
+
+    private MovePolicies() {
+    }
+
+    /**
+     * Parses a policy name into a factory of per-thread instances. Random choices of thread {@code t}
+     * are seeded from {@code seed} and {@code t}, so a run is repeatable for a given thread count.
+     * @throws IllegalArgumentException if the name is not a known policy.
+     */
+    public static IntFunction<MovePolicy> parse(String name, long seed) {
+        String policy = name.trim();
+        if (policy.equals("random")) {
+            return thread -> random(new SplittableRandom(seed + thread));
+        }
+        if (policy.equals("greedy")) {
+            return thread -> greedy(new SplittableRandom(seed + thread));
+        }
+        if (policy.startsWith("ai:")) {
+            int depth;
+            try {
+                depth = Integer.parseInt(policy.substring(3));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("AI depth must be a number: " + name);
+            }
+            if (depth < 1) {
+                throw new IllegalArgumentException("AI depth must be at least 1: " + name);
+            }
+            return thread -> new SearchPolicy(depth, AI_TABLE_SIZE_BITS);
+        }
+        throw new IllegalArgumentException("Unknown move policy " + name + "; expected random, greedy or ai:<depth>");
+    }
+
+    /**
+     * Plays a uniformly random legal move.
+     */
+    public static MovePolicy random(SplittableRandom random) {
+        return (board, player) -> {
+            int legal = MancalaEngine.legalMoveMask(board, player);
+            return MancalaEngine.pitIndex(player, nthSetBit(legal, random.nextInt(Integer.bitCount(legal))));
+        };
+    }
+
+    /**
+     * Plays the move that most improves the mover's store lead right away, preferring an extra turn
+     * between equal moves and choosing randomly among moves that are equal in both.
+     */
+    public static MovePolicy greedy(SplittableRandom random) {
+        PackedBoard scratch = new PackedBoard();
+        return (board, player) -> {
+            int ownStore = player == 0 ? MancalaGame.PLAYER1_STORE : MancalaGame.PLAYER2_STORE;
+            int oppStore = player == 0 ? MancalaGame.PLAYER2_STORE : MancalaGame.PLAYER1_STORE;
+            int legal = MancalaEngine.legalMoveMask(board, player);
+            int best = Integer.MIN_VALUE;
+            int bestLanes = 0;
+            for (int lane = 0; lane < 6; lane++) {
+                if ((legal & (1 << lane)) == 0) continue;
+                scratch.copyFrom(board);
+                int flags = MancalaEngine.move(scratch, player, MancalaEngine.pitIndex(player, lane));
+                int score = 2 * (scratch.get(ownStore) - scratch.get(oppStore)) + ((flags & MancalaEngine.EXTRA_TURN) != 0 ? 1 : 0);
+                if (score > best) {
+                    best = score;
+                    bestLanes = 1 << lane;
+                } else if (score == best) {
+                    bestLanes |= 1 << lane;
+                }
+            }
+            return MancalaEngine.pitIndex(player, nthSetBit(bestLanes, random.nextInt(Integer.bitCount(bestLanes))));
+        };
+    }
+
+    private static int nthSetBit(int mask, int n) {
+        for (int i = 0; i < n; i++) {
+            mask &= mask - 1;
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+}
@@ -0,0 +1,72 @@
+package org.mancalgame.mancalagame.simulation;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Command line for {@link SelfPlaySimulator}. Prints games per second for each thread count asked for,
+ * so one run shows how throughput scales with cores.
+ * <p>
+ * Usage: {@code java -cp <classpath> org.mancalgame.mancalagame.simulation.SelfPlay <games> <player1> <player2>
+ * [--threads 1,2,4,...] [--out <file>] [--seed <n>]}, where players are {@code random}, {@code greedy}
+ * or {@code ai:<depth>}. Threads default to one per core; {@code --out} needs a single thread count.
+ */
+public final class SelfPlay {
+
+    private static final String USAGE =
+            "Usage: SelfPlay <games> <player1> <player2> [--threads 1,2,4,...] [--out <file>] [--seed <n>]\n"
+            + "  players: random | greedy | ai:<depth>";
+
+    private SelfPlay() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || args.length % 2 == 0) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        long games = Long.parseLong(args[0]);
+        int[] threadCounts = {Runtime.getRuntime().availableProcessors()};
+        Path output = null;
+        long seed = 1;
+        for (int i = 3; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--threads" -> threadCounts = Arrays.stream(args[i + 1].split(",")).mapToInt(n -> Integer.parseInt(n.trim())).toArray();
+                case "--out" -> output = Path.of(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                default -> {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+            }
+        }
+        if (output != null && threadCounts.length != 1) {
+            System.err.println("--out needs a single thread count");
+            System.exit(2);
+        }
+
+        SelfPlaySimulator simulator = new SelfPlaySimulator(MovePolicies.parse(args[1], seed), MovePolicies.parse(args[2], seed << 32));
+        for (int threads : threadCounts) {
+            SelfPlaySimulator.Summary summary;
+            if (output != null) {
+                try (GameRecordWriter writer = new GameRecordWriter(output)) {
+                    summary = simulator.run(games, threads, writer);
+                }
+            } else {
+                summary = simulator.run(games, threads, null);
+            }
+            System.out.printf("%s vs %s, %d threads: %,d games (%,d moves) in %,d ms: %,.0f games/s, %,.0f per thread;"
+                            + " Player 1 %.1f%%, Player 2 %.1f%%, draws %.1f%%%n",
+                    args[1], args[2], threads, summary.games(), summary.moves(), summary.elapsedNanos() / 1_000_000,
+                    summary.gamesPerSecond(), summary.gamesPerSecondPerThread(),
+                    percent(summary.player1Wins(), games), percent(summary.player2Wins(), games), percent(summary.draws(), games));
+        }
+        if (output != null) {
+            System.out.println("Games written to " + output);
+        }
+    }
+
+    private static double percent(long count, long total) {
+        return total == 0 ? 0 : count * 100.0 / total;
+    }
+}
@@ -0,0 +1,180 @@
+package org.mancalgame.mancalagame.simulation;
+
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MovePolicy;
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Plays games between two {@link MovePolicy}s directly on {@link MancalaEngine}, on as many threads
+ * as asked for. Threads claim games in batches from a shared counter and each reuses one board, one
+ * move buffer and one output buffer for all its games, so a move allocates nothing here.
+ * <p>
+ * Games are optionally streamed to a {@link GameRecordWriter}; without one only the totals are kept.
+ */
+public final class SelfPlaySimulator {
+
+    private static final int BATCH = 256;
+    // Holds at least one record of the longest game a record can describe
+    private static final int OUTPUT_BUFFER_BYTES = 128 * 1024;
+
+    /**
+     * Totals of one run.
+     */
+    public record Summary(long games, long moves, long player1Wins, long player2Wins, long draws, int threads, long elapsedNanos) {
+
+        public double gamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+
+        public double gamesPerSecondPerThread() {
+            return gamesPerSecond() / threads;
+        }
+    }
+
+    private final IntFunction<MovePolicy> player1;
+    private final IntFunction<MovePolicy> player2;
+
+    /**
+     * @param player1 Creates Player 1's policy for each thread, given the thread's index.
+     * @param player2 Creates Player 2's policy for each thread.
+     */
+    public SelfPlaySimulator(IntFunction<MovePolicy> player1, IntFunction<MovePolicy> player2) {
+        this.player1 = player1;
+        this.player2 = player2;
+    }
+
+    /**
+     * Plays the given number of games and waits for them to finish.
+     * @param output Where to stream the games, or null to keep only the totals.
+     */
+    public Summary run(long games, int threads, GameRecordWriter output) throws InterruptedException {
+        AtomicLong next = new AtomicLong();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "mancala-selfplay-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Worker(player1.apply(i), player2.apply(i), next, games, output));
+        }
+        long start = System.nanoTime();
+        try {
+            for (Future<Worker> result : pool.invokeAll(workers)) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof IOException io) throw new UncheckedIOException(io);
+            throw new IllegalStateException("Self-play thread failed", cause);
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        long moves = 0;
+        long[] outcomes = new long[3];
+        for (Worker worker : workers) {
+            moves += worker.moves;
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] += worker.outcomes[i];
+            }
+        }
+        return new Summary(games, moves, outcomes[0], outcomes[1], outcomes[2], threads, elapsed);
+    }
+
+    private static final class Worker implements Callable<Worker> {
+        private final MovePolicy[] policies;
+        private final AtomicLong next;
+        private final long games;
+        private final GameRecordWriter output;
+        // Allocated by the worker's own thread, so no two threads write to one cache line
+        private PackedBoard board;
+        private ByteBuffer buffer;
+        private byte[] pits;
+        // Totals, kept in locals while playing and published when the worker finishes
+        long moves;
+        final long[] outcomes = new long[3]; // Player 1 wins, Player 2 wins, draws
+
+        Worker(MovePolicy player1, MovePolicy player2, AtomicLong next, long games, GameRecordWriter output) {
+            this.policies = new MovePolicy[]{player1, player2};
+            this.next = next;
+            this.games = games;
+            this.output = output;
+        }
+
+        @Override
+        public Worker call() throws IOException {
+            board = new PackedBoard();
+            pits = new byte[256];
+            buffer = output != null ? ByteBuffer.allocate(OUTPUT_BUFFER_BYTES) : null;
+            long played = 0;
+            long[] results = new long[3];
+            long first;
+            while ((first = next.getAndAdd(BATCH)) < games) {
+                long last = Math.min(first + BATCH, games);
+                for (long game = first; game < last; game++) {
+                    played += play();
+                    int winner = MancalaEngine.winner(board);
+                    results[winner == -1 ? 2 : winner]++;
+                }
+            }
+            if (output != null && buffer.position() > 0) {
+                output.write(buffer);
+            }
+            moves = played;
+            System.arraycopy(results, 0, outcomes, 0, results.length);
+            return this;
+        }
+
+        // Plays one game on the board, leaving it in the final position
+        private int play() throws IOException {
+            board.reset(MancalaGame.INITIAL_STONES_PER_PIT);
+            int player = 0;
+            int count = 0;
+            int flags;
+            do {
+                int pit = policies[player].choosePit(board, player);
+                if (count == pits.length) {
+                    if (count == GameRecordWriter.MAX_MOVES) {
+                        throw new IllegalStateException("Game exceeded " + GameRecordWriter.MAX_MOVES + " moves");
+                    }
+                    pits = Arrays.copyOf(pits, Math.min(count * 2, GameRecordWriter.MAX_MOVES));
+                }
+                pits[count++] = (byte) pit;
+                flags = MancalaEngine.move(board, player, pit);
+                if ((flags & MancalaEngine.EXTRA_TURN) == 0) {
+                    player = 1 - player;
+                }
+            } while ((flags & MancalaEngine.GAME_OVER) == 0);
+
+            if (output != null) {
+                int winner = MancalaEngine.winner(board);
+                int store1 = board.get(MancalaGame.PLAYER1_STORE);
+                int store2 = board.get(MancalaGame.PLAYER2_STORE);
+                if (!GameRecordWriter.encode(buffer, pits, count, winner, store1, store2)) {
+                    output.write(buffer);
+                    GameRecordWriter.encode(buffer, pits, count, winner, store1, store2);
+                }
+            }
+            return count;
+        }
+    }
+}
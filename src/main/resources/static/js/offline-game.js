@@ -5,9 +5,13 @@ document.addEventListener('DOMContentLoaded', () => {
     const gameBoardContainer = document.getElementById('game-board-container');
     const errorMessageElement = document.getElementById('error-message');
     const newGameForm = document.getElementById('newGameForm');
+    const aiStatsElement = document.getElementById('ai-stats');
 
     let currentGameState = window.initialGame;
     let currentErrorMessage = window.initialErrorMessage;
+    // When playing against the computer, it is always Player 2 and moves on the server
+    const vsComputer = window.vsComputer === true;
+    const player2Name = vsComputer ? 'Computer' : 'Player 2';
 
     if (newGameForm) {
         newGameForm.addEventListener('submit', () => {
@@ -22,25 +26,27 @@ document.addEventListener('DOMContentLoaded', () => {
         }
 
         gameBoardContainer.innerHTML = '';
+        // Variants with fewer pits use the first pits of each side (0.. and 7..); the stores stay at 6 and 13
+        const pitsPerSide = gameState.rules ? gameState.rules.pitsPerSide : 6;
 
         const player2PitsRow = document.createElement('div');
         player2PitsRow.className = 'player-pits top-row';
-        for (let i = 12; i >= 7; i--) {
-            const isClickable = gameState.currentPlayer === 1 && !gameState.gameOver && gameState.board[i] > 0;
+        for (let i = 6 + pitsPerSide; i >= 7; i--) {
+            const isClickable = !vsComputer && gameState.currentPlayer === 1 && !gameState.gameOver && gameState.board[i] > 0;
             player2PitsRow.appendChild(createPitButton(i, gameState.board[i], isClickable));
         }
 
         const storesRow = document.createElement('div');
         storesRow.className = 'stores-row';
-        storesRow.appendChild(createStoreElement(13, gameState.board[13], 'Player 2 Store'));
+        storesRow.appendChild(createStoreElement(13, gameState.board[13], `${player2Name} Store`));
         const spacer = document.createElement('div');
         spacer.className = 'board-spacer';
         storesRow.appendChild(spacer);
-        storesRow.appendChild(createStoreElement(6, gameState.board[6], 'Player 1 Store'));
+        storesRow.appendChild(createStoreElement(6, gameState.board[6], vsComputer ? 'Your Store' : 'Player 1 Store'));
 
         const player1PitsRow = document.createElement('div');
         player1PitsRow.className = 'player-pits bottom-row';
-        for (let i = 0; i <= 5; i++) {
+        for (let i = 0; i < pitsPerSide; i++) {
             const isClickable = gameState.currentPlayer === 0 && !gameState.gameOver && gameState.board[i] > 0;
             player1PitsRow.appendChild(createPitButton(i, gameState.board[i], isClickable));
         }
@@ -66,6 +72,11 @@ document.addEventListener('DOMContentLoaded', () => {
         } else {
             errorMessageElement.style.display = 'none';
         }
+
+        if (aiStatsElement && window.aiStats) {
+            aiStatsElement.textContent = window.aiStats;
+            aiStatsElement.style.display = 'block';
+        }
     }
 
     function createPitButton(pitIndex, stones, isClickable) {
@@ -104,9 +115,11 @@ document.addEventListener('DOMContentLoaded', () => {
     function updateStatusMessage(gameState) {
         if (gameState.gameOver) {
             let winnerText = 'It\'s a draw!';
-            if (gameState.winner === 0) winnerText = 'Player 1 wins!';
-            if (gameState.winner === 1) winnerText = 'Player 2 wins!';
+            if (gameState.winner === 0) winnerText = vsComputer ? 'You win!' : 'Player 1 wins!';
+            if (gameState.winner === 1) winnerText = `${player2Name} wins!`;
             statusMessageElement.textContent = `Game Over! ${winnerText}`;
+        } else if (vsComputer) {
+            statusMessageElement.textContent = 'Your turn.';
         } else {
             statusMessageElement.textContent = `It's Player ${gameState.currentPlayer + 1}'s turn.`;
         }
@@ -3,48 +3,93 @@
 console.log("online-game.js script started loading.");
 
 // --- WebSocket Connection Setup ---
-const socket = new SockJS('/ws', null, {
-    transports: ['websocket', 'xhr-streaming', 'xhr-polling']
-});
-const stompClient = Stomp.over(socket);
+// A new client per connection: after a drop we reconnect and resume our seat with the stored token
+let stompClient = null;
+const RECONNECT_DELAY_MS = 2000;
+const RESUME_TOKEN_KEY = 'mancala.resumeToken';
+// The token's game, so a clustered server can send the resume to the node that owns it
+const RESUME_GAME_KEY = 'mancala.resumeGameId';
+let resumePending = false;
+
+// Compact game codec (see BinaryGameCodec); add ?codec=json to the page URL to use plain JSON
+const BINARY_CODEC = 'application/x-mancala';
+const useBinaryCodec = new URLSearchParams(window.location.search).get('codec') !== 'json';
+const sendHeaders = useBinaryCodec ? { 'content-type': BINARY_CODEC } : {};
 
 // --- Game State & DOM References ---
 let isConnected = false, gameId = null, playerRole = null;
+// Spectators watch a game without a seat: they get coalesced snapshots and cannot move
+let spectating = false;
+// Last full state applied and its sequence number; deltas are applied on top of it
+let currentState = null, lastSeq = -1, resyncPending = false;
+// Timed games carry clock: [player 1 ms, player 2 ms, running since]; the running one counts down from receipt
+let clockReceivedAt = 0;
 const gameOptionsDiv = document.getElementById('gameOptions');
 const createGameButton = document.getElementById('createGameButton');
+const quickPlayButton = document.getElementById('quickPlayButton');
 const joinGameButton = document.getElementById('joinGameButton');
 const joinGameIdInput = document.getElementById('joinGameId');
+const watchGameButton = document.getElementById('watchGameButton');
 const gameAreaDiv = document.getElementById('gameArea');
 const statusMessageElement = document.getElementById('statusMessage');
+const clockDisplayElement = document.getElementById('clockDisplay');
 const errorMessageElement = document.getElementById('errorMessage');
 const displayGameIdElement = document.getElementById('displayGameId');
 const displayPlayerRoleElement = document.getElementById('displayPlayerRole');
 const boardDiv = document.getElementById('online-game-board-container');
-const interactiveButtons = [createGameButton, joinGameButton, joinGameIdInput];
+const interactiveButtons = [createGameButton, quickPlayButton, joinGameButton, watchGameButton, joinGameIdInput];
 const inGameControls = document.getElementById('inGameControls');
 const endGameControls = document.getElementById('endGameControls');
 const playAgainButton = document.getElementById('playAgainButton');
 
 // --- Event Listeners ---
 if (createGameButton) createGameButton.addEventListener('click', sendCreateGameMessage);
+if (quickPlayButton) quickPlayButton.addEventListener('click', sendQuickPlayMessage);
 if (joinGameButton) joinGameButton.addEventListener('click', sendJoinGameMessage);
+if (watchGameButton) watchGameButton.addEventListener('click', watchGame);
 if (playAgainButton) playAgainButton.addEventListener('click', sendRematchRequest);
 
 // --- WebSocket Functions ---
 function connect() {
-    stompClient.connect({}, (frame) => {
+    const socket = new SockJS('/ws', null, {
+        transports: ['websocket', 'xhr-streaming', 'xhr-polling']
+    });
+    stompClient = Stomp.over(socket);
+    const connectHeaders = useBinaryCodec ? { 'accept-content-type': BINARY_CODEC } : {};
+    stompClient.connect(connectHeaders, (frame) => {
         isConnected = true;
         console.log('Connected: ' + frame);
         stompClient.subscribe('/user/queue/game.details', onGameDetailsReceived);
         stompClient.subscribe('/user/queue/errors', onErrorReceived);
-    }, (error) => { console.error('STOMP connection error: ' + error); });
+        stompClient.subscribe('/user/queue/game.state', onGameStateUpdate);
+        resumeGame();
+    }, (error) => {
+        console.error('STOMP connection error: ' + error);
+        isConnected = false;
+        // Our seat is held for a grace period; only worth reconnecting for if we have one
+        if (sessionStorage.getItem(RESUME_TOKEN_KEY)) setTimeout(connect, RECONNECT_DELAY_MS);
+    });
+}
+
+// The reply is our game details on game.details, which resynchronise the board like a join
+function resumeGame() {
+    const token = sessionStorage.getItem(RESUME_TOKEN_KEY);
+    if (!token || spectating) return;
+    resumePending = true;
+    stompClient.send("/app/game.resume", {}, JSON.stringify({ 'token': token, 'gameId': sessionStorage.getItem(RESUME_GAME_KEY) }));
+}
+
+function forgetResumeToken() {
+    sessionStorage.removeItem(RESUME_TOKEN_KEY);
+    sessionStorage.removeItem(RESUME_GAME_KEY);
 }
 
 function ensureTopicSubscription() {
     if (gameId && isConnected) {
         const subId = 'gameTopicSub_' + gameId;
         if (!stompClient.subscriptions[subId]) {
-            stompClient.subscribe('/topic/game/' + gameId, onGameStateUpdate, { id: subId });
+            const topic = '/topic/game/' + gameId + (spectating ? '/spectate' : '') + (useBinaryCodec ? '/bin' : '');
+            stompClient.subscribe(topic, onGameStateUpdate, { id: subId });
         }
     }
 }
@@ -56,18 +101,46 @@ function sendCreateGameMessage() {
     stompClient.send("/app/game.host", {}, "{}");
 }
 
+// The server pairs us with the next waiting player and replies on game.details like a host or join
+function sendQuickPlayMessage() {
+    if (!isConnected) return;
+    disableGameButtons();
+    statusMessageElement.textContent = 'Looking for an opponent...';
+    stompClient.send("/app/game.quickplay", {}, "{}");
+}
+
 function sendJoinGameMessage() {
     if (!isConnected) return;
     const enteredGameId = joinGameIdInput.value.trim();
     if (!enteredGameId) return;
     disableGameButtons();
-    stompClient.send("/app/game.join", {}, JSON.stringify({ 'gameId': enteredGameId }));
+    const body = useBinaryCodec ? enteredGameId : JSON.stringify({ 'gameId': enteredGameId });
+    stompClient.send("/app/game.join", sendHeaders, body);
+}
+
+// The spectate topic only carries changes, so the current state is requested right after subscribing
+function watchGame() {
+    if (!isConnected) return;
+    const enteredGameId = joinGameIdInput.value.trim();
+    if (!enteredGameId) return;
+    disableGameButtons();
+    spectating = true;
+    gameId = enteredGameId;
+    ensureTopicSubscription();
+    requestResync();
 }
 
 function makeMove(pitIndex) {
-    if (!stompClient.connected || !gameId) return;
+    if (spectating || !stompClient.connected || !gameId) return;
     disablePitClicks();
-    stompClient.send("/app/game." + gameId + ".move", {}, JSON.stringify({ 'pitIndex': pitIndex }));
+    const body = useBinaryCodec ? encodeVarint(pitIndex) : JSON.stringify({ 'pitIndex': pitIndex });
+    stompClient.send("/app/game." + gameId + ".move", sendHeaders, body);
+}
+
+function requestResync() {
+    if (resyncPending || !stompClient.connected || !gameId) return;
+    resyncPending = true;
+    stompClient.send("/app/game." + gameId + ".resync", {}, "{}");
 }
 
 function sendRematchRequest() {
@@ -77,11 +150,77 @@ function sendRematchRequest() {
     stompClient.send("/app/game." + gameId + ".rematch", {}, "{}");
 }
 
+// --- Binary Codec ---
+// Varints are little-endian base-47 digits, each sent as the character 0x20 + digit (+47 if more follow)
+function encodeVarint(value) {
+    let out = '';
+    while (value >= 47) {
+        out += String.fromCharCode(0x20 + 47 + (value % 47));
+        value = Math.floor(value / 47);
+    }
+    return out + String.fromCharCode(0x20 + value);
+}
+
+function decodeFrame(body) {
+    let pos = 1;
+    const next = () => {
+        let value = 0, scale = 1;
+        for (;;) {
+            const digit = body.charCodeAt(pos++) - 0x20;
+            if (digit < 47) return value + digit * scale;
+            value += (digit - 47) * scale;
+            scale *= 47;
+        }
+    };
+    const type = body.charAt(0);
+    if (type === 'E') return { message: body.substring(1) };
+    if (type === 'D' || type === 'T') {
+        const delta = { s: next(), p: next(), c: [] };
+        if (type === 'T') delta.k = [next(), next(), next()];
+        while (pos < body.length) delta.c.push(next());
+        return delta;
+    }
+    const state = {};
+    if (type === 'I') {
+        state.assignedPlayerRole = next();
+        const tokenLength = next();
+        state.resumeToken = body.substring(pos, pos + tokenLength);
+        pos += tokenLength;
+    }
+    state.seq = next();
+    state.currentPlayer = next();
+    state.winner = next() - 1;
+    state.gameStatus = ['WAITING_FOR_PLAYER', 'IN_PROGRESS', 'FINISHED', 'CANCELLED'][next()];
+    const flags = next();
+    state.gameOver = (flags & 1) !== 0;
+    state.player1WantsRematch = (flags & 2) !== 0;
+    state.player2WantsRematch = (flags & 4) !== 0;
+    const pits = next();
+    state.board = [];
+    for (let i = 0; i < pits; i++) state.board.push(next());
+    if (flags & 8) state.clock = [next(), next(), next()];
+    state.gameId = body.substring(pos);
+    return state;
+}
+
+function parseMessage(payload) {
+    const contentType = payload.headers['content-type'] || '';
+    return contentType.startsWith(BINARY_CODEC) ? decodeFrame(payload.body) : JSON.parse(payload.body);
+}
+
 // --- Message Receiving Handlers ---
 function onGameDetailsReceived(payload) {
-    let receivedState = JSON.parse(payload.body);
+    let receivedState = parseMessage(payload);
+    resumePending = false;
+    if (receivedState.resumeToken) {
+        sessionStorage.setItem(RESUME_TOKEN_KEY, receivedState.resumeToken);
+        sessionStorage.setItem(RESUME_GAME_KEY, receivedState.gameId);
+    }
     playerRole = receivedState.assignedPlayerRole;
     gameId = receivedState.gameId;
+    currentState = receivedState;
+    lastSeq = receivedState.seq;
+    clockReceivedAt = Date.now();
     displayPlayerRoleElement.textContent = `You are Player ${playerRole + 1}`;
     displayGameIdElement.textContent = 'Game ID: ' + gameId;
     ensureTopicSubscription();
@@ -92,9 +231,45 @@ function onGameDetailsReceived(payload) {
     updateGameStatusMessage(receivedState);
 }
 
+// Topic messages are either full snapshots (they carry a board) or deltas: {s: seq, p: player to move, c: [pit, stones, ...]}
 function onGameStateUpdate(payload) {
-    let gameState = JSON.parse(payload.body);
+    const message = parseMessage(payload);
+    if (message.board) {
+        applySnapshot(message);
+    } else {
+        applyDelta(message);
+    }
+}
+
+function applySnapshot(snapshot) {
+    // A resync reply can arrive after newer topic messages; never go backwards
+    if (currentState && snapshot.seq < lastSeq) return;
+    resyncPending = false;
+    if (spectating && !currentState) showSpectatorView();
+    currentState = snapshot;
+    lastSeq = snapshot.seq;
+    clockReceivedAt = Date.now();
+    renderGameState(currentState);
+}
+
+function applyDelta(delta) {
+    if (!currentState || delta.s !== lastSeq + 1) {
+        if (!currentState || delta.s > lastSeq) requestResync();
+        return;
+    }
+    for (let i = 0; i < delta.c.length; i += 2) {
+        currentState.board[delta.c[i]] = delta.c[i + 1];
+    }
+    currentState.currentPlayer = delta.p;
+    currentState.seq = lastSeq = delta.s;
+    if (delta.k) {
+        currentState.clock = delta.k;
+        clockReceivedAt = Date.now();
+    }
+    renderGameState(currentState);
+}
 
+function renderGameState(gameState) {
     if (!gameState.gameOver) {
         if (endGameControls) endGameControls.style.display = 'none';
         if (playAgainButton) {
@@ -106,14 +281,35 @@ function onGameStateUpdate(payload) {
     updateGameBoardUI(gameState);
     updateGameStatusMessage(gameState);
 
+    if (gameState.gameStatus === 'CANCELLED') forgetResumeToken();
     if (gameState.gameStatus === 'FINISHED' || gameState.gameStatus === 'CANCELLED') {
         disablePitClicks();
-        if(endGameControls) endGameControls.style.display = 'flex';
+        if(endGameControls && !spectating) endGameControls.style.display = 'flex';
     }
 }
 
+function showSpectatorView() {
+    displayGameIdElement.textContent = 'Game ID: ' + gameId;
+    displayPlayerRoleElement.textContent = 'Spectating';
+    gameOptionsDiv.style.display = 'none';
+    gameAreaDiv.style.display = 'block';
+}
+
 function onErrorReceived(payload) {
-    let error = JSON.parse(payload.body);
+    let error = parseMessage(payload);
+    if (resumePending) {
+        // The game we held a seat in is gone; start over from the menu
+        resumePending = false;
+        forgetResumeToken();
+        return;
+    }
+    if (spectating && !currentState) {
+        // The game to watch does not exist; leave its topic and go back to the menu
+        stompClient.unsubscribe('gameTopicSub_' + gameId);
+        spectating = false;
+        resyncPending = false;
+        gameId = null;
+    }
     errorMessageElement.textContent = error.message;
     errorMessageElement.style.display = 'block';
     enableGameButtons();
@@ -123,14 +319,15 @@ function onErrorReceived(payload) {
 function updateGameBoardUI(gameState) {
     if (!boardDiv) return;
     boardDiv.innerHTML = '';
-    const isPlayer1 = (playerRole === 0);
+    // Spectators see the board from Player 1's side
+    const isPlayer1 = (playerRole !== 1);
 
     const playerPits = isPlayer1 ? { start: 0, end: 5 } : { start: 7, end: 12 };
     const opponentPits = isPlayer1 ? { start: 7, end: 12 } : { start: 0, end: 5 };
     const playerStoreIndex = isPlayer1 ? 6 : 13;
     const opponentStoreIndex = isPlayer1 ? 13 : 6;
-    const playerStoreLabel = `Your Store (P${playerRole + 1})`;
-    const opponentStoreLabel = `Opponent's Store (P${isPlayer1 ? 2 : 1})`;
+    const playerStoreLabel = spectating ? 'Player 1 Store' : `Your Store (P${playerRole + 1})`;
+    const opponentStoreLabel = spectating ? 'Player 2 Store' : `Opponent's Store (P${isPlayer1 ? 2 : 1})`;
 
     const opponentRow = document.createElement('div');
     opponentRow.className = 'player-pits top-row';
@@ -148,7 +345,7 @@ function updateGameBoardUI(gameState) {
 
     const playerRow = document.createElement('div');
     playerRow.className = 'player-pits bottom-row';
-    const isMyTurn = (gameState.currentPlayer === playerRole);
+    const isMyTurn = !spectating && (gameState.currentPlayer === playerRole);
     for (let i = playerPits.start; i <= playerPits.end; i++) {
         const isClickable = isMyTurn && !gameState.gameOver && gameState.board[i] > 0;
         playerRow.appendChild(createPitButton(i, gameState.board[i], isClickable));
@@ -187,7 +384,9 @@ function createStoreElement(index, stones, label) {
 
 function updateGameStatusMessage(gameState) {
     errorMessageElement.style.display = 'none';
-    if (gameState.gameOver) {
+    if (spectating) {
+        updateSpectatorStatusMessage(gameState);
+    } else if (gameState.gameOver) {
         const player1Ready = gameState.player1WantsRematch;
         const player2Ready = gameState.player2WantsRematch;
         const myRematchStatus = (playerRole === 0) ? player1Ready : player2Ready;
@@ -215,6 +414,34 @@ function updateGameStatusMessage(gameState) {
     }
 }
 
+function updateSpectatorStatusMessage(gameState) {
+    if (gameState.gameOver) {
+        const winnerText = gameState.winner === -1 ? 'It\'s a draw!' : `Player ${gameState.winner + 1} won!`;
+        statusMessageElement.textContent = `Game Over! ${winnerText}`;
+    } else if (gameState.gameStatus === 'WAITING_FOR_PLAYER') {
+        statusMessageElement.textContent = 'Waiting for players...';
+    } else if (gameState.gameStatus === 'IN_PROGRESS') {
+        statusMessageElement.textContent = `Player ${gameState.currentPlayer + 1}'s turn.`;
+    } else if (gameState.gameStatus === 'CANCELLED') {
+        statusMessageElement.textContent = 'The game was cancelled.';
+    }
+}
+
+function renderClock() {
+    const clock = currentState && currentState.clock;
+    if (!clockDisplayElement || !clock) return;
+    const remaining = (player) => {
+        const running = clock[2] !== 0 && currentState.currentPlayer === player;
+        return Math.max(0, clock[player] - (running ? Date.now() - clockReceivedAt : 0));
+    };
+    const format = (ms) => {
+        const seconds = Math.ceil(ms / 1000);
+        return Math.floor(seconds / 60) + ':' + String(seconds % 60).padStart(2, '0');
+    };
+    clockDisplayElement.style.display = 'block';
+    clockDisplayElement.textContent = `Player 1: ${format(remaining(0))} | Player 2: ${format(remaining(1))}`;
+}
+
 function disablePitClicks() {
     boardDiv.querySelectorAll('.pit-button-element').forEach(button => {
         button.disabled = true;
@@ -227,4 +454,5 @@ function disableGameButtons() { interactiveButtons.forEach(b => b.disabled = tru
 function enableGameButtons() { interactiveButtons.forEach(b => b.disabled = false); }
 
 // --- Start Connection ---
-connect();
\ No newline at end of file
+connect();
+setInterval(renderClock, 250);
\ No newline at end of file
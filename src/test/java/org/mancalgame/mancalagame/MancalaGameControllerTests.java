@@ -0,0 +1,92 @@
+package org.mancalgame.mancalagame;
+
+import org.junit.jupiter.api.Test;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.ai.EndgameDatabase;
+import org.mancalgame.mancalagame.ai.MancalaAI;
+import org.mancalgame.mancalagame.ai.SearchResult;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.offline.OfflineSessionStore;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class MancalaGameControllerTests {
+
+    private final MancalaGameService gameService = new MancalaGameService();
+    private final OfflineSessionStore sessions = new OfflineSessionStore(64, 60_000);
+
+    @Test
+    void movesAreKeptUnderTheSessionCookie() {
+        MancalaGameController controller = new MancalaGameController(gameService, new MancalaAI(EndgameDatabase.none(), 5, 40, 1, 14, 1, 16), sessions);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertEquals("game", controller.playOffline(null, null, response, new ExtendedModelMap()));
+        String cookie = sessionCookie(response);
+
+        // Pit 0's four stones end in pit 4, so the turn passes to Player 2
+        assertEquals("redirect:/play-offline", controller.makeMove(0, cookie, new MockHttpServletResponse(), new ExtendedModelMap()));
+        MancalaGame game = sessions.get(Long.parseUnsignedLong(cookie, 16)).game();
+        assertArrayEquals(new int[] {0, 5, 5, 5, 5, 4, 0, 4, 4, 4, 4, 4, 4, 0}, game.getBoard());
+        assertEquals(1, game.getCurrentPlayer());
+
+        // Against the computer, its reply is kept with the summary of its search
+        controller.playComputer(cookie, new MockHttpServletResponse(), new ExtendedModelMap());
+        assertEquals("redirect:/play-computer", controller.makeMove(0, cookie, new MockHttpServletResponse(), new ExtendedModelMap()));
+        ExtendedModelMap model = new ExtendedModelMap();
+        controller.playComputer(cookie, new MockHttpServletResponse(), model);
+        assertEquals(0, ((MancalaGame) model.get("game")).getCurrentPlayer());
+        assertNotNull(model.get("aiStats"));
+    }
+
+    @Test
+    void thePlayersMoveIsKeptWhenTheComputerFails() {
+        MancalaAI failingAI = new MancalaAI(EndgameDatabase.none(), 5, 40, 1, 14, 1, 16) {
+            @Override
+            public SearchResult chooseMove(MancalaGame game) {
+                throw new IllegalStateException("search failed");
+            }
+        };
+        MancalaGameController controller = new MancalaGameController(gameService, failingAI, sessions);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.playComputer(null, response, new ExtendedModelMap());
+        String cookie = sessionCookie(response);
+
+        ExtendedModelMap model = new ExtendedModelMap();
+        assertEquals("game", controller.makeMove(0, cookie, new MockHttpServletResponse(), model));
+        assertEquals("Game error: search failed", model.get("errorMessage"));
+        MancalaGame game = sessions.get(Long.parseUnsignedLong(cookie, 16)).game();
+        assertArrayEquals(new int[] {0, 5, 5, 5, 5, 4, 0, 4, 4, 4, 4, 4, 4, 0}, game.getBoard());
+        assertEquals(1, game.getCurrentPlayer());
+    }
+
+    @Test
+    void aFullStoreRefusesNewSessionsInsteadOfDroppingGamesInProgress() {
+        OfflineSessionStore tiny = new OfflineSessionStore(1, 60_000);
+        MancalaGameController controller = new MancalaGameController(gameService, new MancalaAI(EndgameDatabase.none(), 5, 40, 1, 14, 1, 16), tiny);
+        int started = 0;
+        ResponseStatusException refused = null;
+        while (refused == null) {
+            try {
+                controller.playOffline(null, null, new MockHttpServletResponse(), new ExtendedModelMap());
+                started++;
+            } catch (ResponseStatusException e) {
+                refused = e;
+            }
+        }
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, refused.getStatusCode());
+        // Every game started before is still there
+        assertEquals(started, tiny.size());
+    }
+
+    private static String sessionCookie(MockHttpServletResponse response) {
+        String header = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertNotNull(header);
+        return header.substring(header.indexOf('=') + 1, header.indexOf(';'));
+    }
+}
@@ -0,0 +1,216 @@
+package org.mancalgame.mancalagame.Service;
+
+import org.junit.jupiter.api.Test;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MancalaRules;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MancalaGameServiceTests {
+
+    private final MancalaGameService service = new MancalaGameService();
+
+    @Test
+    void packedEngineMatchesArrayRulesOverRandomGames() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int g = 0; g < 2_000; g++) {
+            MancalaGame game = service.createNewGame();
+            ReferenceGame reference = new ReferenceGame();
+            while (!game.isGameOver()) {
+                int pit = randomLegalPit(game, random);
+                service.makeMove(game, pit);
+                reference.move(pit);
+
+                assertArrayEquals(reference.board, game.getBoard(), "board after pit " + pit);
+                assertEquals(reference.currentPlayer, game.getCurrentPlayer());
+                assertEquals(reference.gameOver, game.isGameOver());
+                assertEquals(reference.winner, game.getWinner());
+            }
+        }
+    }
+
+    @Test
+    void fullLapLandingInEmptyOriginPitCaptures() {
+        MancalaGame game = service.createNewGame();
+        int[] board = new int[14];
+        board[0] = 13;
+        board[12] = 5;
+        board[8] = 1;
+        game.setBoard(board);
+
+        service.makeMove(game, 0);
+
+        // One stone in every pit but the opponent's store; the 13th lands back in pit 0 and captures pit 12
+        int[] expected = {0, 1, 1, 1, 1, 1, 8, 1, 2, 1, 1, 1, 0, 0};
+        assertArrayEquals(expected, game.getBoard());
+        assertEquals(1, game.getCurrentPlayer());
+    }
+
+    @Test
+    void rejectsPitsOutsideTheMoversSide() {
+        MancalaGame game = service.createNewGame();
+        assertThrows(IllegalArgumentException.class, () -> service.makeMove(game, 7));
+        assertThrows(IllegalArgumentException.class, () -> service.makeMove(game, 6));
+    }
+
+    @Test
+    void boardsThatOverflowALaneAreRejected() {
+        MancalaGame game = service.createNewGame();
+        // Each pit fits, but one side's pits would sum past 255 when collected
+        assertThrows(IllegalArgumentException.class, () -> game.setBoard(new int[]{50, 50, 50, 50, 50, 50, 0, 1, 0, 0, 0, 0, 0, 0}));
+        // So would the whole board, once sowing gathers it on one side
+        assertThrows(IllegalArgumentException.class, () -> game.setBoard(new int[]{128, 0, 0, 0, 0, 0, 0, 128, 0, 0, 0, 0, 0, 0}));
+        assertThrows(IllegalArgumentException.class, () -> game.setBoard(new int[]{0, 0, 0, 0, 0, 0, 256, 0, 0, 0, 0, 0, 0, 0}));
+
+        // The fullest board allowed still plays without losing a stone
+        game.setBoard(new int[]{127, 0, 0, 0, 0, 0, 0, 128, 0, 0, 0, 0, 0, 0});
+        service.makeMove(game, 0);
+        assertEquals(255, Arrays.stream(game.getBoard()).sum());
+    }
+
+    @Test
+    void genericPathMatchesTheSpecializedEngineOverRandomGames() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (MancalaRules rules : List.of(MancalaRules.STANDARD, MancalaRules.parse("6x6"))) {
+            for (int g = 0; g < 1_000; g++) {
+                MancalaGame game = service.createNewGame(rules);
+                MancalaGame generic = service.createNewGame(rules.generic());
+                while (!game.isGameOver()) {
+                    int pit = randomLegalPit(game, random);
+                    service.makeMove(game, pit);
+                    service.makeMove(generic, pit);
+
+                    assertArrayEquals(game.getBoard(), generic.getBoard(), rules + " board after pit " + pit);
+                    assertEquals(game.getCurrentPlayer(), generic.getCurrentPlayer());
+                    assertEquals(game.isGameOver(), generic.isGameOver());
+                }
+                assertEquals(game.getWinner(), generic.getWinner());
+            }
+        }
+    }
+
+    @Test
+    void smallerBoardsSowPastTheUnusedPits() {
+        MancalaGame game = service.createNewGame(MancalaRules.parse("4x3"));
+        assertArrayEquals(new int[]{3, 3, 3, 3, 0, 0, 0, 3, 3, 3, 3, 0, 0, 0}, game.getBoard());
+
+        service.makeMove(game, 3);
+        assertArrayEquals(new int[]{3, 3, 3, 0, 0, 0, 1, 4, 4, 3, 3, 0, 0, 0}, game.getBoard());
+        assertThrows(IllegalArgumentException.class, () -> service.makeMove(game, 11));
+
+        // Player 2's last pit sows into its store, then straight on to Player 1's first pits
+        service.makeMove(game, 10);
+        assertArrayEquals(new int[]{4, 4, 3, 0, 0, 0, 1, 4, 4, 3, 0, 0, 0, 1}, game.getBoard());
+        assertEquals(0, game.getCurrentPlayer());
+    }
+
+    @Test
+    void captureRulesDecideWhatALandingInAnEmptyPitTakes() {
+        // Player 1 sows one stone from pit 0 into empty pit 1, opposite pit 11
+        int[] board = new int[14];
+        board[0] = 1;
+        board[3] = 2;
+        board[9] = 2;
+        board[11] = 5;
+
+        MancalaGame standard = service.createNewGame(MancalaRules.parse("6x4"));
+        standard.setBoard(board);
+        service.makeMove(standard, 0);
+        assertEquals(6, standard.getStonesInPit(6));
+        assertEquals(0, standard.getStonesInPit(11));
+
+        MancalaGame noCapture = service.createNewGame(MancalaRules.parse("6x4-none"));
+        noCapture.setBoard(board);
+        service.makeMove(noCapture, 0);
+        assertEquals(1, noCapture.getStonesInPit(1));
+        assertEquals(5, noCapture.getStonesInPit(11));
+
+        board[11] = 0;
+        MancalaGame emptyCapture = service.createNewGame(MancalaRules.parse("6x4-empty"));
+        emptyCapture.setBoard(board);
+        service.makeMove(emptyCapture, 0);
+        assertEquals(0, emptyCapture.getStonesInPit(1));
+        assertEquals(1, emptyCapture.getStonesInPit(6));
+        assertEquals(1, emptyCapture.getCurrentPlayer());
+    }
+
+    @Test
+    void rulesAreParsedByName() {
+        assertSame(MancalaRules.STANDARD, MancalaRules.parse("6x4"));
+        assertEquals("4x3-none", MancalaRules.parse("4X3-None").toString());
+        assertThrows(IllegalArgumentException.class, () -> MancalaRules.parse("7x4"));
+        assertThrows(IllegalArgumentException.class, () -> MancalaRules.parse("6x30"));
+        assertThrows(IllegalArgumentException.class, () -> MancalaRules.parse("kalah"));
+        // A variant's unused pits stay empty
+        MancalaGame game = service.createNewGame(MancalaRules.parse("4x3"));
+        assertThrows(IllegalArgumentException.class, () -> game.setBoard(new int[]{0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0}));
+    }
+
+    private static int randomLegalPit(MancalaGame game, SplittableRandom random) {
+        int start = game.getCurrentPlayer() == 0 ? MancalaGame.PLAYER1_PIT_START : MancalaGame.PLAYER2_PIT_START;
+        while (true) {
+            int pit = start + random.nextInt(6);
+            if (game.getStonesInPit(pit) > 0) return pit;
+        }
+    }
+
+    /**
+     * The original array-based rules, kept as an executable specification for the packed engine.
+     */
+    private static final class ReferenceGame {
+        final int[] board = new int[14];
+        int currentPlayer = 0;
+        boolean gameOver = false;
+        int winner = -1;
+
+        ReferenceGame() {
+            Arrays.fill(board, 0, 6, 4);
+            Arrays.fill(board, 7, 13, 4);
+        }
+
+        void move(int pitIndex) {
+            int stonesToSow = board[pitIndex];
+            board[pitIndex] = 0;
+            int currentPit = pitIndex;
+            int opponentStore = currentPlayer == 0 ? 13 : 6;
+            while (stonesToSow > 0) {
+                currentPit = (currentPit + 1) % 14;
+                if (currentPit == opponentStore) continue;
+                board[currentPit]++;
+                stonesToSow--;
+            }
+            int playerStore = currentPlayer == 0 ? 6 : 13;
+            boolean ownSide = (currentPlayer == 0 && currentPit <= 5) || (currentPlayer == 1 && currentPit >= 7 && currentPit <= 12);
+            if (ownSide && board[currentPit] == 1) {
+                int oppositePit = 12 - currentPit;
+                if (board[oppositePit] > 0) {
+                    board[playerStore] += board[oppositePit] + 1;
+                    board[oppositePit] = 0;
+                    board[currentPit] = 0;
+                }
+            }
+            if (sideEmpty(0) || sideEmpty(7)) {
+                for (int i = 0; i <= 5; i++) { board[6] += board[i]; board[i] = 0; }
+                for (int i = 7; i <= 12; i++) { board[13] += board[i]; board[i] = 0; }
+                winner = board[6] > board[13] ? 0 : board[13] > board[6] ? 1 : -1;
+                gameOver = true;
+                return;
+            }
+            if (currentPit != playerStore) currentPlayer = 1 - currentPlayer;
+        }
+
+        private boolean sideEmpty(int start) {
+            for (int i = start; i < start + 6; i++) {
+                if (board[i] > 0) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.mancalgame.mancalagame.ai;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndgameDatabaseTests {
+
+    private static final int MAX_STONES = 6;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void indexIsAPerfectHash() {
+        EndgameIndex index = new EndgameIndex(MAX_STONES);
+        PackedBoard board = new PackedBoard();
+        for (long rank = 0; rank < index.size(); rank++) {
+            index.unrank(rank, board);
+            assertEquals(rank, index.rank(board));
+        }
+    }
+
+    @Test
+    void databaseMatchesExhaustiveSearch() throws Exception {
+        Path file = tempDir.resolve("endgame.db");
+        EndgameDatabaseGenerator generator = new EndgameDatabaseGenerator(MAX_STONES);
+        generator.solveAll();
+        generator.write(file);
+        EndgameDatabase database = new EndgameDatabase(file.toString());
+        assertTrue(database.isAvailable());
+        assertEquals(MAX_STONES, database.maxStones());
+
+        SplittableRandom random = new SplittableRandom(9);
+        PackedBoard board = new PackedBoard();
+        for (int i = 0; i < 2_000; i++) {
+            board.setPacked(0, 0);
+            int stones = 1 + random.nextInt(MAX_STONES);
+            for (int s = 0; s < stones; s++) {
+                int pit = random.nextInt(12);
+                int index = pit < 6 ? pit : pit + 1;
+                board.set(index, board.get(index) + 1);
+            }
+            int player = random.nextInt(2);
+            assertEquals(solve(board, player), database.lookup(board, player), board + " player " + player);
+        }
+    }
+
+    @Test
+    void missingFileMeansNoAnswers() {
+        EndgameDatabase database = new EndgameDatabase(tempDir.resolve("absent.db").toString());
+        assertFalse(database.isAvailable());
+        PackedBoard board = new PackedBoard();
+        board.set(0, 1);
+        board.set(7, 1);
+        assertEquals(EndgameDatabase.MISS, database.lookup(board, 0));
+    }
+
+    // Plain exhaustive negamax over the remaining stones, ignoring stores already banked
+    private static int solve(PackedBoard board, int player) {
+        int own = MancalaEngine.stonesInPits(board, player);
+        int opp = MancalaEngine.stonesInPits(board, 1 - player);
+        if (own == 0 || opp == 0) return own - opp;
+        int best = Integer.MIN_VALUE;
+        for (int lane = 0; lane < 6; lane++) {
+            int pit = MancalaEngine.pitIndex(player, lane);
+            if (board.get(pit) == 0) continue;
+            PackedBoard child = new PackedBoard();
+            child.copyFrom(board);
+            child.set(6, 0);
+            child.set(13, 0);
+            int flags = MancalaEngine.move(child, player, pit);
+            int gained = player == 0 ? child.get(6) - child.get(13) : child.get(13) - child.get(6);
+            if ((flags & MancalaEngine.GAME_OVER) == 0) {
+                child.set(6, 0);
+                child.set(13, 0);
+                gained += (flags & MancalaEngine.EXTRA_TURN) != 0 ? solve(child, player) : -solve(child, 1 - player);
+            }
+            best = Math.max(best, gained);
+        }
+        return best;
+    }
+}
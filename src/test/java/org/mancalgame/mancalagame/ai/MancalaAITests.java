@@ -0,0 +1,149 @@
+package org.mancalgame.mancalagame.ai;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.MancalaGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MancalaAITests {
+
+    private final MancalaGameService service = new MancalaGameService();
+    private final MancalaAI ai = new MancalaAI(EndgameDatabase.none(), 5, 40, 2, 14, 1, 16);
+
+    @AfterEach
+    void tearDown() {
+        ai.shutdown();
+    }
+
+    @Test
+    void beatsARandomPlayer() {
+        SplittableRandom random = new SplittableRandom(3);
+        int wins = 0;
+        int games = 20;
+        for (int g = 0; g < games; g++) {
+            MancalaGame game = service.createNewGame();
+            while (!game.isGameOver()) {
+                int pit = game.getCurrentPlayer() == 1
+                        ? ai.chooseMove(game).pitIndex()
+                        : randomLegalPit(game, random);
+                service.makeMove(game, pit);
+            }
+            if (game.getWinner() == 1) wins++;
+        }
+        assertTrue(wins >= games - 2, "AI won only " + wins + " of " + games);
+    }
+
+    @Test
+    void takesTheExtraTurnAtDepthOne() {
+        MancalaGame game = service.createNewGame();
+        // Pit 2 holds four stones, exactly enough to reach Player 1's store
+        SearchResult result = ai.chooseMove(game, 1_000, 1);
+        assertEquals(2, result.pitIndex());
+        assertEquals(1, result.depth());
+    }
+
+    @Test
+    void respectsTheTimeBudget() {
+        MancalaGame game = service.createNewGame();
+        long start = System.nanoTime();
+        SearchResult result = ai.chooseMove(game, 50, 90);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis < 500, "search took " + elapsedMillis + " ms");
+        assertTrue(result.depth() > 1);
+        assertTrue(result.nodesPerSecond() > 0);
+    }
+
+    @Test
+    void parallelSearchAgreesOnAForcedExtraTurn() {
+        MancalaGame game = service.createNewGame();
+        SearchResult result = ai.chooseMove(game, 1_000, 1, 2);
+        assertEquals(2, result.pitIndex());
+        assertTrue(result.threads() >= 1 && result.threads() <= 2);
+    }
+
+    @Test
+    void refusesFinishedGames() {
+        MancalaGame game = service.createNewGame();
+        game.setGameOver(true);
+        assertThrows(IllegalStateException.class, () -> ai.chooseMove(game));
+    }
+
+    @Test
+    void evaluatesStreamsLongerThanTheInFlightWindowInOrder() throws Exception {
+        // Four positions per batch and two batches in flight: 50 positions pass through reused batches
+        BatchEvaluator evaluator = new BatchEvaluator(EndgameDatabase.none(), 1, 1_000, 2, 14, 4, 2);
+        int[] finished = new int[14];
+        finished[MancalaGame.PLAYER1_STORE] = 20;
+        finished[MancalaGame.PLAYER2_PIT_START] = 3;
+        finished[MancalaGame.PLAYER2_STORE] = 25;
+        int[] next = {0};
+        List<String> results = new ArrayList<>();
+        try {
+            long count = evaluator.evaluateAll(batch -> {
+                for (; next[0] < 50 && !batch.isFull(); next[0]++) {
+                    int position = next[0];
+                    if (position == 10) batch.add(new int[13], 0);
+                    else if (position == 20) batch.add(finished, 0);
+                    else batch.add(service.createNewGame().getBoard(), 0);
+                }
+                return batch.size() > 0;
+            }, batch -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    results.add(batch.error(i) != null ? "error" : batch.bestPit(i) + "/" + batch.score(i) + "/" + batch.flags(i));
+                }
+            });
+            assertEquals(50, count);
+        } finally {
+            evaluator.shutdown();
+        }
+        assertEquals(50, results.size());
+        assertEquals("error", results.get(10));
+        // Each side collects its own pits: 20 - (25 + 3)
+        assertEquals("-1/-8/" + MancalaEngine.GAME_OVER, results.get(20));
+        for (int i = 0; i < results.size(); i++) {
+            if (i == 10 || i == 20) continue;
+            // Pit 2 of the opening ends in Player 1's store
+            assertTrue(results.get(i).startsWith("2/") && results.get(i).endsWith("/" + MancalaEngine.EXTRA_TURN), results.get(i));
+        }
+    }
+
+    @Test
+    void batchesRefuseBoardsWhoseStonesOverflowALane() {
+        // Every pit fits a lane, but sowing could gather more stones on one side than a lane holds
+        int[] overfull = new int[14];
+        overfull[0] = 100;
+        overfull[1] = 100;
+        overfull[MancalaGame.PLAYER2_PIT_START] = 100;
+        int[] wideStore = new int[14];
+        wideStore[0] = 200;
+        wideStore[MancalaGame.PLAYER2_STORE] = 60;
+        BatchEvaluator.Batch batch = new BatchEvaluator.Batch(3);
+        batch.add(overfull, 0);
+        batch.add(wideStore, 1);
+        batch.add(service.createNewGame().getBoard(), 0);
+
+        assertEquals("Board cannot hold more than 255 stones in total", batch.error(0));
+        assertEquals("Board cannot hold more than 255 stones in total", batch.error(1));
+        assertNull(batch.error(2));
+        assertThrows(IllegalArgumentException.class, () -> new MancalaGame().setBoard(overfull));
+    }
+
+    private static int randomLegalPit(MancalaGame game, SplittableRandom random) {
+        int start = game.getCurrentPlayer() == 0 ? MancalaGame.PLAYER1_PIT_START : MancalaGame.PLAYER2_PIT_START;
+        while (true) {
+            int pit = start + random.nextInt(6);
+            if (game.getStonesInPit(pit) > 0) return pit;
+        }
+    }
+}
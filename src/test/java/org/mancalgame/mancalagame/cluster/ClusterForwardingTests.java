@@ -0,0 +1,211 @@
+package org.mancalgame.mancalagame.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mancalgame.mancalagame.MancalaGameApplication;
+import org.mancalgame.mancalagame.online.OnlineGameManager;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two application nodes sharing an {@link EmbeddedStompBroker}: a player on the second node joins and
+ * moves in a game owned by the first, so both commands are forwarded and their replies come back
+ * through the broker to the node holding the player's connection.
+ */
+class ClusterForwardingTests {
+
+    private static final List<String> NODES = List.of("node-1", "node-2");
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private final List<StompSession> sessions = new ArrayList<>();
+    private EmbeddedStompBroker broker;
+    private ThreadPoolTaskScheduler receiptScheduler;
+    private WebSocketStompClient stompClient;
+
+    @AfterEach
+    void stopNodes() {
+        sessions.stream().filter(StompSession::isConnected).forEach(StompSession::disconnect);
+        if (stompClient != null) {
+            stompClient.stop();
+        }
+        if (receiptScheduler != null) {
+            receiptScheduler.shutdown();
+        }
+        // Nodes first, so that they do not spend their shutdown reconnecting to a closed broker
+        contexts.forEach(ConfigurableApplicationContext::close);
+        if (broker != null) {
+            broker.close();
+        }
+    }
+
+    @Test
+    void forwardedJoinAndMoveAreAnsweredOnTheNodeHoldingThePlayer() throws Exception {
+        broker = new EmbeddedStompBroker(0).start();
+        String ownerUrl = startNode("node-1");
+        String otherUrl = startNode("node-2");
+        receiptScheduler = new ThreadPoolTaskScheduler();
+        receiptScheduler.initialize();
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setTaskScheduler(receiptScheduler);
+
+        // The host is on the owner
+        Player host = connect(ownerUrl);
+        host.send("/app/game.host", "{}");
+        JsonNode hosted = host.take(host.details);
+        String gameId = hosted.get("gameId").asText();
+        assertEquals(0, hosted.get("assignedPlayerRole").asInt());
+        assertEquals("node-1", new ClusterTopology(true, NODES, "node-2").ownerOf(gameId));
+        host.watch(gameId);
+
+        // The joiner is on the other node; its join runs on the owner and the details come back to it
+        Player joiner = connect(otherUrl);
+        joiner.send("/app/game.join", "{\"gameId\":\"" + gameId + "\"}");
+        JsonNode joined = joiner.take(joiner.details);
+        assertEquals(gameId, joined.get("gameId").asText());
+        assertEquals(1, joined.get("assignedPlayerRole").asInt());
+        assertEquals("IN_PROGRESS", joined.get("gameStatus").asText());
+        joiner.watch(gameId);
+        assertTrue(contexts.get(0).getBean(OnlineGameManager.class).getGame(gameId).isPresent());
+        assertTrue(contexts.get(1).getBean(OnlineGameManager.class).getGame(gameId).isEmpty(), "the game was copied to the joiner's node");
+
+        // Pit 0's four stones end in pit 4, so the turn passes to the joiner
+        long seq = joined.get("seq").asLong();
+        host.send("/app/game." + gameId + ".move", "{\"pitIndex\":0}");
+        JsonNode first = joiner.takeUpdateAfter(seq);
+        assertEquals(1, currentPlayer(first));
+
+        // The joiner's move is forwarded to the owner, whose broadcast reaches both nodes' subscribers
+        joiner.send("/app/game." + gameId + ".move", "{\"pitIndex\":7}");
+        long afterFirst = seq(first);
+        JsonNode second = joiner.takeUpdateAfter(afterFirst);
+        assertEquals(afterFirst + 1, seq(second));
+        assertEquals(0, currentPlayer(second));
+        assertEquals(seq(second), seq(host.takeUpdateAfter(afterFirst)));
+        assertTrue(joiner.errors.isEmpty(), "the joiner got errors: " + joiner.errors);
+    }
+
+    private String startNode(String node) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MancalaGameApplication.class).run(
+                "--server.port=0",
+                "--mancala.cluster.enabled=true",
+                "--mancala.cluster.nodes=" + String.join(",", NODES),
+                "--mancala.cluster.node=" + node,
+                "--mancala.cluster.relay.port=" + broker.port());
+        contexts.add(context);
+        return "ws://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort() + "/ws/websocket";
+    }
+
+    private Player connect(String url) throws Exception {
+        // The node's relay and cluster link connect in the background, so the first attempts may be refused
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (true) {
+            Player player = new Player();
+            try {
+                StompSession session = stompClient.connectAsync(url, new StompSessionHandlerAdapter() { })
+                        .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                sessions.add(session);
+                session.setAutoReceipt(true);
+                player.session = session;
+                player.subscribe("/user/queue/game.details", player.details);
+                player.subscribe("/user/queue/errors", player.errors);
+                return player;
+            } catch (Exception e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    private static long seq(JsonNode update) {
+        return update.has("board") ? update.get("seq").asLong() : update.get("s").asLong();
+    }
+
+    private static int currentPlayer(JsonNode update) {
+        return update.has("board") ? update.get("currentPlayer").asInt() : update.get("p").asInt();
+    }
+
+    private final class Player {
+        StompSession session;
+        final BlockingQueue<JsonNode> details = new LinkedBlockingQueue<>();
+        final BlockingQueue<JsonNode> errors = new LinkedBlockingQueue<>();
+        final BlockingQueue<JsonNode> updates = new LinkedBlockingQueue<>();
+
+        // Returns once the broker has confirmed the subscription, so nothing sent after it is missed
+        void subscribe(String destination, BlockingQueue<JsonNode> queue) throws InterruptedException {
+            CountDownLatch subscribed = new CountDownLatch(1);
+            session.subscribe(destination, new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return byte[].class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    try {
+                        queue.add(objectMapper.readTree((byte[]) payload));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }).addReceiptTask(subscribed::countDown);
+            assertTrue(subscribed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "no receipt for " + destination);
+        }
+
+        void watch(String gameId) throws InterruptedException {
+            subscribe("/topic/game/" + gameId, updates);
+        }
+
+        void send(String destination, String json) {
+            StompHeaders headers = new StompHeaders();
+            headers.setDestination(destination);
+            headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            session.send(headers, json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        JsonNode take(BlockingQueue<JsonNode> queue) throws InterruptedException {
+            JsonNode message = queue.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(message, "no reply within " + TIMEOUT_SECONDS + " s; errors: " + errors);
+            return message;
+        }
+
+        // Skips updates that were already applied, e.g. the broadcast of the join
+        JsonNode takeUpdateAfter(long seq) throws InterruptedException {
+            while (true) {
+                JsonNode update = take(updates);
+                if (seq(update) > seq) {
+                    return update;
+                }
+            }
+        }
+    }
+}
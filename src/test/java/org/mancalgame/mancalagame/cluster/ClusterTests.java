@@ -0,0 +1,129 @@
+package org.mancalgame.mancalagame.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterTests {
+
+    private static final List<String> NODES = List.of("a", "b", "c");
+
+    @Test
+    void gamesAreOwnedByTheNodeThatCreatedThem() {
+        ClusterTopology a = new ClusterTopology(true, NODES, "a");
+        ClusterTopology b = new ClusterTopology(true, NODES, "b");
+        ClusterTopology c = new ClusterTopology(true, NODES, "c");
+
+        for (int i = 0; i < 100; i++) {
+            String gameId = b.newGameId();
+            UUID.fromString(gameId);
+            assertEquals("b", a.ownerOf(gameId));
+            assertEquals("b", c.ownerOf(gameId));
+            assertNull(b.ownerOf(gameId));
+            assertTrue(b.isLocal(gameId));
+        }
+        // Appending a node moves no game
+        String gameId = c.newGameId();
+        assertEquals("c", new ClusterTopology(true, List.of("a", "b", "c", "d"), "d").ownerOf(gameId));
+
+        // Ids naming no node are looked up locally, where they are not found
+        assertNull(a.ownerOf("ffff0000-0000-4000-8000-000000000000"));
+        assertNull(a.ownerOf("not-a-game"));
+        assertNull(a.ownerOf(null));
+        assertNull(ClusterTopology.standalone().ownerOf(gameId));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterTopology(true, NODES, "z"));
+    }
+
+    @Test
+    void embeddedBrokerDeliversTopicsToEverySubscriberAndQueuesToOne() throws IOException {
+        try (EmbeddedStompBroker broker = new EmbeddedStompBroker(0).start();
+             StompConnection publisher = new StompConnection(broker.port());
+             StompConnection first = new StompConnection(broker.port());
+             StompConnection second = new StompConnection(broker.port())) {
+            first.subscribe("1", "/topic/game/x");
+            second.subscribe("2", "/topic/game/x");
+            first.subscribe("3", "/queue/work");
+            second.subscribe("4", "/queue/work");
+
+            // Binary bodies may contain NUL, so they are framed by content-length
+            byte[] body = {'S', 0, 1, 2, 0};
+            publisher.send("SEND\ndestination:/topic/game/x\ncontent-type:application/x-mancala\ncontent-length:5\n\n", body);
+            for (StompConnection subscriber : List.of(first, second)) {
+                Frame message = subscriber.read();
+                assertEquals("MESSAGE", message.command());
+                assertTrue(message.headers().contains("destination:/topic/game/x"));
+                assertTrue(message.headers().contains("content-type:application/x-mancala"));
+                assertArrayEquals(body, message.body());
+            }
+
+            publisher.send("SEND\ndestination:/queue/work\n\n", "one".getBytes(StandardCharsets.UTF_8));
+            publisher.send("SEND\ndestination:/queue/work\n\n", "two".getBytes(StandardCharsets.UTF_8));
+            assertEquals("one", new String(first.read().body(), StandardCharsets.UTF_8));
+            assertEquals("two", new String(second.read().body(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private record Frame(String command, String headers, byte[] body) {}
+
+    // A bare STOMP client, so the broker is tested against the protocol rather than against Spring's client
+    private static final class StompConnection implements AutoCloseable {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        StompConnection(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setSoTimeout(5000);
+            in = new BufferedInputStream(socket.getInputStream());
+            out = socket.getOutputStream();
+            send("CONNECT\naccept-version:1.2\nhost:localhost\n\n", new byte[0]);
+            assertEquals("CONNECTED", read().command());
+        }
+
+        void subscribe(String id, String destination) throws IOException {
+            send("SUBSCRIBE\nid:" + id + "\ndestination:" + destination + "\nreceipt:r" + id + "\n\n", new byte[0]);
+            assertEquals("RECEIPT", read().command());
+        }
+
+        void send(String commandAndHeaders, byte[] body) throws IOException {
+            out.write(commandAndHeaders.getBytes(StandardCharsets.UTF_8));
+            out.write(body);
+            out.write(0);
+            out.flush();
+        }
+
+        Frame read() throws IOException {
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            while (!head.toString(StandardCharsets.UTF_8).endsWith("\n\n")) {
+                head.write(in.read());
+            }
+            String text = head.toString(StandardCharsets.UTF_8).stripLeading();
+            String command = text.substring(0, text.indexOf('\n'));
+            int lengthAt = text.indexOf("content-length:");
+            int length = Integer.parseInt(text.substring(lengthAt + 15, text.indexOf('\n', lengthAt)));
+            byte[] body = in.readNBytes(length);
+            assertEquals(0, in.read());
+            return new Frame(command, text, body);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
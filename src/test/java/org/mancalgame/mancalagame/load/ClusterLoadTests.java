@@ -0,0 +1,71 @@
+package org.mancalgame.mancalagame.load;
+
+import org.junit.jupiter.api.Test;
+import org.mancalgame.mancalagame.MancalaGameApplication;
+import org.mancalgame.mancalagame.cluster.EmbeddedStompBroker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a small fleet against a cluster of application nodes in this JVM, sharing an {@link EmbeddedStompBroker}. Every pair's host and joiner are on different nodes, so half of
+ * each game's commands are forwarded to its owner and every broadcast crosses the broker.
+ * The node count is {@code -Dload.nodes} (default 2); compare runs with 1, 2, 4... nodes on
+ * separate machines to see how throughput scales, as nodes in one JVM share its cores.
+ * <p>
+ * The default fleet is smaller and plays longer than {@link LoadScenario#SMOKE}: every node, the broker
+ * and every client share this machine, and on one core forty sessions leave too little time to finish a game.
+ */
+class ClusterLoadTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterLoadTests.class);
+
+    private static final LoadScenario CLUSTER_SMOKE = new LoadScenario(8, 6000, 500, 5, 20, 0.5, 0.01, 0.5, 1);
+
+    @Test
+    void simulatedPlayersPlayAcrossNodes() throws Exception {
+        int nodeCount = Integer.getInteger("load.nodes", 2);
+        List<String> nodes = new ArrayList<>();
+        for (int i = 1; i <= nodeCount; i++) {
+            nodes.add("node-" + i);
+        }
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        EmbeddedStompBroker broker = new EmbeddedStompBroker(0).start();
+        try {
+            List<String> urls = new ArrayList<>();
+            for (String node : nodes) {
+                ConfigurableApplicationContext context = new SpringApplicationBuilder(MancalaGameApplication.class).run(
+                        "--server.port=0",
+                        "--mancala.cluster.enabled=true",
+                        "--mancala.cluster.nodes=" + String.join(",", nodes),
+                        "--mancala.cluster.node=" + node,
+                        "--mancala.cluster.relay.port=" + broker.port(),
+                        "--mancala.online.expiry.disconnect-grace-ms=1000");
+                contexts.add(context);
+                int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+                urls.add("ws://localhost:" + port + "/ws/websocket");
+            }
+            // The relay and the cluster links connect in the background
+            Thread.sleep(1000);
+
+            LoadScenario scenario = LoadScenario.fromSystemProperties(CLUSTER_SMOKE);
+            LoadReport report = new WebSocketLoadGenerator(urls, scenario).run();
+            logger.info("{} nodes, {}\n{}", nodeCount, scenario, report);
+
+            assertTrue(report.movesAcknowledged() > 0, "no move reached its broadcast");
+            assertTrue(report.gamesFinished() > 0, "no game was played to the end");
+            assertTrue(report.errorRate() < 0.02, "too many errors: " + report);
+        } finally {
+            // Nodes first, so that they do not spend their shutdown reconnecting to a closed broker
+            contexts.forEach(ConfigurableApplicationContext::close);
+            broker.close();
+        }
+    }
+}
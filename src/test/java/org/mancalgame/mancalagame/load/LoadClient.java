@@ -0,0 +1,349 @@
+package org.mancalgame.mancalagame.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * One simulated player: a STOMP session that hosts or joins a game, keeps its own copy of the board
+ * from snapshots and deltas like the browser client does, and moves when it is its turn.
+ * Callbacks arrive on the WebSocket client's threads, so every state change is synchronized on the client.
+ */
+final class LoadClient extends StompSessionHandlerAdapter {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int PITS_PER_SIDE = 6;
+    private static final long STALL_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long RECONNECT_DELAY_MILLIS = 200;
+
+    private final WebSocketLoadGenerator generator;
+    private final WebSocketLoadGenerator.Pair pair;
+    private final WebSocketLoadGenerator.Stats stats;
+    private final String url;
+    private final int epoch;
+    private final boolean host;
+    private final SplittableRandom random;
+
+    private StompSession session;
+    private boolean closed;
+    // Sent once connected: a join, a resume, or a host request if neither
+    private String joinGameId;
+    private boolean resuming;
+
+    private String gameId;
+    private String resumeToken;
+    private int role = -1;
+    private int[] board;
+    private int currentPlayer;
+    private String status;
+    private boolean gameOver;
+    private long lastSeq = -1;
+    private long lastMessageAt = System.nanoTime();
+    private int game = 1;
+    private boolean rematchRequested;
+
+    private boolean moveScheduled;
+    private boolean movePending;
+    private long moveSentAt;
+    private long moveSeq;
+
+    LoadClient(WebSocketLoadGenerator generator, WebSocketLoadGenerator.Pair pair, String url, int epoch, boolean host, SplittableRandom random) {
+        this.generator = generator;
+        this.pair = pair;
+        this.stats = generator.stats;
+        this.url = url;
+        this.epoch = epoch;
+        this.host = host;
+        this.random = random;
+    }
+
+    synchronized void joinOnConnect(String gameId) {
+        this.joinGameId = gameId;
+    }
+
+    void connect() {
+        stats.connections.increment();
+        generator.stompClient().connectAsync(url, this).whenComplete((connected, failure) -> {
+            if (failure != null) {
+                failed();
+            }
+        });
+    }
+
+    @Override
+    public synchronized void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        if (closed || !generator.isRunning()) {
+            session.disconnect();
+            return;
+        }
+        this.session = session;
+        lastMessageAt = System.nanoTime();
+        subscribe("/user/queue/game.details", this::onDetails);
+        subscribe("/user/queue/game.state", this::onUpdate);
+        subscribe("/user/queue/errors", this::onError);
+        if (resuming) {
+            send("/app/game.resume", "{\"token\":\"" + resumeToken + "\",\"gameId\":\"" + gameId + "\"}");
+        } else if (joinGameId != null) {
+            send("/app/game.join", "{\"gameId\":\"" + joinGameId + "\"}");
+        } else {
+            send("/app/game.host", "{}");
+        }
+    }
+
+    // Host, join and resume replies: our role and a full snapshot
+    private void onDetails(JsonNode details) {
+        role = details.get("assignedPlayerRole").asInt();
+        resumeToken = details.path("resumeToken").asText(null);
+        if (resuming) {
+            resuming = false;
+            stats.resumes.increment();
+        }
+        if (gameId == null) {
+            gameId = details.get("gameId").asText();
+            if (host) {
+                pair.hosted(epoch, gameId);
+            }
+        }
+        session.subscribe("/topic/game/" + gameId, handler(this::onUpdate));
+        // The reply is the state to continue from, even if it is older than what we saw before the drop
+        lastSeq = -1;
+        applySnapshot(details);
+    }
+
+    private void onUpdate(JsonNode message) {
+        if (message.has("board")) {
+            applySnapshot(message);
+        } else {
+            applyDelta(message);
+        }
+    }
+
+    private void applySnapshot(JsonNode snapshot) {
+        long seq = snapshot.get("seq").asLong();
+        if (seq < lastSeq) {
+            return;
+        }
+        JsonNode pits = snapshot.get("board");
+        board = new int[pits.size()];
+        for (int i = 0; i < board.length; i++) {
+            board[i] = pits.get(i).asInt();
+        }
+        currentPlayer = snapshot.get("currentPlayer").asInt();
+        boolean wasOver = gameOver;
+        gameOver = snapshot.get("gameOver").asBoolean();
+        status = snapshot.get("gameStatus").asText();
+        if (wasOver && !gameOver) {
+            // A rematch started
+            game++;
+            rematchRequested = false;
+            if (host) stats.rematches.increment();
+        }
+        advanceTo(seq);
+    }
+
+    private void applyDelta(JsonNode delta) {
+        long seq = delta.get("s").asLong();
+        if (board == null || seq != lastSeq + 1) {
+            if (board == null || seq > lastSeq) {
+                resync();
+            }
+            return;
+        }
+        JsonNode changes = delta.get("c");
+        for (int i = 0; i < changes.size(); i += 2) {
+            board[changes.get(i).asInt()] = changes.get(i + 1).asInt();
+        }
+        currentPlayer = delta.get("p").asInt();
+        advanceTo(seq);
+    }
+
+    private void advanceTo(long seq) {
+        lastSeq = seq;
+        if (movePending && seq > moveSeq) {
+            movePending = false;
+            stats.movesAcknowledged.increment();
+            stats.moveLatency.record(System.nanoTime() - moveSentAt, TimeUnit.NANOSECONDS);
+            if (random.nextDouble() < generator.scenario().disconnectProbability()) {
+                drop();
+                return;
+            }
+        }
+        if ("CANCELLED".equals(status)) {
+            pair.restart(epoch);
+        } else if (gameOver) {
+            gameEnded();
+        } else if ("IN_PROGRESS".equals(status) && currentPlayer == role && !moveScheduled && !movePending) {
+            moveScheduled = true;
+            LoadScenario scenario = generator.scenario();
+            long think = scenario.thinkMinMillis() + random.nextLong(scenario.thinkMaxMillis() - scenario.thinkMinMillis() + 1);
+            generator.scheduler.schedule(this::move, think, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void gameEnded() {
+        if (rematchRequested) {
+            return;
+        }
+        rematchRequested = true;
+        if (host) stats.gamesFinished.increment();
+        if (pair.rematch(epoch, game)) {
+            send("/app/game." + gameId + ".rematch", "{}");
+        } else if (host) {
+            pair.restart(epoch);
+        }
+    }
+
+    private synchronized void move() {
+        moveScheduled = false;
+        if (closed || session == null || gameOver || currentPlayer != role || !"IN_PROGRESS".equals(status)) {
+            return;
+        }
+        int first = role * (PITS_PER_SIDE + 1);
+        int legal = 0;
+        for (int pit = first; pit < first + PITS_PER_SIDE; pit++) {
+            if (board[pit] > 0) legal++;
+        }
+        int choice = random.nextInt(legal);
+        int pit = first;
+        while (board[pit] == 0 || choice-- > 0) {
+            pit++;
+        }
+        movePending = true;
+        moveSeq = lastSeq;
+        moveSentAt = System.nanoTime();
+        stats.movesSent.increment();
+        send("/app/game." + gameId + ".move", "{\"pitIndex\":" + pit + "}");
+    }
+
+    // Drops the connection on purpose, then either resumes the seat or gives the game up
+    private void drop() {
+        stats.disconnects.increment();
+        disconnect();
+        if (resumeToken != null && random.nextDouble() < generator.scenario().resumeProbability()) {
+            resuming = true;
+            generator.scheduler.schedule(this::connect, RECONNECT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            pair.restart(epoch);
+        }
+    }
+
+    private void resync() {
+        stats.resyncs.increment();
+        send("/app/game." + gameId + ".resync", "{}");
+    }
+
+    synchronized void checkStalled(long now) {
+        if (closed || session == null || gameId == null || gameOver || now - lastMessageAt < STALL_NANOS) {
+            return;
+        }
+        lastMessageAt = now;
+        // A move that never showed up in a broadcast was lost; play on from the snapshot
+        movePending = false;
+        resync();
+    }
+
+    private void onError(JsonNode error) {
+        stats.errorFrames.increment();
+        movePending = false;
+        if (resuming) {
+            // The seat was given up before we came back
+            resuming = false;
+            pair.restart(epoch);
+        }
+    }
+
+    synchronized void close() {
+        closed = true;
+        disconnect();
+    }
+
+    private void disconnect() {
+        if (session != null && session.isConnected()) {
+            try {
+                session.disconnect();
+            } catch (RuntimeException e) {
+                // Already closing
+            }
+        }
+        session = null;
+        moveScheduled = false;
+        movePending = false;
+    }
+
+    private synchronized void failed() {
+        if (!closed && generator.isRunning()) {
+            stats.transportErrors.increment();
+            pair.restart(epoch);
+        }
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        synchronized (this) {
+            if (session != this.session) {
+                return;
+            }
+        }
+        failed();
+    }
+
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+        stats.errorFrames.increment();
+    }
+
+    private void subscribe(String destination, Consumer<JsonNode> consumer) {
+        session.subscribe(destination, handler(consumer));
+    }
+
+    private void send(String destination, String json) {
+        if (session == null) {
+            return;
+        }
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        session.send(headers, json.getBytes(StandardCharsets.UTF_8));
+        stats.messagesSent.increment();
+    }
+
+    private StompFrameHandler handler(Consumer<JsonNode> consumer) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                stats.messagesReceived.increment();
+                JsonNode message;
+                try {
+                    message = objectMapper.readTree((byte[]) payload);
+                } catch (IOException e) {
+                    stats.errorFrames.increment();
+                    return;
+                }
+                synchronized (LoadClient.this) {
+                    if (closed || session == null || !generator.isRunning()) {
+                        return;
+                    }
+                    lastMessageAt = System.nanoTime();
+                    consumer.accept(message);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package org.mancalgame.mancalagame.load;
+
+import java.util.Map;
+
+/**
+ * What a {@link WebSocketLoadGenerator} run measured.
+ *
+ * @param elapsedMillis      Time from the first connect to the end of play.
+ * @param connections        Sessions opened, including reconnects.
+ * @param messagesSent       SEND frames from the clients.
+ * @param messagesReceived   MESSAGE frames delivered to the clients.
+ * @param movesSent          Moves sent.
+ * @param movesAcknowledged  Moves whose broadcast reached the mover.
+ * @param gamesFinished      Games played to the end.
+ * @param rematches          Finished games followed by a rematch.
+ * @param disconnects        Connections dropped on purpose.
+ * @param resumes            Dropped clients that took their seat back.
+ * @param resyncs            Snapshots requested after a gap or stall.
+ * @param errorFrames        Frames received on {@code /queue/errors}.
+ * @param transportErrors    Connects that failed and connections lost without being dropped.
+ * @param latencyMillis      Move-to-broadcast latency in milliseconds, in order: {@code p50}, {@code p90}, {@code p99}, {@code p99.9}, {@code max}.
+ */
+public record LoadReport(long elapsedMillis, long connections, long messagesSent, long messagesReceived,
+                         long movesSent, long movesAcknowledged, long gamesFinished, long rematches,
+                         long disconnects, long resumes, long resyncs, long errorFrames, long transportErrors,
+                         Map<String, Double> latencyMillis) {
+
+    public long errors() {
+        return errorFrames + transportErrors;
+    }
+
+    /**
+     * @return Errors per frame sent.
+     */
+    public double errorRate() {
+        return messagesSent == 0 ? 0 : (double) errors() / messagesSent;
+    }
+
+    public double movesPerSecond() {
+        return elapsedMillis == 0 ? 0 : movesAcknowledged * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder latency = new StringBuilder();
+        latencyMillis.forEach((name, millis) -> latency.append(String.format(" %s %.2f ms,", name, millis)));
+        return String.format("%,d ms: %,d connections, %,d frames sent, %,d received%n"
+                        + "  moves: %,d sent, %,d acknowledged (%,.0f/s); games: %,d finished, %,d rematches%n"
+                        + "  move-to-broadcast:%s%n"
+                        + "  disconnects %,d, resumes %,d, resyncs %,d; errors: %,d error frames, %,d transport (%.3f%% of frames sent)",
+                elapsedMillis, connections, messagesSent, messagesReceived,
+                movesSent, movesAcknowledged, movesPerSecond(), gamesFinished, rematches,
+                latency.length() > 0 ? latency.substring(0, latency.length() - 1) : " none",
+                disconnects, resumes, resyncs, errorFrames, transportErrors, errorRate() * 100);
+    }
+}
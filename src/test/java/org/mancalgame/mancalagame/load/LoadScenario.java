@@ -0,0 +1,67 @@
+package org.mancalgame.mancalagame.load;
+
+/**
+ * The shape of a simulated client fleet for {@link WebSocketLoadGenerator}.
+ *
+ * @param sessions            STOMP sessions kept open at once; clients play in pairs, one hosting and one joining.
+ * @param durationMillis      How long the fleet plays before the report is taken.
+ * @param rampUpMillis        Pairs start spread evenly over this time, so connects do not all land at once.
+ * @param thinkMinMillis      Shortest pause before a client moves.
+ * @param thinkMaxMillis      Longest pause before a client moves.
+ * @param rematchProbability  Chance that a pair plays again after a finished game instead of starting over.
+ * @param disconnectProbability Chance that a client drops its connection after each of its moves.
+ * @param resumeProbability   Chance that a dropped client reconnects and resumes its seat; otherwise its pair starts over.
+ * @param seed                Seed for every random choice the fleet makes.
+ */
+public record LoadScenario(int sessions, long durationMillis, long rampUpMillis,
+                           long thinkMinMillis, long thinkMaxMillis,
+                           double rematchProbability, double disconnectProbability, double resumeProbability,
+                           long seed) {
+
+    /** A few dozen sessions for a few seconds: enough to exercise every path in a normal test run. */
+    public static final LoadScenario SMOKE = new LoadScenario(40, 4000, 500, 5, 20, 0.5, 0.01, 0.5, 1);
+
+    public LoadScenario {
+        if (sessions < 2 || durationMillis <= 0 || rampUpMillis < 0 || thinkMinMillis < 0 || thinkMaxMillis < thinkMinMillis) {
+            throw new IllegalArgumentException("Invalid load scenario: " + this);
+        }
+    }
+
+    /**
+     * Overrides the given scenario with any {@code load.*} system properties, e.g.
+     * {@code -Dload.sessions=5000 -Dload.duration-ms=60000 -Dload.think-ms=200-1000}.
+     * Also reads {@code load.ramp-up-ms}, {@code load.rematch}, {@code load.disconnect},
+     * {@code load.resume} and {@code load.seed}.
+     */
+    public static LoadScenario fromSystemProperties(LoadScenario defaults) {
+        long thinkMin = defaults.thinkMinMillis;
+        long thinkMax = defaults.thinkMaxMillis;
+        String think = System.getProperty("load.think-ms");
+        if (think != null) {
+            String[] range = think.split("-");
+            thinkMin = Long.parseLong(range[0].trim());
+            thinkMax = range.length > 1 ? Long.parseLong(range[1].trim()) : thinkMin;
+        }
+        return new LoadScenario(
+                Integer.getInteger("load.sessions", defaults.sessions),
+                Long.getLong("load.duration-ms", defaults.durationMillis),
+                Long.getLong("load.ramp-up-ms", defaults.rampUpMillis),
+                thinkMin, thinkMax,
+                doubleProperty("load.rematch", defaults.rematchProbability),
+                doubleProperty("load.disconnect", defaults.disconnectProbability),
+                doubleProperty("load.resume", defaults.resumeProbability),
+                Long.getLong("load.seed", defaults.seed));
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * @return The number of client pairs, i.e. games played at once.
+     */
+    public int pairs() {
+        return sessions / 2;
+    }
+}
@@ -0,0 +1,256 @@
+package org.mancalgame.mancalagame.load;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays online games against a running server through real STOMP sessions on {@code /ws}, the way
+ * browsers do, and measures what the players see. Needs nothing but the server: the clients are
+ * Spring's STOMP client over the JSR-356 WebSocket client that ships with Tomcat.
+ * <p>
+ * The fleet is {@link LoadScenario#pairs()} pairs of {@link LoadClient}s. In each pair one client hosts
+ * a game with {@code /app/game.host} and the other joins it with {@code /app/game.join}; both then play
+ * random legal moves after a random think time. After a finished game a pair either asks for a rematch
+ * or disconnects and starts over with new sessions. Clients also drop their connection at random,
+ * then either resume their seat with its token or abandon the game, which starts their pair over.
+ * <p>
+ * A move's latency runs from sending it to receiving the broadcast that carries it, on the mover's
+ * own topic subscription.
+ * <p>
+ * Given several servers, e.g. the nodes of a cluster, pairs are spread over them and each pair's joiner
+ * connects to the server after its host's, so joins and moves cross nodes.
+ */
+public class WebSocketLoadGenerator {
+
+    private final List<String> urls;
+    private final LoadScenario scenario;
+    private final WebSocketStompClient stompClient;
+    final ScheduledExecutorService scheduler;
+    final Stats stats = new Stats();
+    private final List<Pair> pairs = new ArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * @param url The server's raw WebSocket endpoint, e.g. {@code ws://localhost:8080/ws/websocket}.
+     */
+    public WebSocketLoadGenerator(String url, LoadScenario scenario) {
+        this(List.of(url), scenario);
+    }
+
+    /**
+     * @param urls The raw WebSocket endpoints of the servers to spread the clients over.
+     */
+    public WebSocketLoadGenerator(List<String> urls, LoadScenario scenario) {
+        this.urls = List.copyOf(urls);
+        this.scenario = scenario;
+        this.stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "mancala-load-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts every pair over the ramp-up time, lets them play for the scenario's duration, then
+     * closes every session.
+     */
+    public LoadReport run() throws InterruptedException {
+        running = true;
+        long start = System.nanoTime();
+        SplittableRandom seeds = new SplittableRandom(scenario.seed());
+        int pairCount = scenario.pairs();
+        for (int i = 0; i < pairCount; i++) {
+            Pair pair = new Pair(urls.get(i % urls.size()), urls.get((i + 1) % urls.size()), seeds.split());
+            pairs.add(pair);
+            long delay = pairCount == 1 ? 0 : scenario.rampUpMillis() * i / (pairCount - 1);
+            scheduler.schedule(pair::start, delay, TimeUnit.MILLISECONDS);
+        }
+        // Catches clients waiting on a broadcast they will never get, e.g. one sent before they subscribed
+        scheduler.scheduleWithFixedDelay(() -> pairs.forEach(Pair::checkStalled), 1, 1, TimeUnit.SECONDS);
+        Thread.sleep(scenario.durationMillis());
+        running = false;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LoadReport report = stats.report(elapsedMillis);
+        pairs.forEach(Pair::close);
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        return report;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    WebSocketStompClient stompClient() {
+        return stompClient;
+    }
+
+    LoadScenario scenario() {
+        return scenario;
+    }
+
+    /**
+     * Two clients playing each other, one game after another. Each start is an epoch: when a pair
+     * starts over, callbacks from the previous epoch's clients are ignored.
+     */
+    final class Pair {
+        private final String hostUrl;
+        private final String joinerUrl;
+        private final SplittableRandom random;
+        private int epoch;
+        private LoadClient host;
+        private LoadClient joiner;
+        // Whether to rematch after each game of this epoch, decided the first time either client asks
+        private final List<Boolean> rematches = new ArrayList<>();
+
+        Pair(String hostUrl, String joinerUrl, SplittableRandom random) {
+            this.hostUrl = hostUrl;
+            this.joinerUrl = joinerUrl;
+            this.random = random;
+        }
+
+        // Clients are connected and closed outside the pair's lock: their callbacks hold their own lock while calling in here
+        void start() {
+            LoadClient client;
+            synchronized (this) {
+                if (!running) {
+                    return;
+                }
+                client = host = new LoadClient(WebSocketLoadGenerator.this, this, hostUrl, epoch, true, random.split());
+                joiner = null;
+            }
+            client.connect();
+        }
+
+        // The host's game id arrived; the joiner follows
+        void hosted(int epoch, String gameId) {
+            LoadClient client;
+            synchronized (this) {
+                if (epoch != this.epoch || joiner != null) {
+                    return;
+                }
+                client = joiner = new LoadClient(WebSocketLoadGenerator.this, this, joinerUrl, epoch, false, random.split());
+            }
+            client.joinOnConnect(gameId);
+            client.connect();
+        }
+
+        /**
+         * Decides once per game whether the pair plays again; both clients ask after the game ends.
+         */
+        synchronized boolean rematch(int epoch, int game) {
+            if (epoch != this.epoch) {
+                return false;
+            }
+            while (rematches.size() < game) {
+                rematches.add(random.nextDouble() < scenario.rematchProbability());
+            }
+            return rematches.get(game - 1);
+        }
+
+        /**
+         * Closes both sessions and starts a fresh pair of clients, unless that already happened for this epoch.
+         */
+        synchronized void restart(int epoch) {
+            if (epoch != this.epoch) {
+                return;
+            }
+            this.epoch++;
+            rematches.clear();
+            LoadClient oldHost = host;
+            LoadClient oldJoiner = joiner;
+            host = null;
+            joiner = null;
+            // Once the run is over every pair is closed anyway
+            if (running) {
+                scheduler.execute(() -> close(oldHost, oldJoiner));
+                scheduler.schedule(this::start, 100, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void checkStalled() {
+            LoadClient h;
+            LoadClient j;
+            synchronized (this) {
+                h = host;
+                j = joiner;
+            }
+            long now = System.nanoTime();
+            if (h != null) h.checkStalled(now);
+            if (j != null) j.checkStalled(now);
+        }
+
+        void close() {
+            LoadClient h;
+            LoadClient j;
+            synchronized (this) {
+                h = host;
+                j = joiner;
+            }
+            close(h, j);
+        }
+
+        private static void close(LoadClient host, LoadClient joiner) {
+            if (host != null) host.close();
+            if (joiner != null) joiner.close();
+        }
+    }
+
+    /**
+     * Counters shared by every client.
+     */
+    static final class Stats {
+        final LongAdder connections = new LongAdder();
+        final LongAdder messagesSent = new LongAdder();
+        final LongAdder messagesReceived = new LongAdder();
+        final LongAdder movesSent = new LongAdder();
+        final LongAdder movesAcknowledged = new LongAdder();
+        final LongAdder gamesFinished = new LongAdder();
+        final LongAdder rematches = new LongAdder();
+        final LongAdder disconnects = new LongAdder();
+        final LongAdder resumes = new LongAdder();
+        final LongAdder resyncs = new LongAdder();
+        final LongAdder errorFrames = new LongAdder();
+        final LongAdder transportErrors = new LongAdder();
+        final Timer moveLatency = Timer.builder("load.move.latency")
+                .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                // One window for the whole run, however long it is
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(new SimpleMeterRegistry());
+
+        LoadReport report(long elapsedMillis) {
+            HistogramSnapshot snapshot = moveLatency.takeSnapshot();
+            Map<String, Double> latency = new LinkedHashMap<>();
+            if (snapshot.count() > 0) {
+                String[] names = {"p50", "p90", "p99", "p99.9"};
+                ValueAtPercentile[] values = snapshot.percentileValues();
+                for (int i = 0; i < values.length; i++) {
+                    latency.put(names[i], values[i].value(TimeUnit.MILLISECONDS));
+                }
+                latency.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+            }
+            return new LoadReport(elapsedMillis, connections.sum(), messagesSent.sum(), messagesReceived.sum(),
+                    movesSent.sum(), movesAcknowledged.sum(), gamesFinished.sum(), rematches.sum(),
+                    disconnects.sum(), resumes.sum(), resyncs.sum(), errorFrames.sum(), transportErrors.sum(), latency);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.mancalgame.mancalagame.load;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the {@link LoadScenario#SMOKE} fleet against the application on a random port. Any scenario can
+ * be run the same way by overriding it with system properties, e.g.
+ * {@code mvn test -Dtest=WebSocketLoadTests -Dload.sessions=5000 -Dload.duration-ms=60000 -Dload.think-ms=200-1000}.
+ * Above roughly 8,000 sessions raise {@code server.tomcat.max-connections} as well.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "mancala.online.expiry.disconnect-grace-ms=1000")
+class WebSocketLoadTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketLoadTests.class);
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void simulatedPlayersHostJoinPlayAndReconnect() throws InterruptedException {
+        LoadScenario scenario = LoadScenario.fromSystemProperties(LoadScenario.SMOKE);
+        LoadReport report = new WebSocketLoadGenerator("ws://localhost:" + port + "/ws/websocket", scenario).run();
+        logger.info("{}\n{}", scenario, report);
+
+        assertTrue(report.movesAcknowledged() > 0, "no move reached its broadcast");
+        assertTrue(report.gamesFinished() > 0, "no game was played to the end");
+        assertTrue(report.errorRate() < 0.02, "too many errors: " + report);
+    }
+}
@@ -0,0 +1,123 @@
+package org.mancalgame.mancalagame.offline;
+
+import org.junit.jupiter.api.Test;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MancalaRules;
+import org.mancalgame.mancalagame.offline.OfflineSessionStore.OfflineSession;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OfflineSessionStoreTests {
+
+    private static final long IDLE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final MancalaGameService gameService = new MancalaGameService();
+
+    @Test
+    void gamesComeBackAsTheyWereStored() {
+        OfflineSessionStore store = new OfflineSessionStore(64, IDLE_MILLIS);
+        MancalaGame game = gameService.createNewGame(MancalaRules.parse("4x3-none"));
+        gameService.makeMove(game, 0);
+        gameService.makeMove(game, 8);
+        long id = store.newId();
+        store.put(id, game, false);
+
+        OfflineSession session = store.get(id);
+        assertEquals(game.getRules(), session.game().getRules());
+        assertArrayEquals(game.getBoard(), session.game().getBoard());
+        assertEquals(game.getCurrentPlayer(), session.game().getCurrentPlayer());
+        assertFalse(session.game().isGameOver());
+        assertEquals(-1, session.game().getWinner());
+        assertFalse(session.vsComputer());
+
+        // A finished game keeps its result
+        MancalaGame finished = gameService.createNewGame();
+        finished.setBoard(new int[] {0, 0, 0, 0, 0, 0, 20, 0, 0, 0, 0, 0, 0, 28});
+        finished.setGameOver(true);
+        finished.setWinner(1);
+        store.put(id, finished, true);
+        session = store.get(id);
+        assertTrue(session.game().isGameOver());
+        assertEquals(1, session.game().getWinner());
+        assertSame(MancalaRules.STANDARD, session.game().getRules());
+        assertTrue(session.vsComputer());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void searchSummaryIsHandedOutOnce() {
+        OfflineSessionStore store = new OfflineSessionStore(64, IDLE_MILLIS);
+        long id = store.newId();
+        store.put(id, gameService.createNewGame(), true, 14, 2_500_000L);
+
+        OfflineSession session = store.get(id);
+        assertEquals(14, session.searchDepth());
+        assertEquals(2_500_000L, session.searchNodesPerSecond());
+        assertEquals(0, store.get(id).searchDepth());
+    }
+
+    @Test
+    void fullStoreReplacesIdleSessionsInsteadOfGrowing() {
+        // Every session is idle at once
+        OfflineSessionStore store = new OfflineSessionStore(1024, 0);
+        Set<Long> ids = new HashSet<>();
+        MancalaGame game = gameService.createNewGame();
+        for (int i = 0; i < 4 * store.capacity(); i++) {
+            long id = store.newId();
+            ids.add(id);
+            store.put(id, game, false);
+        }
+        assertTrue(store.size() <= store.capacity());
+        assertEquals(4 * store.capacity() - store.size(), (long) store.evictions.count());
+        long found = ids.stream().filter(id -> store.get(id) != null).count();
+        assertEquals(store.size(), found);
+
+        long id = ids.stream().filter(candidate -> store.get(candidate) != null).findFirst().orElseThrow();
+        store.remove(id);
+        assertNull(store.get(id));
+        assertNull(store.get(0L));
+        assertEquals(found - 1, store.size());
+    }
+
+    @Test
+    void gamesInProgressAreNeverReplaced() {
+        OfflineSessionStore store = new OfflineSessionStore(64, IDLE_MILLIS);
+        MancalaGame game = gameService.createNewGame();
+        List<Long> stored = new ArrayList<>();
+        long refused;
+        while (true) {
+            long id = store.newId();
+            if (!store.put(id, game, false)) {
+                refused = id;
+                break;
+            }
+            stored.add(id);
+        }
+        assertEquals(0, (long) store.evictions.count());
+        assertEquals(1, (long) store.rejections.count());
+        assertNull(store.get(refused));
+        assertTrue(stored.stream().allMatch(id -> store.get(id) != null));
+
+        // Once one game in the full bucket is over, it makes room
+        long finishedId = stored.stream().filter(id -> store.bucket(id) == store.bucket(refused)).findFirst().orElseThrow();
+        MancalaGame finished = gameService.createNewGame();
+        finished.setGameOver(true);
+        finished.setWinner(0);
+        store.put(finishedId, finished, false);
+        assertTrue(store.put(refused, game, false));
+        assertNull(store.get(finishedId));
+        assertEquals(1, (long) store.evictions.count());
+    }
+}
@@ -0,0 +1,124 @@
+package org.mancalgame.mancalagame.online;
+
+import org.junit.jupiter.api.Test;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.ErrorDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameDeltaDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.InitialGameDetailsDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.MoveRequest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryGameCodecTests {
+
+    @Test
+    void snapshotIsPrintableAsciiWithOneBytePerPit() {
+        OnlineMancalaGame game = new OnlineMancalaGame(new MancalaGameService());
+        game.addPlayer("host");
+        game.addPlayer("guest");
+        game.makeMove(2, 0);
+
+        byte[] frame = BinaryGameCodec.encodeState(new InitialGameDetailsDTO(game, 1));
+
+        assertPrintable(frame);
+        // type, role, token length, 22-char token, seq, player, winner, status, flags, pit count, 14 pits, 36-char UUID
+        assertEquals(9 + 22 + 14 + 36, frame.length);
+        int[] position = {1};
+        assertEquals(1, BinaryGameCodec.readVarint(frame, position));
+        assertEquals(22, BinaryGameCodec.readVarint(frame, position));
+        assertEquals(game.getResumeToken(1), new String(frame, position[0], 22, StandardCharsets.US_ASCII));
+        position[0] = 9 + 22;
+        int[] board = new int[14];
+        for (int i = 0; i < board.length; i++) {
+            board[i] = (int) BinaryGameCodec.readVarint(frame, position);
+        }
+        assertArrayEquals(game.getMancalaGame().getBoard(), board);
+        assertEquals(game.getGameId(), new String(frame, position[0], frame.length - position[0], StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void varintsRoundTripAcrossDigitBoundaries() {
+        long[] values = {0, 1, 46, 47, 48, 2208, 2209, 1_000_000, Long.MAX_VALUE};
+        for (long value : values) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryGameCodec.writeVarint(out, value);
+            byte[] bytes = out.toByteArray();
+            assertPrintable(bytes);
+            int[] position = {0};
+            assertEquals(value, BinaryGameCodec.readVarint(bytes, position));
+            assertEquals(bytes.length, position[0]);
+        }
+        assertEquals(1, encodeMove(46).length);
+        assertEquals(5, BinaryGameCodec.decodeMove(encodeMove(5)));
+        assertThrows(IllegalArgumentException.class, () -> BinaryGameCodec.decodeMove(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> BinaryGameCodec.decodeMove(new byte[]{0}));
+    }
+
+    @Test
+    void converterOnlyClaimsNegotiatedMessages() {
+        BinaryMessageConverter binary = new BinaryMessageConverter();
+        CompositeMessageConverter converter = new CompositeMessageConverter(List.of(binary, new MappingJackson2MessageConverter()));
+        GameDeltaDTO delta = new GameDeltaDTO(3, 1, new int[]{2, 0, 6, 1}, null);
+
+        // No preference: JSON
+        Message<?> json = converter.toMessage(delta, headersFor("plain"));
+        assertTrue(new String((byte[]) json.getPayload(), StandardCharsets.UTF_8).startsWith("{"));
+
+        // CONNECT with accept-content-type switches that session's replies to the binary codec
+        StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+        connect.setSessionId("fast");
+        connect.setNativeHeader(BinaryMessageConverter.ACCEPT_HEADER, BinaryGameCodec.MIME_TYPE);
+        binary.preSend(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()), null);
+        Message<?> compact = converter.toMessage(new ErrorDTO("nope"), headersFor("fast"));
+        assertArrayEquals("Enope".getBytes(StandardCharsets.UTF_8), (byte[]) compact.getPayload());
+        assertEquals(BinaryMessageConverter.MIME_TYPE, compact.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+
+        // Inbound SEND frames are decoded by content type
+        SimpMessageHeaderAccessor send = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        send.setContentType(BinaryMessageConverter.MIME_TYPE);
+        MoveRequest move = (MoveRequest) converter.fromMessage(MessageBuilder.createMessage(encodeMove(9), send.getMessageHeaders()), MoveRequest.class);
+        assertEquals(9, move.getPitIndex());
+    }
+
+    @Test
+    void deltaEncodesPairsAfterHeader() {
+        byte[] frame = BinaryGameCodec.encodeDelta(new GameDeltaDTO(12, 0, new int[]{3, 0, 4, 5}, null));
+        // 'D', seq 12, player 0, then (3, 0) and (4, 5), each digit offset by 0x20
+        assertEquals("D, # $%", new String(frame, StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] encodeMove(int pit) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryGameCodec.writeVarint(out, pit);
+        return out.toByteArray();
+    }
+
+    private static MessageHeaders headersFor(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+
+    private static void assertPrintable(byte[] frame) {
+        for (byte b : frame) {
+            assertTrue(b >= 0x20 && b < 0x7F, "non-printable byte " + b);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package org.mancalgame.mancalagame.online;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MancalaGame.GameStatus;
+import org.mancalgame.mancalagame.game.MancalaRules;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameEventLogTests {
+
+    private static final int SEGMENT_SIZE = 16 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private final SplittableRandom random = new SplittableRandom(11);
+    private final List<GameEventLog> logs = new ArrayList<>();
+
+    @Test
+    void recoveryRebuildsEveryLiveGame() {
+        GameEventLog log = newLog();
+        OnlineGameManager manager = newManager(log);
+        manager.recoverGames();
+
+        OnlineMancalaGame waiting = manager.createAndAddPlayer("w1");
+        OnlineMancalaGame playing = manager.createAndAddPlayer("p1");
+        manager.joinGame(playing.getGameId(), "p2").join();
+        playMoves(manager, playing, 7);
+        OnlineMancalaGame rematched = manager.createAndAddPlayer("r1");
+        manager.joinGame(rematched.getGameId(), "r2").join();
+        playToEnd(manager, rematched);
+        manager.execute(rematched.getGameId(), game -> {
+            game.setPlayerWantsRematch(0);
+            game.setPlayerWantsRematch(1);
+            game.resetForRematch();
+        });
+        playMoves(manager, rematched, 3);
+        OnlineMancalaGame cancelled = manager.createAndAddPlayer("c1");
+        manager.joinGame(cancelled.getGameId(), "c2").join();
+        manager.removePlayer("c2");
+        log.shutdown();
+
+        OnlineGameManager recovered = newManager(newLog());
+        recovered.recoverGames();
+
+        assertEquals(3, recovered.getActiveGameCount());
+        assertSameGame(waiting, recovered);
+        assertSameGame(playing, recovered);
+        assertSameGame(rematched, recovered);
+        assertTrue(recovered.getGame(cancelled.getGameId()).isEmpty());
+        assertEquals(1, recovered.getPlayerRoleInGame(playing.getGameId(), "p2"));
+    }
+
+    @Test
+    void gamesKeepTheirRulesThroughRematchesReplayAndSnapshots() {
+        GameEventLog log = newLog();
+        OnlineGameManager manager = newManager(log);
+        manager.recoverGames();
+        MancalaRules variant = MancalaRules.parse("4x3-none");
+        OnlineMancalaGame game = manager.createAndAddPlayer("v1", variant);
+        manager.joinGame(game.getGameId(), "v2").join();
+        playToEnd(manager, game);
+        manager.execute(game.getGameId(), g -> {
+            g.setPlayerWantsRematch(0);
+            g.setPlayerWantsRematch(1);
+            g.resetForRematch();
+        });
+        assertSame(variant, game.getRules());
+        assertArrayEquals(new int[] {3, 3, 3, 3, 0, 0, 0, 3, 3, 3, 3, 0, 0, 0}, game.getMancalaGame().getBoard());
+        playMoves(manager, game, 3);
+        OnlineMancalaGame standard = manager.createAndAddPlayer("s1");
+        log.shutdown();
+
+        // Replayed from the creation record, then from the snapshot of the checkpoint taken by recovery
+        GameEventLog secondLog = newLog();
+        OnlineGameManager second = newManager(secondLog);
+        second.recoverGames();
+        assertSameGame(game, second);
+        assertSameGame(standard, second);
+        secondLog.shutdown();
+        OnlineGameManager third = newManager(newLog());
+        third.recoverGames();
+        assertSameGame(game, third);
+        assertSame(MancalaRules.STANDARD, third.getGame(standard.getGameId()).orElseThrow().getRules());
+    }
+
+    @Test
+    void checkpointsDropOldSegmentsWithoutLosingGames() throws IOException {
+        GameEventLog log = newLog();
+        OnlineGameManager manager = newManager(log);
+        manager.recoverGames();
+        List<OnlineMancalaGame> games = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            OnlineMancalaGame game = manager.createAndAddPlayer("h" + i);
+            manager.joinGame(game.getGameId(), "j" + i).join();
+            games.add(game);
+        }
+        // Enough moves to fill several segments
+        for (int round = 0; round < 40; round++) {
+            for (OnlineMancalaGame game : games) {
+                if (game.getMancalaGame().isGameOver()) {
+                    manager.execute(game.getGameId(), OnlineMancalaGame::resetForRematch);
+                }
+                playMoves(manager, game, 1);
+            }
+        }
+        log.shutdown();
+        assertTrue(segmentCount() > 2);
+
+        // Recovery checkpoints right away, after which only the new segment is needed
+        GameEventLog secondLog = newLog();
+        OnlineGameManager second = newManager(secondLog);
+        second.recoverGames();
+        playMoves(second, second.getGame(games.get(0).getGameId()).orElseThrow(), 1);
+        secondLog.shutdown();
+        assertEquals(1, segmentCount());
+
+        OnlineGameManager third = newManager(newLog());
+        third.recoverGames();
+        assertEquals(games.size(), third.getActiveGameCount());
+        for (OnlineMancalaGame game : games.subList(1, games.size())) {
+            assertSameGame(game, third);
+        }
+        assertSameGame(second.getGame(games.get(0).getGameId()).orElseThrow(), third);
+    }
+
+    @Test
+    void hibernatedGamesSurviveACheckpoint() throws InterruptedException {
+        GameEventLog log = newLog();
+        HibernatedGameStore store = new HibernatedGameStore(1, 1, new SimpleMeterRegistry());
+        GameBroadcaster broadcaster = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> true));
+        OnlineGameManager manager = new OnlineGameManager(new MancalaGameService(), broadcaster, log, store, GameExpiry.disabled(), GameClocks.untimed(), GameMetrics.disabled(), Runnable::run, 8);
+        manager.recoverGames();
+        OnlineMancalaGame game = manager.createAndAddPlayer("host");
+        manager.joinGame(game.getGameId(), "guest").join();
+        playMoves(manager, game, 5);
+
+        Thread.sleep(5);
+        manager.hibernateIdleGames();
+        assertEquals(1, store.size());
+        manager.checkpoint();
+        log.shutdown();
+
+        OnlineGameManager recovered = newManager(newLog());
+        recovered.recoverGames();
+        assertSameGame(game, recovered);
+    }
+
+    @Test
+    void recoveryRestoresClocks() {
+        GameClocks clocks = new GameClocks(600000, 5000, 100, 16, new SimpleMeterRegistry());
+        GameEventLog log = newLog();
+        OnlineGameManager manager = newManager(log, clocks);
+        manager.recoverGames();
+        OnlineMancalaGame playing = manager.createAndAddPlayer("p1");
+        manager.joinGame(playing.getGameId(), "p2").join();
+        playMoves(manager, playing, 6);
+        OnlineMancalaGame flagged = manager.createAndAddPlayer("f1");
+        manager.joinGame(flagged.getGameId(), "f2").join();
+        manager.execute(flagged.getGameId(), game -> game.loseOnTime(0));
+        manager.checkpoint();
+        playMoves(manager, playing, 3);
+        log.shutdown();
+
+        OnlineGameManager recovered = newManager(newLog(), clocks);
+        recovered.recoverGames();
+        assertSameGame(playing, recovered);
+        long[] clock = recovered.getGame(playing.getGameId()).orElseThrow().getClock();
+        assertEquals(playing.getClock()[0], clock[0]);
+        assertEquals(playing.getClock()[1], clock[1]);
+        assertSameGame(flagged, recovered);
+        assertEquals(1, recovered.getGame(flagged.getGameId()).orElseThrow().getMancalaGame().getWinner());
+    }
+
+    @Test
+    void aTornRecordEndsReplay() throws IOException {
+        GameEventLog log = newLog();
+        OnlineGameManager manager = newManager(log);
+        manager.recoverGames();
+        OnlineMancalaGame game = manager.createAndAddPlayer("host");
+        manager.joinGame(game.getGameId(), "guest").join();
+        int[] boardBeforeLastMove = game.getMancalaGame().getBoard();
+        int playerBeforeLastMove = game.getMancalaGame().getCurrentPlayer();
+        playMoves(manager, game, 1);
+        log.shutdown();
+
+        // Corrupt the last byte of the final record, the move
+        Path segment = segments().get(segments().size() - 1);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long end = 0;
+            while (true) {
+                file.seek(end);
+                int length = file.readInt();
+                if (length == 0) break;
+                end += LogSegment.FRAME_BYTES + length;
+            }
+            file.seek(end - 1);
+            int last = file.read();
+            file.seek(end - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        OnlineGameManager recovered = newManager(newLog());
+        recovered.recoverGames();
+        MancalaGame state = recovered.getGame(game.getGameId()).orElseThrow().getMancalaGame();
+        assertArrayEquals(boardBeforeLastMove, state.getBoard());
+        assertEquals(playerBeforeLastMove, state.getCurrentPlayer());
+    }
+
+    @Test
+    void aWriteFailureStopsTheLogInsteadOfTheWriter() throws Exception {
+        GameEventLog log = newLog(64);
+        log.start();
+        assertThrows(IllegalArgumentException.class, () -> log.append(new byte[SEGMENT_SIZE]));
+
+        // With the directory gone, the next segment cannot be created
+        for (Path segment : segments()) {
+            Files.delete(segment);
+        }
+        Files.delete(directory);
+        byte[] record = GameEventCodec.event(GameEventCodec.EXPIRED, UUID.randomUUID().toString());
+        for (int i = 0; i < 2 * SEGMENT_SIZE / record.length && !log.isFailed(); i++) {
+            log.append(record);
+        }
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!log.isFailed() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(log.isFailed());
+        while (log.getQueuedCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Later records are dropped without blocking, however many there are
+        long droppedBefore = log.getDroppedCount();
+        for (int i = 0; i < 1000; i++) {
+            log.append(record);
+        }
+        assertEquals(droppedBefore + 1000, log.getDroppedCount());
+        log.shutdown();
+        assertEquals(0, log.getQueuedCount());
+    }
+
+    private GameEventLog newLog() {
+        return newLog(GameEventLog.DEFAULT_MAX_QUEUED);
+    }
+
+    // Every log is shut down after the test, so no writer touches the directory while it is deleted
+    private GameEventLog newLog(int maxQueued) {
+        GameEventLog log = new GameEventLog(true, directory, SEGMENT_SIZE, 5, maxQueued);
+        logs.add(log);
+        return log;
+    }
+
+    @AfterEach
+    void shutDownLogs() {
+        logs.forEach(GameEventLog::shutdown);
+    }
+
+    private static OnlineGameManager newManager(GameEventLog log) {
+        GameBroadcaster broadcaster = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> true));
+        return new OnlineGameManager(new MancalaGameService(), broadcaster, log, Runnable::run, 8);
+    }
+
+    private static OnlineGameManager newManager(GameEventLog log, GameClocks clocks) {
+        GameBroadcaster broadcaster = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> true));
+        return new OnlineGameManager(new MancalaGameService(), broadcaster, log, HibernatedGameStore.disabled(),
+                GameExpiry.disabled(), clocks, GameMetrics.disabled(), Runnable::run, 8);
+    }
+
+    private void playMoves(OnlineGameManager manager, OnlineMancalaGame game, int moves) {
+        for (int i = 0; i < moves && !game.getMancalaGame().isGameOver(); i++) {
+            manager.execute(game.getGameId(), g -> g.makeMove(randomPit(g.getMancalaGame()), g.getMancalaGame().getCurrentPlayer()));
+        }
+    }
+
+    private void playToEnd(OnlineGameManager manager, OnlineMancalaGame game) {
+        playMoves(manager, game, Integer.MAX_VALUE);
+        assertEquals(GameStatus.FINISHED, game.getStatus());
+    }
+
+    private int randomPit(MancalaGame game) {
+        int start = game.getCurrentPlayer() == 0 ? MancalaGame.PLAYER1_PIT_START : MancalaGame.PLAYER2_PIT_START;
+        while (true) {
+            int pit = start + random.nextInt(game.getRules().getPitsPerSide());
+            if (game.getStonesInPit(pit) > 0) return pit;
+        }
+    }
+
+    private static void assertSameGame(OnlineMancalaGame expected, OnlineGameManager recovered) {
+        OnlineMancalaGame actual = recovered.getGame(expected.getGameId()).orElseThrow();
+        assertEquals(expected.getRules(), actual.getRules());
+        assertArrayEquals(expected.getMancalaGame().getBoard(), actual.getMancalaGame().getBoard());
+        assertEquals(expected.getMancalaGame().getCurrentPlayer(), actual.getMancalaGame().getCurrentPlayer());
+        assertEquals(expected.getMancalaGame().isGameOver(), actual.getMancalaGame().isGameOver());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getPlayer1SessionId(), actual.getPlayer1SessionId());
+        assertEquals(expected.getPlayer2SessionId(), actual.getPlayer2SessionId());
+        assertEquals(expected.getResumeToken(0), actual.getResumeToken(0));
+        assertEquals(expected.getResumeToken(1), actual.getResumeToken(1));
+        assertEquals(expected.getCreationTime(), actual.getCreationTime());
+        assertTrue(actual.getStateVersion() >= expected.getStateVersion());
+    }
+
+    private long segmentCount() throws IOException {
+        return segments().size();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(LogSegment::isSegmentFile).sorted().toList();
+        }
+    }
+}
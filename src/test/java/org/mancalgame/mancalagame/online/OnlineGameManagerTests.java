@@ -0,0 +1,519 @@
+package org.mancalgame.mancalagame.online;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mancalgame.mancalagame.Service.MancalaGameService;
+import org.mancalgame.mancalagame.cluster.ClusterTopology;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameDeltaDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.GameStateDTO;
+import org.mancalgame.mancalagame.controller.online.OnlineGameController.InitialGameDetailsDTO;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.MancalaGame.GameStatus;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OnlineGameManagerTests {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Queue<Message<?>> sent = new ConcurrentLinkedQueue<>();
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+    private final GameBroadcaster broadcaster = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> sent.add(message)));
+    private final OnlineGameManager manager = new OnlineGameManager(new MancalaGameService(), broadcaster, pool, 8);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void commandsForOneGameRunOneAtATimeInOrder() throws Exception {
+        String gameId = manager.createAndAddPlayer("host").getGameId();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        int[] order = new int[10_000];
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(order.length);
+
+        for (int i = 0; i < order.length; i++) {
+            int command = i;
+            manager.execute(gameId, game -> {
+                if (running.incrementAndGet() != 1) overlaps.incrementAndGet();
+                order[next.getAndIncrement()] = command;
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < order.length; i++) {
+            assertEquals(i, order[i]);
+        }
+    }
+
+    @Test
+    void joinSeatsSecondPlayerAndBroadcastsOnce() {
+        String gameId = manager.createAndAddPlayer("host").getGameId();
+
+        InitialGameDetailsDTO details = read(manager.joinGame(gameId, "guest").join(), InitialGameDetailsDTO.class);
+
+        assertEquals(1, details.getAssignedPlayerRole());
+        assertEquals(GameStatus.IN_PROGRESS.toString(), details.getGameStatus());
+        assertEquals(1, manager.getPlayerRoleInGame(gameId, "guest"));
+        List<Message<?>> messages = List.copyOf(sent);
+        assertEquals(1, messages.size());
+        assertEquals(GameBroadcaster.topic(gameId), SimpMessageHeaderAccessor.getDestination(messages.get(0).getHeaders()));
+    }
+
+    @Test
+    void joiningAFullOrMissingGameFails() {
+        String gameId = manager.createAndAddPlayer("host").getGameId();
+        manager.joinGame(gameId, "guest").join();
+
+        CompletionException full = assertThrows(CompletionException.class, () -> manager.joinGame(gameId, "third").join());
+        assertTrue(full.getCause() instanceof IllegalArgumentException);
+        assertThrows(CompletionException.class, () -> manager.joinGame("no-such-game", "guest").join());
+        assertFalse(manager.execute("no-such-game", game -> { }));
+    }
+
+    @Test
+    void leavingCancelsAndUnregistersTheGame() throws Exception {
+        OnlineMancalaGame game = manager.createAndAddPlayer("host");
+        String gameId = game.getGameId();
+        manager.joinGame(gameId, "guest").join();
+
+        manager.removePlayer("guest");
+        // A marker queued behind the removal tells us when it has run
+        CountDownLatch removed = new CountDownLatch(1);
+        game.mailbox().execute(removed::countDown);
+        assertTrue(removed.await(5, TimeUnit.SECONDS));
+
+        assertTrue(manager.getGame(gameId).isEmpty());
+        assertEquals(-1, manager.getPlayerRoleInGame(gameId, "host"));
+        assertEquals(0, manager.getActiveGameCount());
+        assertEquals(GameStatus.CANCELLED, game.getStatus());
+    }
+
+    @Test
+    void deltasReplayOntoTheLastSnapshot() throws Exception {
+        OnlineMancalaGame game = manager.createAndAddPlayer("host");
+        manager.joinGame(game.getGameId(), "guest").join();
+        SplittableRandom random = new SplittableRandom(5);
+        while (!game.getMancalaGame().isGameOver()) {
+            manager.submit(game.getGameId(), g -> {
+                int start = g.getMancalaGame().getCurrentPlayer() == 0 ? MancalaGame.PLAYER1_PIT_START : MancalaGame.PLAYER2_PIT_START;
+                int pit;
+                do {
+                    pit = start + random.nextInt(6);
+                } while (g.getMancalaGame().getStonesInPit(pit) == 0);
+                g.makeMove(pit, g.getMancalaGame().getCurrentPlayer());
+                broadcaster.broadcastState(g);
+                return g;
+            }).get(5, TimeUnit.SECONDS);
+        }
+
+        int[] board = null;
+        long seq = 0;
+        int deltas = 0;
+        int sinceKeyframe = 0;
+        Object last = null;
+        for (Message<?> message : sent) {
+            last = decode(message);
+            if (last instanceof GameStateDTO snapshot) {
+                board = snapshot.getBoard().clone();
+                seq = snapshot.getSeq();
+                sinceKeyframe = 0;
+            } else {
+                GameDeltaDTO delta = (GameDeltaDTO) last;
+                assertEquals(seq + 1, delta.seq());
+                for (int i = 0; i < delta.changes().length; i += 2) {
+                    board[delta.changes()[i]] = delta.changes()[i + 1];
+                }
+                seq = delta.seq();
+                deltas++;
+                assertTrue(++sinceKeyframe <= GameBroadcaster.DEFAULT_KEYFRAME_INTERVAL);
+            }
+        }
+        assertTrue(deltas > 0);
+        assertEquals(game.getStateVersion(), seq);
+        assertArrayEquals(game.getMancalaGame().getBoard(), board);
+        // The final move changes the status, so it must have been a full snapshot
+        assertTrue(last instanceof GameStateDTO);
+    }
+
+    @Test
+    void resyncAndJoinReuseTheFrameOfTheCurrentVersion() {
+        OnlineMancalaGame game = manager.createAndAddPlayer("host");
+        SerializedFrame details = manager.joinGame(game.getGameId(), "guest").join();
+
+        SerializedFrame first = manager.submit(game.getGameId(), g -> broadcaster.snapshotFrame(g, "guest")).join();
+        SerializedFrame second = manager.submit(game.getGameId(), g -> broadcaster.snapshotFrame(g, "host")).join();
+        assertSame(first, second);
+        // The keyframe broadcast for the join is the same cached frame
+        assertSame(first, sent.peek().getPayload());
+        assertEquals(read(first, GameStateDTO.class).getSeq(), read(details, InitialGameDetailsDTO.class).getSeq());
+        // Splicing the role into the cached snapshot gives exactly what serializing the DTO would
+        assertEquals(json(new InitialGameDetailsDTO(game, 1)), new String(details.bytes(), StandardCharsets.UTF_8));
+
+        manager.submit(game.getGameId(), g -> {
+            g.makeMove(0, 0);
+            broadcaster.broadcastState(g);
+            return g;
+        }).join();
+        SerializedFrame afterMove = manager.submit(game.getGameId(), g -> broadcaster.snapshotFrame(g, "guest")).join();
+        assertNotSame(first, afterMove);
+        assertArrayEquals(game.getMancalaGame().getBoard(), read(afterMove, GameStateDTO.class).getBoard());
+    }
+
+    @Test
+    void spectatorsReceiveOnlyTheLatestSnapshotPerFlush() {
+        TopicSubscriptionRegistry subscriptions = new TopicSubscriptionRegistry();
+        GameBroadcaster spectated = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> sent.add(message)),
+                subscriptions, new BinaryMessageConverter(), objectMapper, true, GameBroadcaster.DEFAULT_KEYFRAME_INTERVAL,
+                GameMetrics.disabled(), ClusterTopology.standalone());
+        OnlineGameManager direct = new OnlineGameManager(new MancalaGameService(), spectated, Runnable::run, 8);
+        OnlineMancalaGame game = direct.createAndAddPlayer("host");
+        direct.joinGame(game.getGameId(), "guest").join();
+        String spectateTopic = GameBroadcaster.spectateTopic(game.getGameId());
+        subscriptions.onSubscribe(new SessionSubscribeEvent(this, subscribe("watcher", spectateTopic)));
+        assertEquals(1, spectated.spectatorCount(game.getGameId()));
+
+        for (int move = 0; move < 3; move++) {
+            direct.execute(game.getGameId(), g -> {
+                int start = g.getMancalaGame().getCurrentPlayer() == 0 ? MancalaGame.PLAYER1_PIT_START : MancalaGame.PLAYER2_PIT_START;
+                int pit = start;
+                while (g.getMancalaGame().getBoard()[pit] == 0) pit++;
+                g.makeMove(pit, g.getMancalaGame().getCurrentPlayer());
+                spectated.broadcastState(g);
+            });
+        }
+        sent.clear();
+        spectated.flushSpectators();
+        spectated.flushSpectators();
+
+        List<Message<?>> messages = List.copyOf(sent);
+        assertEquals(1, messages.size());
+        assertEquals(spectateTopic, SimpMessageHeaderAccessor.getDestination(messages.get(0).getHeaders()));
+        GameStateDTO snapshot = read((SerializedFrame) messages.get(0).getPayload(), GameStateDTO.class);
+        assertEquals(game.getStateVersion(), snapshot.getSeq());
+        assertArrayEquals(game.getMancalaGame().getBoard(), snapshot.getBoard());
+    }
+
+    @Test
+    void idleGamesHibernateOffHeapAndRehydrateOnTheNextCommand() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HibernatedGameStore store = new HibernatedGameStore(1, 1, registry);
+        OnlineGameManager direct = new OnlineGameManager(new MancalaGameService(), broadcaster, GameEventLog.disabled(), store, GameExpiry.disabled(), GameClocks.untimed(), GameMetrics.disabled(), Runnable::run, 8);
+        OnlineMancalaGame game = direct.createAndAddPlayer("host");
+        direct.joinGame(game.getGameId(), "guest").join();
+        direct.execute(game.getGameId(), g -> g.makeMove(2, 0));
+        MancalaGame expected = new MancalaGame();
+        expected.setBoard(game.getMancalaGame().getBoard());
+        expected.setCurrentPlayer(game.getMancalaGame().getCurrentPlayer());
+        new MancalaGameService().makeMove(expected, 3);
+        long version = game.getStateVersion();
+
+        Thread.sleep(5);
+        direct.hibernateIdleGames();
+
+        assertTrue(game.isHibernated());
+        assertEquals(1, store.size());
+        assertEquals(1, direct.getActiveGameCount());
+        assertTrue(direct.findGames(g -> true, 10).isEmpty());
+
+        // A move rehydrates the game and continues from where it stopped
+        OnlineMancalaGame rehydrated = direct.submit(game.getGameId(), g -> {
+            g.makeMove(3, 0);
+            return g;
+        }).join();
+        assertNotSame(game, rehydrated);
+        assertEquals(0, store.size());
+        assertEquals(1, registry.get("mancala.games.lookups").tag("result", "miss").counter().count());
+        assertEquals(1, registry.get("mancala.games.evictions").counter().count());
+        assertArrayEquals(expected.getBoard(), rehydrated.getMancalaGame().getBoard());
+        assertEquals(version, rehydrated.getStateVersion());
+        assertEquals(1, direct.getPlayerRoleInGame(game.getGameId(), "guest"));
+    }
+
+    @Test
+    void timedGamesWithRealSessionIdsFitAHibernationSlot() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HibernatedGameStore store = new HibernatedGameStore(1, 1, registry);
+        GameClocks clocks = new GameClocks(600000, 5000, 100, 16, registry);
+        OnlineGameManager direct = new OnlineGameManager(new MancalaGameService(), broadcaster, GameEventLog.disabled(), store, GameExpiry.disabled(), clocks, GameMetrics.disabled(), Runnable::run, 8);
+        String host = UUID.randomUUID().toString();
+        OnlineMancalaGame game = direct.createAndAddPlayer(host);
+        direct.joinGame(game.getGameId(), UUID.randomUUID().toString()).join();
+        direct.execute(game.getGameId(), g -> g.makeMove(0, 0));
+        assertEquals(GameEventCodec.maxSnapshotBytes(36), GameEventCodec.snapshot(game).length);
+        long[] clock = game.getClock();
+
+        Thread.sleep(5);
+        direct.hibernateIdleGames();
+
+        assertTrue(game.isHibernated());
+        OnlineMancalaGame rehydrated = direct.submit(game.getGameId(), g -> g).join();
+        assertEquals(host, rehydrated.getPlayer1SessionId());
+        assertEquals(clock[0], rehydrated.getClock()[0]);
+        assertEquals(clock[2], rehydrated.getClock()[2]);
+
+        // Session ids longer than a slot allows keep the game on the heap, and the refusal is counted
+        OnlineMancalaGame oversized = direct.createAndAddPlayer("h".repeat(HibernatedGameStore.MAX_SESSION_ID_BYTES + 1));
+        direct.joinGame(oversized.getGameId(), "g".repeat(HibernatedGameStore.MAX_SESSION_ID_BYTES + 1)).join();
+        Thread.sleep(5);
+        direct.hibernateIdleGames();
+
+        assertFalse(oversized.isHibernated());
+        assertEquals(1, registry.get("mancala.games.hibernation.rejected").tag("reason", "oversized").counter().count());
+    }
+
+    @Test
+    void idleGamesExpireByThePolicyForTheirStatus() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GameExpiry expiry = new GameExpiry(1000, 5000, 2000, 1000, 100, 16, registry);
+        OnlineGameManager direct = new OnlineGameManager(new MancalaGameService(), broadcaster, GameEventLog.disabled(),
+                HibernatedGameStore.disabled(), expiry, GameClocks.untimed(), GameMetrics.disabled(), Runnable::run, 8);
+        long start = System.currentTimeMillis();
+        OnlineMancalaGame waiting = direct.createAndAddPlayer("w1");
+        OnlineMancalaGame playing = direct.createAndAddPlayer("p1");
+        direct.joinGame(playing.getGameId(), "p2").join();
+
+        direct.expireGames(start + 1500);
+        assertTrue(direct.getGame(waiting.getGameId()).isEmpty());
+        assertEquals(-1, direct.getPlayerRoleInGame(waiting.getGameId(), "w1"));
+        assertTrue(direct.getGame(playing.getGameId()).isPresent());
+        assertEquals(1, expiry.expiredCount(GameStatus.WAITING_FOR_PLAYER));
+
+        // Activity moves the deadline; the entry that fires first is armed again
+        playing.touch(start + 3000);
+        direct.expireGames(start + 6000);
+        assertTrue(direct.getGame(playing.getGameId()).isPresent());
+        direct.expireGames(start + 8500);
+        assertTrue(direct.getGame(playing.getGameId()).isEmpty());
+        assertEquals(-1, direct.getPlayerRoleInGame(playing.getGameId(), "p2"));
+        assertEquals(1, expiry.expiredCount(GameStatus.IN_PROGRESS));
+        assertEquals(0, direct.getActiveGameCount());
+        assertEquals(0, expiry.trackedCount());
+        assertEquals(2, registry.get("mancala.games.expired").counters().stream().mapToDouble(c -> c.count()).sum());
+    }
+
+    @Test
+    void disconnectedPlayersResumeTheirSeatWithinTheGraceTime() {
+        GameExpiry expiry = new GameExpiry(0, 60000, 0, 0, 1000, 100, 16, new SimpleMeterRegistry());
+        OnlineGameManager direct = new OnlineGameManager(new MancalaGameService(), broadcaster, GameEventLog.disabled(),
+                HibernatedGameStore.disabled(), expiry, GameClocks.untimed(), GameMetrics.disabled(), Runnable::run, 8);
+        long start = System.currentTimeMillis();
+        OnlineMancalaGame resumed = direct.createAndAddPlayer("r1");
+        InitialGameDetailsDTO joined = read(direct.joinGame(resumed.getGameId(), "r2").join(), InitialGameDetailsDTO.class);
+        OnlineMancalaGame abandoned = direct.createAndAddPlayer("a1");
+        direct.joinGame(abandoned.getGameId(), "a2").join();
+        String abandonedToken = abandoned.getResumeToken(1);
+
+        direct.disconnectPlayer("r2");
+        direct.disconnectPlayer("a2");
+        assertEquals(GameStatus.IN_PROGRESS, resumed.getStatus());
+        assertEquals(-1, direct.getPlayerRoleInGame(resumed.getGameId(), "r2"));
+
+        // The token from the join reply takes the seat back; the reply is the one snapshot to resync from
+        sent.clear();
+        InitialGameDetailsDTO details = read(direct.resumeGame(joined.getResumeToken(), "r3").join(), InitialGameDetailsDTO.class);
+        assertEquals(1, details.getAssignedPlayerRole());
+        assertEquals(joined.getResumeToken(), details.getResumeToken());
+        assertEquals(resumed.getStateVersion(), details.getSeq());
+        assertEquals(1, direct.getPlayerRoleInGame(resumed.getGameId(), "r3"));
+        assertTrue(sent.isEmpty());
+        assertThrows(CompletionException.class, () -> direct.resumeGame("unknown", "r4").join());
+
+        // Past the grace time only the game nobody came back to is cancelled
+        direct.expireGames(start + 1500);
+        assertEquals(GameStatus.IN_PROGRESS, resumed.getStatus());
+        assertEquals(GameStatus.CANCELLED, abandoned.getStatus());
+        assertTrue(direct.getGame(abandoned.getGameId()).isEmpty());
+        assertEquals(-1, direct.getPlayerRoleInGame(abandoned.getGameId(), "a1"));
+        assertThrows(CompletionException.class, () -> direct.resumeGame(abandonedToken, "a3").join());
+        assertEquals(2, direct.getSeatedSessionCount());
+    }
+
+    @Test
+    void playersWhoRunOutOfTimeLoseOnTheGameMailbox() throws InterruptedException {
+        GameClocks clocks = new GameClocks(200, 1000, 1, 16, new SimpleMeterRegistry());
+        OnlineGameManager direct = new OnlineGameManager(new MancalaGameService(), broadcaster, GameEventLog.disabled(),
+                HibernatedGameStore.disabled(), GameExpiry.disabled(), clocks, GameMetrics.disabled(), Runnable::run, 8);
+        OnlineMancalaGame late = direct.createAndAddPlayer("l1");
+        direct.joinGame(late.getGameId(), "l2").join();
+        OnlineMancalaGame idle = direct.createAndAddPlayer("i1");
+        direct.joinGame(idle.getGameId(), "i2").join();
+
+        // Player 1 moves in time and gains the increment; Player 2's clock starts
+        direct.execute(late.getGameId(), g -> assertTrue(g.makeMove(0, 0)));
+        assertTrue(late.getClock()[0] > 1000);
+        assertEquals(1, late.getMancalaGame().getCurrentPlayer());
+        Thread.sleep(250);
+
+        // A move after the flag fell is refused: the timeout is applied first
+        direct.execute(late.getGameId(), g -> assertFalse(g.makeMove(7, 1)));
+        assertEquals(GameStatus.FINISHED, late.getStatus());
+        assertEquals(0, late.getMancalaGame().getWinner());
+        assertEquals(0, late.getClock()[1]);
+
+        // Nobody moves: the wheel finds the game
+        direct.checkClocks(System.currentTimeMillis());
+        assertEquals(GameStatus.FINISHED, idle.getStatus());
+        assertEquals(1, idle.getMancalaGame().getWinner());
+        assertEquals(2, clocks.timeoutCount());
+        assertEquals(0, clocks.trackedCount());
+    }
+
+    @Test
+    void quickPlayPairsWaitingPlayersByTimeControl() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OnlineGameManager direct = new OnlineGameManager(new MancalaGameService(), broadcaster, GameEventLog.disabled(),
+                HibernatedGameStore.disabled(), GameExpiry.disabled(), GameClocks.untimed(), GameMetrics.disabled(), Runnable::run, 8);
+        Matchmaker matchmaker = new Matchmaker(direct, new String[]{"10+5", "3+2"}, registry);
+        matchmaker.enqueue("a", null);
+        matchmaker.enqueue("gone", null);
+        matchmaker.enqueue("blitz", "3 + 2");
+        matchmaker.enqueue("b", "10+5");
+        assertThrows(IllegalArgumentException.class, () -> matchmaker.enqueue("a", null));
+        assertThrows(IllegalArgumentException.class, () -> matchmaker.enqueue("c", "5+0"));
+        assertTrue(matchmaker.cancel("gone"));
+        assertEquals(3, matchmaker.waitingCount());
+
+        assertEquals(1, matchmaker.pairWaitingPlayers());
+        OnlineMancalaGame game = direct.findGames(g -> "a".equals(g.getPlayer1SessionId()), 1).get(0);
+        assertEquals("b", game.getPlayer2SessionId());
+        assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+        assertEquals(600000, game.getClock()[0]);
+        assertEquals(2, sent.stream().filter(message -> String.valueOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))
+                .endsWith("/queue/game.details")).count());
+
+        // The lone blitz player keeps their place until someone else asks for that time control
+        assertEquals(1, matchmaker.waitingCount());
+        assertEquals(0, matchmaker.pairWaitingPlayers());
+        matchmaker.enqueue("d", "3+2");
+        assertEquals(1, matchmaker.pairWaitingPlayers());
+        assertEquals(1, direct.getPlayerRoleInGame(direct.findGames(g -> "blitz".equals(g.getPlayer1SessionId()), 1).get(0).getGameId(), "d"));
+        assertEquals(0, matchmaker.waitingCount());
+        assertEquals(4, registry.get("mancala.matchmaking.time-to-match").timers().stream().mapToLong(timer -> timer.count()).sum());
+    }
+
+    @Test
+    void mailboxWaitsBroadcastsAndGameCountsAreMetered() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GameMetrics metrics = new GameMetrics(registry);
+        GameBroadcaster metered = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> sent.add(message)), true, 16, metrics);
+        OnlineGameManager direct = new OnlineGameManager(new MancalaGameService(), metered, GameEventLog.disabled(),
+                HibernatedGameStore.disabled(), GameExpiry.disabled(), GameClocks.untimed(), metrics, Runnable::run, 8);
+        direct.createAndAddPlayer("alone");
+        OnlineMancalaGame game = direct.createAndAddPlayer("host");
+        direct.joinGame(game.getGameId(), "guest").join();
+        long received = System.nanoTime();
+        direct.execute(game.getGameId(), g -> metrics.moveHandled(received, g.makeMove(2, 0)));
+
+        long[] counts = direct.countGamesByStatus();
+        assertEquals(1, counts[GameStatus.WAITING_FOR_PLAYER.ordinal()]);
+        assertEquals(1, counts[GameStatus.IN_PROGRESS.ordinal()]);
+        assertEquals(3, direct.getSeatedSessionCount());
+        assertEquals(2, registry.get("mancala.games.mailbox.wait").timer().count());
+        assertEquals(1, registry.get("mancala.moves.latency").tag("outcome", "applied").timer().count());
+        DistributionSummary jsonBytes = registry.get("mancala.broadcast.bytes").tag("codec", "json").summary();
+        assertEquals(1, jsonBytes.count());
+        assertEquals(sent.stream().mapToInt(message -> ((SerializedFrame) message.getPayload()).bytes().length).sum(), (long) jsonBytes.totalAmount());
+    }
+
+    @Test
+    void timingWheelFiresEntriesOnTheirTickAcrossRevolutions() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule("soon", 25);
+        wheel.schedule("later", 95);
+        wheel.schedule("overdue", -50);
+
+        wheel.advance(20, fired::add);
+        assertEquals(List.of("overdue"), fired);
+        wheel.advance(40, fired::add);
+        assertEquals(List.of("overdue", "soon"), fired);
+        wheel.advance(90, fired::add);
+        assertEquals(1, wheel.size());
+        // A long pause still finds the entry a revolution later
+        wheel.advance(1000, fired::add);
+        assertEquals(List.of("overdue", "soon", "later"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void shardedMapSpreadsKeysAcrossShards() {
+        ShardedMap<String, Integer> map = new ShardedMap<>(10);
+        assertEquals(16, map.shardCount());
+        for (int i = 0; i < 1000; i++) {
+            map.put("k" + i, i);
+        }
+        assertEquals(1000, map.size());
+        map.removeValuesIf(v -> v % 2 == 0);
+        assertEquals(500, map.size());
+        assertEquals(7, map.get("k7"));
+    }
+
+    private static Message<byte[]> subscribe(String sessionId, String destination) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        headers.setSessionId(sessionId);
+        headers.setSubscriptionId("sub-0");
+        headers.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+    }
+
+    private static <T> T read(SerializedFrame frame, Class<T> type) {
+        try {
+            return objectMapper.readValue(frame.bytes(), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Object decode(Message<?> message) {
+        SerializedFrame frame = (SerializedFrame) message.getPayload();
+        return new String(frame.bytes(), StandardCharsets.UTF_8).contains("\"board\"")
+                ? read(frame, GameStateDTO.class)
+                : read(frame, GameDeltaDTO.class);
+    }
+}
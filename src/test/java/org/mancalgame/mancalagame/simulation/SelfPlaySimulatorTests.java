@@ -0,0 +1,71 @@
+package org.mancalgame.mancalagame.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mancalgame.mancalagame.game.MancalaEngine;
+import org.mancalgame.mancalagame.game.MancalaGame;
+import org.mancalgame.mancalagame.game.PackedBoard;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SelfPlaySimulatorTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordedGamesReplayToTheirRecordedResult() throws Exception {
+        Path file = directory.resolve("games.bin");
+        SelfPlaySimulator simulator = new SelfPlaySimulator(MovePolicies.parse("random", 1), MovePolicies.parse("greedy", 2));
+        SelfPlaySimulator.Summary summary;
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            summary = simulator.run(3000, 4, writer);
+        }
+        assertEquals(3000, summary.player1Wins() + summary.player2Wins() + summary.draws());
+        // One move of lookahead beats random play
+        assertTrue(summary.player2Wins() > summary.player1Wins());
+
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(GameRecordWriter.MAGIC, in.getInt());
+        assertEquals(GameRecordWriter.VERSION, in.getInt());
+        PackedBoard board = new PackedBoard();
+        long games = 0;
+        long moves = 0;
+        while (in.hasRemaining()) {
+            int count = Short.toUnsignedInt(in.getShort());
+            int winner = in.get();
+            int store1 = Byte.toUnsignedInt(in.get());
+            int store2 = Byte.toUnsignedInt(in.get());
+            board.reset(MancalaGame.INITIAL_STONES_PER_PIT);
+            int player = 0;
+            for (int i = 0; i < count; i++) {
+                int pit = in.get();
+                assertTrue(board.get(pit) > 0 && pit == MancalaEngine.pitIndex(player, pit % PackedBoard.LANES_PER_SIDE));
+                int flags = MancalaEngine.move(board, player, pit);
+                assertEquals(i == count - 1, (flags & MancalaEngine.GAME_OVER) != 0);
+                if ((flags & MancalaEngine.EXTRA_TURN) == 0) player = 1 - player;
+            }
+            assertEquals(MancalaEngine.winner(board), winner);
+            assertEquals(board.get(MancalaGame.PLAYER1_STORE), store1);
+            assertEquals(board.get(MancalaGame.PLAYER2_STORE), store2);
+            games++;
+            moves += count;
+        }
+        assertEquals(summary.games(), games);
+        assertEquals(summary.moves(), moves);
+    }
+
+    @Test
+    void policiesAreParsedByName() throws Exception {
+        SelfPlaySimulator.Summary summary = new SelfPlaySimulator(MovePolicies.parse("ai:2", 1), MovePolicies.parse("random", 1)).run(20, 2, null);
+        assertEquals(20, summary.games());
+        assertThrows(IllegalArgumentException.class, () -> MovePolicies.parse("ai:0", 1));
+        assertThrows(IllegalArgumentException.class, () -> MovePolicies.parse("minimax", 1));
+    }
+}